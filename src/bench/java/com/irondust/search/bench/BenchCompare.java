@@ -0,0 +1,91 @@
+package com.irondust.search.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compares a JMH JSON result against the committed baseline and prints time and allocation deltas
+ * per benchmark. Exits with status 1 when any benchmark regresses by more than the threshold in
+ * either score or {@code gc.alloc.rate.norm} (bytes/op). Without a baseline file there is nothing to
+ * compare against, so it prints how to record one and exits 0.
+ *
+ * <p>Usage: {@code BenchCompare <baseline.json> <result.json> [threshold, default 0.10]}
+ */
+public final class BenchCompare {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private BenchCompare() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: BenchCompare <baseline.json> <result.json> [threshold]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 0.10;
+        File baselineFile = new File(args[0]);
+        if (!baselineFile.exists()) {
+            System.out.println("No baseline at " + baselineFile + "; skipping comparison. To record one, copy "
+                    + args[1] + " there.");
+            return;
+        }
+        Map<String, Row> baseline = load(baselineFile);
+        Map<String, Row> current = load(new File(args[1]));
+
+        boolean regressed = false;
+        System.out.printf(Locale.ROOT, "%-60s %14s %14s %8s %12s %12s %8s%n",
+                "benchmark", "base", "now", "Δ", "base B/op", "now B/op", "Δ");
+        for (Map.Entry<String, Row> e : current.entrySet()) {
+            Row now = e.getValue();
+            Row base = baseline.get(e.getKey());
+            if (base == null) {
+                System.out.printf(Locale.ROOT, "%-60s %14s %14.3f%n", e.getKey(), "(new)", now.score);
+                continue;
+            }
+            // For throughput modes higher is better; for time modes lower is better
+            double scoreDelta = ratio(base.score, now.score);
+            double scoreWorse = now.higherIsBetter ? -scoreDelta : scoreDelta;
+            double allocDelta = ratio(base.allocNorm, now.allocNorm);
+            boolean bad = scoreWorse > threshold || allocDelta > threshold;
+            regressed |= bad;
+            System.out.printf(Locale.ROOT, "%-60s %14.3f %14.3f %+7.1f%% %12.0f %12.0f %+7.1f%%%s%n",
+                    e.getKey(), base.score, now.score, scoreDelta * 100, base.allocNorm, now.allocNorm,
+                    allocDelta * 100, bad ? "  REGRESSION" : "");
+        }
+        if (regressed) {
+            System.out.printf(Locale.ROOT, "Regressions above %.0f%% threshold%n", threshold * 100);
+            System.exit(1);
+        }
+    }
+
+    private static double ratio(double base, double now) {
+        if (Double.isNaN(base) || Double.isNaN(now) || base == 0.0) return 0.0;
+        return (now - base) / base;
+    }
+
+    private record Row(double score, boolean higherIsBetter, double allocNorm) {}
+
+    private static Map<String, Row> load(File f) throws IOException {
+        Map<String, Row> out = new LinkedHashMap<>();
+        for (JsonNode b : MAPPER.readTree(f)) {
+            String key = b.path("benchmark").asText();
+            JsonNode params = b.path("params");
+            if (params.isObject() && params.size() > 0) key += params.toString();
+            JsonNode secondary = b.path("secondaryMetrics");
+            // JMH 1.37 names it "gc.alloc.rate.norm"; older versions prefix a middle dot
+            JsonNode alloc = secondary.has("gc.alloc.rate.norm") ? secondary.path("gc.alloc.rate.norm")
+                    : secondary.path("·gc.alloc.rate.norm");
+            String mode = b.path("mode").asText();
+            out.put(key, new Row(
+                    b.path("primaryMetric").path("score").asDouble(Double.NaN),
+                    "thrpt".equals(mode),
+                    alloc.isMissingNode() ? Double.NaN : alloc.path("score").asDouble(Double.NaN)));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,46 @@
+package com.irondust.search.bench;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.irondust.search.model.RawProduct;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Captured payloads the benchmarks run over ({@code src/bench/resources/fixtures}): Woo Store API
+ * products and a Meili search response with facets. Replace them with fresh captures when the
+ * catalog shape changes, and re-record the baseline in the same commit.
+ */
+public final class Fixtures {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private Fixtures() {}
+
+    /** Woo products converted the way ingest does ({@link RawProduct#fromJsonNode}). */
+    public static List<RawProduct> wooProducts() {
+        List<RawProduct> out = new ArrayList<>();
+        for (JsonNode p : json("woo-products.json")) out.add(RawProduct.fromJsonNode(p));
+        return out;
+    }
+
+    /** Raw Meili search payload, as {@code MeiliService.searchRaw} returns it. */
+    public static Map<String, Object> meiliResponse() {
+        return MAPPER.convertValue(json("meili-search-response.json"), new TypeReference<Map<String, Object>>() {});
+    }
+
+    /** Parses {@code fixtures/<name>} from the bench classpath. */
+    public static JsonNode json(String name) {
+        try (InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + name)) {
+            if (in == null) throw new IllegalStateException("Missing fixture " + name);
+            return MAPPER.readTree(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.irondust.search.bench.load;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Open-loop load generator: requests are scheduled at a fixed rate regardless of how fast the service
+ * answers, and latency is measured from the scheduled send time, so queueing inside the service shows
+ * up in the percentiles instead of silently lowering the offered load (coordinated omission).
+ *
+ * <p>When more than {@code maxInFlight} requests are outstanding, new ones are counted as
+ * {@code shed} rather than sent; a rising shed count means the service stopped keeping up.
+ */
+public final class LoadDriver {
+
+    /** One request type; {@code weight} is its share of the mix. */
+    public record Scenario(String name, int weight, Supplier<HttpRequest.Builder> request) {}
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    private final Duration requestTimeout;
+    private final int maxInFlight;
+
+    public LoadDriver(Duration requestTimeout, int maxInFlight) {
+        this.requestTimeout = requestTimeout;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /** Runs the weighted mix at {@code rps} for {@code duration} and waits for outstanding requests. */
+    public Map<String, Stats> run(List<Scenario> scenarios, double rps, Duration duration) {
+        int totalWeight = scenarios.stream().mapToInt(Scenario::weight).sum();
+        Map<String, Stats> stats = new ConcurrentHashMap<>();
+        for (Scenario s : scenarios) stats.put(s.name(), new Stats());
+        AtomicInteger inFlight = new AtomicInteger();
+
+        long intervalNanos = (long) (1_000_000_000L / rps);
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        for (long i = 0; ; i++) {
+            long scheduled = start + i * intervalNanos;
+            if (scheduled >= end) break;
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+
+            Scenario s = pick(scenarios, totalWeight);
+            Stats st = stats.get(s.name());
+            if (inFlight.get() >= maxInFlight) {
+                st.shed.incrementAndGet();
+                continue;
+            }
+            inFlight.incrementAndGet();
+            HttpRequest req = s.request().get().timeout(requestTimeout).build();
+            http.sendAsync(req, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((resp, err) -> {
+                        st.record(System.nanoTime() - scheduled, err == null ? resp.statusCode() : -1);
+                        inFlight.decrementAndGet();
+                    });
+        }
+        long drainUntil = System.nanoTime() + requestTimeout.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < drainUntil) LockSupport.parkNanos(10_000_000L);
+        return stats;
+    }
+
+    private static Scenario pick(List<Scenario> scenarios, int totalWeight) {
+        int r = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Scenario s : scenarios) {
+            r -= s.weight();
+            if (r < 0) return s;
+        }
+        return scenarios.get(scenarios.size() - 1);
+    }
+
+    /** Per-scenario outcome counts and latency samples (nanoseconds). */
+    public static final class Stats {
+        private final List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        final AtomicLong ok = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+        final AtomicLong shed = new AtomicLong();
+
+        void record(long nanos, int status) {
+            latencies.add(nanos);
+            if (status < 0) failures.incrementAndGet();
+            else if (status >= 400) errors.incrementAndGet();
+            else ok.incrementAndGet();
+        }
+
+        /** Summary in milliseconds: count, ok, http_errors, failures (timeouts/IO), shed, p50…max. */
+        public Map<String, Object> summary(Duration duration) {
+            long[] sorted;
+            synchronized (latencies) {
+                sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+            }
+            Arrays.sort(sorted);
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("count", sorted.length);
+            out.put("throughput_rps", round(ok.get() / (double) Math.max(1, duration.toSeconds())));
+            out.put("ok", ok.get());
+            out.put("http_errors", errors.get());
+            out.put("failures", failures.get());
+            out.put("shed", shed.get());
+            out.put("p50_ms", percentile(sorted, 0.50));
+            out.put("p90_ms", percentile(sorted, 0.90));
+            out.put("p99_ms", percentile(sorted, 0.99));
+            out.put("p999_ms", percentile(sorted, 0.999));
+            out.put("max_ms", sorted.length == 0 ? 0.0 : round(sorted[sorted.length - 1] / 1e6));
+            return out;
+        }
+
+        static double percentile(long[] sorted, double p) {
+            if (sorted.length == 0) return 0.0;
+            int idx = (int) Math.ceil(p * sorted.length) - 1;
+            return round(sorted[Math.max(0, Math.min(sorted.length - 1, idx))] / 1e6);
+        }
+
+        private static double round(double v) {
+            return Math.round(v * 10.0) / 10.0;
+        }
+    }
+
+    static HttpRequest.Builder get(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).GET();
+    }
+
+    static HttpRequest.Builder postJson(String url, String json) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+    }
+}
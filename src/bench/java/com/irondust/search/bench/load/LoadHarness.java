@@ -0,0 +1,253 @@
+package com.irondust.search.bench.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * End-to-end load test against local stand-ins. Starts {@link StubServers}, launches the service in a
+ * child JVM pointed at them (same classpath, own heap settings), optionally runs a full ingest, then
+ * drives the scenario mix with {@link LoadDriver} and reports latency percentiles, throughput, stub
+ * traffic and the service's heap/GC figures scraped from {@code /actuator/prometheus}.
+ *
+ * <p>Arguments are {@code key=value} pairs; see {@link #DEFAULTS}. Postgres (query log, blacklist)
+ * is the only dependency not stubbed; start it with {@code docker-compose up -d postgres}.
+ */
+public final class LoadHarness {
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+    static {
+        DEFAULTS.put("rps", "50");
+        DEFAULTS.put("duration", "60");          // seconds, measured phase
+        DEFAULTS.put("warmup", "10");            // seconds, discarded
+        DEFAULTS.put("mix", "search:70,hybrid:10,alternatives:20,ingest:0");
+        DEFAULTS.put("ingestFull", "true");      // POST /ingest/full before the load phases
+        DEFAULTS.put("catalog", "300");          // Woo products served by the stub
+        DEFAULTS.put("maxInFlight", "256");
+        DEFAULTS.put("timeoutMs", "10000");
+        DEFAULTS.put("port", "4100");
+        DEFAULTS.put("jvmArgs", "-Xmx512m");
+        DEFAULTS.put("embeddingDim", "3072");
+        DEFAULTS.put("aiEnrich", "false");
+        DEFAULTS.put("adminKey", "dev_admin_key");
+        DEFAULTS.put("stub.woo", "50,20");       // latencyMs,jitterMs[,errorRate[,status]]
+        DEFAULTS.put("stub.meili", "5,3");
+        DEFAULTS.put("stub.qdrant", "5,3");
+        DEFAULTS.put("stub.openai", "150,100");
+        DEFAULTS.put("report", "target/load-report.json");
+    }
+
+    private static final List<String> QUERIES = List.of(
+            "protein", "whey isolate", "kreatiin", "magneesium", "omega 3", "pre workout",
+            "vegan protein for recovery after workout", "something like creatine but without bloating",
+            "протеин", "магний", "vitamiin d", "kollageen", "bcaa", "electrolytes for endurance");
+
+    private LoadHarness() {}
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> cfg = new LinkedHashMap<>(DEFAULTS);
+        for (String a : args) {
+            int eq = a.indexOf('=');
+            if (eq <= 0 || !DEFAULTS.containsKey(a.substring(0, eq))) {
+                System.err.println("Unknown argument '" + a + "'. Options and defaults: " + DEFAULTS);
+                System.exit(2);
+            }
+            cfg.put(a.substring(0, eq), a.substring(eq + 1));
+        }
+
+        Map<String, StubProfile> profiles = new LinkedHashMap<>();
+        for (String b : List.of(StubServers.WOO, StubServers.MEILI, StubServers.QDRANT, StubServers.OPENAI)) {
+            profiles.put(b, StubProfile.parse(cfg.get("stub." + b)));
+        }
+        int port = Integer.parseInt(cfg.get("port"));
+        String base = "http://127.0.0.1:" + port;
+
+        try (StubServers stubs = new StubServers(profiles, Integer.parseInt(cfg.get("catalog")), Integer.parseInt(cfg.get("embeddingDim")))) {
+            stubs.start();
+            Process app = launchApp(cfg, stubs, port);
+            try {
+                awaitReady(base, Duration.ofSeconds(180));
+                Map<String, Object> report = new LinkedHashMap<>();
+                report.put("config", cfg);
+                report.put("stub_profiles", profiles.toString());
+
+                if (Boolean.parseBoolean(cfg.get("ingestFull"))) {
+                    long t0 = System.nanoTime();
+                    int status = send(LoadDriver.postJson(base + "/ingest/full", "{}")
+                            .header("x-admin-key", cfg.get("adminKey")).timeout(Duration.ofMinutes(30)).build());
+                    report.put("ingest_full", Map.of("status", status, "seconds", (System.nanoTime() - t0) / 1e9));
+                    System.out.printf(Locale.ROOT, "ingest/full: HTTP %d in %.1fs%n", status, (System.nanoTime() - t0) / 1e9);
+                }
+
+                List<LoadDriver.Scenario> mix = scenarios(cfg.get("mix"), base, stubs, cfg.get("adminKey"));
+                LoadDriver driver = new LoadDriver(Duration.ofMillis(Long.parseLong(cfg.get("timeoutMs"))),
+                        Integer.parseInt(cfg.get("maxInFlight")));
+                double rps = Double.parseDouble(cfg.get("rps"));
+
+                driver.run(mix, rps, Duration.ofSeconds(Long.parseLong(cfg.get("warmup"))));
+                Map<String, Double> before = scrape(base);
+                Duration measured = Duration.ofSeconds(Long.parseLong(cfg.get("duration")));
+                Map<String, LoadDriver.Stats> stats = driver.run(mix, rps, measured);
+                Map<String, Double> after = scrape(base);
+
+                Map<String, Object> scenarios = new LinkedHashMap<>();
+                stats.forEach((name, st) -> scenarios.put(name, st.summary(measured)));
+                report.put("offered_rps", rps);
+                report.put("scenarios", scenarios);
+                report.put("jvm", jvmDelta(before, after, measured));
+                report.put("stubs", stubs.stats());
+
+                String json = MAPPER.writeValueAsString(report);
+                System.out.println(json);
+                File out = new File(cfg.get("report"));
+                if (out.getParentFile() != null) out.getParentFile().mkdirs();
+                MAPPER.writeValue(out, report);
+                System.out.println("Report written to " + out);
+            } finally {
+                app.destroy();
+                app.waitFor();
+            }
+        }
+    }
+
+    private static Process launchApp(Map<String, String> cfg, StubServers stubs, int port) throws IOException {
+        List<String> cmd = new ArrayList<>();
+        cmd.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        for (String a : cfg.get("jvmArgs").split("\\s+")) if (!a.isBlank()) cmd.add(a);
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        cmd.add("com.irondust.search.Application");
+        ProcessBuilder pb = new ProcessBuilder(cmd);
+        Map<String, String> env = pb.environment();
+        env.put("SERVER_PORT", String.valueOf(port));
+        env.put("APP_BASEURL", stubs.url(StubServers.WOO));
+        env.put("MEILI_HOST", stubs.url(StubServers.MEILI));
+        env.put("QDRANT_HOST", stubs.url(StubServers.QDRANT));
+        env.put("OPENAI_BASE_URL", stubs.url(StubServers.OPENAI) + "/v1");
+        env.put("OPENAI_API_KEY", "stub");
+        env.put("AI_ENRICH", cfg.get("aiEnrich"));
+        env.put("EMBEDDING_DIM", cfg.get("embeddingDim"));
+        // Run from target/load so the relative tmp/ caches, flags and ingest history stay out of the developer's
+        File workDir = new File("target/load");
+        workDir.mkdirs();
+        File log = new File(workDir, "app.log");
+        pb.directory(workDir).redirectErrorStream(true).redirectOutput(log);
+        System.out.println("Service log: " + log);
+        return pb.start();
+    }
+
+    private static List<LoadDriver.Scenario> scenarios(String mix, String base, StubServers stubs, String adminKey) {
+        List<String> docIds = stubs.documentIds();
+        List<Long> productIds = stubs.productIds();
+        List<LoadDriver.Scenario> out = new ArrayList<>();
+        for (String part : mix.split(",")) {
+            String[] kv = part.split(":");
+            int weight = Integer.parseInt(kv[1].trim());
+            if (weight <= 0) continue;
+            String name = kv[0].trim();
+            switch (name) {
+                case "search" -> out.add(new LoadDriver.Scenario(name, weight,
+                        () -> LoadDriver.postJson(base + "/search", searchBody(false))));
+                case "hybrid" -> out.add(new LoadDriver.Scenario(name, weight,
+                        () -> LoadDriver.postJson(base + "/search/hybrid", searchBody(true))));
+                case "alternatives" -> out.add(new LoadDriver.Scenario(name, weight,
+                        () -> LoadDriver.get(base + "/products/" + pick(docIds) + "/alternatives?limit=8&lang=en")));
+                case "ingest" -> out.add(new LoadDriver.Scenario(name, weight,
+                        () -> LoadDriver.postJson(base + "/ingest/products", "{\"ids\":[" + pick(productIds) + "]}")
+                                .header("x-admin-key", adminKey)));
+                default -> throw new IllegalArgumentException("Unknown scenario '" + name + "' in mix");
+            }
+        }
+        if (out.isEmpty()) throw new IllegalArgumentException("Empty scenario mix: " + mix);
+        return out;
+    }
+
+    private static String searchBody(boolean hybrid) {
+        String q = pick(QUERIES);
+        String lang = pick(List.of("est", "en", "ru"));
+        int page = ThreadLocalRandom.current().nextInt(10) == 0 ? 2 : 1;
+        String filters = hybrid ? "" : ",\"filters\":{\"in_stock\":true}";
+        return "{\"q\":\"" + q + "\",\"lang\":\"" + lang + "\",\"page\":" + page + ",\"size\":24" + filters + "}";
+    }
+
+    private static <T> T pick(List<T> list) {
+        return list.get(ThreadLocalRandom.current().nextInt(list.size()));
+    }
+
+    private static void awaitReady(String base, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            try {
+                if (send(LoadDriver.get(base + "/readyz").timeout(Duration.ofSeconds(2)).build()) == 200) return;
+            } catch (IOException ignored) {
+                // not listening yet
+            }
+            Thread.sleep(500);
+        }
+        throw new IllegalStateException("Service not ready after " + timeout + "; see target/load/app.log");
+    }
+
+    private static final HttpClient CONTROL = HttpClient.newHttpClient();
+
+    private static int send(HttpRequest req) throws IOException, InterruptedException {
+        return CONTROL.send(req, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    /** Sums Prometheus samples per metric family of interest (heap area only for memory gauges). */
+    static Map<String, Double> scrape(String base) throws IOException, InterruptedException {
+        String body = CONTROL.send(HttpRequest.newBuilder(URI.create(base + "/actuator/prometheus")).GET().build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+        return parsePrometheus(body);
+    }
+
+    static Map<String, Double> parsePrometheus(String body) {
+        Map<String, Double> out = new HashMap<>();
+        for (String line : body.split("\n")) {
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            int sp = line.lastIndexOf(' ');
+            if (sp < 0) continue;
+            String series = line.substring(0, sp);
+            int brace = series.indexOf('{');
+            String name = brace < 0 ? series : series.substring(0, brace);
+            boolean heap = series.contains("area=\"heap\"");
+            String key = switch (name) {
+                case "jvm_gc_pause_seconds_count", "jvm_gc_pause_seconds_sum", "jvm_gc_pause_seconds_max",
+                     "jvm_gc_memory_allocated_bytes_total" -> name;
+                case "jvm_memory_used_bytes", "jvm_memory_committed_bytes", "jvm_memory_max_bytes" -> heap ? name : null;
+                default -> null;
+            };
+            if (key == null) continue;
+            try {
+                double v = Double.parseDouble(line.substring(sp + 1));
+                if (key.endsWith("_max")) out.merge(key, v, Math::max);
+                else out.merge(key, v, Double::sum);
+            } catch (NumberFormatException ignored) {
+                // NaN / malformed samples are skipped
+            }
+        }
+        return out;
+    }
+
+    private static Map<String, Object> jvmDelta(Map<String, Double> before, Map<String, Double> after, Duration measured) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        double secs = Math.max(1, measured.toSeconds());
+        out.put("heap_used_mb", after.getOrDefault("jvm_memory_used_bytes", 0.0) / 1_048_576);
+        out.put("heap_committed_mb", after.getOrDefault("jvm_memory_committed_bytes", 0.0) / 1_048_576);
+        out.put("gc_pauses", after.getOrDefault("jvm_gc_pause_seconds_count", 0.0) - before.getOrDefault("jvm_gc_pause_seconds_count", 0.0));
+        out.put("gc_pause_total_ms", 1000 * (after.getOrDefault("jvm_gc_pause_seconds_sum", 0.0) - before.getOrDefault("jvm_gc_pause_seconds_sum", 0.0)));
+        out.put("gc_pause_max_ms", 1000 * after.getOrDefault("jvm_gc_pause_seconds_max", 0.0));
+        out.put("alloc_rate_mb_s", (after.getOrDefault("jvm_gc_memory_allocated_bytes_total", 0.0)
+                - before.getOrDefault("jvm_gc_memory_allocated_bytes_total", 0.0)) / 1_048_576 / secs);
+        return out;
+    }
+}
@@ -0,0 +1,42 @@
+package com.irondust.search.bench.load;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Latency and error behaviour of one stubbed backend.
+ *
+ * <p>Spec format: {@code latencyMs[,jitterMs[,errorRate[,errorStatus]]]}, e.g. {@code 20,10,0.01,503}
+ * adds 20–30 ms to every response and fails 1% of them with 503.
+ */
+public record StubProfile(long latencyMs, long jitterMs, double errorRate, int errorStatus) {
+
+    public static final StubProfile NONE = new StubProfile(0, 0, 0.0, 503);
+
+    public static StubProfile parse(String spec) {
+        if (spec == null || spec.isBlank()) return NONE;
+        String[] p = spec.split(",");
+        try {
+            return new StubProfile(
+                    Long.parseLong(p[0].trim()),
+                    p.length > 1 ? Long.parseLong(p[1].trim()) : 0,
+                    p.length > 2 ? Double.parseDouble(p[2].trim()) : 0.0,
+                    p.length > 3 ? Integer.parseInt(p[3].trim()) : 503);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad stub profile '" + spec + "', expected latencyMs[,jitterMs[,errorRate[,status]]]");
+        }
+    }
+
+    long sampleDelayMs() {
+        return latencyMs + (jitterMs > 0 ? ThreadLocalRandom.current().nextLong(jitterMs + 1) : 0);
+    }
+
+    boolean sampleError() {
+        return errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%d±%dms err=%.3f/%d", latencyMs, jitterMs, errorRate, errorStatus);
+    }
+}
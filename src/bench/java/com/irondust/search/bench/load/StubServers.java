@@ -0,0 +1,357 @@
+package com.irondust.search.bench.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.irondust.search.bench.Fixtures;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local stand-ins for WooCommerce, Meilisearch, Qdrant and OpenAI, one {@link HttpServer} per backend
+ * on an ephemeral port. Responses are replayed from the captured fixtures in
+ * {@code src/bench/resources/fixtures}; each backend applies its {@link StubProfile} for latency and
+ * injected errors. Handlers run on virtual threads so simulated latency does not cap concurrency.
+ *
+ * <p>Only the routes the service calls are modelled. Writes (document uploads, settings, point
+ * upserts) are acknowledged without state, so searches keep returning the recorded payloads.
+ */
+public final class StubServers implements AutoCloseable {
+    public static final String WOO = "woo";
+    public static final String MEILI = "meili";
+    public static final String QDRANT = "qdrant";
+    public static final String OPENAI = "openai";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Pattern DOC_BY_ID = Pattern.compile("/indexes/[^/]+/documents/([^/]+)");
+    private static final Pattern TARGET_LANG_KEY = Pattern.compile("\"(\\w+)\" \\(");
+    private static final Pattern WOO_BY_ID = Pattern.compile("/wp-json/wc/store/v1/products/(\\d+)");
+
+    private final Map<String, HttpServer> servers = new LinkedHashMap<>();
+    private final Map<String, StubProfile> profiles;
+    private final Map<String, AtomicLong> requests = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> injectedErrors = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicLong taskUid = new AtomicLong();
+
+    private final List<JsonNode> catalog;
+    private final Map<Long, JsonNode> catalogById = new HashMap<>();
+    private final byte[] meiliSearch;
+    private final List<JsonNode> meiliHits;
+    private final byte[] chatCompletion;
+    private final int embeddingDim;
+
+    /**
+     * @param catalogSize number of Woo products served; the captured products are cloned with fresh ids
+     * @param embeddingDim vector size returned by the embeddings stub
+     */
+    public StubServers(Map<String, StubProfile> profiles, int catalogSize, int embeddingDim) {
+        this.profiles = profiles;
+        this.embeddingDim = embeddingDim;
+        this.catalog = buildCatalog(Fixtures.json("woo-products.json"), catalogSize);
+        for (JsonNode p : catalog) catalogById.put(p.path("id").asLong(), p);
+        JsonNode search = Fixtures.json("meili-search-response.json");
+        this.meiliSearch = bytes(search);
+        this.meiliHits = new ArrayList<>();
+        search.path("hits").forEach(meiliHits::add);
+        this.chatCompletion = bytes(Fixtures.json("openai-chat-completion.json"));
+    }
+
+    public void start() throws IOException {
+        start(WOO, this::woo);
+        start(MEILI, this::meili);
+        start(QDRANT, this::qdrant);
+        start(OPENAI, this::openai);
+    }
+
+    public String url(String backend) {
+        return "http://127.0.0.1:" + servers.get(backend).getAddress().getPort();
+    }
+
+    /** Woo product ids the catalog stub serves, for ingest and alternatives scenarios. */
+    public List<Long> productIds() {
+        return new ArrayList<>(catalogById.keySet());
+    }
+
+    /** Meili document ids of the recorded search hits. */
+    public List<String> documentIds() {
+        List<String> ids = new ArrayList<>();
+        for (JsonNode h : meiliHits) ids.add(h.path("id").asText());
+        return ids;
+    }
+
+    /** backend → {requests, injected_errors}. */
+    public Map<String, Map<String, Long>> stats() {
+        Map<String, Map<String, Long>> out = new LinkedHashMap<>();
+        for (String b : servers.keySet()) {
+            out.put(b, Map.of("requests", counter(requests, b).get(), "injected_errors", counter(injectedErrors, b).get()));
+        }
+        return out;
+    }
+
+    @Override
+    public void close() {
+        servers.values().forEach(s -> s.stop(0));
+        executor.shutdownNow();
+    }
+
+    private interface Route {
+        /** Returns {status, body}; body null means empty JSON object. */
+        Object[] handle(String method, URI uri, JsonNode body) throws IOException;
+    }
+
+    private void start(String backend, Route route) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 512);
+        server.setExecutor(executor);
+        server.createContext("/", exchange -> serve(backend, route, exchange));
+        server.start();
+        servers.put(backend, server);
+    }
+
+    private void serve(String backend, Route route, HttpExchange exchange) throws IOException {
+        try (exchange) {
+            counter(requests, backend).incrementAndGet();
+            StubProfile profile = profiles.getOrDefault(backend, StubProfile.NONE);
+            JsonNode body = readBody(exchange);
+            long delay = profile.sampleDelayMs();
+            if (delay > 0) Thread.sleep(delay);
+            if (profile.sampleError()) {
+                counter(injectedErrors, backend).incrementAndGet();
+                respond(exchange, profile.errorStatus(), "{\"error\":\"injected by stub\"}".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            Object[] res = route.handle(exchange.getRequestMethod(), exchange.getRequestURI(), body);
+            Object payload = res[1];
+            byte[] out = payload instanceof byte[] b ? b : bytes(payload == null ? Map.of() : payload);
+            respond(exchange, (Integer) res[0], out);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Object[] woo(String method, URI uri, JsonNode body) {
+        String path = uri.getPath();
+        Matcher m = WOO_BY_ID.matcher(path);
+        if (m.matches()) {
+            JsonNode p = catalogById.get(Long.parseLong(m.group(1)));
+            return p != null ? ok(p) : new Object[]{404, Map.of("code", "woocommerce_rest_product_invalid_id")};
+        }
+        if (path.equals("/wp-json/wc/store/v1/products")) {
+            Map<String, String> q = query(uri);
+            int perPage = Integer.parseInt(q.getOrDefault("per_page", "10"));
+            int page = Integer.parseInt(q.getOrDefault("page", "1"));
+            int from = Math.min(catalog.size(), (page - 1) * perPage);
+            return ok(catalog.subList(from, Math.min(catalog.size(), from + perPage)));
+        }
+        return new Object[]{404, null};
+    }
+
+    private Object[] meili(String method, URI uri, JsonNode body) {
+        String path = uri.getPath();
+        if (path.equals("/health")) return ok(Map.of("status", "available"));
+        if (path.endsWith("/search")) return ok(meiliSearch);
+        if (path.endsWith("/stats")) return ok(Map.of("numberOfDocuments", meiliHits.size(), "isIndexing", false));
+        if (path.equals("/indexes") && "GET".equals(method)) return ok(Map.of("results", List.of()));
+        if (path.endsWith("/documents/fetch")) return ok(page(0, meiliHits.size()));
+        Matcher m = DOC_BY_ID.matcher(path);
+        if (m.matches() && "GET".equals(method)) {
+            String id = m.group(1);
+            for (JsonNode h : meiliHits) if (h.path("id").asText().equals(id)) return ok(h);
+            // Unknown ids (e.g. freshly ingested) get a recorded hit under the requested id
+            ObjectNode copy = meiliHits.get(Math.floorMod(id.hashCode(), meiliHits.size())).deepCopy();
+            copy.put("id", id);
+            return ok(copy);
+        }
+        if (path.endsWith("/documents") && "GET".equals(method)) {
+            Map<String, String> q = query(uri);
+            return ok(page(Integer.parseInt(q.getOrDefault("offset", "0")), Integer.parseInt(q.getOrDefault("limit", "20"))));
+        }
+        if ("GET".equals(method)) return ok(null);
+        return new Object[]{202, Map.of("taskUid", taskUid.incrementAndGet(), "status", "enqueued",
+                "indexUid", path.startsWith("/indexes/") ? path.split("/")[2] : "", "enqueuedAt", "2024-01-01T00:00:00Z")};
+    }
+
+    private Object[] qdrant(String method, URI uri, JsonNode body) {
+        String path = uri.getPath();
+        if (path.equals("/healthz")) return ok("healthz check passed".getBytes(StandardCharsets.UTF_8));
+        if (path.endsWith("/points/search") || path.endsWith("/points/recommend")) {
+            int limit = body != null ? body.path("limit").asInt(20) : 20;
+            List<Map<String, Object>> result = new ArrayList<>();
+            // Reverse of the lexical order, so fusion has real work to do
+            for (int i = meiliHits.size() - 1; i >= 0 && result.size() < limit; i--) {
+                String id = meiliHits.get(i).path("id").asText();
+                result.add(Map.of("id", UUID.nameUUIDFromBytes(id.getBytes(StandardCharsets.UTF_8)).toString(),
+                        "version", 1, "score", 0.9 - result.size() * 0.01, "payload", Map.of("doc_id", id)));
+            }
+            return ok(Map.of("result", result, "status", "ok", "time", 0.001));
+        }
+        if ("GET".equals(method) && path.startsWith("/collections/")) {
+            return ok(Map.of("result", Map.of("status", "green", "points_count", meiliHits.size()), "status", "ok", "time", 0.0));
+        }
+        return ok(Map.of("result", Map.of("operation_id", taskUid.incrementAndGet(), "status", "completed"), "status", "ok", "time", 0.0));
+    }
+
+    private Object[] openai(String method, URI uri, JsonNode body) {
+        String path = uri.getPath();
+        if (path.endsWith("/embeddings")) {
+            List<String> inputs = new ArrayList<>();
+            JsonNode input = body != null ? body.path("input") : null;
+            if (input != null && input.isArray()) input.forEach(n -> inputs.add(n.asText()));
+            else if (input != null) inputs.add(input.asText());
+            int dim = body != null && body.has("dimensions") ? body.path("dimensions").asInt() : embeddingDim;
+            List<Map<String, Object>> data = new ArrayList<>();
+            int tokens = 0;
+            for (int i = 0; i < inputs.size(); i++) {
+                data.add(Map.of("object", "embedding", "index", i, "embedding", vector(inputs.get(i), dim)));
+                tokens += Math.max(1, inputs.get(i).length() / 4);
+            }
+            return ok(Map.of("object", "list", "data", data, "model", body != null ? body.path("model").asText() : "",
+                    "usage", Map.of("prompt_tokens", tokens, "total_tokens", tokens)));
+        }
+        if (path.endsWith("/chat/completions")) return chat(body);
+        return new Object[]{404, null};
+    }
+
+    /**
+     * Replays the captured completion. Translation-memory segments in the request are echoed back
+     * as their own "translation", multi-target prompts get one copy per requested language, and
+     * glossary term batches get each term back unchanged.
+     */
+    private Object[] chat(JsonNode body) {
+        JsonNode messages = body != null ? body.path("messages") : MAPPER.createArrayNode();
+        String system = messages.path(0).path("content").asText("");
+        // Translation requests carry the language task in a second system message
+        String task = messages.size() > 2 ? messages.path(1).path("content").asText("") : "";
+        String user = messages.path(messages.size() - 1).path("content").asText("");
+        if (system.startsWith("You translate short attribute values")) return glossary(user);
+        Matcher m = TARGET_LANG_KEY.matcher(task);
+        boolean multiTarget = m.find();
+        boolean segmented = user.contains("\"segments\"");
+        if (!multiTarget && !segmented) return ok(chatCompletion);
+        try {
+            ObjectNode response = (ObjectNode) MAPPER.readTree(chatCompletion);
+            ObjectNode message = (ObjectNode) response.path("choices").path(0).path("message");
+            ObjectNode single = (ObjectNode) MAPPER.readTree(message.path("content").asText());
+            if (segmented) single.set("segments", MAPPER.readTree(user).path("segments"));
+            JsonNode content = single;
+            if (multiTarget) {
+                ObjectNode keyed = MAPPER.createObjectNode();
+                do {
+                    keyed.set(m.group(1), single);
+                } while (m.find());
+                content = keyed;
+            }
+            message.put("content", content.toString());
+            return ok(response);
+        } catch (IOException | ClassCastException e) {
+            return ok(chatCompletion);
+        }
+    }
+
+    private Object[] glossary(String user) {
+        try {
+            ObjectNode terms = MAPPER.createObjectNode();
+            MAPPER.readTree(user).fields().forEachRemaining(e -> terms.put(e.getKey(), e.getValue().path("text").asText()));
+            ObjectNode response = (ObjectNode) MAPPER.readTree(chatCompletion);
+            ((ObjectNode) response.path("choices").path(0).path("message")).put("content", terms.toString());
+            return ok(response);
+        } catch (IOException | ClassCastException e) {
+            return ok(chatCompletion);
+        }
+    }
+
+    /** Deterministic unit vector per text, so identical queries embed identically. */
+    private static double[] vector(String text, int dim) {
+        Random r = new Random(text.hashCode());
+        double[] v = new double[dim];
+        double norm = 0;
+        for (int i = 0; i < dim; i++) {
+            v[i] = r.nextGaussian();
+            norm += v[i] * v[i];
+        }
+        norm = Math.sqrt(norm);
+        for (int i = 0; i < dim; i++) v[i] /= norm;
+        return v;
+    }
+
+    private Map<String, Object> page(int offset, int limit) {
+        int from = Math.min(meiliHits.size(), Math.max(0, offset));
+        return Map.of("results", meiliHits.subList(from, Math.min(meiliHits.size(), from + limit)),
+                "offset", offset, "limit", limit, "total", meiliHits.size());
+    }
+
+    private static List<JsonNode> buildCatalog(JsonNode templates, int size) {
+        List<JsonNode> out = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ObjectNode p = templates.get(i % templates.size()).deepCopy();
+            long id = 100_000L + i;
+            p.put("id", id);
+            p.put("name", p.path("name").asText() + " #" + i);
+            p.put("slug", p.path("slug").asText() + "-" + i);
+            p.put("sku", p.path("sku").asText() + "-" + i);
+            out.add(p);
+        }
+        return out;
+    }
+
+    private static Object[] ok(Object body) {
+        return new Object[]{200, body};
+    }
+
+    private static AtomicLong counter(Map<String, AtomicLong> map, String key) {
+        return map.computeIfAbsent(key, k -> new AtomicLong());
+    }
+
+    private static JsonNode readBody(HttpExchange exchange) throws IOException {
+        byte[] raw = exchange.getRequestBody().readAllBytes();
+        if (raw.length == 0) return null;
+        try {
+            return MAPPER.readTree(raw);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        }
+    }
+
+    private static Map<String, String> query(URI uri) {
+        Map<String, String> out = new HashMap<>();
+        String q = uri.getRawQuery();
+        if (q == null) return out;
+        for (String kv : q.split("&")) {
+            int eq = kv.indexOf('=');
+            if (eq > 0) out.put(kv.substring(0, eq), java.net.URLDecoder.decode(kv.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return out;
+    }
+
+    private static byte[] bytes(Object value) {
+        try {
+            return MAPPER.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package com.irondust.search.service;
+
+import ch.qos.logback.classic.Level;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.irondust.search.model.EnrichedProduct;
+import com.irondust.search.model.ProductDoc;
+import com.irondust.search.model.RawProduct;
+import com.irondust.search.service.enrichment.AIEnricher;
+import com.irondust.search.service.enrichment.EnrichmentPipeline;
+import com.irondust.search.util.AppMetrics;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Offline replay of a recorded Woo catalog through the ingest transform:
+ * {@link RawProduct#fromJsonNode} → {@link EnrichmentPipeline#enrich} → {@link IngestService#createProductDoc}.
+ *
+ * <p>The corpus is NDJSON with one Woo Store API product node per line, gzip-compressed when the file
+ * name ends in {@code .gz}. For each thread count the runner reports products/second and bytes
+ * allocated per product. It also reports per-{@code EnricherStep} latency percentiles from the
+ * {@code irondust.enrichment.step} timers the pipeline already records. The produced documents are
+ * diffed field by field against a golden NDJSON file.
+ *
+ * <p>Commands:
+ * <ul>
+ *   <li>{@code record out=<corpus.ndjson.gz> [baseUrl=https://www.irondust.eu]} — page through the
+ *       Store API and save every product node</li>
+ *   <li>{@code run [corpus=…] [threads=1,4,8] [repeat=3] [titles=true] [golden=…] [updateGolden=false]}</li>
+ * </ul>
+ *
+ * <p>AI enrichment must be off ({@code AI_ENRICH=false}, set by the {@code bench} profile). Otherwise
+ * the numbers would measure OpenAI round-trips and the output would not be reproducible.
+ */
+public final class EnrichmentReplay {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    /** Sorted keys so golden files diff cleanly and are stable across field reordering. */
+    private static final ObjectMapper CANONICAL = JsonMapper.builder()
+            .enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .build();
+    private static final String DEFAULT_CORPUS = "src/bench/resources/fixtures/woo-corpus-sample.ndjson";
+    private static final int MAX_DIFFS_SHOWN = 20;
+
+    private EnrichmentReplay() {}
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("usage: EnrichmentReplay record out=<file> [baseUrl=…] | run [corpus=…] [threads=1,4,8] [repeat=3] "
+                    + "[titles=true] [golden=…] [updateGolden=false]");
+            System.exit(2);
+        }
+        Map<String, String> opts = new HashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            int eq = args[i].indexOf('=');
+            if (eq > 0) opts.put(args[i].substring(0, eq), args[i].substring(eq + 1));
+        }
+        quietLogs();
+        switch (args[0]) {
+            case "record" -> record(opts.getOrDefault("baseUrl", "https://www.irondust.eu"), new File(required(opts, "out")));
+            case "run" -> System.exit(run(opts));
+            default -> {
+                System.err.println("Unknown command " + args[0]);
+                System.exit(2);
+            }
+        }
+    }
+
+    // ---- record ----
+
+    static void record(String baseUrl, File out) throws IOException, InterruptedException {
+        HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        int count = 0;
+        try (Writer w = new OutputStreamWriter(open(out), StandardCharsets.UTF_8)) {
+            for (int page = 1; ; page++) {
+                HttpRequest req = HttpRequest.newBuilder(URI.create(baseUrl + "/wp-json/wc/store/v1/products?per_page=100&page=" + page))
+                        .header("Accept", "application/json").timeout(Duration.ofSeconds(60)).GET().build();
+                HttpResponse<String> resp = http.send(req, HttpResponse.BodyHandlers.ofString());
+                if (resp.statusCode() != 200) throw new IOException("HTTP " + resp.statusCode() + " for page " + page);
+                JsonNode arr = MAPPER.readTree(resp.body());
+                if (!arr.isArray() || arr.isEmpty()) break;
+                for (JsonNode p : arr) {
+                    w.write(MAPPER.writeValueAsString(p));
+                    w.write('\n');
+                    count++;
+                }
+            }
+        }
+        System.out.println("Recorded " + count + " products to " + out);
+    }
+
+    // ---- run ----
+
+    static int run(Map<String, String> opts) throws Exception {
+        if (new AIEnricher().isEnabled()) {
+            System.err.println("AI enrichment is enabled; set AI_ENRICH=false for a reproducible offline replay");
+            return 2;
+        }
+        File corpusFile = new File(opts.getOrDefault("corpus", DEFAULT_CORPUS));
+        List<JsonNode> corpus = readCorpus(corpusFile);
+        int repeat = Integer.parseInt(opts.getOrDefault("repeat", "3"));
+        boolean titles = Boolean.parseBoolean(opts.getOrDefault("titles", "true"));
+        List<Integer> threadCounts = new ArrayList<>();
+        for (String t : opts.getOrDefault("threads", "1,4,8").split(",")) threadCounts.add(Integer.parseInt(t.trim()));
+        System.out.printf(Locale.ROOT, "Corpus %s: %d products, repeat=%d, titles=%s%n", corpusFile, corpus.size(), repeat, titles);
+
+        // One untimed pass warms the JIT and produces the documents for the golden check
+        Map<String, ProductDoc> docs = new TreeMap<>();
+        for (JsonNode node : corpus) {
+            ProductDoc d = transform(node, titles);
+            docs.put(d.getId(), d);
+        }
+
+        SimpleMeterRegistry steps = stepRegistry();
+        System.out.printf(Locale.ROOT, "%n%8s %12s %14s %14s%n", "threads", "products/s", "ms/product", "KB/product");
+        for (int threads : threadCounts) {
+            Result r = timedRun(corpus, titles, threads, repeat);
+            System.out.printf(Locale.ROOT, "%8d %12.1f %14.3f %14.1f%n",
+                    threads, r.productsPerSecond(), r.millisPerProduct(), r.bytesPerProduct() / 1024.0);
+        }
+        printSteps(steps);
+        Metrics.globalRegistry.remove(steps);
+
+        String golden = opts.get("golden");
+        if (golden == null) return 0;
+        File goldenFile = new File(golden);
+        if (Boolean.parseBoolean(opts.getOrDefault("updateGolden", "false"))) {
+            writeGolden(docs, goldenFile);
+            System.out.println("\nGolden file updated: " + goldenFile + " (" + docs.size() + " documents)");
+            return 0;
+        }
+        return diffGolden(docs, goldenFile) ? 0 : 1;
+    }
+
+    private static ProductDoc transform(JsonNode node, boolean titles) {
+        // Fresh pipeline per product, as IngestService does
+        EnrichedProduct enriched = new EnrichmentPipeline(titles).enrich(RawProduct.fromJsonNode(node));
+        return IngestService.createProductDoc(enriched, null);
+    }
+
+    record Result(long products, long nanos, long allocatedBytes) {
+        double productsPerSecond() { return products / (nanos / 1e9); }
+        double millisPerProduct() { return nanos / 1e6 / products; }
+        double bytesPerProduct() { return allocatedBytes / (double) products; }
+    }
+
+    static Result timedRun(List<JsonNode> corpus, boolean titles, int threads, int repeat) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        AtomicLong allocated = new AtomicLong();
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            // Contiguous slices per worker so allocation can be measured per thread
+            int total = corpus.size() * repeat;
+            int per = (total + threads - 1) / threads;
+            for (int w = 0; w < threads; w++) {
+                int from = w * per;
+                int to = Math.min(total, from + per);
+                tasks.add(() -> {
+                    long before = threadAllocatedBytes();
+                    for (int i = from; i < to; i++) transform(corpus.get(i % corpus.size()), titles);
+                    allocated.addAndGet(threadAllocatedBytes() - before);
+                    return null;
+                });
+            }
+            long t0 = System.nanoTime();
+            for (Future<Void> f : pool.invokeAll(tasks)) f.get();
+            return new Result(total, System.nanoTime() - t0, allocated.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static long threadAllocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean mx) {
+            return mx.getCurrentThreadAllocatedBytes();
+        }
+        return 0L;
+    }
+
+    /** Registry that keeps client-side percentiles for the pipeline's step timers for the whole run. */
+    private static SimpleMeterRegistry stepRegistry() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        registry.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (!AppMetrics.ENRICHMENT_STEP.equals(id.getName())) return config;
+                return DistributionStatisticConfig.builder()
+                        .percentiles(0.5, 0.9, 0.99)
+                        .expiry(Duration.ofHours(1))
+                        .bufferLength(1)
+                        .build()
+                        .merge(config);
+            }
+        });
+        Metrics.addRegistry(registry);
+        return registry;
+    }
+
+    private static void printSteps(SimpleMeterRegistry registry) {
+        System.out.printf(Locale.ROOT, "%n%-20s %10s %10s %10s %10s %10s %10s%n", "step (µs)", "count", "mean", "p50", "p90", "p99", "max");
+        List<Timer> timers = new ArrayList<>(registry.find(AppMetrics.ENRICHMENT_STEP).timers());
+        timers.sort(Comparator.comparingDouble((Timer t) -> t.totalTime(TimeUnit.MICROSECONDS)).reversed());
+        for (Timer t : timers) {
+            Map<Double, Double> pct = new HashMap<>();
+            for (ValueAtPercentile v : t.takeSnapshot().percentileValues()) pct.put(v.percentile(), v.value(TimeUnit.MICROSECONDS));
+            System.out.printf(Locale.ROOT, "%-20s %10d %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                    t.getId().getTag("step"), t.count(), t.mean(TimeUnit.MICROSECONDS),
+                    pct.getOrDefault(0.5, Double.NaN), pct.getOrDefault(0.9, Double.NaN), pct.getOrDefault(0.99, Double.NaN),
+                    t.max(TimeUnit.MICROSECONDS));
+        }
+    }
+
+    // ---- golden ----
+
+    private static void writeGolden(Map<String, ProductDoc> docs, File file) throws IOException {
+        try (Writer w = new OutputStreamWriter(open(file), StandardCharsets.UTF_8)) {
+            for (ProductDoc d : docs.values()) {
+                w.write(CANONICAL.writeValueAsString(CANONICAL.valueToTree(d)));
+                w.write('\n');
+            }
+        }
+    }
+
+    /** Field-level diff against the golden documents; returns true when identical. */
+    static boolean diffGolden(Map<String, ProductDoc> docs, File file) throws IOException {
+        Map<String, JsonNode> golden = new TreeMap<>();
+        for (JsonNode n : readCorpus(file)) golden.put(n.path("id").asText(), n);
+        List<String> diffs = new ArrayList<>();
+        for (Map.Entry<String, ProductDoc> e : docs.entrySet()) {
+            JsonNode want = golden.remove(e.getKey());
+            JsonNode got = CANONICAL.valueToTree(e.getValue());
+            if (want == null) {
+                diffs.add(e.getKey() + ": not in golden");
+                continue;
+            }
+            Set<String> fields = new TreeSet<>();
+            want.fieldNames().forEachRemaining(fields::add);
+            got.fieldNames().forEachRemaining(fields::add);
+            for (String f : fields) {
+                JsonNode a = want.get(f);
+                JsonNode b = got.get(f);
+                if (!Objects.equals(normalize(a), normalize(b))) {
+                    diffs.add(e.getKey() + "." + f + ": " + a + " → " + b);
+                }
+            }
+        }
+        for (String missing : golden.keySet()) diffs.add(missing + ": in golden but not produced");
+
+        if (diffs.isEmpty()) {
+            System.out.println("\nGolden check: " + docs.size() + " documents match " + file);
+            return true;
+        }
+        System.out.println("\nGolden check: " + diffs.size() + " differences against " + file);
+        diffs.stream().limit(MAX_DIFFS_SHOWN).forEach(d -> System.out.println("  " + d));
+        if (diffs.size() > MAX_DIFFS_SHOWN) System.out.println("  … " + (diffs.size() - MAX_DIFFS_SHOWN) + " more");
+        return false;
+    }
+
+    /** Absent and explicit null compare equal. */
+    private static JsonNode normalize(JsonNode n) {
+        return n == null || n.isNull() ? null : n;
+    }
+
+    // ---- io ----
+
+    static List<JsonNode> readCorpus(File file) throws IOException {
+        List<JsonNode> out = new ArrayList<>();
+        InputStream in = new FileInputStream(file);
+        if (file.getName().endsWith(".gz")) in = new GZIPInputStream(in);
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (!line.isBlank()) out.add(MAPPER.readTree(line));
+            }
+        }
+        return out;
+    }
+
+    private static OutputStream open(File file) throws IOException {
+        if (file.getParentFile() != null) file.getParentFile().mkdirs();
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+        return file.getName().endsWith(".gz") ? new GZIPOutputStream(out) : out;
+    }
+
+    private static String required(Map<String, String> opts, String key) {
+        String v = opts.get(key);
+        if (v == null) throw new IllegalArgumentException("Missing " + key + "=");
+        return v;
+    }
+
+    /** Per-product INFO logging in the pipeline would dominate the timings. */
+    private static void quietLogs() {
+        if (LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME) instanceof ch.qos.logback.classic.Logger root) {
+            root.setLevel(Level.WARN);
+        }
+    }
+}
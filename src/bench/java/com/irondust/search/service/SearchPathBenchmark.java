@@ -0,0 +1,70 @@
+package com.irondust.search.service;
+
+import com.irondust.search.bench.Fixtures;
+import com.irondust.search.config.VectorProperties;
+import com.irondust.search.controller.SearchControllerMapper;
+import com.irondust.search.dto.SearchDtos;
+import com.irondust.search.model.ProductDoc;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request CPU work of {@code /search}: filter compilation, RRF fusion and response mapping.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchPathBenchmark {
+    private Map<String, Object> filters;
+    private Map<String, Object> meiliRaw;
+    private List<QdrantService.SearchResult> vectorHits;
+    private HybridSearchService hybrid;
+
+    @Setup
+    public void setup() {
+        filters = new LinkedHashMap<>();
+        filters.put("in_stock", true);
+        filters.put("brand_slug", List.of("dymatize", "now-foods", "applied-nutrition"));
+        filters.put("categories_slugs", List.of("proteiinid"));
+        filters.put("diet_tags", List.of("vegan", "gluten_free"));
+        filters.put("price_per_serving_max", Map.of("op", "<=", "value", 2));
+        filters.put("price_cents", List.of(Map.of("op", ">=", "value", 1000), Map.of("op", "<=", "value", 8000)));
+
+        meiliRaw = Fixtures.meiliResponse();
+
+        // Vector list overlapping the lexical hits in a different order, plus ids only Qdrant knows
+        List<?> hits = (List<?>) meiliRaw.get("hits");
+        vectorHits = new ArrayList<>();
+        for (int i = hits.size() - 1; i >= 0; i -= 2) {
+            String id = String.valueOf(((Map<?, ?>) hits.get(i)).get("id"));
+            vectorHits.add(new QdrantService.SearchResult("p" + i, 0.9 - i * 0.01, Map.of("doc_id", id)));
+        }
+        for (int i = 0; i < 20; i++) {
+            vectorHits.add(new QdrantService.SearchResult("q" + i, 0.5, Map.of("doc_id", "wc_9" + i)));
+        }
+        hybrid = new HybridSearchService(null, null, null, new VectorProperties());
+    }
+
+    @Benchmark
+    public String filterBuild() {
+        return FilterStringBuilder.build(filters);
+    }
+
+    @Benchmark
+    public Map<String, Object> fuseRRF() {
+        return hybrid.fuseRRF(meiliRaw, vectorHits, 24, false);
+    }
+
+    @Benchmark
+    public SearchDtos.SearchResponseBody<ProductDoc> mapToResponse() {
+        return SearchControllerMapper.mapToResponse(meiliRaw, "en");
+    }
+}
@@ -0,0 +1,45 @@
+package com.irondust.search.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.irondust.search.bench.Fixtures;
+import com.irondust.search.model.RawProduct;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TranslationService#looksMistranslated} on a full product description; dominated by the
+ * O(n·m) LCS in {@code stringChangeRatio}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TranslationHeuristicsBenchmark {
+    private TranslationService service;
+    private TranslationService.ProductTranslation source;
+    private TranslationService.ProductTranslation english;
+
+    @Setup
+    public void setup() {
+        service = new TranslationService(null, new ObjectMapper());
+        RawProduct raw = Fixtures.wooProducts().get(0);
+        source = new TranslationService.ProductTranslation();
+        source.name = raw.getName();
+        source.description = raw.getDescription();
+        english = new TranslationService.ProductTranslation();
+        english.name = "Dymatize ISO100 Hydrolyzed 2.2 kg – Gourmet Chocolate";
+        english.description = raw.getDescription()
+                .replace("Toote nimetus", "Product name")
+                .replace("portsjon", "serving")
+                .replace("Koostisosad", "Ingredients")
+                .replace("Kasutamine", "Directions");
+    }
+
+    @Benchmark
+    public boolean looksMistranslated() {
+        return service.looksMistranslated(TranslationService.LANG_EST, TranslationService.LANG_EN, source, english);
+    }
+}
@@ -0,0 +1,56 @@
+package com.irondust.search.service.enrichment;
+
+import com.irondust.search.bench.Fixtures;
+import com.irondust.search.model.EnrichedProduct;
+import com.irondust.search.model.ParsedProduct;
+import com.irondust.search.model.RawProduct;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deterministic enrichment over the captured Woo products: the full pipeline and the regex-heavy unit
+ * and taxonomy parsers on their own. Scores are per fixture batch. The {@code bench} profile sets
+ * {@code AI_ENRICH=false}, so no OpenAI calls are made.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnrichmentBenchmark {
+    private List<RawProduct> products;
+    private EnrichmentPipeline pipeline;
+    private UnitParser unitParser;
+    private TaxonomyParser taxonomyParser;
+
+    @Setup
+    public void setup() {
+        products = Fixtures.wooProducts();
+        pipeline = new EnrichmentPipeline();
+        unitParser = new UnitParser();
+        taxonomyParser = new TaxonomyParser();
+    }
+
+    @Benchmark
+    public void enrich(Blackhole bh) {
+        for (RawProduct raw : products) {
+            EnrichedProduct out = pipeline.enrich(raw);
+            bh.consume(out);
+        }
+        pipeline.clearWarnings();
+    }
+
+    @Benchmark
+    public void unitParser(Blackhole bh) {
+        for (RawProduct raw : products) bh.consume(unitParser.apply(raw, ParsedProduct.fromRawProduct(raw)));
+    }
+
+    @Benchmark
+    public void taxonomyParser(Blackhole bh) {
+        for (RawProduct raw : products) bh.consume(taxonomyParser.apply(raw, ParsedProduct.fromRawProduct(raw)));
+    }
+}
@@ -1,15 +1,18 @@
 package com.irondust.search.admin;
 
+import com.irondust.search.service.BatchPrefillService;
 import com.irondust.search.service.IngestService;
 import com.irondust.search.service.enrichment.AIEnricher;
 import com.irondust.search.service.TranslationService;
 import com.irondust.search.service.VectorIndexService;
+import com.irondust.search.util.TokenAccounting;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
 
 import java.time.Instant;
 import java.nio.file.Files;
@@ -27,17 +30,20 @@ public class AdminController {
     private final TranslationService translationService;
     private final RunRegistry runRegistry;
     private final LogSseService logSseService;
+    private final BatchPrefillService batchPrefillService;
 
     public AdminController(IngestService ingestService,
                            VectorIndexService vectorIndexService,
                            TranslationService translationService,
                            RunRegistry runRegistry,
-                           LogSseService logSseService) {
+                           LogSseService logSseService,
+                           BatchPrefillService batchPrefillService) {
         this.ingestService = ingestService;
         this.vectorIndexService = vectorIndexService;
         this.translationService = translationService;
         this.runRegistry = runRegistry;
         this.logSseService = logSseService;
+        this.batchPrefillService = batchPrefillService;
     }
 
     @PostMapping(path = "/ingest/reingest", produces = MediaType.APPLICATION_JSON_VALUE)
@@ -91,11 +97,72 @@ public class AdminController {
                     runRegistry.put(info);
                     logSseService.append(runId, "Completed. Indexed=" + report.getIndexed());
                 })
+                // Token usage of this run is kept in the run history under the same id
+                .contextWrite(Context.of(TokenAccounting.RUN_ID_KEY, runId))
                 .subscribe();
 
         return Mono.just(ResponseEntity.ok(Map.of("runId", runId, "type", "ingest", "status", info.status)));
     }
 
+    /**
+     * Prefills the AI enrichment and translation caches through OpenAI batch jobs (run type
+     * {@code batch}), then starts a regular full ingest unless the body sets {@code "ingest": false}.
+     */
+    @PostMapping(path = "/ingest/prefill", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Map<String, Object>>> triggerPrefill(
+            @RequestBody(required = false) Map<String, Object> body) {
+        String runId = UUID.randomUUID().toString();
+        RunRegistry.RunInfo info = new RunRegistry.RunInfo();
+        info.runId = runId;
+        info.type = "batch";
+        info.status = "running";
+        info.startedAt = Instant.now();
+        info.updatedAt = Instant.now();
+        runRegistry.put(info);
+
+        boolean ingestAfter = body == null || !Boolean.FALSE.equals(body.get("ingest"));
+
+        batchPrefillService.prefill((phase, processed, total, message) -> {
+                    RunRegistry.RunInfo cur = runRegistry.get(runId);
+                    if (cur != null) {
+                        if (!phase.equals(cur.phase)) logSseService.append(runId, "Phase: " + phase);
+                        cur.phase = phase;
+                        cur.processed = processed;
+                        cur.total = total;
+                        cur.message = message;
+                        runRegistry.put(cur);
+                    }
+                })
+                .doOnSubscribe(s -> logSseService.append(runId, "Batch prefill started"))
+                .doOnError(e -> {
+                    info.status = "failed";
+                    info.endedAt = Instant.now();
+                    info.message = e.toString();
+                    runRegistry.put(info);
+                    logSseService.append(runId, "ERROR: " + e);
+                })
+                .doOnSuccess(report -> {
+                    info.status = "completed";
+                    info.endedAt = Instant.now();
+                    info.message = null;
+                    try {
+                        String p = persistRunResult("batch", runId, report);
+                        info.resultPath = p;
+                    } catch (Exception ex) {
+                        info.message = "persist failed: " + ex;
+                    }
+                    runRegistry.put(info);
+                    logSseService.append(runId, "Completed batch prefill: " + report);
+                    if (ingestAfter) {
+                        triggerReingest(null).subscribe(r -> logSseService.append(runId,
+                                "Started ingest run " + r.getBody().get("runId")));
+                    }
+                })
+                .subscribe();
+
+        return Mono.just(ResponseEntity.ok(Map.of("runId", runId, "type", "batch", "status", info.status)));
+    }
+
     @PostMapping(path = "/index/reindex", produces = MediaType.APPLICATION_JSON_VALUE)
     public Mono<ResponseEntity<Map<String, Object>>> triggerReindex(@RequestParam(value = "batchSize", required = false, defaultValue = "100") int batchSize) {
         String runId = UUID.randomUUID().toString();
@@ -147,6 +214,7 @@ public class AdminController {
         m.put("runId", r.runId);
         m.put("type", r.type);
         m.put("status", r.status);
+        m.put("phase", r.phase);
         m.put("processed", r.processed);
         m.put("total", r.total);
         m.put("startedAt", r.startedAt != null ? r.startedAt.toString() : null);
@@ -165,6 +233,7 @@ public class AdminController {
         m.put("runId", r.runId);
         m.put("type", r.type);
         m.put("status", r.status);
+        m.put("phase", r.phase);
         m.put("processed", r.processed);
         m.put("total", r.total);
         m.put("startedAt", r.startedAt != null ? r.startedAt.toString() : null);
@@ -10,8 +10,9 @@ import java.util.concurrent.ConcurrentHashMap;
 public class RunRegistry {
     public static class RunInfo {
         public String runId;
-        public String type; // ingest | index
+        public String type; // ingest | index | batch
         public String status; // queued|running|completed|failed
+        public String phase; // current step of a multi-step run (batch: collect|enrichment|translation)
         public int processed;
         public Integer total;
         public Instant startedAt;
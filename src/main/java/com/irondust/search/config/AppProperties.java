@@ -25,6 +25,35 @@ public class AppProperties {
     private int ingestParallelism;
     private int meiliConcurrentUpdates;
     private int uploadChunkSize;
+    /**
+     * When true, the ingest stages (fetch, enrich, translate, upload) adapt their concurrency
+     * (AIMD): {@code ingestParallelism} and {@code meiliConcurrentUpdates} become the starting
+     * limits, raised while backends keep up and cut on 429s, timeouts and rising latency.
+     */
+    private boolean ingestAdaptiveConcurrency = true;
+    /**
+     * Upper bound for the adaptive enrich and translate limits.
+     */
+    private int ingestMaxParallelism = 120;
+    /**
+     * Upper bound for the adaptive Meilisearch upload limit.
+     */
+    private int meiliMaxConcurrentUpdates = 50;
+    /**
+     * Deadline in milliseconds for one product's AI enrichment during a full ingest, excluding time
+     * queued for a slot. A product over it is published with deterministic fields only. 0 disables.
+     */
+    private long ingestEnrichDeadlineMs = 45000;
+    /**
+     * Deadline in milliseconds for one product's translation during a full ingest, excluding time
+     * queued for a slot. A product over it is published untranslated. 0 disables.
+     */
+    private long ingestTranslateDeadlineMs = 90000;
+    /**
+     * Whether products that missed a deadline are re-ingested in the background, without deadlines,
+     * once the full ingest has been published.
+     */
+    private boolean ingestDeferredTopUp = true;
     /**
      * Directory where full-ingest reports are saved as timestamped JSON files.
      * Defaults to "tmp/ingest-history" when not set.
@@ -35,6 +64,89 @@ public class AppProperties {
      * Defaults to "tmp/feature-flags.json" when not set.
      */
     private String featureFlagsPath;
+    /**
+     * When true, ingest also publishes per-language projections of every product into
+     * {@code <indexName>_<lang>} indexes (e.g. products_lex_en) and language-aware reads use them.
+     */
+    private boolean localizedIndexes = true;
+    /**
+     * When true, ingest and vector reindex maintain the {@code <indexName>_alternatives} side index and
+     * PDP alternatives are served from it (falling back to live Qdrant recommend for missing entries).
+     */
+    private boolean precomputedAlternatives = true;
+    /**
+     * Number of alternatives precomputed per product. Should cover the largest PDP {@code limit} (24).
+     */
+    private int alternativesTopK = 24;
+    /**
+     * When true, ingest rebuilds the {@code <indexName>_complements} graph and PDP complements are served
+     * from it (falling back to the live popular-item scan for missing entries).
+     */
+    private boolean precomputedComplements = true;
+    /**
+     * Number of complements kept per product in the graph.
+     */
+    private int complementsTopK = 24;
+    /**
+     * When true, search endpoints record each query (text, mode, hits, latency) into the Postgres
+     * {@code query_log} table through an in-memory buffer flushed in the background.
+     */
+    private boolean queryLogEnabled = true;
+    /**
+     * Maximum number of buffered query events; further events are dropped until the writer catches up.
+     */
+    private int queryLogCapacity = 10000;
+    /**
+     * Maximum rows per {@code query_log} insert.
+     */
+    private int queryLogBatchSize = 500;
+    /**
+     * Interval between background flushes of the query log buffer.
+     */
+    private long queryLogFlushMs = 1000;
+    /**
+     * When true, each ingest run's token usage, call latencies and cache hits are written to the
+     * Postgres {@code ingest_runs} and {@code ingest_run_usage} tables when the run ends.
+     */
+    private boolean runUsageEnabled = true;
+    /**
+     * When true, the embedding cache and search backends are warmed with top recent queries at startup and
+     * after each ingest, and {@code /readyz} reports not-ready until the startup warm-up finishes.
+     */
+    private boolean warmupEnabled = true;
+    /**
+     * Number of top logged queries to warm.
+     */
+    private int warmupTopQueries = 200;
+    /**
+     * Query log window (days) used to pick warm-up queries.
+     */
+    private int warmupDays = 7;
+    /**
+     * Optional seed file with one query per line ({@code en: whey protein} sets the language), warmed
+     * before logged queries; useful on a fresh database.
+     */
+    private String warmupSeedPath;
+    /**
+     * Warm-up queries run in parallel.
+     */
+    private int warmupConcurrency = 4;
+    /**
+     * Time budget for one warm-up; the instance is marked ready when it is exceeded.
+     */
+    private long warmupMaxMs = 60000;
+    /**
+     * Directory for batch-job request files written by the ingest prefill.
+     */
+    private String batchJobDir = "tmp/batch-jobs";
+    /**
+     * Interval between status polls of a submitted batch job.
+     */
+    private long batchPollMs = 30000;
+    /**
+     * Longest the prefill waits for one batch job; unfinished requests fall back to the regular ingest.
+     */
+    private long batchMaxWaitMinutes = 1440;
 
     public String getAdminKey() {
         return adminKey;
@@ -68,6 +180,158 @@ public class AppProperties {
         this.featureFlagsPath = featureFlagsPath;
     }
 
+    public boolean isPrecomputedAlternatives() {
+        return precomputedAlternatives;
+    }
+
+    public void setPrecomputedAlternatives(boolean precomputedAlternatives) {
+        this.precomputedAlternatives = precomputedAlternatives;
+    }
+
+    public int getAlternativesTopK() {
+        return alternativesTopK;
+    }
+
+    public void setAlternativesTopK(int alternativesTopK) {
+        this.alternativesTopK = alternativesTopK;
+    }
+
+    public boolean isPrecomputedComplements() {
+        return precomputedComplements;
+    }
+
+    public void setPrecomputedComplements(boolean precomputedComplements) {
+        this.precomputedComplements = precomputedComplements;
+    }
+
+    public int getComplementsTopK() {
+        return complementsTopK;
+    }
+
+    public void setComplementsTopK(int complementsTopK) {
+        this.complementsTopK = complementsTopK;
+    }
+
+    public boolean isQueryLogEnabled() {
+        return queryLogEnabled;
+    }
+
+    public void setQueryLogEnabled(boolean queryLogEnabled) {
+        this.queryLogEnabled = queryLogEnabled;
+    }
+
+    public int getQueryLogCapacity() {
+        return queryLogCapacity;
+    }
+
+    public void setQueryLogCapacity(int queryLogCapacity) {
+        this.queryLogCapacity = queryLogCapacity;
+    }
+
+    public int getQueryLogBatchSize() {
+        return queryLogBatchSize;
+    }
+
+    public void setQueryLogBatchSize(int queryLogBatchSize) {
+        this.queryLogBatchSize = queryLogBatchSize;
+    }
+
+    public long getQueryLogFlushMs() {
+        return queryLogFlushMs;
+    }
+
+    public void setQueryLogFlushMs(long queryLogFlushMs) {
+        this.queryLogFlushMs = queryLogFlushMs;
+    }
+
+    public boolean isRunUsageEnabled() {
+        return runUsageEnabled;
+    }
+
+    public void setRunUsageEnabled(boolean runUsageEnabled) {
+        this.runUsageEnabled = runUsageEnabled;
+    }
+
+    public boolean isWarmupEnabled() {
+        return warmupEnabled;
+    }
+
+    public void setWarmupEnabled(boolean warmupEnabled) {
+        this.warmupEnabled = warmupEnabled;
+    }
+
+    public int getWarmupTopQueries() {
+        return warmupTopQueries;
+    }
+
+    public void setWarmupTopQueries(int warmupTopQueries) {
+        this.warmupTopQueries = warmupTopQueries;
+    }
+
+    public int getWarmupDays() {
+        return warmupDays;
+    }
+
+    public void setWarmupDays(int warmupDays) {
+        this.warmupDays = warmupDays;
+    }
+
+    public String getWarmupSeedPath() {
+        return warmupSeedPath;
+    }
+
+    public void setWarmupSeedPath(String warmupSeedPath) {
+        this.warmupSeedPath = warmupSeedPath;
+    }
+
+    public int getWarmupConcurrency() {
+        return warmupConcurrency;
+    }
+
+    public void setWarmupConcurrency(int warmupConcurrency) {
+        this.warmupConcurrency = warmupConcurrency;
+    }
+
+    public long getWarmupMaxMs() {
+        return warmupMaxMs;
+    }
+
+    public void setWarmupMaxMs(long warmupMaxMs) {
+        this.warmupMaxMs = warmupMaxMs;
+    }
+
+    public String getBatchJobDir() {
+        return batchJobDir;
+    }
+
+    public void setBatchJobDir(String batchJobDir) {
+        this.batchJobDir = batchJobDir;
+    }
+
+    public long getBatchPollMs() {
+        return batchPollMs;
+    }
+
+    public void setBatchPollMs(long batchPollMs) {
+        this.batchPollMs = batchPollMs;
+    }
+
+    public long getBatchMaxWaitMinutes() {
+        return batchMaxWaitMinutes;
+    }
+
+    public void setBatchMaxWaitMinutes(long batchMaxWaitMinutes) {
+        this.batchMaxWaitMinutes = batchMaxWaitMinutes;
+    }
+
+    public boolean isLocalizedIndexes() {
+        return localizedIndexes;
+    }
+
+    public void setLocalizedIndexes(boolean localizedIndexes) {
+        this.localizedIndexes = localizedIndexes;
+    }
+
     public String getBaseUrl() {
         return baseUrl;
     }
@@ -108,6 +372,54 @@ public class AppProperties {
         this.ingestParallelism = ingestParallelism;
     }
 
+    public boolean isIngestAdaptiveConcurrency() {
+        return ingestAdaptiveConcurrency;
+    }
+
+    public void setIngestAdaptiveConcurrency(boolean ingestAdaptiveConcurrency) {
+        this.ingestAdaptiveConcurrency = ingestAdaptiveConcurrency;
+    }
+
+    public int getIngestMaxParallelism() {
+        return ingestMaxParallelism;
+    }
+
+    public void setIngestMaxParallelism(int ingestMaxParallelism) {
+        this.ingestMaxParallelism = ingestMaxParallelism;
+    }
+
+    public int getMeiliMaxConcurrentUpdates() {
+        return meiliMaxConcurrentUpdates;
+    }
+
+    public void setMeiliMaxConcurrentUpdates(int meiliMaxConcurrentUpdates) {
+        this.meiliMaxConcurrentUpdates = meiliMaxConcurrentUpdates;
+    }
+
+    public long getIngestEnrichDeadlineMs() {
+        return ingestEnrichDeadlineMs;
+    }
+
+    public void setIngestEnrichDeadlineMs(long ingestEnrichDeadlineMs) {
+        this.ingestEnrichDeadlineMs = ingestEnrichDeadlineMs;
+    }
+
+    public long getIngestTranslateDeadlineMs() {
+        return ingestTranslateDeadlineMs;
+    }
+
+    public void setIngestTranslateDeadlineMs(long ingestTranslateDeadlineMs) {
+        this.ingestTranslateDeadlineMs = ingestTranslateDeadlineMs;
+    }
+
+    public boolean isIngestDeferredTopUp() {
+        return ingestDeferredTopUp;
+    }
+
+    public void setIngestDeferredTopUp(boolean ingestDeferredTopUp) {
+        this.ingestDeferredTopUp = ingestDeferredTopUp;
+    }
+
     public int getMeiliConcurrentUpdates() {
         return meiliConcurrentUpdates;
     }
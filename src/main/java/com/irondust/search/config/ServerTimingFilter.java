@@ -0,0 +1,30 @@
+package com.irondust.search.config;
+
+import com.irondust.search.util.StageTimings;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Attaches a {@link StageTimings} collector to search requests and reports it in the
+ * {@code Server-Timing} response header.
+ */
+@Component
+public class ServerTimingFilter implements WebFilter {
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String path = exchange.getRequest().getPath().value();
+        if (!path.startsWith("/search") && !path.startsWith("/suggest") && !path.startsWith("/products")) {
+            return chain.filter(exchange);
+        }
+        StageTimings timings = new StageTimings();
+        exchange.getResponse().beforeCommit(() -> {
+            exchange.getResponse().getHeaders().set("Server-Timing", timings.toHeader());
+            return Mono.empty();
+        });
+        return chain.filter(exchange).contextWrite(ctx -> ctx.put(StageTimings.CONTEXT_KEY, timings));
+    }
+}
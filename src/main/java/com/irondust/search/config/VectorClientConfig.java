@@ -1,5 +1,6 @@
 package com.irondust.search.config;
 
+import com.irondust.search.util.AppMetrics;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.MediaType;
@@ -17,6 +18,7 @@ public class VectorClientConfig {
         WebClient.Builder builder = WebClient.builder()
                 .baseUrl(vectorProperties.getHost())
                 .exchangeStrategies(strategies)
+                .filter(AppMetrics.backendFilter("qdrant"))
                 .defaultHeaders(headers -> headers.setAccept(MediaType.parseMediaTypes("application/json")));
         if (vectorProperties.getApiKey() != null && !vectorProperties.getApiKey().isBlank()) {
             builder.defaultHeader("api-key", vectorProperties.getApiKey());
@@ -2,6 +2,7 @@ package com.irondust.search.config;
 
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.irondust.search.util.AppMetrics;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.MediaType;
@@ -26,6 +27,7 @@ public class WebClientConfig {
         return WebClient.builder()
                 .baseUrl(appProperties.getBaseUrl())
                 .exchangeStrategies(strategies)
+                .filter(AppMetrics.backendFilter("woo"))
                 .defaultHeaders(headers -> headers.setAccept(MediaType.parseMediaTypes("application/json")))
                 .build();
     }
@@ -38,6 +40,7 @@ public class WebClientConfig {
         return WebClient.builder()
                 .baseUrl(meiliProperties.getHost())
                 .exchangeStrategies(strategies)
+                .filter(AppMetrics.backendFilter("meili"))
                 .defaultHeader("Authorization", "Bearer " + meiliProperties.getKey())
                 .defaultHeaders(headers -> headers.setAccept(MediaType.parseMediaTypes("application/json")))
                 .build();
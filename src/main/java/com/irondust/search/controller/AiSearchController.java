@@ -4,6 +4,7 @@ import com.irondust.search.dto.SearchDtos;
 import com.irondust.search.service.AiAnswerService;
 import com.irondust.search.service.FeatureFlagService;
 import com.irondust.search.service.FilterStringBuilder;
+import com.irondust.search.service.QueryLogService;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
@@ -16,14 +17,17 @@ public class AiSearchController {
     private static final String FLAG_AI_SEARCH = "ai_search";
     private final AiAnswerService aiAnswerService;
     private final FeatureFlagService flags;
+    private final QueryLogService queryLog;
 
-    public AiSearchController(AiAnswerService aiAnswerService, FeatureFlagService flags) {
+    public AiSearchController(AiAnswerService aiAnswerService, FeatureFlagService flags, QueryLogService queryLog) {
         this.aiAnswerService = aiAnswerService;
         this.flags = flags;
+        this.queryLog = queryLog;
     }
 
     @PostMapping("/search/ai")
     public Mono<Map<String, Object>> ai(@RequestBody SearchDtos.SearchRequestBody body) {
+        long started = System.nanoTime();
         Map<String, Object> filters = body.getFilters();
         if (filters == null) filters = new LinkedHashMap<>();
         if (!filters.containsKey("in_stock")) filters.put("in_stock", true);
@@ -37,7 +41,9 @@ public class AiSearchController {
                         "items", List.of()
                 ));
             }
-            return aiAnswerService.quickGroundedAnswer(body.getQ(), filter, sort, body.getPage(), body.getSize(), facets);
+            return aiAnswerService.quickGroundedAnswer(body.getQ(), filter, sort, body.getPage(), body.getSize(), facets)
+                    .doOnNext(resp -> queryLog.record("/search/ai", body, QueryLogService.MODE_AI,
+                            resp.get("items") instanceof List<?> items ? items.size() : 0, started));
         });
     }
 }
@@ -1,8 +1,12 @@
 package com.irondust.search.controller;
 
+import com.irondust.search.config.AppProperties;
+import com.irondust.search.service.CacheWarmerService;
 import com.irondust.search.service.MeiliService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Mono;
 
@@ -11,8 +15,14 @@ import java.util.Map;
 @RestController
 public class HealthController {
     private final MeiliService meiliService;
+    private final CacheWarmerService cacheWarmerService;
+    private final AppProperties appProperties;
 
-    public HealthController(MeiliService meiliService) { this.meiliService = meiliService; }
+    public HealthController(MeiliService meiliService, CacheWarmerService cacheWarmerService, AppProperties appProperties) {
+        this.meiliService = meiliService;
+        this.cacheWarmerService = cacheWarmerService;
+        this.appProperties = appProperties;
+    }
 
     @GetMapping("/healthz")
     public Mono<ResponseEntity<Map<String, Object>>> health() {
@@ -22,6 +32,26 @@ public class HealthController {
                         : ResponseEntity.status(500).body(Map.<String, Object>of("ok", Boolean.FALSE)))
                 .onErrorReturn(ResponseEntity.status(500).body(Map.<String, Object>of("ok", Boolean.FALSE)));
     }
-}
 
+    /**
+     * Readiness gate for load balancers: 503 until the startup cache warm-up has finished.
+     * The body is the warm-up progress report.
+     */
+    @GetMapping("/readyz")
+    public Mono<ResponseEntity<Map<String, Object>>> ready() {
+        Map<String, Object> progress = cacheWarmerService.progress();
+        return Mono.just(cacheWarmerService.isReady()
+                ? ResponseEntity.ok(progress)
+                : ResponseEntity.status(503).body(progress));
+    }
 
+    @PostMapping("/admin/warmup")
+    public Mono<ResponseEntity<Map<String, Object>>> warmup(
+            @RequestHeader(value = "x-admin-key", required = false) String adminKey) {
+        if (adminKey == null || !adminKey.equals(appProperties.getAdminKey())) {
+            return Mono.just(ResponseEntity.status(401).build());
+        }
+        cacheWarmerService.trigger("manual");
+        return Mono.just(ResponseEntity.accepted().body(cacheWarmerService.progress()));
+    }
+}
@@ -4,6 +4,7 @@ import com.irondust.search.dto.SearchDtos;
 import com.irondust.search.model.ProductDoc;
 import com.irondust.search.service.FilterStringBuilder;
 import com.irondust.search.service.HybridSearchService;
+import com.irondust.search.service.QueryLogService;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
@@ -14,21 +15,25 @@ import java.util.*;
 @RestController
 public class HybridSearchController {
     private final HybridSearchService hybridSearchService;
+    private final QueryLogService queryLog;
 
-    public HybridSearchController(HybridSearchService hybridSearchService) {
+    public HybridSearchController(HybridSearchService hybridSearchService, QueryLogService queryLog) {
         this.hybridSearchService = hybridSearchService;
+        this.queryLog = queryLog;
     }
 
     @PostMapping("/search/hybrid")
     public Mono<SearchDtos.SearchResponseBody<ProductDoc>> search(@RequestBody SearchDtos.SearchRequestBody body) {
+        long started = System.nanoTime();
         Map<String, Object> filters = body.getFilters();
         if (filters == null) filters = new LinkedHashMap<>();
         if (!filters.containsKey("in_stock")) filters.put("in_stock", true);
         String filter = FilterStringBuilder.build(filters);
         List<String> facets = List.of("brand_slug", "categories_slugs", "form", "diet_tags", "goal_tags");
 
-        return hybridSearchService.search(body.getQ(), filter, body.getSort(), body.getPage(), body.getSize(), facets)
-                .map(raw -> SearchControllerMapper.mapToResponse(raw, body.getLang()));
+        return hybridSearchService.search(body.getQ(), filter, body.getSort(), body.getPage(), body.getSize(), facets, body.getLang())
+                .map(raw -> SearchControllerMapper.mapToResponse(raw, body.getLang()))
+                .doOnNext(resp -> queryLog.record("/search/hybrid", body, QueryLogService.MODE_HYBRID, resp.getTotal(), started));
     }
 }
 
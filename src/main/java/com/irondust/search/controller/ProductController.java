@@ -2,21 +2,28 @@ package com.irondust.search.controller;
 
 import com.irondust.search.dto.SearchDtos;
 import com.irondust.search.model.ProductDoc;
+import com.irondust.search.service.LanguageProjection;
 import com.irondust.search.service.MeiliService;
 import com.irondust.search.service.RecommendationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
-import com.irondust.search.util.TitleUtils;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 @RestController
 public class ProductController {
+    private static final Logger log = LoggerFactory.getLogger(ProductController.class);
     private final MeiliService meiliService;
     private final RecommendationService recommendationService;
 
@@ -29,23 +36,10 @@ public class ProductController {
     public Mono<ResponseEntity<Map<String, Object>>> getById(
             @PathVariable("id") String id,
             @RequestParam(value = "lang", required = false) String lang) {
-        return meiliService.getDocumentRaw(id)
+        return meiliService.getDocumentRaw(id, lang)
                 .map(doc -> {
-                    // Apply language-specific fields if requested
-                    if (lang != null && !lang.isEmpty()) {
-                        applyLanguageFieldsToRaw(doc, lang);
-                    }
-                    // Sanitize name/display_title for trailing/leading separators
-                    Object nm = doc.get("name");
-                    if (nm instanceof String ns && !ns.isBlank()) {
-                        String cleaned = TitleUtils.sanitizeTitle(ns);
-                        if (!cleaned.equals(ns)) doc.put("name", cleaned);
-                    }
-                    Object dt = doc.get("display_title");
-                    if (dt instanceof String s && !s.isBlank()) {
-                        String cleaned = TitleUtils.sanitizeTitle(s);
-                        if (!cleaned.equals(s)) doc.put("display_title", cleaned);
-                    }
+                    // Localized projections are ready to serve (titles sanitized at ingest); base-index fallbacks still need the overlay
+                    LanguageProjection.applyInPlace(doc, lang);
                     return ResponseEntity.ok(doc);
                 })
                 .onErrorResume(e -> Mono.just(ResponseEntity.notFound().build()));
@@ -68,65 +62,53 @@ public class ProductController {
     ) {
         return recommendationService.complementsForProduct(id, lang, Math.max(2, Math.min(24, limit)));
     }
-    
-    private void applyLanguageFieldsToRaw(Map<String, Object> doc, String lang) {
-        // Apply language-specific name
-        Map<String, String> nameI18n = (Map<String, String>) doc.get("name_i18n");
-        if (nameI18n != null && nameI18n.containsKey(lang)) {
-            doc.put("name", nameI18n.get(lang));
-        }
-        
-        // Apply language-specific categories
-        Map<String, List<String>> categoriesI18n = (Map<String, List<String>>) doc.get("categories_names_i18n");
-        if (categoriesI18n != null && categoriesI18n.containsKey(lang)) {
-            doc.put("categories_names", categoriesI18n.get(lang));
-        }
-        
-        // Apply language-specific form
-        Map<String, String> formI18n = (Map<String, String>) doc.get("form_i18n");
-        if (formI18n != null && formI18n.containsKey(lang)) {
-            doc.put("form", formI18n.get(lang));
-        }
-        
-        // Apply language-specific flavor
-        Map<String, String> flavorI18n = (Map<String, String>) doc.get("flavor_i18n");
-        if (flavorI18n != null && flavorI18n.containsKey(lang)) {
-            doc.put("flavor", flavorI18n.get(lang));
-        }
-        
-        // Apply language-specific benefit snippet
-        Map<String, String> benefitSnippetI18n = (Map<String, String>) doc.get("benefit_snippet_i18n");
-        if (benefitSnippetI18n != null && benefitSnippetI18n.containsKey(lang)) {
-            doc.put("benefit_snippet", benefitSnippetI18n.get(lang));
-        }
-        // Apply language-specific dosage/timing if present
-        Map<String, String> dosageI18n = (Map<String, String>) doc.get("dosage_text_i18n");
-        if (dosageI18n != null && dosageI18n.containsKey(lang)) {
-            doc.put("dosage_text", dosageI18n.get(lang));
-        }
-        Map<String, String> timingI18n = (Map<String, String>) doc.get("timing_text_i18n");
-        if (timingI18n != null && timingI18n.containsKey(lang)) {
-            doc.put("timing_text", timingI18n.get(lang));
-        }
-        
-        // Apply language-specific FAQ
-        Map<String, List<Map<String, String>>> faqI18n = (Map<String, List<Map<String, String>>>) doc.get("faq_i18n");
-        if (faqI18n != null && faqI18n.containsKey(lang)) {
-            doc.put("faq", faqI18n.get(lang));
-        }
 
-        // Apply language-specific description if present
-        Map<String, String> descriptionI18n = (Map<String, String>) doc.get("description_i18n");
-        if (descriptionI18n != null && descriptionI18n.containsKey(lang)) {
-            doc.put("description", descriptionI18n.get(lang));
-        }
+    /**
+     * Composite PDP payload: fetches the origin once, then runs the alternatives (Qdrant recommend +
+     * batch hydrate) and complements (Meili query) sections in parallel, each under its own deadline.
+     * A section that times out or fails comes back empty and is named in {@code degraded}.
+     */
+    @GetMapping("/products/{id}/page")
+    public Mono<ResponseEntity<SearchDtos.ProductPageResponse>> getPage(
+            @PathVariable("id") String id,
+            @RequestParam(value = "lang", required = false) String lang,
+            @RequestParam(value = "limit", required = false, defaultValue = "8") int limit,
+            @RequestParam(value = "alternativesTimeoutMs", required = false, defaultValue = "800") long alternativesTimeoutMs,
+            @RequestParam(value = "complementsTimeoutMs", required = false, defaultValue = "800") long complementsTimeoutMs
+    ) {
+        int lim = Math.max(2, Math.min(24, limit));
+        return meiliService.getDocumentRaw(id, lang)
+                .flatMap(origin -> {
+                    List<String> degraded = Collections.synchronizedList(new ArrayList<>());
+                    Mono<SearchDtos.SearchResponseBody<ProductDoc>> alternatives = section("alternatives",
+                            recommendationService.alternativesForOrigin(origin, id, lang, lim), alternativesTimeoutMs, degraded);
+                    Mono<SearchDtos.SearchResponseBody<ProductDoc>> complements = section("complements",
+                            recommendationService.complementsForOrigin(origin, id, lang, lim), complementsTimeoutMs, degraded);
+                    return Mono.zip(alternatives, complements).map(t -> {
+                        // Sections read the origin as fetched; localize it once for the response
+                        LanguageProjection.applyInPlace(origin, lang);
+                        SearchDtos.ProductPageResponse page = new SearchDtos.ProductPageResponse();
+                        page.setProduct(origin);
+                        page.setAlternatives(t.getT1());
+                        page.setComplements(t.getT2());
+                        page.setDegraded(List.copyOf(degraded));
+                        return ResponseEntity.ok(page);
+                    });
+                })
+                .onErrorResume(e -> Mono.just(ResponseEntity.notFound().build()));
+    }
 
-        // Apply language-specific search text if present
-        Map<String, String> searchTextI18n = (Map<String, String>) doc.get("search_text_i18n");
-        if (searchTextI18n != null && searchTextI18n.containsKey(lang)) {
-            doc.put("search_text", searchTextI18n.get(lang));
-        }
+    private Mono<SearchDtos.SearchResponseBody<ProductDoc>> section(String name, Mono<SearchDtos.SearchResponseBody<ProductDoc>> source,
+                                                                    long timeoutMs, List<String> degraded) {
+        return source
+                .timeout(Duration.ofMillis(Math.max(1, timeoutMs)))
+                .onErrorResume(e -> {
+                    log.warn("PDP section {} degraded: {}", name, e.toString());
+                    degraded.add(name);
+                    SearchDtos.SearchResponseBody<ProductDoc> empty = new SearchDtos.SearchResponseBody<>();
+                    empty.setItems(List.of());
+                    empty.setFacets(new LinkedHashMap<>());
+                    return Mono.just(empty);
+                });
     }
 }
-
-
@@ -0,0 +1,74 @@
+package com.irondust.search.controller;
+
+import com.irondust.search.config.AppProperties;
+import com.irondust.search.service.QueryLogService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.*;
+
+@RestController
+@RequestMapping("/admin/query-log")
+public class QueryLogAdminController {
+    private final QueryLogService queryLogService;
+    private final AppProperties appProperties;
+
+    public QueryLogAdminController(QueryLogService queryLogService, AppProperties appProperties) {
+        this.queryLogService = queryLogService;
+        this.appProperties = appProperties;
+    }
+
+    @GetMapping(path = "/stats", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Map<String, Object>>> stats(
+            @RequestHeader(value = "x-admin-key", required = false) String adminKey) {
+        if (!authorized(adminKey)) return Mono.just(ResponseEntity.status(401).build());
+        return Mono.just(ResponseEntity.ok(queryLogService.stats()));
+    }
+
+    @GetMapping(path = "/top", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Map<String, Object>>> top(
+            @RequestHeader(value = "x-admin-key", required = false) String adminKey,
+            @RequestParam(value = "days", required = false, defaultValue = "7") int days,
+            @RequestParam(value = "limit", required = false, defaultValue = "50") int limit) {
+        if (!authorized(adminKey)) return Mono.just(ResponseEntity.status(401).build());
+        return rows(queryLogService.topQueries(clampDays(days), clampLimit(limit)));
+    }
+
+    @GetMapping(path = "/zero-results", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Map<String, Object>>> zeroResults(
+            @RequestHeader(value = "x-admin-key", required = false) String adminKey,
+            @RequestParam(value = "days", required = false, defaultValue = "7") int days,
+            @RequestParam(value = "limit", required = false, defaultValue = "50") int limit) {
+        if (!authorized(adminKey)) return Mono.just(ResponseEntity.status(401).build());
+        return rows(queryLogService.zeroResultQueries(clampDays(days), clampLimit(limit)));
+    }
+
+    @GetMapping(path = "/latency", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Map<String, Object>>> latency(
+            @RequestHeader(value = "x-admin-key", required = false) String adminKey,
+            @RequestParam(value = "days", required = false, defaultValue = "7") int days) {
+        if (!authorized(adminKey)) return Mono.just(ResponseEntity.status(401).build());
+        return rows(queryLogService.latencyPercentiles(clampDays(days)));
+    }
+
+    private boolean authorized(String adminKey) {
+        return adminKey != null && adminKey.equals(appProperties.getAdminKey());
+    }
+
+    private static Mono<ResponseEntity<Map<String, Object>>> rows(Flux<Map<String, Object>> rows) {
+        return rows.collectList()
+                .map(list -> ResponseEntity.ok(Map.<String, Object>of("rows", list)))
+                .onErrorResume(e -> Mono.just(ResponseEntity.status(503).body(Map.<String, Object>of("error", e.toString()))));
+    }
+
+    private static int clampDays(int days) {
+        return Math.max(1, Math.min(90, days));
+    }
+
+    private static int clampLimit(int limit) {
+        return Math.max(1, Math.min(500, limit));
+    }
+}
@@ -0,0 +1,68 @@
+package com.irondust.search.controller;
+
+import com.irondust.search.config.AppProperties;
+import com.irondust.search.service.RunUsageService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.*;
+
+@RestController
+@RequestMapping("/admin/run-usage")
+public class RunUsageAdminController {
+    private final RunUsageService runUsageService;
+    private final AppProperties appProperties;
+
+    public RunUsageAdminController(RunUsageService runUsageService, AppProperties appProperties) {
+        this.runUsageService = runUsageService;
+        this.appProperties = appProperties;
+    }
+
+    @GetMapping(path = "/runs", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Map<String, Object>>> runs(
+            @RequestHeader(value = "x-admin-key", required = false) String adminKey,
+            @RequestParam(value = "days", required = false, defaultValue = "30") int days,
+            @RequestParam(value = "limit", required = false, defaultValue = "50") int limit) {
+        if (!authorized(adminKey)) return Mono.just(ResponseEntity.status(401).build());
+        return rows(runUsageService.recentRuns(clampDays(days), clampLimit(limit)));
+    }
+
+    @GetMapping(path = "/runs/{runId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Map<String, Object>>> run(
+            @RequestHeader(value = "x-admin-key", required = false) String adminKey,
+            @PathVariable("runId") String runId) {
+        if (!authorized(adminKey)) return Mono.just(ResponseEntity.status(401).build());
+        return rows(runUsageService.runSeries(runId));
+    }
+
+    @GetMapping(path = "/trend", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Map<String, Object>>> trend(
+            @RequestHeader(value = "x-admin-key", required = false) String adminKey,
+            @RequestParam(value = "kind", required = false, defaultValue = "openai") String kind,
+            @RequestParam(value = "step") String step,
+            @RequestParam(value = "days", required = false, defaultValue = "30") int days) {
+        if (!authorized(adminKey)) return Mono.just(ResponseEntity.status(401).build());
+        return rows(runUsageService.stepTrend(kind, step, clampDays(days)));
+    }
+
+    private boolean authorized(String adminKey) {
+        return adminKey != null && adminKey.equals(appProperties.getAdminKey());
+    }
+
+    private static Mono<ResponseEntity<Map<String, Object>>> rows(Flux<Map<String, Object>> rows) {
+        return rows.collectList()
+                .map(list -> ResponseEntity.ok(Map.<String, Object>of("rows", list)))
+                .onErrorResume(e -> Mono.just(ResponseEntity.status(503).body(Map.<String, Object>of("error", e.toString()))));
+    }
+
+    private static int clampDays(int days) {
+        return Math.max(1, Math.min(365, days));
+    }
+
+    private static int clampLimit(int limit) {
+        return Math.max(1, Math.min(500, limit));
+    }
+}
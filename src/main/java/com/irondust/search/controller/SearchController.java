@@ -6,12 +6,15 @@ import com.irondust.search.model.ProductDoc;
 import com.irondust.search.service.FilterStringBuilder;
 import com.irondust.search.service.HybridSearchService;
 import com.irondust.search.service.MeiliService;
-import com.irondust.search.util.TitleUtils;
+import com.irondust.search.service.QueryLogService;
+import com.irondust.search.util.AppMetrics;
+import com.irondust.search.util.StageTimings;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Mono;
 
@@ -23,11 +26,14 @@ public class SearchController {
     private final MeiliService meiliService;
     private final HybridSearchService hybridSearchService;
     private final VectorProperties vectorProperties;
+    private final QueryLogService queryLog;
 
-    public SearchController(MeiliService meiliService, HybridSearchService hybridSearchService, VectorProperties vectorProperties) {
+    public SearchController(MeiliService meiliService, HybridSearchService hybridSearchService, VectorProperties vectorProperties,
+                            QueryLogService queryLog) {
         this.meiliService = meiliService;
         this.hybridSearchService = hybridSearchService;
         this.vectorProperties = vectorProperties;
+        this.queryLog = queryLog;
     }
 
     /**
@@ -35,7 +41,9 @@ public class SearchController {
      * (lexical + vector) when the query is semantic/cross-locale or when lexical recall is low.
      */
     @PostMapping("/search")
-    public Mono<SearchDtos.SearchResponseBody<ProductDoc>> search(@Valid @RequestBody SearchDtos.SearchRequestBody body) {
+    public Mono<SearchDtos.SearchResponseBody<ProductDoc>> search(@Valid @RequestBody SearchDtos.SearchRequestBody body,
+                                                                  @RequestParam(value = "debug", required = false) Boolean debug) {
+        long started = System.nanoTime();
         try {
             log.info("/search q='{}' page={} size={} lang={} filters_present={} sort_present={}",
                     body.getQ(), body.getPage(), body.getSize(), body.getLang(),
@@ -74,240 +82,72 @@ public class SearchController {
         }
         final List<String> sort = computedSort;
         String q = body.getQ();
-        if (shouldPreTriggerHybrid(q, body.getLang())) {
-            return hybridSearchService.search(q, filter, sort, body.getPage(), body.getSize(), facets)
-                    .map(raw -> mapRawToResponse(raw, body.getLang()));
-        }
-
-        return meiliService.searchRaw(q, filter, sort, body.getPage(), body.getSize(), facets)
-                .flatMap(raw -> {
-                    long total = extractTotal(raw);
-                    boolean hasQuery = q != null && !q.isBlank();
-                    int size = body.getSize() != null ? body.getSize() : 24;
-                    boolean lowRecall = hasQuery && total < Math.max(24, size);
-                    if (lowRecall && (q != null && q.trim().length() >= Math.max(1, vectorProperties.getMinQueryLength()))) {
-                        return hybridSearchService.search(q, filter, sort, body.getPage(), body.getSize(), facets)
-                                .map(hraw -> mapRawToResponse(hraw, body.getLang()));
-                    }
-                    return Mono.just(mapRawToResponse(raw, body.getLang()));
-                });
-    }
-
-    private void mapToProductDoc(Map<?, ?> m, ProductDoc d) {
-        d.setId((String) m.get("id"));
-        d.setParent_id((String) m.get("parent_id"));
-        d.setType((String) m.get("type"));
-        d.setSku((String) m.get("sku"));
-        d.setSlug((String) m.get("slug"));
-        String rawName = (String) m.get("name");
-        if (rawName != null) {
-            d.setName(TitleUtils.sanitizeTitle(rawName));
+        String lang = body.getLang();
+        boolean explain = Boolean.TRUE.equals(body.getDebug()) || Boolean.TRUE.equals(debug);
+        int offset = (body.getPage() - 1) * body.getSize();
+        String preTrigger = preTriggerReason(q, lang);
+        Mono<SearchDtos.SearchResponseBody<ProductDoc>> response;
+        if (preTrigger != null) {
+            AppMetrics.count(AppMetrics.SEARCH_ESCALATIONS, "reason", "pre_trigger");
+            response = hybridSearchService.search(q, filter, sort, body.getPage(), body.getSize(), facets, lang, explain)
+                    .flatMap(StageTimings.map("map", raw -> hybridResponse(raw, lang, explain, offset, QueryLogService.MODE_HYBRID, preTrigger)))
+                    .doOnNext(resp -> queryLog.record("/search", body, QueryLogService.MODE_HYBRID, resp.getTotal(), started));
         } else {
-            d.setName(null);
-        }
-        d.setPermalink((String) m.get("permalink"));
-        d.setPrice_cents((m.get("price_cents") instanceof Number) ? ((Number) m.get("price_cents")).intValue() : null);
-        d.setCurrency((String) m.get("currency"));
-        d.setIn_stock((m.get("in_stock") instanceof Boolean) ? ((Boolean) m.get("in_stock")) : null);
-        d.setLow_stock_remaining((m.get("low_stock_remaining") instanceof Number) ? ((Number) m.get("low_stock_remaining")).intValue() : null);
-        d.setRating((m.get("rating") instanceof Number) ? ((Number) m.get("rating")).doubleValue() : null);
-        d.setReview_count((m.get("review_count") instanceof Number) ? ((Number) m.get("review_count")).intValue() : null);
-        d.setImages((List<String>) m.get("images"));
-        d.setCategories_ids((List<Integer>) m.get("categories_ids"));
-        d.setCategories_slugs((List<String>) m.get("categories_slugs"));
-        d.setCategories_names((List<String>) m.get("categories_names"));
-        d.setBrand_slug((String) m.get("brand_slug"));
-        d.setBrand_name((String) m.get("brand_name"));
-        d.setSearch_text((String) m.get("search_text"));
-        Object dt = m.get("display_title");
-        if (dt instanceof String s && !s.isBlank()) {
-            d.setDisplay_title(TitleUtils.sanitizeTitle(s));
-        }
-        // Optional AI dosage/timing fields
-        d.setDosage_text((String) m.get("dosage_text"));
-        d.setTiming_text((String) m.get("timing_text"));
-        // phase 1 fields
-        d.setForm((String) m.get("form"));
-        Object fl = m.get("flavor");
-        if (fl instanceof String s) {
-            d.setFlavor(s);
-        } else if (fl instanceof List<?> l && !l.isEmpty()) {
-            Object first = l.get(0);
-            if (first != null) {
-                d.setFlavor(String.valueOf(first));
-            }
-        }
-        d.setNet_weight_g((m.get("net_weight_g") instanceof Number)? ((Number) m.get("net_weight_g")).doubleValue() : null);
-        d.setServings((m.get("servings") instanceof Number)? ((Number) m.get("servings")).intValue() : null);
-        d.setServings_min((m.get("servings_min") instanceof Number)? ((Number) m.get("servings_min")).intValue() : null);
-        d.setServings_max((m.get("servings_max") instanceof Number)? ((Number) m.get("servings_max")).intValue() : null);
-        d.setServing_size_g((m.get("serving_size_g") instanceof Number)? ((Number) m.get("serving_size_g")).doubleValue() : null);
-        // count-based packaging fields
-        d.setUnit_count((m.get("unit_count") instanceof Number)? ((Number) m.get("unit_count")).intValue() : null);
-        d.setUnits_per_serving((m.get("units_per_serving") instanceof Number)? ((Number) m.get("units_per_serving")).intValue() : null);
-        d.setUnit_mass_g((m.get("unit_mass_g") instanceof Number)? ((Number) m.get("unit_mass_g")).doubleValue() : null);
-        d.setPrice((m.get("price") instanceof Number)? ((Number) m.get("price")).doubleValue() : null);
-        d.setPrice_per_serving((m.get("price_per_serving") instanceof Number)? ((Number) m.get("price_per_serving")).doubleValue() : null);
-        d.setPrice_per_serving_min((m.get("price_per_serving_min") instanceof Number)? ((Number) m.get("price_per_serving_min")).doubleValue() : null);
-        d.setPrice_per_serving_max((m.get("price_per_serving_max") instanceof Number)? ((Number) m.get("price_per_serving_max")).doubleValue() : null);
-        d.setPrice_per_100g((m.get("price_per_100g") instanceof Number)? ((Number) m.get("price_per_100g")).doubleValue() : null);
-        d.setPrice_per_unit((m.get("price_per_unit") instanceof Number)? ((Number) m.get("price_per_unit")).doubleValue() : null);
-        d.setGoal_tags((List<String>) m.get("goal_tags"));
-        d.setDiet_tags((List<String>) m.get("diet_tags"));
-        d.setIngredients_key((List<String>) m.get("ingredients_key"));
-        Object bs = m.get("benefit_snippet");
-        if (bs instanceof String s) { d.setBenefit_snippet(s); }
-        Object fq = m.get("faq");
-        if (fq instanceof List<?> l) { d.setFaq((List<Map<String,String>>) (List<?>) l); }
-        // Dynamic attributes can be returned either nested or flattened; reconstruct to support UI
-        Map<String, List<String>> dynMap = new LinkedHashMap<>();
-        Object dyn = m.get("dynamic_attrs");
-        if (dyn instanceof Map<?, ?> map) {
-            for (Map.Entry<?, ?> e : ((Map<?, ?>) dyn).entrySet()) {
-                dynMap.put(String.valueOf(e.getKey()), (List<String>) e.getValue());
-            }
-        } else {
-            for (Map.Entry<?, ?> e : m.entrySet()) {
-                String key = String.valueOf(e.getKey());
-                if (key == null) continue;
-                if (key.startsWith("attr_") || key.equals("flavor") || key.equals("flavors") || key.equals("variant_group_id") || key.equals("warnings")) {
-                    Object v = e.getValue();
-                    if (v instanceof List<?> l) {
-                        dynMap.put(key, (List<String>) (List<?>) l);
-                    } else if (v != null) {
-                        dynMap.put(key, List.of(String.valueOf(v)));
-                    }
-                }
-            }
-        }
-        if (!dynMap.isEmpty()) d.setDynamic_attrs(dynMap);
-        
-        // Multilingual fields
-        d.setName_i18n((Map<String, String>) m.get("name_i18n"));
-        d.setDescription_i18n((Map<String, String>) m.get("description_i18n"));
-        d.setShort_description_i18n((Map<String, String>) m.get("short_description_i18n"));
-        d.setCategories_names_i18n((Map<String, List<String>>) m.get("categories_names_i18n"));
-        d.setForm_i18n((Map<String, String>) m.get("form_i18n"));
-        d.setFlavor_i18n((Map<String, String>) m.get("flavor_i18n"));
-        d.setBenefit_snippet_i18n((Map<String, String>) m.get("benefit_snippet_i18n"));
-        d.setDosage_text_i18n((Map<String, String>) m.get("dosage_text_i18n"));
-        d.setTiming_text_i18n((Map<String, String>) m.get("timing_text_i18n"));
-        d.setFaq_i18n((Map<String, List<Map<String, String>>>) m.get("faq_i18n"));
-        d.setSearch_text_i18n((Map<String, String>) m.get("search_text_i18n"));
+            response = meiliService.search(q, filter, sort, body.getPage(), body.getSize(), facets, lang)
+                    .flatMap(result -> {
+                        long total = result.total();
+                        boolean hasQuery = q != null && !q.isBlank();
+                        int size = body.getSize() != null ? body.getSize() : 24;
+                        boolean lowRecall = hasQuery && total < Math.max(24, size);
+                        if (lowRecall && (q != null && q.trim().length() >= Math.max(1, vectorProperties.getMinQueryLength()))) {
+                            AppMetrics.count(AppMetrics.SEARCH_ESCALATIONS, "reason", "low_recall");
+                            return hybridSearchService.search(q, filter, sort, body.getPage(), body.getSize(), facets, lang, explain)
+                                    .flatMap(StageTimings.map("map", hraw -> hybridResponse(hraw, lang, explain, offset, QueryLogService.MODE_HYBRID_FALLBACK, "low_recall")))
+                                    .doOnNext(resp -> queryLog.record("/search", body, QueryLogService.MODE_HYBRID_FALLBACK, resp.getTotal(), started));
+                        }
+                        queryLog.record("/search", body, QueryLogService.MODE_LEXICAL, total, started);
+                        return StageTimings.<SearchDtos.MeiliSearchResult, SearchDtos.SearchResponseBody<ProductDoc>>map("map", r -> {
+                            SearchDtos.SearchResponseBody<ProductDoc> resp = SearchControllerMapper.toResponse(r, lang);
+                            if (explain) resp.setDebug(SearchControllerMapper.explain(QueryLogService.MODE_LEXICAL, null, resp.getItems(), null, offset));
+                            return resp;
+                        }).apply(result);
+                    });
+        }
+        return explain ? response.flatMap(SearchController::withStages) : response;
     }
 
-    private void applyLanguageFields(ProductDoc d, String lang) {
-        if (lang == null || lang.isEmpty()) return;
-        
-        // Apply language-specific name
-        if (d.getName_i18n() != null && d.getName_i18n().containsKey(lang)) {
-            d.setName(d.getName_i18n().get(lang));
-        }
-        
-        // Apply language-specific categories
-        if (d.getCategories_names_i18n() != null && d.getCategories_names_i18n().containsKey(lang)) {
-            d.setCategories_names(d.getCategories_names_i18n().get(lang));
-        }
-        
-        // Apply language-specific form
-        if (d.getForm_i18n() != null && d.getForm_i18n().containsKey(lang)) {
-            d.setForm(d.getForm_i18n().get(lang));
-        }
-        
-        // Apply language-specific flavor
-        if (d.getFlavor_i18n() != null && d.getFlavor_i18n().containsKey(lang)) {
-            d.setFlavor(d.getFlavor_i18n().get(lang));
-        }
-        
-        // Apply language-specific benefit snippet
-        if (d.getBenefit_snippet_i18n() != null && d.getBenefit_snippet_i18n().containsKey(lang)) {
-            d.setBenefit_snippet(d.getBenefit_snippet_i18n().get(lang));
-        }
-        // Apply language-specific dosage/timing
-        if (d.getDosage_text_i18n() != null && d.getDosage_text_i18n().containsKey(lang)) {
-            d.setDosage_text(d.getDosage_text_i18n().get(lang));
-        }
-        if (d.getTiming_text_i18n() != null && d.getTiming_text_i18n().containsKey(lang)) {
-            d.setTiming_text(d.getTiming_text_i18n().get(lang));
-        }
-        
-        // Apply language-specific FAQ
-        if (d.getFaq_i18n() != null && d.getFaq_i18n().containsKey(lang)) {
-            d.setFaq(d.getFaq_i18n().get(lang));
-        }
-
-        // Apply language-specific description
-        if (d.getDescription_i18n() != null && d.getDescription_i18n().containsKey(lang)) {
-            // Reuse 'search_text' for PDP primary description if present
-            // but store translated description in search_text if search_text_i18n matches
-            String desc = d.getDescription_i18n().get(lang);
-            if (desc != null && !desc.isEmpty()) {
-                d.setSearch_text(desc);
-            }
-        }
-
-        // Apply language-specific search text override if present
-        if (d.getSearch_text_i18n() != null && d.getSearch_text_i18n().containsKey(lang)) {
-            String st = d.getSearch_text_i18n().get(lang);
-            if (st != null && !st.isEmpty()) {
-                d.setSearch_text(st);
-            }
+    private static SearchDtos.SearchResponseBody<ProductDoc> hybridResponse(Map<String, Object> raw, String lang, boolean explain,
+                                                                          int offset, String mode, String triggerReason) {
+        SearchDtos.SearchResponseBody<ProductDoc> resp = SearchControllerMapper.mapToResponse(raw, lang);
+        if (explain) {
+            resp.setDebug(SearchControllerMapper.explain(mode, triggerReason, resp.getItems(), raw.get(HybridSearchService.EXPLAIN_KEY), offset));
         }
+        return resp;
     }
 
-    /**
-     * Maps raw Meilisearch (or fused hybrid) payload into API response and applies language overrides.
-     */
-    private SearchDtos.SearchResponseBody<ProductDoc> mapRawToResponse(Map<String, Object> raw, String lang) {
-        SearchDtos.SearchResponseBody<ProductDoc> resp = new SearchDtos.SearchResponseBody<>();
-        List<ProductDoc> items = new ArrayList<>();
-        Object hitsObj = raw.get("hits");
-        if (hitsObj instanceof List<?> hits) {
-            for (Object h : hits) {
-                if (h instanceof Map<?, ?> m) {
-                    ProductDoc d = new ProductDoc();
-                    mapToProductDoc(m, d);
-                    applyLanguageFields(d, lang);
-                    items.add(d);
-                }
-            }
-        }
-        resp.setItems(items);
-        Object totalObj = raw.containsKey("totalHits") ? raw.get("totalHits") : raw.getOrDefault("estimatedTotalHits", 0);
-        long total = (totalObj instanceof Number) ? ((Number) totalObj).longValue() : 0L;
-        resp.setTotal(total);
-
-        Map<String, Map<String, Integer>> facetsDist = new LinkedHashMap<>();
-        Object facetsObj = raw.get("facetDistribution");
-        if (facetsObj instanceof Map<?, ?> f) {
-            for (String key : Arrays.asList("brand_slug", "categories_slugs", "form", "diet_tags", "goal_tags")) {
-                Object dmap = f.get(key);
-                if (dmap instanceof Map<?, ?> dm) {
-                    Map<String, Integer> inner = new LinkedHashMap<>();
-                    for (Map.Entry<?, ?> e : dm.entrySet()) {
-                        inner.put(String.valueOf(e.getKey()), ((Number) e.getValue()).intValue());
-                    }
-                    facetsDist.put(key, inner);
-                }
-            }
-        }
-        resp.setFacets(facetsDist);
-        return resp;
+    /** Adds the request's stage timings to an explained response. */
+    static Mono<SearchDtos.SearchResponseBody<ProductDoc>> withStages(SearchDtos.SearchResponseBody<ProductDoc> resp) {
+        return Mono.deferContextual(ctx -> {
+            StageTimings timings = StageTimings.from(ctx);
+            if (timings != null && resp.getDebug() != null) resp.getDebug().put("stages_ms", timings.millis());
+            return Mono.just(resp);
+        });
     }
 
     /**
-     * Heuristics to decide whether to run hybrid first instead of purely lexical.
+     * Heuristics to decide whether to run hybrid first instead of purely lexical. Returns the reason
+     * code, or null to stay lexical.
      */
-    private boolean shouldPreTriggerHybrid(String q, String lang) {
-        if (q == null || q.isBlank()) return false;
+    private String preTriggerReason(String q, String lang) {
+        if (q == null || q.isBlank()) return null;
         String t = q.trim().toLowerCase(Locale.ROOT);
         int tokens = t.split("\\s+").length;
-        if (tokens >= 4) return true;
-        if (t.contains(" similar ") || t.contains(" like ") || t.contains("alternative") || t.contains("instead of")) return true;
-        if (t.startsWith("similar ") || t.startsWith("like ") || t.startsWith("alternative ")) return true;
-        if (looksCyrillic(t)) return true;
-        if (hasEstonianMarkers(t)) return true;
-        return false;
+        if (tokens >= 4) return "long_query";
+        if (t.contains(" similar ") || t.contains(" like ") || t.contains("alternative") || t.contains("instead of")) return "similarity_phrase";
+        if (t.startsWith("similar ") || t.startsWith("like ") || t.startsWith("alternative ")) return "similarity_phrase";
+        if (looksCyrillic(t)) return "cyrillic";
+        if (hasEstonianMarkers(t)) return "estonian_diacritics";
+        return null;
     }
 
     /** Quick Cyrillic check for cross-locale gating. */
@@ -327,12 +167,4 @@ public class SearchController {
     private boolean hasEstonianMarkers(String text) {
         return text.indexOf('ä') >= 0 || text.indexOf('õ') >= 0 || text.indexOf('ö') >= 0 || text.indexOf('ü') >= 0;
     }
-
-    /** Extracts total hits from Meili response supporting both fields. */
-    private long extractTotal(Map<String, Object> raw) {
-        Object totalObj = raw.containsKey("totalHits") ? raw.get("totalHits") : raw.getOrDefault("estimatedTotalHits", 0);
-        return (totalObj instanceof Number) ? ((Number) totalObj).longValue() : 0L;
-    }
 }
-
-
@@ -0,0 +1,45 @@
+package com.irondust.search.controller;
+
+import com.irondust.search.dto.SearchDtos;
+import com.irondust.search.service.suggest.SuggestIndex;
+import com.irondust.search.service.suggest.SuggestService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RestController
+public class SuggestController {
+    private final SuggestService suggestService;
+
+    public SuggestController(SuggestService suggestService) {
+        this.suggestService = suggestService;
+    }
+
+    /**
+     * Typeahead served from the in-memory snapshot; no search backend call per keystroke.
+     */
+    @GetMapping("/suggest")
+    public Mono<SearchDtos.SuggestResponse> suggest(
+            @RequestParam(value = "q", required = false, defaultValue = "") String q,
+            @RequestParam(value = "lang", required = false) String lang,
+            @RequestParam(value = "limit", required = false, defaultValue = "8") int limit,
+            @RequestParam(value = "fuzzy", required = false, defaultValue = "true") boolean fuzzy
+    ) {
+        List<SearchDtos.SuggestItem> items = new ArrayList<>();
+        for (SuggestIndex.Suggestion s : suggestService.suggest(q, lang, Math.max(1, Math.min(20, limit)), fuzzy)) {
+            SearchDtos.SuggestItem item = new SearchDtos.SuggestItem();
+            item.setText(s.text());
+            item.setType(s.type());
+            item.setId(s.id());
+            items.add(item);
+        }
+        SearchDtos.SuggestResponse resp = new SearchDtos.SuggestResponse();
+        resp.setQuery(q);
+        resp.setItems(items);
+        return Mono.just(resp);
+    }
+}
@@ -1,6 +1,7 @@
 package com.irondust.search.controller;
 
 import com.irondust.search.config.AppProperties;
+import com.irondust.search.service.AlternativesIndexService;
 import com.irondust.search.service.EmbeddingService;
 import com.irondust.search.service.VectorIndexService;
 import org.springframework.http.ResponseEntity;
@@ -16,11 +17,14 @@ public class VectorController {
     private final VectorIndexService vectorIndexService;
     private final AppProperties appProperties;
     private final EmbeddingService embeddingService;
+    private final AlternativesIndexService alternativesIndexService;
 
-    public VectorController(VectorIndexService vectorIndexService, AppProperties appProperties, EmbeddingService embeddingService) {
+    public VectorController(VectorIndexService vectorIndexService, AppProperties appProperties, EmbeddingService embeddingService,
+                            AlternativesIndexService alternativesIndexService) {
         this.vectorIndexService = vectorIndexService;
         this.appProperties = appProperties;
         this.embeddingService = embeddingService;
+        this.alternativesIndexService = alternativesIndexService;
     }
 
     @PostMapping("/reindex/all")
@@ -34,7 +38,8 @@ public class VectorController {
             return Mono.just(ResponseEntity.badRequest().body(Map.of("error", "OPENAI_API_KEY not set; embeddings disabled")));
         }
         return vectorIndexService.reindexAll(batchSize)
-                .thenReturn(ResponseEntity.ok(Map.of("status", "ok")));
+                .then(alternativesIndexService.rebuildAll())
+                .map(alts -> ResponseEntity.ok(Map.<String, Object>of("status", "ok", "alternatives", alts)));
     }
 
     @PostMapping("/reindex")
@@ -54,8 +59,20 @@ public class VectorController {
             return Mono.just(ResponseEntity.badRequest().body(Map.of("error", "OPENAI_API_KEY not set; embeddings disabled", "count", ids.size())));
         }
         return vectorIndexService.reindexByIds(ids, batchSize)
-                .thenReturn(ResponseEntity.ok(Map.of("status", "ok", "count", ids.size())));
+                .then(alternativesIndexService.refreshByIds(ids))
+                .map(alts -> ResponseEntity.ok(Map.<String, Object>of("status", "ok", "count", ids.size(), "alternatives", alts)));
     }
-}
-
 
+    /**
+     * Recomputes the precomputed alternatives side index against the current catalog and vectors.
+     */
+    @PostMapping("/alternatives/rebuild")
+    public Mono<ResponseEntity<Map<String, Object>>> rebuildAlternatives(
+            @RequestHeader(value = "x-admin-key", required = false) String adminKey) {
+        if (adminKey == null || !adminKey.equals(appProperties.getAdminKey())) {
+            return Mono.just(ResponseEntity.status(401).build());
+        }
+        return alternativesIndexService.rebuildAll()
+                .map(n -> ResponseEntity.ok(Map.<String, Object>of("status", "ok", "alternatives", n)));
+    }
+}
@@ -31,22 +31,46 @@ public class IngestDtos {
 
     /** Overall ingestion report returned by the ingest endpoints */
     public static class IngestReport {
+        private String run_id; // run id under which token usage is kept in the run history
         private int indexed; // number of documents indexed
         private int warnings_total; // total warnings across all products
         private int conflicts_total; // total conflicts across all products
         private int ignored_count; // number of products ignored (e.g., gift cards)
         private java.util.List<String> ignored_ids; // list of ignored product IDs (wc_*)
+        private int deferred_count; // products published after missing an enrichment or translation deadline
+        /** Product IDs (wc_*) that missed a stage deadline, keyed by stage ("enrich", "translate"); topped up in the background. */
+        private java.util.Map<String, java.util.List<String>> deferred_ids;
+        /** Languages whose projection index ({@code <indexName>_<lang>}) could not be written, with the error; reads there fall back to the base index. */
+        private java.util.Map<String, String> projection_failures;
         private List<ProductReport> products; // per-product details
 
         /**
          * Per-model AI token usage and approximate cost.
-         * Structure: model -> { prompt_tokens, completion_tokens, total_tokens, cost_usd }
+         * Structure: model -> { prompt_tokens, cached_prompt_tokens, completion_tokens, total_tokens, cost_usd }
          */
         private java.util.Map<String, java.util.Map<String, Object>> ai_usage_per_model;
 
         /** Total approximate AI cost in USD across all models for this ingest run. */
         private double ai_cost_total_usd;
 
+        /**
+         * Provider prompt-cache usage across chat completions in this ingest run.
+         * Structure: { prompt_tokens, cached_prompt_tokens, hit_rate, prompt_versions: { enrichment, translation } }
+         */
+        private java.util.Map<String, Object> ai_prompt_cache;
+
+        /**
+         * Segment-level translation memory usage for this ingest run.
+         * Structure: { segments_total, segments_hit, hit_rate, entries }
+         */
+        private java.util.Map<String, Object> translation_memory;
+
+        /**
+         * Glossary usage for form, flavor and category names in this ingest run.
+         * Structure: { terms_total, terms_hit, hit_rate, batches, terms_learned, entries }
+         */
+        private java.util.Map<String, Object> translation_glossary;
+
         public int getIndexed() { return indexed; }
         public void setIndexed(int indexed) { this.indexed = indexed; }
         public int getWarnings_total() { return warnings_total; }
@@ -57,6 +81,14 @@ public class IngestDtos {
         public void setIgnored_count(int ignored_count) { this.ignored_count = ignored_count; }
         public java.util.List<String> getIgnored_ids() { return ignored_ids; }
         public void setIgnored_ids(java.util.List<String> ignored_ids) { this.ignored_ids = ignored_ids; }
+        public String getRun_id() { return run_id; }
+        public void setRun_id(String run_id) { this.run_id = run_id; }
+        public int getDeferred_count() { return deferred_count; }
+        public void setDeferred_count(int deferred_count) { this.deferred_count = deferred_count; }
+        public java.util.Map<String, java.util.List<String>> getDeferred_ids() { return deferred_ids; }
+        public void setDeferred_ids(java.util.Map<String, java.util.List<String>> deferred_ids) { this.deferred_ids = deferred_ids; }
+        public java.util.Map<String, String> getProjection_failures() { return projection_failures; }
+        public void setProjection_failures(java.util.Map<String, String> projection_failures) { this.projection_failures = projection_failures; }
         public List<ProductReport> getProducts() { return products; }
         public void setProducts(List<ProductReport> products) { this.products = products; }
 
@@ -64,6 +96,12 @@ public class IngestDtos {
         public void setAi_usage_per_model(java.util.Map<String, java.util.Map<String, Object>> ai_usage_per_model) { this.ai_usage_per_model = ai_usage_per_model; }
         public double getAi_cost_total_usd() { return ai_cost_total_usd; }
         public void setAi_cost_total_usd(double ai_cost_total_usd) { this.ai_cost_total_usd = ai_cost_total_usd; }
+        public java.util.Map<String, Object> getAi_prompt_cache() { return ai_prompt_cache; }
+        public void setAi_prompt_cache(java.util.Map<String, Object> ai_prompt_cache) { this.ai_prompt_cache = ai_prompt_cache; }
+        public java.util.Map<String, Object> getTranslation_memory() { return translation_memory; }
+        public void setTranslation_memory(java.util.Map<String, Object> translation_memory) { this.translation_memory = translation_memory; }
+        public java.util.Map<String, Object> getTranslation_glossary() { return translation_glossary; }
+        public void setTranslation_glossary(java.util.Map<String, Object> translation_glossary) { this.translation_glossary = translation_glossary; }
     }
 }
 
@@ -1,5 +1,7 @@
 package com.irondust.search.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.irondust.search.model.ProductDoc;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 
@@ -16,6 +18,7 @@ public class SearchDtos {
         @NotNull @Min(1)
         private Integer size = 24;
         private String lang; // Language preference: en, ru, est
+        private Boolean debug; // When true, the response carries a ranking/timing explanation
 
         public String getQ() { return q; }
         public void setQ(String q) { this.q = q; }
@@ -29,12 +32,20 @@ public class SearchDtos {
         public void setSize(Integer size) { this.size = size; }
         public String getLang() { return lang; }
         public void setLang(String lang) { this.lang = lang; }
+        public Boolean getDebug() { return debug; }
+        public void setDebug(Boolean debug) { this.debug = debug; }
     }
 
     public static class SearchResponseBody<T> {
         private List<T> items;
         private long total;
         private Map<String, Map<String, Integer>> facets;
+        /** Reason codes per item id; set only for precomputed PDP alternatives. */
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private Map<String, List<String>> reasons;
+        /** Ranking and stage-timing explanation; set only when the request asked for {@code debug}. */
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private Map<String, Object> debug;
 
         public List<T> getItems() { return items; }
         public void setItems(List<T> items) { this.items = items; }
@@ -42,8 +53,81 @@ public class SearchDtos {
         public void setTotal(long total) { this.total = total; }
         public Map<String, Map<String, Integer>> getFacets() { return facets; }
         public void setFacets(Map<String, Map<String, Integer>> facets) { this.facets = facets; }
+        public Map<String, List<String>> getReasons() { return reasons; }
+        public void setReasons(Map<String, List<String>> reasons) { this.reasons = reasons; }
+        public Map<String, Object> getDebug() { return debug; }
+        public void setDebug(Map<String, Object> debug) { this.debug = debug; }
     }
-}
 
+    /**
+     * Typed Meilisearch search response. Hits are bound straight into {@link ProductDoc} by the
+     * codec's streaming parser, so the lexical path never builds an intermediate map per hit.
+     */
+    public static class MeiliSearchResult {
+        private List<ProductDoc> hits = List.of();
+        private Long totalHits;
+        private Long estimatedTotalHits;
+        private Map<String, Map<String, Integer>> facetDistribution;
+
+        public List<ProductDoc> getHits() { return hits; }
+        public void setHits(List<ProductDoc> hits) { this.hits = hits; }
+        public Long getTotalHits() { return totalHits; }
+        public void setTotalHits(Long totalHits) { this.totalHits = totalHits; }
+        public Long getEstimatedTotalHits() { return estimatedTotalHits; }
+        public void setEstimatedTotalHits(Long estimatedTotalHits) { this.estimatedTotalHits = estimatedTotalHits; }
+        public Map<String, Map<String, Integer>> getFacetDistribution() { return facetDistribution; }
+        public void setFacetDistribution(Map<String, Map<String, Integer>> facetDistribution) { this.facetDistribution = facetDistribution; }
+
+        /** Total hits for page-based queries, else the estimate Meili returns for offset queries. */
+        public long total() {
+            if (totalHits != null) return totalHits;
+            return estimatedTotalHits != null ? estimatedTotalHits : 0L;
+        }
+    }
+
+    /**
+     * Composite product page: the origin document plus its alternatives and complements. Sections that
+     * missed their deadline or failed are returned empty and listed in {@code degraded}.
+     */
+    public static class ProductPageResponse {
+        private Map<String, Object> product;
+        private SearchResponseBody<ProductDoc> alternatives;
+        private SearchResponseBody<ProductDoc> complements;
+        private List<String> degraded = List.of();
+
+        public Map<String, Object> getProduct() { return product; }
+        public void setProduct(Map<String, Object> product) { this.product = product; }
+        public SearchResponseBody<ProductDoc> getAlternatives() { return alternatives; }
+        public void setAlternatives(SearchResponseBody<ProductDoc> alternatives) { this.alternatives = alternatives; }
+        public SearchResponseBody<ProductDoc> getComplements() { return complements; }
+        public void setComplements(SearchResponseBody<ProductDoc> complements) { this.complements = complements; }
+        public List<String> getDegraded() { return degraded; }
+        public void setDegraded(List<String> degraded) { this.degraded = degraded; }
+    }
+
+    /** Typeahead response; {@code items} are best first. */
+    public static class SuggestResponse {
+        private String query;
+        private List<SuggestItem> items = List.of();
+
+        public String getQuery() { return query; }
+        public void setQuery(String query) { this.query = query; }
+        public List<SuggestItem> getItems() { return items; }
+        public void setItems(List<SuggestItem> items) { this.items = items; }
+    }
 
+    /** One typeahead entry: {@code type} is product, brand, category or synonym; {@code id} is set for products. */
+    public static class SuggestItem {
+        private String text;
+        private String type;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private String id;
 
+        public String getText() { return text; }
+        public void setText(String text) { this.text = text; }
+        public String getType() { return type; }
+        public void setType(String type) { this.type = type; }
+        public String getId() { return id; }
+        public void setId(String id) { this.id = id; }
+    }
+}
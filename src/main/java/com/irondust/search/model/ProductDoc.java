@@ -1,8 +1,12 @@
 package com.irondust.search.model;
 
 import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonAnySetter;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonSetter;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -142,6 +146,42 @@ public class ProductDoc {
     @JsonAnyGetter
     public Map<String, List<String>> getDynamic_attrs() { return dynamic_attrs; }
     public void setDynamic_attrs(Map<String, List<String>> dynamic_attrs) { this.dynamic_attrs = dynamic_attrs; }
+
+    /**
+     * Rebuilds {@code dynamic_attrs} when reading stored documents, where the any-getter has flattened
+     * them to top-level keys. Other unknown keys (ranking scores, {@code _formatted}, etc.) are ignored.
+     */
+    @JsonAnySetter
+    public void putFlattenedAttr(String key, Object value) {
+        if (key == null || value == null) return;
+        if (!(key.startsWith("attr_") || key.equals("flavors") || key.equals("variant_group_id") || key.equals("warnings"))) return;
+        putDynamicAttr(key, value);
+    }
+
+    /**
+     * Stored documents may carry {@code flavor} as a string or, when flattened from dynamic attributes,
+     * as a list; the first value becomes the display flavor and the list is kept as a dynamic attribute.
+     */
+    @JsonSetter("flavor")
+    public void readFlavor(Object value) {
+        if (value instanceof List<?> l) {
+            if (!l.isEmpty() && l.get(0) != null) this.flavor = String.valueOf(l.get(0));
+            putDynamicAttr("flavor", value);
+        } else {
+            this.flavor = value != null ? String.valueOf(value) : null;
+        }
+    }
+
+    private void putDynamicAttr(String key, Object value) {
+        if (dynamic_attrs == null) dynamic_attrs = new LinkedHashMap<>();
+        if (value instanceof List<?> l) {
+            List<String> vals = new ArrayList<>(l.size());
+            for (Object o : l) if (o != null) vals.add(String.valueOf(o));
+            dynamic_attrs.put(key, vals);
+        } else {
+            dynamic_attrs.put(key, List.of(String.valueOf(value)));
+        }
+    }
     public String getSearch_text() { return search_text; }
     public void setSearch_text(String search_text) { this.search_text = search_text; }
     
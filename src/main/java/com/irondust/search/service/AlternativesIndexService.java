@@ -0,0 +1,346 @@
+package com.irondust.search.service;
+
+import com.irondust.search.config.AppProperties;
+import com.irondust.search.model.ProductDoc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.*;
+
+/**
+ * Maintains the {@code alternatives} side index: top-K PDP alternatives per product with reason codes,
+ * precomputed from Qdrant neighbours under the parity constraints of indexing-architecture.md §5.3
+ * (diet parity: every diet tag of the origin; same category, same form and price band ±25%, each
+ * relaxed when fewer than 3 hits survive it; same {@code parent_id} excluded; re-ranked by
+ * {@code 0.6*cosine + 0.2*specOverlap + 0.2*priceCloseness}).
+ *
+ * <p>Each entry stores a signature of the origin's ranking inputs. A catalog rebuild only recomputes
+ * products whose signature changed, products whose stored alternatives list a changed or removed
+ * product (found through a reverse index of the stored entries), and the new alternatives of the
+ * changed products, which may now rank them in turn.
+ */
+@Service
+public class AlternativesIndexService {
+    private static final Logger log = LoggerFactory.getLogger(AlternativesIndexService.class);
+
+    static final String REASON_SAME_CATEGORY = "same_category";
+    static final String REASON_SAME_FORM = "same_form";
+    static final String REASON_VEGAN = "vegan";
+    static final String REASON_SIMILAR_INGREDIENTS = "similar_ingredients";
+    static final String REASON_SHARED_GOALS = "shared_goals";
+    static final String REASON_PRICE_CLOSE = "price_close";
+
+    private static final int NEIGHBOURS_K = 100;
+    private static final int MIN_CONSTRAINED_HITS = 3;
+    private static final double PRICE_BAND = 0.25;
+    private static final int RECOMMEND_CONCURRENCY = 8;
+
+    private final MeiliService meiliService;
+    private final MeiliDocumentService meiliDocumentService;
+    private final QdrantService qdrantService;
+    private final AppProperties appProperties;
+    private final SideIndex sideIndex;
+
+    public AlternativesIndexService(MeiliService meiliService, MeiliDocumentService meiliDocumentService,
+                                    QdrantService qdrantService, AppProperties appProperties) {
+        this.meiliService = meiliService;
+        this.meiliDocumentService = meiliDocumentService;
+        this.qdrantService = qdrantService;
+        this.appProperties = appProperties;
+        this.sideIndex = new SideIndex(meiliService, () -> appProperties.getIndexName() + "_alternatives", "alternatives");
+    }
+
+    public boolean isEnabled() {
+        return appProperties.isPrecomputedAlternatives();
+    }
+
+    public String indexName() {
+        return sideIndex.indexName();
+    }
+
+    /**
+     * Stored alternatives for a product, best first. Empty when the product has no entry yet (or the
+     * side index is disabled/unavailable), in which case callers fall back to live recommendation.
+     */
+    public Mono<List<SideIndex.Edge>> lookup(String productId) {
+        if (!isEnabled()) return Mono.empty();
+        return sideIndex.lookup(productId);
+    }
+
+    /**
+     * Recomputes every entry against the catalog currently in the base index. Used after a vector
+     * reindex, where neighbours can change without any catalog field changing.
+     */
+    public Mono<Integer> rebuildAll() {
+        if (!isEnabled()) return Mono.just(0);
+        return meiliDocumentService.streamAllBasic().collectList().flatMap(docs -> rebuild(docs, true));
+    }
+
+    /** Rebuilds changed entries for a freshly ingested catalog (before Meili has applied the upload). */
+    public Mono<Integer> rebuildChangedFromDocs(List<ProductDoc> docs) {
+        if (!isEnabled()) return Mono.just(0);
+        return rebuild(SideIndex.toBasic(docs), false);
+    }
+
+    /** Recomputes entries for the given (changed) products only. */
+    public Mono<Integer> refreshDocs(List<ProductDoc> docs) {
+        if (!isEnabled() || docs == null || docs.isEmpty()) return Mono.just(0);
+        List<Map<String, Object>> origins = SideIndex.toBasic(docs);
+        return meiliService.ensureIndex(indexName())
+                .thenMany(Flux.fromIterable(origins))
+                .flatMap(this::computeWithHydration, RECOMMEND_CONCURRENCY)
+                .collectList()
+                .flatMap(sideIndex::upload)
+                .doOnNext(n -> log.info("Alternatives refreshed for {} product(s)", n))
+                .onErrorResume(e -> {
+                    log.warn("Alternatives refresh failed: {}", e.toString());
+                    return Mono.just(0);
+                });
+    }
+
+    /** Recomputes entries for the given product ids, reading them from the base index. */
+    public Mono<Integer> refreshByIds(List<String> ids) {
+        if (!isEnabled() || ids == null || ids.isEmpty()) return Mono.just(0);
+        return meiliService.getDocumentsRaw(ids, null)
+                .flatMap(origins -> meiliService.ensureIndex(indexName())
+                        .thenMany(Flux.fromIterable(origins))
+                        .flatMap(this::computeWithHydration, RECOMMEND_CONCURRENCY)
+                        .collectList()
+                        .flatMap(sideIndex::upload))
+                .onErrorResume(e -> {
+                    log.warn("Alternatives refresh by ids failed: {}", e.toString());
+                    return Mono.just(0);
+                });
+    }
+
+    private Mono<Integer> rebuild(List<Map<String, Object>> catalogDocs, boolean force) {
+        Map<String, Map<String, Object>> catalog = new HashMap<>();
+        for (Map<String, Object> d : catalogDocs) catalog.put(String.valueOf(d.get("id")), d);
+        String index = indexName();
+        return meiliService.ensureIndex(index)
+                .thenMany(meiliService.streamDocuments(index, "id,source_sig,alternatives"))
+                .collectMap(d -> String.valueOf(d.get("id")))
+                .flatMap(existing -> {
+                    Set<String> changed = new HashSet<>();
+                    for (Map.Entry<String, Map<String, Object>> e : catalog.entrySet()) {
+                        Map<String, Object> stored = existing.get(e.getKey());
+                        if (stored == null || !signature(e.getValue()).equals(stored.get("source_sig"))) changed.add(e.getKey());
+                    }
+                    List<String> removed = new ArrayList<>();
+                    for (String id : existing.keySet()) if (!catalog.containsKey(id)) removed.add(id);
+
+                    Collection<Map<String, Object>> first = force ? catalog.values() : affected(catalog, existing, changed);
+                    Map<String, Map<String, Object>> entries = new HashMap<>();
+                    return compute(first, catalog)
+                            .flatMap(computed -> {
+                                for (Map<String, Object> e : computed) entries.put(String.valueOf(e.get("id")), e);
+                                // Second pass: products a changed product now ranks as alternatives are its likely
+                                // reverse neighbours, the ones that may now rank it in turn
+                                List<Map<String, Object>> second = new ArrayList<>();
+                                if (!force) {
+                                    Set<String> seen = new HashSet<>(entries.keySet());
+                                    for (String id : changed) {
+                                        Map<String, Object> e = entries.get(id);
+                                        if (e == null) continue;
+                                        for (String n : alternativeIds(e)) {
+                                            if (catalog.containsKey(n) && seen.add(n)) second.add(catalog.get(n));
+                                        }
+                                    }
+                                }
+                                log.info("Alternatives rebuild: catalog={} recompute={}+{} removed={}",
+                                        catalog.size(), computed.size(), second.size(), removed.size());
+                                return compute(second, catalog);
+                            })
+                            .map(computed -> {
+                                for (Map<String, Object> e : computed) entries.put(String.valueOf(e.get("id")), e);
+                                return new ArrayList<>(entries.values());
+                            })
+                            .flatMap(sideIndex::upload)
+                            .flatMap(n -> meiliService.deleteDocumentsByIds(index, removed).thenReturn(n));
+                })
+                .onErrorResume(e -> {
+                    log.warn("Alternatives rebuild failed (PDP falls back to live recommend): {}", e.toString());
+                    return Mono.just(0);
+                });
+    }
+
+    private Mono<Map<String, Object>> computeWithHydration(Map<String, Object> origin) {
+        return neighbours(origin).flatMap(ns -> {
+            List<String> ids = new ArrayList<>();
+            for (QdrantService.SearchResult r : ns) {
+                String id = docId(r);
+                if (id != null) ids.add(id);
+            }
+            return meiliService.getDocumentsRaw(ids, null).map(docs -> {
+                Map<String, Map<String, Object>> catalog = new HashMap<>();
+                for (Map<String, Object> d : docs) catalog.put(String.valueOf(d.get("id")), d);
+                return entry(origin, rank(origin, ns, catalog, topK()));
+            });
+        });
+    }
+
+    private Mono<List<QdrantService.SearchResult>> neighbours(Map<String, Object> origin) {
+        String id = String.valueOf(origin.get("id"));
+        Map<String, Object> filter = Map.of(
+                "must", List.of(Map.of("key", "in_stock", "match", Map.of("value", true)))
+        );
+        return qdrantService.recommendByDocId(id, filter, NEIGHBOURS_K)
+                .onErrorResume(e -> {
+                    log.debug("Qdrant recommend failed for id={} (skipping): {}", id, e.toString());
+                    return Mono.empty();
+                });
+    }
+
+    private int topK() {
+        return Math.max(1, appProperties.getAlternativesTopK());
+    }
+
+    private Map<String, Object> entry(Map<String, Object> origin, List<SideIndex.Edge> alts) {
+        Map<String, Object> e = sideIndex.entry(origin.get("id"), alts, System.currentTimeMillis());
+        e.put("source_sig", signature(origin));
+        return e;
+    }
+
+    private Mono<List<Map<String, Object>>> compute(Collection<Map<String, Object>> origins, Map<String, Map<String, Object>> catalog) {
+        return Flux.fromIterable(origins)
+                .flatMap(origin -> neighbours(origin)
+                        .map(ns -> entry(origin, rank(origin, ns, catalog, topK()))), RECOMMEND_CONCURRENCY)
+                .collectList();
+    }
+
+    /**
+     * Products whose entry an incremental rebuild must recompute first: the changed (or new) products
+     * and, through a reverse index of the stored entries, the products whose alternatives list a
+     * changed or removed product. The rebuild then also recomputes the alternatives of the changed
+     * products, which may now rank them in turn.
+     */
+    static List<Map<String, Object>> affected(Map<String, Map<String, Object>> catalog, Map<String, Map<String, Object>> existing,
+                                              Set<String> changed) {
+        Map<String, Set<String>> listedBy = new HashMap<>();
+        for (Map.Entry<String, Map<String, Object>> e : existing.entrySet()) {
+            for (String alt : alternativeIds(e.getValue())) listedBy.computeIfAbsent(alt, k -> new HashSet<>()).add(e.getKey());
+        }
+        Set<String> ids = new LinkedHashSet<>(changed);
+        for (String id : changed) ids.addAll(listedBy.getOrDefault(id, Set.of()));
+        for (Map.Entry<String, Set<String>> e : listedBy.entrySet()) {
+            if (!catalog.containsKey(e.getKey())) ids.addAll(e.getValue());
+        }
+        List<Map<String, Object>> out = new ArrayList<>();
+        for (String id : ids) {
+            Map<String, Object> d = catalog.get(id);
+            if (d != null) out.add(d);
+        }
+        return out;
+    }
+
+    private static List<String> alternativeIds(Map<String, Object> entry) {
+        if (entry == null || !(entry.get("alternatives") instanceof List<?> alts)) return List.of();
+        List<String> out = new ArrayList<>(alts.size());
+        for (Object o : alts) {
+            if (o instanceof Map<?, ?> m) out.add(String.valueOf(m.get("id")));
+            else if (o instanceof SideIndex.Edge edge) out.add(edge.id);
+        }
+        return out;
+    }
+
+    /** Signature of the fields the ranking reads; a change means the entry must be recomputed. */
+    static String signature(Map<String, Object> d) {
+        return Integer.toHexString(Objects.hash(
+                d.get("in_stock"), d.get("price_cents"), d.get("parent_id"), d.get("form"), d.get("brand_name"),
+                d.get("categories_slugs"), d.get("diet_tags"), d.get("goal_tags"), d.get("ingredients_key")));
+    }
+
+    /**
+     * Applies parity constraints and the re-rank to vector neighbours. Category and price-band constraints
+     * are relaxed when fewer than {@value #MIN_CONSTRAINED_HITS} candidates survive them.
+     */
+    static List<SideIndex.Edge> rank(Map<String, Object> origin, List<QdrantService.SearchResult> neighbours,
+                                  Map<String, Map<String, Object>> catalog, int topK) {
+        String originId = String.valueOf(origin.get("id"));
+        String originParent = SideIndex.str(origin.get("parent_id"));
+        List<String> originDiets = SideIndex.list(origin.get("diet_tags"));
+        boolean originVegan = originDiets.contains("vegan");
+        String originForm = SideIndex.str(origin.get("form"));
+
+        List<Map<String, Object>> base = new ArrayList<>();
+        Map<String, Double> cosine = new HashMap<>();
+        Set<String> seen = new HashSet<>();
+        for (QdrantService.SearchResult r : neighbours) {
+            String id = docId(r);
+            if (id == null || id.equals(originId) || !seen.add(id)) continue;
+            Map<String, Object> cand = catalog.get(id);
+            if (cand == null) continue;
+            if (originParent != null && originParent.equals(SideIndex.str(cand.get("parent_id")))) continue;
+            if (Boolean.FALSE.equals(cand.get("in_stock"))) continue;
+            if (!SideIndex.list(cand.get("diet_tags")).containsAll(originDiets)) continue;
+            base.add(cand);
+            cosine.put(id, r.score);
+        }
+
+        List<Map<String, Object>> pool = base;
+        List<Map<String, Object>> sameCategory = new ArrayList<>();
+        for (Map<String, Object> c : pool) if (sharesCategory(origin, c)) sameCategory.add(c);
+        if (sameCategory.size() >= MIN_CONSTRAINED_HITS) pool = sameCategory;
+        List<Map<String, Object>> sameForm = new ArrayList<>();
+        for (Map<String, Object> c : pool) if (originForm != null && originForm.equals(SideIndex.str(c.get("form")))) sameForm.add(c);
+        if (sameForm.size() >= MIN_CONSTRAINED_HITS) pool = sameForm;
+        List<Map<String, Object>> inBand = new ArrayList<>();
+        for (Map<String, Object> c : pool) if (priceCloseness(origin, c) >= 1.0 - PRICE_BAND) inBand.add(c);
+        if (inBand.size() >= MIN_CONSTRAINED_HITS) pool = inBand;
+
+        List<SideIndex.Edge> out = new ArrayList<>();
+        for (Map<String, Object> c : pool) {
+            String id = String.valueOf(c.get("id"));
+            double spec = SideIndex.jaccard(concat(origin, "ingredients_key", "goal_tags"), concat(c, "ingredients_key", "goal_tags"));
+            double price = priceCloseness(origin, c);
+            double score = 0.6 * cosine.getOrDefault(id, 0.0) + 0.2 * spec + 0.2 * price;
+            String brand = SideIndex.str(origin.get("brand_name"));
+            if (brand != null && brand.equals(SideIndex.str(c.get("brand_name")))) score -= 0.05;
+            out.add(new SideIndex.Edge(id, Math.round(score * 10000.0) / 10000.0, reasons(origin, c, originVegan, price)));
+        }
+        out.sort((a, b) -> Double.compare(b.score, a.score));
+        return out.size() > topK ? new ArrayList<>(out.subList(0, topK)) : out;
+    }
+
+    private static List<String> reasons(Map<String, Object> origin, Map<String, Object> c, boolean vegan, double priceCloseness) {
+        List<String> r = new ArrayList<>();
+        if (sharesCategory(origin, c)) r.add(REASON_SAME_CATEGORY);
+        String form = SideIndex.str(origin.get("form"));
+        if (form != null && form.equals(SideIndex.str(c.get("form")))) r.add(REASON_SAME_FORM);
+        if (vegan) r.add(REASON_VEGAN);
+        if (!Collections.disjoint(SideIndex.list(origin.get("ingredients_key")), SideIndex.list(c.get("ingredients_key")))) r.add(REASON_SIMILAR_INGREDIENTS);
+        if (!Collections.disjoint(SideIndex.list(origin.get("goal_tags")), SideIndex.list(c.get("goal_tags")))) r.add(REASON_SHARED_GOALS);
+        if (priceCloseness >= 0.9) r.add(REASON_PRICE_CLOSE);
+        return r;
+    }
+
+    private static boolean sharesCategory(Map<String, Object> a, Map<String, Object> b) {
+        List<String> ca = SideIndex.list(a.get("categories_slugs"));
+        List<String> cb = SideIndex.list(b.get("categories_slugs"));
+        return !ca.isEmpty() && !cb.isEmpty() && !Collections.disjoint(ca, cb);
+    }
+
+    /** 1.0 for equal prices, falling linearly with relative difference; 0.5 when either price is unknown. */
+    private static double priceCloseness(Map<String, Object> a, Map<String, Object> b) {
+        if (!(a.get("price_cents") instanceof Number pa) || !(b.get("price_cents") instanceof Number pb) || pa.doubleValue() <= 0) {
+            return 0.5;
+        }
+        double rel = Math.abs(pb.doubleValue() - pa.doubleValue()) / pa.doubleValue();
+        return Math.max(0.0, 1.0 - rel);
+    }
+
+    private static Set<String> concat(Map<String, Object> d, String... keys) {
+        Set<String> out = new HashSet<>();
+        for (String k : keys) out.addAll(SideIndex.list(d.get(k)));
+        return out;
+    }
+
+    private static String docId(QdrantService.SearchResult r) {
+        Object pid = r.payload != null ? r.payload.get("doc_id") : null;
+        if (pid == null) pid = r.payload != null ? r.payload.get("id") : null;
+        return pid != null ? String.valueOf(pid) : null;
+    }
+}
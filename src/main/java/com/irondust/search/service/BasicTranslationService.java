@@ -13,6 +13,7 @@ public class BasicTranslationService {
     private static final Map<String, Map<String, String>> COMMON_TERMS = new HashMap<>();
     private static final Map<String, Map<String, String>> FORM_TRANSLATIONS = new HashMap<>();
     private static final Map<String, Map<String, String>> CATEGORY_TRANSLATIONS = new HashMap<>();
+    private static final Map<String, Map<String, String>> FLAVOR_TRANSLATIONS = new HashMap<>();
     
     static {
         // Common product terms
@@ -32,6 +33,28 @@ public class BasicTranslationService {
         addForm("liquid", "en", "liquid", "ru", "жидкость", "est", "vedelik");
         addForm("bar", "en", "bar", "ru", "батончик", "est", "batoon");
         addForm("gel", "en", "gel", "ru", "гель", "est", "geel");
+        addForm("drink", "en", "drink", "ru", "напиток", "est", "jook");
+        
+        // Flavors (canonical keys as produced by FlavorLexicon)
+        addFlavor("chocolate", "en", "chocolate", "ru", "шоколад", "est", "šokolaad");
+        addFlavor("white_chocolate", "en", "white chocolate", "ru", "белый шоколад", "est", "valge šokolaad");
+        addFlavor("vanilla", "en", "vanilla", "ru", "ваниль", "est", "vanill");
+        addFlavor("strawberry", "en", "strawberry", "ru", "клубника", "est", "maasikas");
+        addFlavor("raspberry", "en", "raspberry", "ru", "малина", "est", "vaarikas");
+        addFlavor("blueberry", "en", "blueberry", "ru", "черника", "est", "mustikas");
+        addFlavor("berry", "en", "berry", "ru", "ягоды", "est", "metsamari");
+        addFlavor("banana", "en", "banana", "ru", "банан", "est", "banaan");
+        addFlavor("cherry", "en", "cherry", "ru", "вишня", "est", "kirss");
+        addFlavor("orange", "en", "orange", "ru", "апельсин", "est", "apelsin");
+        addFlavor("lemon", "en", "lemon", "ru", "лимон", "est", "sidrun");
+        addFlavor("lime", "en", "lime", "ru", "лайм", "est", "laim");
+        addFlavor("coconut", "en", "coconut", "ru", "кокос", "est", "kookos");
+        addFlavor("caramel", "en", "caramel", "ru", "карамель", "est", "karamell");
+        addFlavor("coffee", "en", "coffee", "ru", "кофе", "est", "kohv");
+        addFlavor("cola", "en", "cola", "ru", "кола", "est", "koola");
+        addFlavor("citrus", "en", "citrus", "ru", "цитрус", "est", "tsitrus");
+        addFlavor("tropical", "en", "tropical", "ru", "тропический", "est", "troopiline");
+        addFlavor("unflavored", "en", "unflavored", "ru", "без вкуса", "est", "maitsestamata");
         
         // Categories
         addCategory("sports nutrition", "en", "Sports Nutrition", "ru", "Спортивное питание", "est", "Sporditoitained");
@@ -65,6 +88,26 @@ public class BasicTranslationService {
         CATEGORY_TRANSLATIONS.put(key.toLowerCase(), translations);
     }
     
+    private static void addFlavor(String key, String... langValuePairs) {
+        Map<String, String> translations = new HashMap<>();
+        for (int i = 0; i < langValuePairs.length; i += 2) {
+            translations.put(langValuePairs[i], langValuePairs[i + 1]);
+        }
+        FLAVOR_TRANSLATIONS.put(key.toLowerCase(), translations);
+    }
+    
+    /**
+     * Curated tables by glossary kind ({@code form}, {@code flavor}, {@code category}), used to
+     * seed {@link TranslationGlossary}. Keys are canonical terms; values map language to term.
+     */
+    static Map<String, Map<String, Map<String, String>>> glossarySeeds() {
+        return Map.of(
+            TranslationGlossary.KIND_FORM, Collections.unmodifiableMap(FORM_TRANSLATIONS),
+            TranslationGlossary.KIND_FLAVOR, Collections.unmodifiableMap(FLAVOR_TRANSLATIONS),
+            TranslationGlossary.KIND_CATEGORY, Collections.unmodifiableMap(CATEGORY_TRANSLATIONS)
+        );
+    }
+    
     /**
      * Attempts basic translation using dictionary lookup.
      * Returns null if translation not found.
@@ -108,6 +151,17 @@ public class BasicTranslationService {
         return null;
     }
     
+    public String translateFlavor(String flavor, String toLang) {
+        if (flavor == null) return null;
+        
+        Map<String, String> translations = FLAVOR_TRANSLATIONS.get(flavor.toLowerCase());
+        if (translations != null && translations.containsKey(toLang)) {
+            return translations.get(toLang);
+        }
+        
+        return null;
+    }
+    
     public String translateCategory(String category, String toLang) {
         if (category == null) return null;
         
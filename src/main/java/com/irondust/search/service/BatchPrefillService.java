@@ -0,0 +1,106 @@
+package com.irondust.search.service;
+
+import com.irondust.search.config.AppProperties;
+import com.irondust.search.model.RawProduct;
+import com.irondust.search.service.batch.BatchClient;
+import com.irondust.search.service.batch.BatchRequest;
+import com.irondust.search.service.batch.BatchRunner;
+import com.irondust.search.service.enrichment.EnrichmentPipeline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Offline prefill of the AI enrichment and translation caches through batch jobs, ahead of a full
+ * ingest.
+ *
+ * <p>Two phases run one after the other: first every product whose AI enrichment is not cached is
+ * sent as one enrichment job; once its results are loaded, the translations of those products
+ * (built from the now-cached enrichment) are sent as a translation job. Nothing is indexed here —
+ * the regular ingest that follows finds the caches warm and only calls OpenAI synchronously for
+ * whatever the jobs did not return. Products whose AI result is missing are left out of the
+ * translation job, since their translatable fields are not final yet.
+ */
+@Service
+public class BatchPrefillService {
+    private static final Logger log = LoggerFactory.getLogger(BatchPrefillService.class);
+
+    private final IngestService ingestService;
+    private final TranslationService translationService;
+    private final BatchClient batchClient;
+    private final AppProperties appProperties;
+
+    public BatchPrefillService(IngestService ingestService, TranslationService translationService,
+                               BatchClient batchClient, AppProperties appProperties) {
+        this.ingestService = ingestService;
+        this.translationService = translationService;
+        this.batchClient = batchClient;
+        this.appProperties = appProperties;
+    }
+
+    /** Runs both phases and returns a report of what each job loaded. */
+    public Mono<Map<String, Object>> prefill(BatchRunner.Listener listener) {
+        BatchRunner runner = new BatchRunner(batchClient,
+                Path.of(appProperties.getBatchJobDir()),
+                Duration.ofMillis(Math.max(1000, appProperties.getBatchPollMs())),
+                Duration.ofMinutes(Math.max(1, appProperties.getBatchMaxWaitMinutes())));
+        return ingestService.newPipeline()
+                .flatMap(pipeline -> ingestService.ingestableProducts()
+                        .collectList()
+                        .flatMap(products -> runPhases(runner, pipeline, products, listener)))
+                .doFinally(s -> translationService.clearBatchRequests());
+    }
+
+    private Mono<Map<String, Object>> runPhases(BatchRunner runner, EnrichmentPipeline pipeline,
+                                                List<RawProduct> products, BatchRunner.Listener listener) {
+        listener.update("collect", products.size(), products.size(), "fetched " + products.size() + " products");
+        return Mono.fromCallable(() -> {
+                    Map<String, String> aiRequestByProduct = new HashMap<>();
+                    List<BatchRequest> requests = new ArrayList<>();
+                    for (RawProduct raw : products) {
+                        BatchRequest r = pipeline.aiBatchRequest(raw);
+                        if (r == null) continue;
+                        requests.add(r);
+                        aiRequestByProduct.put(raw.getId(), r.customId());
+                    }
+                    return Map.entry(aiRequestByProduct, requests);
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(ai -> runner.run("enrichment", ai.getValue(), pipeline::acceptAiBatchResult, listener)
+                        .flatMap(enrichment -> {
+                            List<RawProduct> ready = products.stream()
+                                    .filter(p -> {
+                                        String customId = ai.getKey().get(p.getId());
+                                        return customId == null || !enrichment.notLoaded().contains(customId);
+                                    })
+                                    .toList();
+                            listener.update("translation", 0, ready.size(), "building translation requests");
+                            return Flux.fromIterable(ready)
+                                    .concatMap(raw -> Mono.fromCallable(() -> IngestService.translationSource(pipeline.enrich(raw)))
+                                            .subscribeOn(Schedulers.boundedElastic())
+                                            .flatMap(source -> translationService.batchRequest(null, source))
+                                            .onErrorResume(e -> {
+                                                log.warn("Translation batch request for product {} not built: {}", raw.getId(), e.toString());
+                                                return Mono.empty();
+                                            }))
+                                    .collectList()
+                                    .flatMap(requests -> runner.run("translation", requests,
+                                            translationService::acceptBatchResult, listener))
+                                    .map(translation -> {
+                                        Map<String, Object> report = new LinkedHashMap<>();
+                                        report.put("products", products.size());
+                                        report.put("enrichment", enrichment.toMap());
+                                        report.put("translation", translation.toMap());
+                                        report.put("translation_skipped_products", products.size() - ready.size());
+                                        return report;
+                                    });
+                        }));
+    }
+}
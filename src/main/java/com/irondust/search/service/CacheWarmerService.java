@@ -0,0 +1,213 @@
+package com.irondust.search.service;
+
+import com.irondust.search.config.AppProperties;
+import com.irondust.search.config.VectorProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Warms the embedding cache and the search backends with the most frequent recent queries (from the
+ * query log, plus an optional seed file) at startup and after every ingest.
+ *
+ * <p>Each warm-up query is embedded first, then run through the lexical and hybrid search paths with
+ * the default {@code in_stock} filter, so the first shoppers after a deploy hit warm caches. The
+ * instance reports ready ({@link #isReady()}) once the startup warm-up has finished or hit its time
+ * budget; later warm-ups do not flip readiness back.
+ */
+@Service
+public class CacheWarmerService {
+    private static final Logger log = LoggerFactory.getLogger(CacheWarmerService.class);
+    private static final List<String> FACETS = List.of("brand_slug", "categories_slugs", "form", "diet_tags", "goal_tags");
+    private static final int PAGE_SIZE = 24;
+
+    /** One query to warm; {@code lang} may be null (base index). */
+    record WarmQuery(String q, String lang) {}
+
+    private final QueryLogService queryLogService;
+    private final EmbeddingService embeddingService;
+    private final MeiliService meiliService;
+    private final HybridSearchService hybridSearchService;
+    private final AppProperties appProperties;
+    private final VectorProperties vectorProperties;
+
+    private final AtomicBoolean ready = new AtomicBoolean(false);
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger done = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private volatile String status = "pending";
+    private volatile String trigger;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+
+    public CacheWarmerService(QueryLogService queryLogService, EmbeddingService embeddingService, MeiliService meiliService,
+                              HybridSearchService hybridSearchService, AppProperties appProperties, VectorProperties vectorProperties) {
+        this.queryLogService = queryLogService;
+        this.embeddingService = embeddingService;
+        this.meiliService = meiliService;
+        this.hybridSearchService = hybridSearchService;
+        this.appProperties = appProperties;
+        this.vectorProperties = vectorProperties;
+    }
+
+    public boolean isReady() {
+        return ready.get();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmOnStartup() {
+        if (!appProperties.isWarmupEnabled()) {
+            status = "disabled";
+            ready.set(true);
+            return;
+        }
+        warm("startup").subscribe();
+    }
+
+    /**
+     * Starts a warm-up in the background unless one is already running. Returns immediately.
+     */
+    public void trigger(String reason) {
+        if (!appProperties.isWarmupEnabled()) return;
+        warm(reason).subscribe();
+    }
+
+    /**
+     * Runs one warm-up; completes with the number of queries warmed. A warm-up already in progress
+     * makes this a no-op.
+     */
+    public Mono<Integer> warm(String reason) {
+        if (!running.compareAndSet(false, true)) return Mono.just(0);
+        trigger = reason;
+        status = "warming";
+        startedAt = Instant.now();
+        finishedAt = null;
+        total.set(0);
+        done.set(0);
+        failed.set(0);
+        int concurrency = Math.max(1, appProperties.getWarmupConcurrency());
+        return loadQueries()
+                .flatMapMany(queries -> {
+                    total.set(queries.size());
+                    log.info("Cache warm-up started: trigger={} queries={}", reason, queries.size());
+                    return Flux.fromIterable(queries);
+                })
+                .flatMap(this::warmOne, concurrency)
+                .then(Mono.fromSupplier(() -> "ready"))
+                .timeout(Duration.ofMillis(Math.max(1000, appProperties.getWarmupMaxMs())), Mono.just("timed_out"))
+                .onErrorResume(e -> {
+                    log.warn("Cache warm-up failed: {}", e.toString());
+                    return Mono.just("failed");
+                })
+                .map(outcome -> {
+                    status = outcome;
+                    finishedAt = Instant.now();
+                    ready.set(true);
+                    running.set(false);
+                    log.info("Cache warm-up finished: trigger={} outcome={} warmed={}/{} failed={} took={}ms", reason, outcome,
+                            done.get(), total.get(), failed.get(), Duration.between(startedAt, finishedAt).toMillis());
+                    return done.get();
+                });
+    }
+
+    private Mono<Void> warmOne(WarmQuery wq) {
+        String filter = FilterStringBuilder.build(Map.of("in_stock", true));
+        boolean embed = embeddingService.isEnabled()
+                && wq.q().trim().length() >= Math.max(1, vectorProperties.getMinQueryLength());
+        // Embed outside the hybrid path's vector timeout so the cache is filled even for slow calls
+        Mono<Void> preEmbed = embed
+                ? Mono.fromRunnable(() -> embeddingService.embedText(wq.q())).subscribeOn(Schedulers.boundedElastic()).then()
+                : Mono.empty();
+        return preEmbed
+                .then(meiliService.search(wq.q(), filter, null, 1, PAGE_SIZE, FACETS, wq.lang()).then())
+                .then(embed ? hybridSearchService.search(wq.q(), filter, null, 1, PAGE_SIZE, FACETS, wq.lang()).then() : Mono.<Void>empty())
+                .doOnSuccess(v -> done.incrementAndGet())
+                .onErrorResume(e -> {
+                    failed.incrementAndGet();
+                    log.debug("Warm-up query failed q='{}': {}", wq.q(), e.toString());
+                    return Mono.empty();
+                });
+    }
+
+    /** Seed-file queries first, then the top logged queries; duplicates removed. */
+    private Mono<List<WarmQuery>> loadQueries() {
+        int limit = Math.max(0, appProperties.getWarmupTopQueries());
+        Mono<List<WarmQuery>> seeds = Mono.fromCallable(this::readSeedFile).subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(e -> {
+                    log.warn("Warm-up seed file unreadable: {}", e.toString());
+                    return Mono.just(List.of());
+                });
+        Mono<List<WarmQuery>> logged = limit == 0 || !appProperties.isQueryLogEnabled()
+                ? Mono.just(List.of())
+                : queryLogService.recentTopQueries(Math.max(1, appProperties.getWarmupDays()), limit)
+                        .map(row -> new WarmQuery(String.valueOf(row.get("q")), row.get("lang") != null ? String.valueOf(row.get("lang")) : null))
+                        .collectList()
+                        .onErrorResume(e -> {
+                            log.warn("Warm-up query log read failed: {}", e.toString());
+                            return Mono.just(List.of());
+                        });
+        return Mono.zip(seeds, logged).map(t -> {
+            LinkedHashSet<WarmQuery> out = new LinkedHashSet<>(t.getT1());
+            out.addAll(t.getT2());
+            return new ArrayList<>(out);
+        });
+    }
+
+    /**
+     * Reads {@code app.warmupSeedPath}: one query per line, optionally prefixed with a language
+     * ({@code en: whey protein}); blank lines and {@code #} comments are skipped.
+     */
+    private List<WarmQuery> readSeedFile() throws Exception {
+        String path = appProperties.getWarmupSeedPath();
+        if (path == null || path.isBlank() || !Files.exists(Path.of(path))) return List.of();
+        List<WarmQuery> out = new ArrayList<>();
+        for (String line : Files.readAllLines(Path.of(path), StandardCharsets.UTF_8)) {
+            WarmQuery wq = parseSeedLine(line);
+            if (wq != null) out.add(wq);
+        }
+        return out;
+    }
+
+    static WarmQuery parseSeedLine(String line) {
+        if (line == null) return null;
+        String s = line.trim();
+        if (s.isEmpty() || s.startsWith("#")) return null;
+        int colon = s.indexOf(':');
+        if (colon > 0) {
+            String lang = s.substring(0, colon).trim();
+            if (TranslationService.SUPPORTED_LANGUAGES.contains(lang)) {
+                String q = s.substring(colon + 1).trim();
+                return q.isEmpty() ? null : new WarmQuery(q, lang);
+            }
+        }
+        return new WarmQuery(s, null);
+    }
+
+    public Map<String, Object> progress() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("ready", ready.get());
+        out.put("status", status);
+        out.put("trigger", trigger);
+        out.put("total", total.get());
+        out.put("warmed", done.get());
+        out.put("failed", failed.get());
+        out.put("started_at", startedAt != null ? startedAt.toString() : null);
+        out.put("finished_at", finishedAt != null ? finishedAt.toString() : null);
+        return out;
+    }
+}
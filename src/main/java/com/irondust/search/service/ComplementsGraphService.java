@@ -0,0 +1,193 @@
+package com.irondust.search.service;
+
+import com.irondust.search.config.AppProperties;
+import com.irondust.search.model.ProductDoc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.*;
+
+/**
+ * Offline complements builder. Scores every in-stock product pair on goal-tag overlap, category
+ * complementarity, form difference and quality (rating weighted by review count), keeps a top-K
+ * adjacency list per product and persists it to the {@code <indexName>_complements} side index.
+ *
+ * <p>Pairs must differ in form or category (the same rule the live path applies), so the graph never
+ * suggests substitutes. Rebuilt after every ingest; the build is CPU-only and makes no per-pair calls.
+ */
+@Service
+public class ComplementsGraphService {
+    private static final Logger log = LoggerFactory.getLogger(ComplementsGraphService.class);
+
+    static final String REASON_SHARED_GOALS = "shared_goals";
+    static final String REASON_OTHER_CATEGORY = "other_category";
+    static final String REASON_OTHER_FORM = "other_form";
+    static final String REASON_TOP_RATED = "top_rated";
+
+    private final MeiliService meiliService;
+    private final MeiliDocumentService meiliDocumentService;
+    private final AppProperties appProperties;
+    private final SideIndex sideIndex;
+
+    public ComplementsGraphService(MeiliService meiliService, MeiliDocumentService meiliDocumentService, AppProperties appProperties) {
+        this.meiliService = meiliService;
+        this.meiliDocumentService = meiliDocumentService;
+        this.appProperties = appProperties;
+        this.sideIndex = new SideIndex(meiliService, () -> appProperties.getIndexName() + "_complements", "complements");
+    }
+
+    public boolean isEnabled() {
+        return appProperties.isPrecomputedComplements();
+    }
+
+    public String indexName() {
+        return sideIndex.indexName();
+    }
+
+    /**
+     * Stored complements for a product, best first. Empty when the product has no entry (or the graph
+     * is disabled/unavailable), in which case callers fall back to the live popular-item scan.
+     */
+    public Mono<List<SideIndex.Edge>> lookup(String productId) {
+        if (!isEnabled()) return Mono.empty();
+        return sideIndex.lookup(productId);
+    }
+
+    /** Rebuilds the graph for a freshly ingested full catalog. */
+    public Mono<Integer> rebuildFromDocs(List<ProductDoc> docs) {
+        if (!isEnabled()) return Mono.just(0);
+        return rebuild(SideIndex.toBasic(docs));
+    }
+
+    /**
+     * Rebuilds the graph after a targeted ingest: the catalog is read from the base index and the
+     * freshly ingested documents (which Meili may not have applied yet) override their stored versions.
+     */
+    public Mono<Integer> rebuildWithChanged(List<ProductDoc> changed) {
+        if (!isEnabled()) return Mono.just(0);
+        return meiliDocumentService.streamAllBasic().collectList()
+                .flatMap(stored -> {
+                    Map<String, Map<String, Object>> byId = new LinkedHashMap<>();
+                    for (Map<String, Object> d : stored) byId.put(String.valueOf(d.get("id")), d);
+                    for (Map<String, Object> d : SideIndex.toBasic(changed)) byId.put(String.valueOf(d.get("id")), d);
+                    return rebuild(new ArrayList<>(byId.values()));
+                })
+                .onErrorResume(e -> {
+                    log.warn("Complements rebuild failed: {}", e.toString());
+                    return Mono.just(0);
+                });
+    }
+
+    private Mono<Integer> rebuild(List<Map<String, Object>> catalog) {
+        int topK = Math.max(1, appProperties.getComplementsTopK());
+        String index = indexName();
+        Set<String> keep = new HashSet<>();
+        for (Map<String, Object> d : catalog) keep.add(String.valueOf(d.get("id")));
+        return Mono.fromCallable(() -> build(catalog, topK))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(graph -> {
+                    long now = System.currentTimeMillis();
+                    List<Map<String, Object>> entries = new ArrayList<>(graph.size());
+                    for (Map.Entry<String, List<SideIndex.Edge>> e : graph.entrySet()) {
+                        entries.add(sideIndex.entry(e.getKey(), e.getValue(), now));
+                    }
+                    return meiliService.ensureIndex(index)
+                            .then(sideIndex.upload(entries))
+                            .then(meiliService.pruneDocumentsNotIn(index, keep))
+                            .then(Mono.fromSupplier(() -> {
+                                log.info("Complements graph rebuilt: products={} edges_per_product<={}", entries.size(), topK);
+                                return entries.size();
+                            }));
+                })
+                .onErrorResume(e -> {
+                    log.warn("Complements rebuild failed (PDP falls back to live scan): {}", e.toString());
+                    return Mono.just(0);
+                });
+    }
+
+    /** Pair-scoring inputs, extracted once per product so the O(n²) loop does no parsing. */
+    record Node(String id, String parentId, String form, Set<String> categories, Set<String> goals, double quality) {
+        static Node of(Map<String, Object> d) {
+            return new Node(String.valueOf(d.get("id")), SideIndex.str(d.get("parent_id")), SideIndex.str(d.get("form")),
+                    new HashSet<>(SideIndex.list(d.get("categories_slugs"))), new HashSet<>(SideIndex.list(d.get("goal_tags"))),
+                    ComplementsGraphService.quality(d));
+        }
+    }
+
+    /**
+     * Builds the top-K adjacency list for every product in the catalog.
+     */
+    static Map<String, List<SideIndex.Edge>> build(List<Map<String, Object>> catalog, int topK) {
+        List<Node> nodes = new ArrayList<>(catalog.size());
+        List<Node> inStock = new ArrayList<>();
+        for (Map<String, Object> d : catalog) {
+            Node n = Node.of(d);
+            nodes.add(n);
+            if (!Boolean.FALSE.equals(d.get("in_stock"))) inStock.add(n);
+        }
+
+        Map<String, List<SideIndex.Edge>> graph = new LinkedHashMap<>();
+        for (Node origin : nodes) {
+            PriorityQueue<SideIndex.Edge> best = new PriorityQueue<>(Comparator.comparingDouble(c -> c.score));
+            for (Node cand : inStock) {
+                double sc = pairScore(origin, cand);
+                if (Double.isNaN(sc)) continue;
+                // Only pairs that enter the heap pay for the edge allocation
+                if (best.size() < topK) {
+                    best.add(edge(origin, cand, sc));
+                } else if (sc > best.peek().score) {
+                    best.poll();
+                    best.add(edge(origin, cand, sc));
+                }
+            }
+            List<SideIndex.Edge> edges = new ArrayList<>(best);
+            edges.sort((x, y) -> Double.compare(y.score, x.score));
+            graph.put(origin.id(), edges);
+        }
+        return graph;
+    }
+
+    /**
+     * Scores one directed pair, or returns NaN when the candidate is not a complement
+     * (same product, same variation group, or same form and category).
+     */
+    static double pairScore(Node origin, Node cand) {
+        if (origin.id().equals(cand.id())) return Double.NaN;
+        if (origin.parentId() != null && origin.parentId().equals(cand.parentId())) return Double.NaN;
+        boolean differentForm = differentForm(origin, cand);
+        boolean differentCategory = differentCategory(origin, cand);
+        if (!(differentForm || differentCategory)) return Double.NaN;
+        return 0.45 * SideIndex.jaccard(origin.goals(), cand.goals())
+                + (differentCategory ? 0.2 : 0.0)
+                + (differentForm ? 0.1 : 0.0)
+                + 0.25 * cand.quality();
+    }
+
+    private static SideIndex.Edge edge(Node origin, Node cand, double score) {
+        List<String> reasons = new ArrayList<>(4);
+        if (!Collections.disjoint(origin.goals(), cand.goals())) reasons.add(REASON_SHARED_GOALS);
+        if (differentCategory(origin, cand)) reasons.add(REASON_OTHER_CATEGORY);
+        if (differentForm(origin, cand)) reasons.add(REASON_OTHER_FORM);
+        if (cand.quality() >= 0.6) reasons.add(REASON_TOP_RATED);
+        return new SideIndex.Edge(cand.id(), Math.round(score * 10000.0) / 10000.0, reasons);
+    }
+
+    private static boolean differentForm(Node a, Node b) {
+        return a.form() == null || b.form() == null || !a.form().equals(b.form());
+    }
+
+    private static boolean differentCategory(Node a, Node b) {
+        return a.categories().isEmpty() || b.categories().isEmpty() || Collections.disjoint(a.categories(), b.categories());
+    }
+
+    /** Rating (0..5) scaled to 0..1 and damped by review count, saturating at ~50 reviews. */
+    static double quality(Map<String, Object> d) {
+        double rating = d.get("rating") instanceof Number n ? n.doubleValue() : 0.0;
+        double reviews = d.get("review_count") instanceof Number n ? n.doubleValue() : 0.0;
+        double confidence = Math.min(1.0, Math.log1p(reviews) / Math.log1p(50));
+        return Math.max(0.0, Math.min(1.0, rating / 5.0)) * confidence;
+    }
+}
@@ -6,6 +6,8 @@ import com.irondust.search.config.VectorProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import com.irondust.search.util.AppMetrics;
+import com.irondust.search.util.SingleFlight;
 import com.irondust.search.util.TokenAccounting;
 
 import java.net.URI;
@@ -22,7 +24,9 @@ import java.util.*;
 @Service
 public class EmbeddingService {
     private static final Logger log = LoggerFactory.getLogger(EmbeddingService.class);
-    private static final String OPENAI_EMBED_URL = "https://api.openai.com/v1/embeddings";
+    /** {@code OPENAI_BASE_URL} points OpenAI calls at a proxy or a local stub (load tests). */
+    private static final String OPENAI_EMBED_URL =
+            System.getenv().getOrDefault("OPENAI_BASE_URL", "https://api.openai.com/v1") + "/embeddings";
 
     private final ObjectMapper mapper = new ObjectMapper();
     private final HttpClient http = HttpClient.newHttpClient();
@@ -37,9 +41,13 @@ public class EmbeddingService {
         }
     });
 
+    // Concurrent requests for the same text share one API call
+    private final SingleFlight<String, float[]> inFlight = new SingleFlight<>("embedding");
+
     public EmbeddingService(VectorProperties vectorProperties) {
         this.vectorProperties = vectorProperties;
         this.apiKey = System.getenv("OPENAI_API_KEY");
+        AppMetrics.cacheSize("embedding", cache, Map::size);
     }
 
     public boolean isEnabled() {
@@ -52,7 +60,20 @@ public class EmbeddingService {
         if (text == null) text = "";
         String key = vectorProperties.getEmbeddingModel() + "\n" + text;
         float[] cached = cache.get(key);
+        AppMetrics.cacheAccess("embedding", cached != null);
         if (cached != null) return cached;
+        String input = text;
+        try {
+            return inFlight.call(key, () -> requestEmbedding(input, key));
+        } catch (Exception e) {
+            log.warn("Embedding error: {}", e.toString());
+            return new float[vectorProperties.getEmbeddingDim()];
+        }
+    }
+
+    private float[] requestEmbedding(String text, String key) {
+        long started = System.nanoTime();
+        boolean responded = false;
         try {
             long t0 = System.currentTimeMillis();
             Map<String, Object> req = new LinkedHashMap<>();
@@ -66,6 +87,8 @@ public class EmbeddingService {
                     .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
                     .build();
             HttpResponse<String> resp = http.send(httpReq, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            responded = true;
+            AppMetrics.recordBackend("openai", "POST /v1/embeddings", AppMetrics.outcome(resp.statusCode()), System.nanoTime() - started);
             if (resp.statusCode() >= 300) {
                 log.warn("Embedding API error status {}: {}", resp.statusCode(), resp.body());
                 return new float[vectorProperties.getEmbeddingDim()];
@@ -81,10 +104,14 @@ public class EmbeddingService {
             long dt = System.currentTimeMillis() - t0;
             // Rough prompt token estimate for embeddings; OpenAI does not return usage for this endpoint
             long approxTokens = Math.max(1, Math.round(text.length() / 4.0));
-            try { TokenAccounting.recordEmbeddingUsage(vectorProperties.getEmbeddingModel(), approxTokens); } catch (Exception ignored) {}
+            try {
+                TokenAccounting.recordEmbeddingUsage(TokenAccounting.current(), "embed", vectorProperties.getEmbeddingModel(),
+                        approxTokens, System.nanoTime() - started);
+            } catch (Exception ignored) {}
             log.info("Embedding generated: model={} dim={} tokens~={}ms={}", vectorProperties.getEmbeddingModel(), out.length, approxTokens, dt);
             return out;
         } catch (Exception e) {
+            if (!responded) AppMetrics.recordBackend("openai", "POST /v1/embeddings", "error", System.nanoTime() - started);
             log.warn("Embedding error: {}", e.toString());
             return new float[vectorProperties.getEmbeddingDim()];
         }
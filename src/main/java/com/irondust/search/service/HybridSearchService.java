@@ -1,6 +1,8 @@
 package com.irondust.search.service;
 
 import com.irondust.search.config.VectorProperties;
+import com.irondust.search.util.AppMetrics;
+import com.irondust.search.util.StageTimings;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
@@ -12,6 +14,12 @@ import java.util.*;
  */
 @Service
 public class HybridSearchService {
+    /**
+     * Key of the per-hit ranking explanation in fused results: id → {@code lexical_rank},
+     * {@code vector_rank} (1-based, null when absent from that list) and {@code rrf_score}.
+     */
+    public static final String EXPLAIN_KEY = "_explain";
+
     private final MeiliService meiliService;
     private final EmbeddingService embeddingService;
     private final QdrantService qdrantService;
@@ -25,28 +33,48 @@ public class HybridSearchService {
     }
 
     public Mono<Map<String, Object>> search(String q, String filter, List<String> sort, int page, int size, List<String> facets) {
+        return search(q, filter, sort, page, size, facets, null);
+    }
+
+    public Mono<Map<String, Object>> search(String q, String filter, List<String> sort, int page, int size, List<String> facets, String lang) {
+        return search(q, filter, sort, page, size, facets, lang, false);
+    }
+
+    /**
+     * @param lang optional language; lexical hits then come from the per-language projection index
+     * @param explain when true the result carries per-hit ranks under {@link #EXPLAIN_KEY}
+     */
+    public Mono<Map<String, Object>> search(String q, String filter, List<String> sort, int page, int size, List<String> facets, String lang,
+                                            boolean explain) {
         // Run Meili search
-        Mono<Map<String, Object>> meiliMono = meiliService.searchRaw(q, filter, sort, page, size, facets);
+        Mono<Map<String, Object>> meiliMono = meiliService.searchRaw(q, filter, sort, page, size, facets, lang);
 
         // Run vector search if query present and long enough; do not block request if vector side is slow
         boolean vectorEligible = q != null && !q.isBlank() && q.trim().length() >= Math.max(1, vectorProperties.getMinQueryLength()) && embeddingService.isEnabled();
         Mono<List<QdrantService.SearchResult>> vectorMono = vectorEligible
-                ? Mono.fromSupplier(() -> embeddingService.embedText(q))
-                    .subscribeOn(Schedulers.boundedElastic())
+                ? StageTimings.time("embed", Mono.fromSupplier(() -> embeddingService.embedText(q))
+                        .subscribeOn(Schedulers.boundedElastic()))
                     .flatMap(vec -> {
                         int dynamicK = Math.min(Math.max(20, vectorProperties.getVectorSearchK()), 100);
-                        return qdrantService.search(vec, buildVectorFilter(filter), dynamicK);
+                        return StageTimings.time("qdrant", qdrantService.search(vec, buildVectorFilter(filter), dynamicK));
                     })
                     .timeout(java.time.Duration.ofMillis(Math.max(50, vectorProperties.getVectorTimeoutMs())))
-                    .onErrorResume(e -> Mono.just(List.of()))
+                    .onErrorResume(e -> {
+                        // Lexical-only results when the vector side is slow or failing
+                        AppMetrics.count(AppMetrics.HYBRID_VECTOR_FALLBACKS,
+                                "reason", e instanceof java.util.concurrent.TimeoutException ? "timeout" : "error");
+                        return Mono.just(List.of());
+                    })
                 : Mono.just(List.of());
 
         return Mono.zip(meiliMono, vectorMono)
-                .map(tuple -> fuseRRF(tuple.getT1(), tuple.getT2(), size));
+                .flatMap(StageTimings.map("fuse", tuple -> fuseRRF(tuple.getT1(), tuple.getT2(), size, explain)));
     }
 
-    private Map<String, Object> fuseRRF(Map<String, Object> meili, List<QdrantService.SearchResult> vecResults, int size) {
+    Map<String, Object> fuseRRF(Map<String, Object> meili, List<QdrantService.SearchResult> vecResults, int size, boolean explain) {
         Map<String, Double> rrf = new LinkedHashMap<>();
+        Map<String, Integer> lexicalRank = explain ? new HashMap<>() : null;
+        Map<String, Integer> vectorRank = explain ? new HashMap<>() : null;
         int k = Math.max(1, vectorProperties.getRrfK());
 
         // Add Meili ranks
@@ -56,6 +84,7 @@ public class HybridSearchService {
             String id = String.valueOf(h.get("id"));
             double score = 1.0 / (k + i + 1);
             rrf.merge(id, score, Double::sum);
+            if (explain) lexicalRank.putIfAbsent(id, i + 1);
         }
 
         // Add Vector ranks (map Qdrant point -> original document id via payload)
@@ -69,6 +98,7 @@ public class HybridSearchService {
             }
             double score = 1.0 / (k + i + 1);
             rrf.merge(targetId, score, Double::sum);
+            if (explain) vectorRank.putIfAbsent(targetId, i + 1);
         }
 
         // Rank by RRF, then materialize top-N docs from Meili results (fallback)
@@ -81,13 +111,23 @@ public class HybridSearchService {
         for (Map<String, Object> h : hits) idToDoc.put(String.valueOf(h.get("id")), h);
 
         List<Map<String, Object>> fusedHits = new ArrayList<>();
+        Map<String, Map<String, Object>> ranks = explain ? new LinkedHashMap<>() : null;
         for (Map.Entry<String, Double> e : ranked) {
             Map<String, Object> doc = idToDoc.get(e.getKey());
-            if (doc != null) fusedHits.add(doc);
+            if (doc != null) {
+                fusedHits.add(doc);
+                if (!explain) continue;
+                Map<String, Object> x = new LinkedHashMap<>();
+                x.put("lexical_rank", lexicalRank.get(e.getKey()));
+                x.put("vector_rank", vectorRank.get(e.getKey()));
+                x.put("rrf_score", e.getValue());
+                ranks.put(e.getKey(), x);
+            }
         }
 
         Map<String, Object> out = new LinkedHashMap<>(meili);
         out.put("hits", fusedHits);
+        if (explain) out.put(EXPLAIN_KEY, ranks);
         out.put("estimatedTotalHits", fusedHits.size());
         return out;
     }
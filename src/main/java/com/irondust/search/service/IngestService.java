@@ -6,16 +6,28 @@ import com.irondust.search.model.ProductDoc;
 import com.irondust.search.model.RawProduct;
 import com.irondust.search.model.EnrichedProduct;
 import com.irondust.search.service.enrichment.EnrichmentPipeline;
+import com.irondust.search.service.enrichment.FlavorLexicon;
 import com.irondust.search.service.TranslationService.ProductTranslation;
+import com.irondust.search.service.suggest.SuggestService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
 import reactor.core.scheduler.Schedulers;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import com.irondust.search.util.AdaptiveLimiter;
+import com.irondust.search.util.AppMetrics;
+import com.irondust.search.util.OpenAiRateLimiter;
+import com.irondust.search.util.TitleUtils;
 import com.irondust.search.util.TokenAccounting;
+import com.irondust.search.util.TermMatcher;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.function.Supplier;
 import com.irondust.search.dto.IngestDtos;
 
 @Service
@@ -28,17 +40,59 @@ public class IngestService {
     private final TranslationService translationService;
     private final FeatureFlagService featureFlags;
     private final BlacklistService blacklistService;
+    private final AlternativesIndexService alternativesIndexService;
+    private final ComplementsGraphService complementsGraphService;
+    private final SuggestService suggestService;
+    private final CacheWarmerService cacheWarmerService;
+    private final RunUsageService runUsageService;
+    // Per-stage concurrency limits (bulkheads); long-lived so what they learn carries over between runs
+    private final AdaptiveLimiter fetchLimiter;
+    private final AdaptiveLimiter parseLimiter;
+    private final AdaptiveLimiter enrichLimiter;
+    private final AdaptiveLimiter translateLimiter;
+    private final AdaptiveLimiter uploadLimiter;
 
     public IngestService(WooStoreService wooStoreService, MeiliService meiliService, 
                         AppProperties appProperties, EnrichmentPipeline enrichmentPipeline,
                         TranslationService translationService, FeatureFlagService featureFlags,
-                        BlacklistService blacklistService) {
+                        BlacklistService blacklistService, AlternativesIndexService alternativesIndexService,
+                        ComplementsGraphService complementsGraphService, SuggestService suggestService,
+                        CacheWarmerService cacheWarmerService, RunUsageService runUsageService) {
         this.wooStoreService = wooStoreService;
+        this.runUsageService = runUsageService;
+        this.alternativesIndexService = alternativesIndexService;
+        this.complementsGraphService = complementsGraphService;
+        this.suggestService = suggestService;
+        this.cacheWarmerService = cacheWarmerService;
         this.meiliService = meiliService;
         this.appProperties = appProperties;
         this.translationService = translationService;
         this.featureFlags = featureFlags;
         this.blacklistService = blacklistService;
+        int parallelism = Math.max(1, appProperties.getIngestParallelism());
+        // The store is a WordPress site: start page fetching gently
+        this.fetchLimiter = stageLimiter("fetch", 2, 8);
+        // Deterministic parsing is CPU-bound: a fixed pool of cores, so slow AI calls never starve it
+        this.parseLimiter = AdaptiveLimiter.fixed("parse", Runtime.getRuntime().availableProcessors());
+        this.enrichLimiter = stageLimiter("enrich", parallelism, appProperties.getIngestMaxParallelism());
+        this.translateLimiter = stageLimiter("translate", parallelism, appProperties.getIngestMaxParallelism());
+        this.uploadLimiter = stageLimiter("upload", Math.max(1, appProperties.getMeiliConcurrentUpdates()),
+                appProperties.getMeiliMaxConcurrentUpdates());
+        // Enrichment and translation share the OpenAI quota: any 429 slows both
+        OpenAiRateLimiter.addRateLimitListener(enrichLimiter::onOverload);
+        OpenAiRateLimiter.addRateLimitListener(translateLimiter::onOverload);
+    }
+
+    private AdaptiveLimiter stageLimiter(String stage, int initial, int max) {
+        return appProperties.isIngestAdaptiveConcurrency()
+                ? new AdaptiveLimiter(stage, initial, 1, Math.max(initial, max))
+                : AdaptiveLimiter.fixed(stage, initial);
+    }
+
+    /** Upper bound on products in flight; the stage limiters decide how many actually run. */
+    private int maxInFlight() {
+        return Math.max(enrichLimiter.limit(), Math.max(translateLimiter.limit(),
+                appProperties.isIngestAdaptiveConcurrency() ? appProperties.getIngestMaxParallelism() : 0));
     }
 
     public Mono<IngestDtos.IngestReport> ingestFull() {
@@ -49,14 +103,20 @@ public class IngestService {
      * Full ingest with optional progress callback. The callback receives the number of items processed so far.
      */
     public Mono<IngestDtos.IngestReport> ingestFullWithProgress(java.util.function.IntConsumer onProgress) {
-        // Reset AI token accounting at the start of a full ingest run
-        TokenAccounting.reset();
+        // Token accounting is scoped to this run through the Reactor context
+        return TokenAccounting.inRun("full", run -> runFullIngest(onProgress, run));
+    }
+
+    private Mono<IngestDtos.IngestReport> runFullIngest(java.util.function.IntConsumer onProgress, TokenAccounting run) {
         java.util.concurrent.atomic.AtomicInteger counter = new java.util.concurrent.atomic.AtomicInteger(0);
-        int parallelism = Math.max(1, appProperties.getIngestParallelism());
+        int parallelism = maxInFlight();
 
         java.util.List<String> ignoredIds = java.util.Collections.synchronizedList(new java.util.ArrayList<>());
+        Map<String, List<String>> deferredIds = new LinkedHashMap<>();
 
-        return wooStoreService.paginateProducts()
+        return wooStoreService.paginateProducts(fetchLimiter)
+                // An incomplete listing must not be published: the prune would delete the missing products
+                .doOnError(e -> log.error("Full ingest aborted, store listing incomplete (nothing published or pruned): {}", e.toString()))
                 .flatMap(json -> {
                         if (isBlacklisted(json)) {
                             String ignoredId = "wc_" + json.path("id").asLong();
@@ -64,9 +124,10 @@ public class IngestService {
                             ignoredIds.add(ignoredId);
                             return Mono.empty();
                         }
-                        return transformWithEnrichmentWithReport(json)
+                        return transformWithEnrichmentWithReport(json, true)
                         .map(r -> {
                             int current = counter.incrementAndGet();
+                            AppMetrics.count(AppMetrics.INGEST_PRODUCTS, "mode", "full");
                             int warnCount = r.report.getWarnings() != null ? r.report.getWarnings().size() : 0;
                             int confCount = r.report.getConflicts() != null ? r.report.getConflicts().size() : 0;
                             log.info("Full ingest progress: {} items processed so far; id={} warnings={} conflicts={}",
@@ -86,6 +147,9 @@ public class IngestService {
                     for (var r : results) {
                         allDocs.add(r.doc);
                         reports.add(r.report);
+                        if (r.deferredStage != null) {
+                            deferredIds.computeIfAbsent(r.deferredStage, k -> new ArrayList<>()).add(r.doc.getId());
+                        }
                     }
                     // Merge same products (variants) by parent_id: collect flavors and min prices
                     applyVariantGroupingAggregates(allDocs);
@@ -98,7 +162,7 @@ public class IngestService {
                     }
                     List<String> filterable = new ArrayList<>();
                     filterable.addAll(List.of(
-                            "in_stock", "categories_slugs", "categories_ids", "brand_slug", "price_cents",
+                            "id", "in_stock", "categories_slugs", "categories_ids", "brand_slug", "price_cents",
                             "form", "diet_tags", "goal_tags", "parent_id", "is_on_sale",
                             // numeric price metrics
                             "price", "price_per_serving", "price_per_serving_min", "price_per_serving_max", "price_per_100g", "price_per_unit",
@@ -123,36 +187,74 @@ public class IngestService {
 
                     // ensure index and settings first, then upload in chunks
                     int chunkSize = appProperties.getUploadChunkSize() > 0 ? appProperties.getUploadChunkSize() : 500;
-                    int meiliConcurrency = Math.max(1, appProperties.getMeiliConcurrentUpdates());
+                    int meiliConcurrency = Math.max(uploadLimiter.limit(), appProperties.getMeiliMaxConcurrentUpdates());
 
                     java.util.Set<String> keepIds = allDocs.stream().map(ProductDoc::getId)
                             .collect(java.util.stream.Collectors.toCollection(java.util.LinkedHashSet::new));
+                    Map<String, String> projectionFailures = new LinkedHashMap<>();
 
                     return meiliService.ensureIndexWithSettings(filterable, sortable, searchable)
                             .thenMany(Flux.fromIterable(chunk(allDocs, chunkSize)))
-                            .flatMap(meiliService::addOrReplaceDocuments, meiliConcurrency)
+                            .flatMap(c -> uploadLimiter.execute(() -> meiliService.addOrReplaceDocuments(c)), meiliConcurrency)
                             .then(meiliService.pruneDocumentsNotIn(keepIds))
+                            .then(publishLanguageProjections(allDocs, filterable, sortable, chunkSize, meiliConcurrency, keepIds,
+                                    projectionFailures))
+                            .then(alternativesIndexService.rebuildChangedFromDocs(allDocs))
+                            .then(complementsGraphService.rebuildFromDocs(allDocs))
+                            .then(suggestService.rebuildFromDocs(allDocs))
+                            .then(Mono.fromRunnable(() -> cacheWarmerService.trigger("ingest")))
                             .then(Mono.fromSupplier(() -> buildReport(allDocs.size(), reports)))
                             .map(report -> {
                                 report.setIgnored_ids(new java.util.ArrayList<>(ignoredIds));
                                 report.setIgnored_count(ignoredIds.size());
-                                attachAiUsage(report);
+                                report.setDeferred_ids(deferredIds);
+                                report.setDeferred_count(deferredIds.values().stream().mapToInt(List::size).sum());
+                                report.setProjection_failures(projectionFailures);
+                                attachAiUsage(report, run);
                                 return report;
                             })
-                            .flatMap(report -> persistFullIngestReport(report).thenReturn(report));
+                            .flatMap(report -> persistFullIngestReport(report).thenReturn(report))
+                            .flatMap(report -> runUsageService.save(run, report).thenReturn(report))
+                            .doOnNext(report -> topUpDeferred(deferredIds, run.runId()));
                 });
     }
 
     public Mono<IngestDtos.IngestReport> ingestByIds(List<Long> productIds) {
-        // Reset accounting per targeted ingest invocation
-        TokenAccounting.reset();
+        return ingestByIds(productIds, false);
+    }
+
+    /**
+     * Re-ingests, in the background and without deadlines, the products a full ingest published
+     * with only part of their enrichment or without translations.
+     */
+    private void topUpDeferred(Map<String, List<String>> deferredIds, String parentRunId) {
+        List<Long> ids = deferredIds.values().stream()
+                .flatMap(List::stream)
+                .distinct()
+                .map(id -> Long.parseLong(id.substring(id.indexOf('_') + 1)))
+                .toList();
+        if (ids.isEmpty() || !appProperties.isIngestDeferredTopUp()) return;
+        log.info("Topping up {} products that missed an ingest deadline: {}", ids.size(), deferredIds);
+        ingestByIds(ids, false)
+                .contextWrite(ctx -> ctx.put(TokenAccounting.RUN_ID_KEY, parentRunId + "-top-up"))
+                .subscribe(
+                        r -> log.info("Deferred top-up indexed {} products", r.getIndexed()),
+                        e -> log.warn("Deferred top-up failed: {}", e.toString()));
+    }
+
+    private Mono<IngestDtos.IngestReport> ingestByIds(List<Long> productIds, boolean deadlines) {
+        return TokenAccounting.inRun("targeted", run -> runTargetedIngest(productIds, deadlines, run));
+    }
+
+    private Mono<IngestDtos.IngestReport> runTargetedIngest(List<Long> productIds, boolean deadlines, TokenAccounting run) {
         return wooStoreService.fetchProductsByIds(productIds)
                 .index()
                 .flatMap(tuple -> {
                     int current = (int) (tuple.getT1() + 1);
                     JsonNode json = tuple.getT2();
-                    return transformWithEnrichmentWithReport(json)
+                    return transformWithEnrichmentWithReport(json, deadlines)
                             .map(r -> {
+                                AppMetrics.count(AppMetrics.INGEST_PRODUCTS, "mode", "targeted");
                                 int total = productIds.size();
                                 int pct = (int) Math.round((current * 100.0) / Math.max(total, 1));
                                 int warnCount = r.report.getWarnings() != null ? r.report.getWarnings().size() : 0;
@@ -166,7 +268,7 @@ public class IngestService {
                 .flatMap(results -> {
                     if (results.isEmpty()) {
                         IngestDtos.IngestReport r = buildReport(0, List.of());
-                        attachAiUsage(r);
+                        attachAiUsage(r, run);
                         return Mono.just(r);
                     }
                     List<ProductDoc> docs = new ArrayList<>();
@@ -177,12 +279,66 @@ public class IngestService {
                     }
                     // Apply grouping aggregates for partial ingests as well
                     applyVariantGroupingAggregates(docs);
+                    Map<String, String> projectionFailures = new LinkedHashMap<>();
                     return meiliService.addOrReplaceDocuments(docs)
+                            .then(publishLanguageProjections(docs, null, null, docs.size(), 1, null, projectionFailures))
+                            .then(alternativesIndexService.refreshDocs(docs))
+                            .then(complementsGraphService.rebuildWithChanged(docs))
+                            .then(suggestService.rebuildWithChanged(docs))
+                            .then(Mono.fromRunnable(() -> cacheWarmerService.trigger("ingest")))
                             .then(Mono.fromSupplier(() -> {
                                 IngestDtos.IngestReport r = buildReport(docs.size(), reports);
-                                attachAiUsage(r);
+                                r.setProjection_failures(projectionFailures);
+                                attachAiUsage(r, run);
                                 return r;
-                            }));
+                            }))
+                            .flatMap(r -> runUsageService.save(run, r).thenReturn(r));
+                });
+    }
+
+    /**
+     * Publishes per-language projections of the given documents into {@code <indexName>_<lang>} so that
+     * language-aware reads get ready-to-serve documents. Index settings are (re)applied when attribute
+     * lists are provided (full ingest); without them (targeted ingest) a missing projection index is
+     * first created with the base index's filterable and sortable attributes, so Meili never
+     * auto-creates an unconfigured one. Ids outside {@code keepIds} are pruned when provided.
+     * A language that fails does not fail the ingest (reads fall back to the base index): its error
+     * is added to {@code failures} by language for the run report and counted in
+     * {@link AppMetrics#INGEST_PROJECTION_FAILURES}.
+     */
+    Mono<Void> publishLanguageProjections(List<ProductDoc> docs, List<String> filterable, List<String> sortable,
+                                          int chunkSize, int concurrency, Set<String> keepIds, Map<String, String> failures) {
+        if (!appProperties.isLocalizedIndexes() || docs.isEmpty()) return Mono.empty();
+        return Flux.fromIterable(TranslationService.SUPPORTED_LANGUAGES)
+                .concatMap(lang -> {
+                    String index = meiliService.localizedIndexName(lang);
+                    List<Map<String, Object>> projected = LanguageProjection.projectAll(docs, lang);
+                    Mono<Void> settings = filterable != null
+                            ? meiliService.ensureIndexWithSettings(index, filterable, sortable, LanguageProjection.searchableAttributes(lang))
+                            : meiliService.indexExists(index).flatMap(exists -> exists ? Mono.<Void>empty() : configureLikeBase(index, lang));
+                    Mono<Void> prune = keepIds != null ? meiliService.pruneDocumentsNotIn(index, keepIds) : Mono.empty();
+                    return settings
+                            .thenMany(Flux.fromIterable(chunk(projected, Math.max(1, chunkSize))))
+                            .flatMap(c -> uploadLimiter.execute(() -> meiliService.addOrReplaceDocuments(index, c)), Math.max(1, concurrency))
+                            .then(prune)
+                            .doOnSuccess(v -> log.info("Published {} {} projections to {}", projected.size(), lang, index))
+                            .onErrorResume(e -> {
+                                log.warn("Failed to publish {} projections to {}: {}", lang, index, e.toString());
+                                AppMetrics.count(AppMetrics.INGEST_PROJECTION_FAILURES, "lang", lang);
+                                failures.put(lang, e.toString());
+                                return Mono.empty();
+                            });
+                })
+                .then();
+    }
+
+    /** Creates a projection index with the base index's filterable and sortable attributes. */
+    private Mono<Void> configureLikeBase(String index, String lang) {
+        return meiliService.getSettings(appProperties.getIndexName())
+                .flatMap(base -> {
+                    log.info("Creating missing projection index {} with the base index settings", index);
+                    return meiliService.ensureIndexWithSettings(index, SideIndex.list(base.get("filterableAttributes")),
+                            SideIndex.list(base.get("sortableAttributes")), LanguageProjection.searchableAttributes(lang));
                 });
     }
 
@@ -191,43 +347,111 @@ public class IngestService {
     private static class DocWithReport {
         final ProductDoc doc;
         final IngestDtos.ProductReport report;
+        /** Stage whose deadline the product missed ("enrich" or "translate"), or null. */
+        final String deferredStage;
         DocWithReport(ProductDoc doc, IngestDtos.ProductReport report) {
+            this(doc, report, null);
+        }
+        DocWithReport(ProductDoc doc, IngestDtos.ProductReport report, String deferredStage) {
             this.doc = doc;
             this.report = report;
+            this.deferredStage = deferredStage;
+        }
+    }
+
+    /** A product's AI enrichment or translation outlasted its stage deadline. */
+    private static final class DeadlineExceeded extends RuntimeException {
+        DeadlineExceeded(String stage, long deadlineMs) {
+            super(stage + " deadline of " + deadlineMs + " ms exceeded", null, false, false);
         }
     }
 
-    private boolean isBlacklisted(JsonNode p) {
+    /**
+     * Runs {@code work} in {@code limiter} and bounds the caller's wait by {@code deadlineMs} (no bound
+     * when 0 or less), counted from the moment the work gets its slot so queueing does not count
+     * against it. Work that overruns is not cancelled: it keeps its slot until it finishes, so the
+     * limiter still bounds the backend calls in flight, and its late result fills the caches the
+     * top-up reads. Cancelling the returned Mono cancels the work.
+     */
+    private static <T> Mono<T> withDeadline(AdaptiveLimiter limiter, String stage, long deadlineMs, Supplier<Mono<T>> work) {
+        if (deadlineMs <= 0) return limiter.execute(work);
+        return Mono.deferContextual(ctx -> {
+            Sinks.Empty<Void> started = Sinks.empty();
+            Sinks.One<T> result = Sinks.one();
+            Disposable call = limiter.execute(() -> {
+                        started.tryEmitEmpty();
+                        return work.get();
+                    })
+                    .contextWrite(ctx)
+                    .subscribe(result::tryEmitValue,
+                            e -> { started.tryEmitEmpty(); result.tryEmitError(e); },
+                            () -> { started.tryEmitEmpty(); result.tryEmitEmpty(); });
+            return started.asMono()
+                    .then(result.asMono().timeout(Duration.ofMillis(deadlineMs), Mono.defer(() -> {
+                        AppMetrics.count(AppMetrics.INGEST_DEADLINE_EXCEEDED, "stage", stage);
+                        return Mono.error(new DeadlineExceeded(stage, deadlineMs));
+                    })))
+                    .doOnCancel(call::dispose);
+        });
+    }
+
+    private static final List<String> GIFT_TOKENS = List.of(
+        "gift card", "gift-card", "giftcard", "present card", "voucher", "store credit",
+        "kinkekaart", "kinke kaart", "kingitus", "presentkaart", "kingikaart", "kinkekaardid"
+    );
+    private static final List<String> GIFT_CATEGORY_CUES = List.of("gift", "voucher", "kinkekaard");
+    /** Gift-card cues for product name, slug and description; one pass per field. */
+    private static final TermMatcher GIFT_TERMS = TermMatcher.of(GIFT_TOKENS);
+    /** Category names match the cues above plus the broader category words. */
+    private static final TermMatcher GIFT_CATEGORY_NAME_TERMS = TermMatcher.of(
+        java.util.stream.Stream.concat(GIFT_CATEGORY_CUES.stream(), GIFT_TOKENS.stream()).toList());
+    /** Category slugs hyphenate multi-word tokens ("store credit" → "store-credit"). */
+    private static final TermMatcher GIFT_CATEGORY_SLUG_TERMS = TermMatcher.of(
+        java.util.stream.Stream.concat(GIFT_CATEGORY_CUES.stream(),
+            GIFT_TOKENS.stream().map(t -> t.replace(" ", "-"))).toList());
+
+    /**
+     * Store products a full ingest would index (both blacklists applied), for the batch-job prefill.
+     */
+    Flux<RawProduct> ingestableProducts() {
+        return wooStoreService.paginateProducts(fetchLimiter)
+                .filter(json -> !isBlacklisted(json))
+                .concatMap(json -> blacklistService.isBlacklistedId("wc_" + json.path("id").asLong())
+                        .filter(isBl -> !isBl)
+                        .map(isBl -> RawProduct.fromJsonNode(json)));
+    }
+
+    /** Fresh enrichment pipeline configured like the ingest's (TitleComposer behind 'normalize_titles'). */
+    Mono<EnrichmentPipeline> newPipeline() {
+        return featureFlags.isEnabled("normalize_titles", false).map(EnrichmentPipeline::new);
+    }
+
+    private static boolean isBlacklisted(JsonNode p) {
         try {
             String name = p.path("name").asText("").toLowerCase();
             String slug = p.path("slug").asText("").toLowerCase();
             String desc = p.path("description").asText("").toLowerCase();
-            java.util.Set<String> tokens = new java.util.LinkedHashSet<>(java.util.List.of(
-                "gift card", "gift-card", "giftcard", "present card", "voucher", "store credit",
-                "kinkekaart", "kinke kaart", "kingitus", "presentkaart", "kingikaart", "kinkekaardid"
-            ));
-            for (String t : tokens) {
-                if (name.contains(t) || slug.contains(t) || desc.contains(t)) {
-                    return true;
-                }
+            if (GIFT_TERMS.containsAny(name) || GIFT_TERMS.containsAny(slug) || GIFT_TERMS.containsAny(desc)) {
+                return true;
             }
             if (p.path("categories").isArray()) {
                 for (com.fasterxml.jackson.databind.JsonNode c : p.path("categories")) {
                     String cs = c.path("slug").asText("").toLowerCase();
                     String cn = c.path("name").asText("").toLowerCase();
-                    // Direct category slug/name checks
-                    if (cs.contains("gift") || cs.contains("voucher") || cs.contains("kinkekaard")) return true;
-                    if (cn.contains("gift") || cn.contains("voucher") || cn.contains("kinkekaard")) return true;
-                    for (String t : tokens) {
-                        if (cs.contains(t.replace(" ", "-")) || cn.contains(t)) return true;
-                    }
+                    if (GIFT_CATEGORY_SLUG_TERMS.containsAny(cs) || GIFT_CATEGORY_NAME_TERMS.containsAny(cn)) return true;
                 }
             }
         } catch (Exception ignored) {}
         return false;
     }
 
-    private Mono<DocWithReport> transformWithEnrichmentWithReport(JsonNode p) {
+    /**
+     * Enriches, translates and maps one store product. Deterministic parsing, AI enrichment and
+     * translation each run in their own bulkhead; with {@code deadlines}, a product whose AI
+     * enrichment or translation overruns its deadline is published without it (deterministic fields
+     * only, or untranslated) and marked deferred for a background top-up.
+     */
+    private Mono<DocWithReport> transformWithEnrichmentWithReport(JsonNode p, boolean deadlines) {
         // Static blacklist (content/category heuristics)
         if (isBlacklisted(p)) {
             String skippedId = "wc_" + p.path("id").asLong();
@@ -247,50 +471,70 @@ public class IngestService {
                     // Create raw product from JSON
                     RawProduct raw = RawProduct.fromJsonNode(p);
 
+                    long enrichDeadlineMs = deadlines ? appProperties.getIngestEnrichDeadlineMs() : 0;
+                    long translateDeadlineMs = deadlines ? appProperties.getIngestTranslateDeadlineMs() : 0;
                     // Use a fresh pipeline instance per product to ensure thread-safety under parallelism
                     // TitleComposer controlled via feature flag 'normalize_titles'.
-                    return featureFlags.isEnabled("normalize_titles", false)
-                            .flatMap(enableTitle -> {
-                                EnrichmentPipeline pipeline = new EnrichmentPipeline(enableTitle);
-                                EnrichedProduct enriched = pipeline.enrich(raw);
-
-                                // Always attempt translations - TranslationService will handle enabling/disabling based on API key
-                                return translateProduct(enriched)
-                                        .map(translations -> {
-                                            // Merge translation warnings into product warnings for reporting
-                                            java.util.List<String> mergedWarnings = new java.util.ArrayList<>(
-                                                    enriched.getWarnings() != null ? enriched.getWarnings() : java.util.List.of());
-                                            if (translations != null) {
-                                                for (java.util.Map.Entry<String, ProductTranslation> e : translations.entrySet()) {
-                                                    String lang = e.getKey();
-                                                    ProductTranslation tr = e.getValue();
-                                                    if (tr != null && tr.warnings != null && !tr.warnings.isEmpty()) {
-                                                        for (String w : tr.warnings) {
-                                                            mergedWarnings.add("translation_" + lang + ": " + w);
-                                                        }
-                                                    }
-                                                }
-                                            }
-                                            if (!mergedWarnings.isEmpty()) {
-                                                enriched.setWarnings(mergedWarnings);
-                                            }
-
-                                            ProductDoc d = createProductDoc(enriched, translations);
-                                            IngestDtos.ProductReport report = createReport(enriched);
-                                            return new DocWithReport(d, report);
-                                        })
-                                        .onErrorResume(e -> {
-                                            log.error("Translation failed for product {}: {}", enriched.getId(), e.getMessage());
-                                            // Fall back to non-translated version
-                                            ProductDoc d = createProductDoc(enriched, null);
-                                            IngestDtos.ProductReport report = createReport(enriched);
-                                            return Mono.just(new DocWithReport(d, report));
-                                        });
-                            });
+                    return newPipeline()
+                            .flatMap(pipeline -> parseLimiter.execute(() -> TokenAccounting.fromCallable(() -> pipeline.parse(raw))
+                                            .subscribeOn(Schedulers.boundedElastic()))
+                                    .flatMap(parsed -> withDeadline(enrichLimiter, "enrich", enrichDeadlineMs,
+                                                    () -> TokenAccounting.fromCallable(() -> pipeline.aiResult(raw, parsed))
+                                                            .subscribeOn(Schedulers.boundedElastic()))
+                                            .flatMap(ai -> translateAndMap(pipeline.assemble(raw, parsed, ai), translateDeadlineMs))
+                                            .onErrorResume(e -> e instanceof DeadlineExceeded || e instanceof CancellationException, e -> {
+                                                log.warn("Product {} published with deterministic fields only: {}", raw.getId(), e.getMessage());
+                                                // Translating now would be redone once the AI fields arrive; the top-up does both
+                                                EnrichedProduct enriched = pipeline.assemble(raw, parsed, Map.of());
+                                                return Mono.just(new DocWithReport(createProductDoc(enriched, null),
+                                                        createReport(enriched), "enrich"));
+                                            })));
+                });
+    }
+
+    private Mono<DocWithReport> translateAndMap(EnrichedProduct enriched, long translateDeadlineMs) {
+        // Always attempt translations - TranslationService will handle enabling/disabling based on API key
+        return withDeadline(translateLimiter, "translate", translateDeadlineMs,
+                        () -> TokenAccounting.defer(() -> translateProduct(enriched)))
+                .map(translations -> {
+                    // Merge translation warnings into product warnings for reporting
+                    java.util.List<String> mergedWarnings = new java.util.ArrayList<>(
+                            enriched.getWarnings() != null ? enriched.getWarnings() : java.util.List.of());
+                    if (translations != null) {
+                        for (java.util.Map.Entry<String, ProductTranslation> e : translations.entrySet()) {
+                            String lang = e.getKey();
+                            ProductTranslation tr = e.getValue();
+                            if (tr != null && tr.warnings != null && !tr.warnings.isEmpty()) {
+                                for (String w : tr.warnings) {
+                                    mergedWarnings.add("translation_" + lang + ": " + w);
+                                }
+                            }
+                        }
+                    }
+                    if (!mergedWarnings.isEmpty()) {
+                        enriched.setWarnings(mergedWarnings);
+                    }
+
+                    ProductDoc d = createProductDoc(enriched, translations);
+                    IngestDtos.ProductReport report = createReport(enriched);
+                    return new DocWithReport(d, report);
+                })
+                .onErrorResume(e -> {
+                    boolean deferred = e instanceof DeadlineExceeded;
+                    if (deferred) {
+                        log.warn("Product {} published untranslated: {}", enriched.getId(), e.getMessage());
+                    } else {
+                        log.error("Translation failed for product {}: {}", enriched.getId(), e.getMessage());
+                    }
+                    // Fall back to non-translated version
+                    ProductDoc d = createProductDoc(enriched, null);
+                    IngestDtos.ProductReport report = createReport(enriched);
+                    return Mono.just(new DocWithReport(d, report, deferred ? "translate" : null));
                 });
     }
     
-    private ProductDoc createProductDoc(EnrichedProduct enriched, Map<String, ProductTranslation> translations) {
+    /** Maps an enriched product and optional translations to the indexed document; static so offline replays reuse it. */
+    static ProductDoc createProductDoc(EnrichedProduct enriched, Map<String, ProductTranslation> translations) {
         // Convert enriched product to ProductDoc for Meilisearch
         ProductDoc d = new ProductDoc();
         d.setId(enriched.getId());
@@ -298,7 +542,8 @@ public class IngestService {
         d.setType(enriched.getType());
         d.setSku(enriched.getSku());
         d.setSlug(enriched.getSlug());
-        d.setName(enriched.getName());
+        // Titles are sanitized once here so read paths can serve them as stored
+        d.setName(TitleUtils.sanitizeTitle(enriched.getName()));
         d.setPermalink(enriched.getPermalink());
         d.setPrice_cents(enriched.getPrice_cents());
         d.setRegular_price_cents(enriched.getRegular_price_cents());
@@ -317,7 +562,7 @@ public class IngestService {
         d.setDynamic_attrs(enriched.getDynamic_attrs());
         d.setSearch_text(enriched.getSearch_text());
         // Optional display title for UI (feature-flagged generation)
-        d.setDisplay_title(enriched.getDisplay_title());
+        d.setDisplay_title(TitleUtils.sanitizeTitle(enriched.getDisplay_title()));
         
         // Add translations if available
         if (translations != null && !translations.isEmpty()) {
@@ -337,7 +582,7 @@ public class IngestService {
                 String lang = entry.getKey();
                 ProductTranslation trans = entry.getValue();
                 
-                if (trans.name != null) nameI18n.put(lang, trans.name);
+                if (trans.name != null) nameI18n.put(lang, TitleUtils.sanitizeTitle(trans.name));
                 if (trans.description != null) descI18n.put(lang, trans.description);
                 if (trans.shortDescription != null) shortDescI18n.put(lang, trans.shortDescription);
                 if (trans.benefitSnippet != null) benefitSnippetI18n.put(lang, trans.benefitSnippet);
@@ -466,7 +711,7 @@ public class IngestService {
         return rep;
     }
 
-    private String buildSearchText(String name, String description, List<String> categories, String brand) {
+    private static String buildSearchText(String name, String description, List<String> categories, String brand) {
         List<String> parts = new ArrayList<>();
         if (name != null && !name.isEmpty()) parts.add(name);
         if (description != null && !description.isEmpty()) {
@@ -482,7 +727,14 @@ public class IngestService {
     }
     
     private Mono<Map<String, ProductTranslation>> translateProduct(EnrichedProduct enriched) {
-        // Prepare source data for translation
+        // Let the translation service detect the source language
+        String sourceLanguage = null; // Will be auto-detected
+        
+        return translationService.translateProduct(sourceLanguage, translationSource(enriched));
+    }
+
+    /** Translatable fields of an enriched product. */
+    static ProductTranslation translationSource(EnrichedProduct enriched) {
         ProductTranslation source = new ProductTranslation();
         source.name = enriched.getName();
         source.description = enriched.getDescription();
@@ -503,11 +755,7 @@ public class IngestService {
                 }
             }
         }
-        
-        // Let the translation service detect the source language
-        String sourceLanguage = null; // Will be auto-detected
-        
-        return translationService.translateProduct(sourceLanguage, source);
+        return source;
     }
     
     private static <T> List<List<T>> chunk(List<T> input, int size) {
@@ -533,21 +781,30 @@ public class IngestService {
         return report;
     }
 
-    private void attachAiUsage(IngestDtos.IngestReport report) {
+    private void attachAiUsage(IngestDtos.IngestReport report, TokenAccounting run) {
+        report.setRun_id(run.runId());
         try {
-            java.util.Map<String, com.irondust.search.util.TokenAccounting.UsageWithCost> snap = com.irondust.search.util.TokenAccounting.snapshotWithCosts();
+            java.util.Map<String, TokenAccounting.UsageWithCost> snap = run.snapshotWithCosts();
             java.util.Map<String, java.util.Map<String, Object>> out = new java.util.LinkedHashMap<>();
             for (var e : snap.entrySet()) {
                 var u = e.getValue();
                 java.util.Map<String, Object> m = new java.util.LinkedHashMap<>();
                 m.put("prompt_tokens", u.promptTokens);
+                m.put("cached_prompt_tokens", u.cachedPromptTokens);
                 m.put("completion_tokens", u.completionTokens);
                 m.put("total_tokens", u.totalTokens);
                 m.put("cost_usd", u.costUsd);
                 out.put(e.getKey(), m);
             }
             report.setAi_usage_per_model(out);
-            report.setAi_cost_total_usd(com.irondust.search.util.TokenAccounting.totalCostUsd(snap));
+            report.setAi_cost_total_usd(TokenAccounting.totalCostUsd(snap));
+            java.util.Map<String, Object> promptCache = run.promptCacheStats();
+            promptCache.put("prompt_versions", java.util.Map.of(
+                    "enrichment", com.irondust.search.service.enrichment.AIEnricher.PROMPT_VERSION,
+                    "translation", TranslationService.PROMPT_VERSION));
+            report.setAi_prompt_cache(promptCache);
+            report.setTranslation_memory(translationService.translationMemoryStats(run));
+            report.setTranslation_glossary(translationService.glossaryStats(run));
         } catch (Exception ignored) {}
     }
 
@@ -635,6 +892,12 @@ public class IngestService {
         dyn.put("flavors", new java.util.ArrayList<>(set));
     }
 
+    private static final java.util.regex.Pattern QUANTITY_SUFFIX =
+        java.util.regex.Pattern.compile("[0-9]+\\s*(g|kg|ml|l|servings?|portsjonid?)");
+    private static final java.util.regex.Pattern WHITESPACE = java.util.regex.Pattern.compile("\\s+");
+    private static final java.util.regex.Pattern FLAVOR_WORD =
+        java.util.regex.Pattern.compile("[a-z\u00C0-\u024F\u0100-\u017F-]{3,}");
+
     private static String extractFlavorValue(ProductDoc d) {
         if (d == null) return null;
         if (d.getFlavor() != null && !d.getFlavor().isBlank()) return d.getFlavor();
@@ -644,28 +907,18 @@ public class IngestService {
             if (v == null || v.isEmpty()) v = dyn.get("attr_pa_maitse");
             if (v != null && !v.isEmpty() && v.get(0) != null && !v.get(0).isBlank()) return v.get(0).trim();
         }
-        // Fallback: guess from product name suffix or parenthesized part
+        // Fallback: guess from product name, preferring a trailing bracketed part like "(vanill)"
         try {
             String name = d.getName();
             if (name != null) {
-                String lowered = name.toLowerCase();
-                // Prefer bracketed parts like "(vanill)"
-                java.util.regex.Matcher m = java.util.regex.Pattern.compile("[\\(\u005B\u3010]([^\\)\u005D\u3011]{2,32})[\\)\u005D\u3011]\s*$").matcher(lowered);
-                if (m.find()) {
-                    String in = m.group(1).trim();
-                    if (!in.isBlank()) return capitalizeFlavor(in);
-                }
-                // Known multi-word patterns first
-                String[] multi = {"valge šokolaad","valge sokolaad","kookos-šokolaad","kookos sokolaad","white chocolate"};
-                for (String p : multi) { if (lowered.contains(p)) return capitalizeFlavor(p); }
-                // Single-word/short tokens
-                String[] tokens = {"vanill","vanilla","šokolaad","sokolaad","kookos","maasikas","vaarikas","metsamarja","banaan","kirss","apelsin","sidrun","laim","mustikas","tropical","troopiline","kola","cola","citrus","caramel","karamell","kohv","coffee"};
-                for (String t : tokens) { if (lowered.matches(".*\\b"+java.util.regex.Pattern.quote(t)+"\\b.*")) return capitalizeFlavor(t); }
+                FlavorLexicon.Match m = FlavorLexicon.find(name);
+                if (m != null) return capitalizeFlavor(m.surface());
                 // As a last resort, take the last word if it looks like a flavor word (letters only)
-                String[] parts = lowered.replaceAll("[0-9]+\\s*(g|kg|ml|l|servings?|portsjonid?)"," ").trim().split("\\s+");
+                String lowered = name.toLowerCase(Locale.ROOT);
+                String[] parts = WHITESPACE.split(QUANTITY_SUFFIX.matcher(lowered).replaceAll(" ").trim());
                 if (parts.length >= 1) {
                     String last = parts[parts.length - 1];
-                    if (last.matches("[a-z\u00C0-\u024F\u0100-\u017F-]{3,}")) return capitalizeFlavor(last);
+                    if (FLAVOR_WORD.matcher(last).matches()) return capitalizeFlavor(last);
                 }
             }
         } catch (Exception ignored) {}
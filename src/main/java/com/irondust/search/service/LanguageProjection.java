@@ -0,0 +1,110 @@
+package com.irondust.search.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.irondust.search.model.ProductDoc;
+
+import java.util.*;
+
+/**
+ * Per-language projections of product documents.
+ *
+ * <p>Ingest publishes one projection per supported language into {@code <indexName>_<lang>}.
+ * A projection has the localized values copied onto the top-level fields (name, categories_names,
+ * form, flavor, benefit_snippet, dosage/timing, faq, description, search_text) and carries no
+ * {@code *_i18n} maps, so search hits from a localized index are ready to serve as-is and are
+ * roughly a third of the size of base-index hits.
+ */
+public final class LanguageProjection {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /** Multilingual maps dropped from projected documents. */
+    static final List<String> I18N_FIELDS = List.of(
+            "name_i18n", "description_i18n", "short_description_i18n", "benefit_snippet_i18n",
+            "categories_names_i18n", "form_i18n", "flavor_i18n", "search_text_i18n", "faq_i18n",
+            "dosage_text_i18n", "timing_text_i18n"
+    );
+
+    private LanguageProjection() {}
+
+    /**
+     * Projects ingest documents for the given language.
+     */
+    public static List<Map<String, Object>> projectAll(List<ProductDoc> docs, String lang) {
+        List<Map<String, Object>> out = new ArrayList<>(docs.size());
+        for (ProductDoc d : docs) {
+            Map<String, Object> m = MAPPER.convertValue(d, new TypeReference<Map<String, Object>>() {});
+            out.add(project(m, lang));
+        }
+        return out;
+    }
+
+    /**
+     * Returns a copy of the raw document with language fields applied and all {@code *_i18n} maps removed.
+     */
+    public static Map<String, Object> project(Map<String, Object> doc, String lang) {
+        Map<String, Object> out = new LinkedHashMap<>(doc);
+        applyInPlace(out, lang);
+        for (String f : I18N_FIELDS) out.remove(f);
+        return out;
+    }
+
+    /**
+     * Copies the requested language's values from {@code *_i18n} maps onto top-level fields.
+     * A no-op for documents that are already projected (they carry no i18n maps).
+     */
+    public static void applyInPlace(Map<String, Object> doc, String lang) {
+        if (doc == null || lang == null || lang.isEmpty()) return;
+        copy(doc, "name_i18n", "name", lang);
+        copy(doc, "categories_names_i18n", "categories_names", lang);
+        copy(doc, "form_i18n", "form", lang);
+        copy(doc, "flavor_i18n", "flavor", lang);
+        copy(doc, "benefit_snippet_i18n", "benefit_snippet", lang);
+        copy(doc, "dosage_text_i18n", "dosage_text", lang);
+        copy(doc, "timing_text_i18n", "timing_text", lang);
+        copy(doc, "faq_i18n", "faq", lang);
+        copy(doc, "description_i18n", "description", lang);
+
+        // search_text: prefer the localized search text, else the localized description
+        Object st = localized(doc, "search_text_i18n", lang);
+        if (st instanceof String s && !s.isEmpty()) {
+            doc.put("search_text", s);
+        } else if (localized(doc, "description_i18n", lang) instanceof String d && !d.isEmpty()) {
+            doc.put("search_text", d);
+        }
+    }
+
+    /**
+     * Searchable attributes for a localized index: the language's own synonyms rank above the others,
+     * which are kept for cross-locale recall.
+     */
+    public static List<String> searchableAttributes(String lang) {
+        String own = synonymsField(lang);
+        List<String> out = new ArrayList<>(List.of(
+                "name", "display_title", "brand_name", "categories_names", "search_text", "sku", "ingredients_key"
+        ));
+        out.add(own);
+        for (String f : List.of("synonyms_en", "synonyms_ru", "synonyms_et")) {
+            if (!f.equals(own)) out.add(f);
+        }
+        return out;
+    }
+
+    /** AI synonyms field holding the given language's synonyms. */
+    public static String synonymsField(String lang) {
+        // AI synonyms are keyed "et" while translations use "est"
+        if (TranslationService.LANG_EST.equals(lang)) return "synonyms_et";
+        return "synonyms_" + lang;
+    }
+
+    private static void copy(Map<String, Object> doc, String i18nKey, String targetKey, String lang) {
+        Object v = localized(doc, i18nKey, lang);
+        if (v != null) doc.put(targetKey, v);
+    }
+
+    private static Object localized(Map<String, Object> doc, String i18nKey, String lang) {
+        Object m = doc.get(i18nKey);
+        if (m instanceof Map<?, ?> map) return map.get(lang);
+        return null;
+    }
+}
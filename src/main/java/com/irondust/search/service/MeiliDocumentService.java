@@ -32,7 +32,7 @@ public class MeiliDocumentService {
                 List.of(
                         "id","name","brand_name","categories_slugs","categories_names",
                         "ingredients_key","goal_tags","diet_tags","benefit_snippet",
-                        "form","parent_id","in_stock","price","price_cents"
+                        "form","parent_id","in_stock","price","price_cents","rating","review_count"
                 )
         );
         return Flux.range(0, Integer.MAX_VALUE)
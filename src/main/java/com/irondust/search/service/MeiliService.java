@@ -2,7 +2,9 @@ package com.irondust.search.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.irondust.search.config.AppProperties;
+import com.irondust.search.dto.SearchDtos;
 import com.irondust.search.model.ProductDoc;
+import com.irondust.search.util.StageTimings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.MediaType;
@@ -11,6 +13,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import org.springframework.core.ParameterizedTypeReference;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.Flux;
@@ -18,10 +21,13 @@ import reactor.core.publisher.Flux;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 @Service
 public class MeiliService {
     private static final Logger log = LoggerFactory.getLogger(MeiliService.class);
+    private static final ParameterizedTypeReference<Map<String, Object>> RAW_TYPE = new ParameterizedTypeReference<>() {};
+    private static final ParameterizedTypeReference<SearchDtos.MeiliSearchResult> TYPED_TYPE = new ParameterizedTypeReference<>() {};
 
     private final WebClient meiliClient;
     // ObjectMapper is currently unused but retained for potential JSON transformations
@@ -36,7 +42,16 @@ public class MeiliService {
     }
 
     public Mono<Void> ensureIndexWithSettings(List<String> filterableAttrs, List<String> sortableAttrs, List<String> searchableAttrs) {
-        String index = appProperties.getIndexName();
+        return ensureIndexWithSettings(appProperties.getIndexName(), filterableAttrs, sortableAttrs, searchableAttrs);
+    }
+
+    public Mono<Void> ensureIndexWithSettings(String index, List<String> filterableAttrs, List<String> sortableAttrs, List<String> searchableAttrs) {
+        return ensureIndex(index)
+                .then(updateSettings(index, filterableAttrs, sortableAttrs, searchableAttrs));
+    }
+
+    /** Creates the index with primary key {@code id} if it does not exist yet. */
+    public Mono<Void> ensureIndex(String index) {
         Map<String, Object> indexPayload = Map.of("uid", index, "primaryKey", "id");
         return meiliClient.post().uri("/indexes")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -47,11 +62,30 @@ public class MeiliService {
                     // likely already exists
                     return Mono.empty();
                 })
-                .then(updateSettings(filterableAttrs, sortableAttrs, searchableAttrs));
+                .then();
+    }
+
+    /** Whether the index exists; other Meili errors are propagated. */
+    public Mono<Boolean> indexExists(String index) {
+        return meiliClient.get().uri("/indexes/{uid}", index)
+                .retrieve()
+                .bodyToMono(Map.class)
+                .map(m -> true)
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> Mono.just(false));
+    }
+
+    /** Current settings of an index (filterable, sortable and searchable attributes, ...). */
+    public Mono<Map<String, Object>> getSettings(String index) {
+        return meiliClient.get().uri("/indexes/{uid}/settings", index)
+                .retrieve()
+                .bodyToMono(RAW_TYPE);
     }
 
     public Mono<Void> updateSettings(List<String> filterableAttrs, List<String> sortableAttrs, List<String> searchableAttrs) {
-        String index = appProperties.getIndexName();
+        return updateSettings(appProperties.getIndexName(), filterableAttrs, sortableAttrs, searchableAttrs);
+    }
+
+    public Mono<Void> updateSettings(String index, List<String> filterableAttrs, List<String> sortableAttrs, List<String> searchableAttrs) {
         Map<String, Object> settings = new HashMap<>();
         if (!CollectionUtils.isEmpty(searchableAttrs)) settings.put("searchableAttributes", searchableAttrs);
         if (!CollectionUtils.isEmpty(filterableAttrs)) settings.put("filterableAttributes", filterableAttrs);
@@ -67,7 +101,10 @@ public class MeiliService {
     }
 
     public Mono<Void> addOrReplaceDocuments(List<ProductDoc> documents) {
-        String index = appProperties.getIndexName();
+        return addOrReplaceDocuments(appProperties.getIndexName(), documents);
+    }
+
+    public Mono<Void> addOrReplaceDocuments(String index, List<?> documents) {
         return meiliClient.post().uri("/indexes/{uid}/documents", index)
                 .contentType(MediaType.APPLICATION_JSON)
                 .body(BodyInserters.fromValue(documents))
@@ -76,34 +113,62 @@ public class MeiliService {
                 .then();
     }
 
+    /**
+     * Name of the per-language projection index for the given language, or null when localized
+     * indexes are disabled or the language is not supported.
+     */
+    public String localizedIndexName(String lang) {
+        if (!appProperties.isLocalizedIndexes() || lang == null || !TranslationService.SUPPORTED_LANGUAGES.contains(lang)) {
+            return null;
+        }
+        return appProperties.getIndexName() + "_" + lang;
+    }
+
     public Flux<String> listAllDocumentIds() {
-        String index = appProperties.getIndexName();
+        return listAllDocumentIds(appProperties.getIndexName());
+    }
+
+    public Flux<String> listAllDocumentIds(String index) {
+        return streamDocuments(index, "id").map(m -> String.valueOf(m.get("id")));
+    }
+
+    /**
+     * Streams all documents of an index, restricted to the given comma-separated fields.
+     */
+    public Flux<Map<String, Object>> streamDocuments(String index, String fields) {
         int pageSize = 1000;
-        return Flux
-            .range(0, Integer.MAX_VALUE)
-            .concatMap(offsetPage -> meiliClient.get()
-                    .uri(uriBuilder -> uriBuilder
-                            .path("/indexes/{uid}/documents")
-                            .queryParam("limit", pageSize)
-                            .queryParam("offset", offsetPage * pageSize)
-                            .queryParam("fields", "id")
-                            .build(index))
-                    .retrieve()
-                    .bodyToMono(new org.springframework.core.ParameterizedTypeReference<java.util.List<java.util.Map<String, Object>>>() {})
-                    .flatMapMany(list -> {
-                        if (list == null || list.isEmpty()) {
-                            return Flux.empty();
-                        }
-                        return Flux.fromIterable(list)
-                                .map(m -> String.valueOf(m.get("id")));
-                    })
-            )
-            .takeUntilOther(Mono.defer(() -> Mono.empty()));
+        return Flux.range(0, Integer.MAX_VALUE)
+                .concatMap(page -> meiliClient.get()
+                        .uri(uriBuilder -> uriBuilder
+                                .path("/indexes/{uid}/documents")
+                                .queryParam("limit", pageSize)
+                                .queryParam("offset", page * pageSize)
+                                .queryParam("fields", fields)
+                                .build(index))
+                        .retrieve()
+                        .bodyToMono(RAW_TYPE)
+                        .map(resp -> {
+                            List<Map<String, Object>> out = new java.util.ArrayList<>();
+                            if (resp.get("results") instanceof List<?> list) {
+                                for (Object o : list) {
+                                    if (o instanceof Map<?, ?> m) {
+                                        @SuppressWarnings("unchecked") Map<String, Object> doc = (Map<String, Object>) m;
+                                        out.add(doc);
+                                    }
+                                }
+                            }
+                            return out;
+                        }))
+                .takeWhile(list -> !list.isEmpty())
+                .concatMap(Flux::fromIterable);
     }
 
     public Mono<Void> deleteDocumentsByIds(List<String> ids) {
+        return deleteDocumentsByIds(appProperties.getIndexName(), ids);
+    }
+
+    public Mono<Void> deleteDocumentsByIds(String index, List<String> ids) {
         if (ids == null || ids.isEmpty()) return Mono.empty();
-        String index = appProperties.getIndexName();
         // Meilisearch v1.7 expects a bare JSON array for delete-batch
         return meiliClient.post().uri("/indexes/{uid}/documents/delete-batch", index)
                 .contentType(MediaType.APPLICATION_JSON)
@@ -114,31 +179,64 @@ public class MeiliService {
     }
 
     public Mono<Void> pruneDocumentsNotIn(java.util.Set<String> keepIds) {
+        return pruneDocumentsNotIn(appProperties.getIndexName(), keepIds);
+    }
+
+    public Mono<Void> pruneDocumentsNotIn(String index, java.util.Set<String> keepIds) {
         final java.util.Set<String> keep = (keepIds == null) ? java.util.Set.of() : keepIds;
         final int batchSize = 500;
-        return listAllDocumentIds()
+        return listAllDocumentIds(index)
                 .filter(id -> !keep.contains(id))
                 .buffer(batchSize)
-                .concatMap(this::deleteDocumentsByIds)
+                .concatMap(ids -> deleteDocumentsByIds(index, ids))
                 .then();
     }
 
     public Mono<Map<String, Object>> searchRaw(String q, String filter, List<String> sort, int page, int size, List<String> facets) {
-        String index = appProperties.getIndexName();
-        Map<String, Object> payload = new HashMap<>();
-        // Meilisearch requires 'q' in the payload; use empty string for filter-only searches
-        payload.put("q", q == null ? "" : q);
-        if (filter != null && !filter.isBlank()) payload.put("filter", filter);
-        if (sort != null && !sort.isEmpty()) payload.put("sort", sort);
-        payload.put("page", page);
-        payload.put("hitsPerPage", size);
-        if (facets != null && !facets.isEmpty()) payload.put("facets", facets);
+        return StageTimings.time("meili", searchIndex(appProperties.getIndexName(), buildSearchPayload(q, filter, sort, page, size, facets), RAW_TYPE,
+                () -> Map.of("hits", List.of(), "estimatedTotalHits", 0)));
+    }
 
+    /**
+     * Searches the per-language projection index when available so hits come back already localized.
+     * Falls back to the base index (whose hits still carry {@code *_i18n} maps) if the localized
+     * index is missing or the query fails there.
+     */
+    public Mono<Map<String, Object>> searchRaw(String q, String filter, List<String> sort, int page, int size, List<String> facets, String lang) {
+        return StageTimings.time("meili", searchLocalized(lang, buildSearchPayload(q, filter, sort, page, size, facets), RAW_TYPE,
+                () -> Map.of("hits", List.of(), "estimatedTotalHits", 0)));
+    }
+
+    /**
+     * Typed variant of {@link #searchRaw(String, String, List, int, int, List, String)}: hits are decoded
+     * directly into {@link ProductDoc}. Used by the lexical {@code /search} path.
+     */
+    public Mono<SearchDtos.MeiliSearchResult> search(String q, String filter, List<String> sort, int page, int size, List<String> facets, String lang) {
+        return StageTimings.time("meili", searchLocalized(lang, buildSearchPayload(q, filter, sort, page, size, facets), TYPED_TYPE,
+                SearchDtos.MeiliSearchResult::new));
+    }
+
+    private <T> Mono<T> searchLocalized(String lang, Map<String, Object> payload, ParameterizedTypeReference<T> type, Supplier<T> empty) {
+        String localized = localizedIndexName(lang);
+        String base = appProperties.getIndexName();
+        if (localized == null) return searchIndex(base, payload, type, empty);
+        return meiliClient.post().uri("/indexes/{uid}/search", localized)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(payload)
+                .retrieve()
+                .bodyToMono(type)
+                .onErrorResume(e -> {
+                    log.warn("Meili localized search on {} failed (falling back to base index): {}", localized, e.toString());
+                    return searchIndex(base, payload, type, empty);
+                });
+    }
+
+    private <T> Mono<T> searchIndex(String index, Map<String, Object> payload, ParameterizedTypeReference<T> type, Supplier<T> empty) {
         return meiliClient.post().uri("/indexes/{uid}/search", index)
                 .contentType(MediaType.APPLICATION_JSON)
                 .bodyValue(payload)
                 .retrieve()
-                .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {})
+                .bodyToMono(type)
                 .onErrorResume(e -> {
                     // Fallback: retry without sort (e.g., when field isn't sortable)
                     log.warn("Meili search error (will retry without sort): {}", e.toString());
@@ -148,16 +246,88 @@ public class MeiliService {
                             .contentType(MediaType.APPLICATION_JSON)
                             .bodyValue(retryPayload)
                             .retrieve()
-                            .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {})
+                            .bodyToMono(type)
                             .onErrorResume(e2 -> {
                                 log.error("Meili search error on retry", e2);
-                                return Mono.just(Map.of("hits", List.of(), "estimatedTotalHits", 0));
+                                return Mono.fromSupplier(empty);
                             });
                 });
     }
 
+    private Map<String, Object> buildSearchPayload(String q, String filter, List<String> sort, int page, int size, List<String> facets) {
+        Map<String, Object> payload = new HashMap<>();
+        // Meilisearch requires 'q' in the payload; use empty string for filter-only searches
+        payload.put("q", q == null ? "" : q);
+        if (filter != null && !filter.isBlank()) payload.put("filter", filter);
+        if (sort != null && !sort.isEmpty()) payload.put("sort", sort);
+        payload.put("page", page);
+        payload.put("hitsPerPage", size);
+        if (facets != null && !facets.isEmpty()) payload.put("facets", facets);
+        return payload;
+    }
+
     public Mono<Map<String, Object>> getDocumentRaw(String id) {
-        String index = appProperties.getIndexName();
+        return getIndexDocumentRaw(appProperties.getIndexName(), id);
+    }
+
+    /**
+     * Fetches the per-language projection of a document, falling back to the base index.
+     */
+    public Mono<Map<String, Object>> getDocumentRaw(String id, String lang) {
+        String localized = localizedIndexName(lang);
+        if (localized == null) return getDocumentRaw(id);
+        return getIndexDocumentRaw(localized, id)
+                .onErrorResume(e -> getDocumentRaw(id));
+    }
+
+    /**
+     * Fetches several documents in one request (in the order of {@code ids}, missing ids skipped),
+     * from the per-language projection index when available. Falls back to per-id lookups if the
+     * batch fetch fails, e.g. on an index whose settings predate {@code id} being filterable.
+     */
+    public Mono<List<Map<String, Object>>> getDocumentsRaw(List<String> ids, String lang) {
+        if (ids == null || ids.isEmpty()) return Mono.just(List.of());
+        String localized = localizedIndexName(lang);
+        String index = localized != null ? localized : appProperties.getIndexName();
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("filter", FilterStringBuilder.build(Map.of("id", ids)));
+        payload.put("limit", ids.size());
+        return meiliClient.post().uri("/indexes/{uid}/documents/fetch", index)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(payload)
+                .retrieve()
+                .bodyToMono(RAW_TYPE)
+                .map(resp -> {
+                    Map<String, Map<String, Object>> byId = new HashMap<>();
+                    if (resp.get("results") instanceof List<?> results) {
+                        for (Object o : results) {
+                            if (o instanceof Map<?, ?> m) {
+                                @SuppressWarnings("unchecked") Map<String, Object> doc = (Map<String, Object>) m;
+                                byId.put(String.valueOf(doc.get("id")), doc);
+                            }
+                        }
+                    }
+                    List<Map<String, Object>> ordered = new java.util.ArrayList<>(ids.size());
+                    for (String id : ids) {
+                        Map<String, Object> doc = byId.get(id);
+                        if (doc != null) ordered.add(doc);
+                    }
+                    return ordered;
+                })
+                .onErrorResume(e -> {
+                    log.warn("Meili batch fetch on {} failed (falling back to per-id lookups): {}", index, e.toString());
+                    return Flux.fromIterable(ids)
+                            .concatMap(id -> getDocumentRaw(id, lang).onErrorResume(x -> Mono.empty()))
+                            .collectList();
+                });
+    }
+
+    /** Fetches one document from an arbitrary index (e.g. a side index). */
+    public Mono<Map<String, Object>> getIndexDocument(String index, String id) {
+        return getIndexDocumentRaw(index, id);
+    }
+
+    private Mono<Map<String, Object>> getIndexDocumentRaw(String index, String id) {
         return meiliClient.get().uri("/indexes/{uid}/documents/{id}", index, id)
                 .retrieve()
                 .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {});
@@ -0,0 +1,253 @@
+package com.irondust.search.service;
+
+import com.irondust.search.config.AppProperties;
+import com.irondust.search.dto.SearchDtos;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Search query log. Request threads only append an event to a bounded lock-free buffer (events are
+ * dropped, never blocked on, when it is full); a background writer drains it every
+ * {@code app.queryLogFlushMs} and inserts batches into the {@code query_log} table. Aggregates for
+ * top queries, zero-result queries and latency percentiles are computed from that table on demand.
+ */
+@Service
+public class QueryLogService {
+    private static final Logger log = LoggerFactory.getLogger(QueryLogService.class);
+
+    public static final String MODE_LEXICAL = "lexical";
+    public static final String MODE_HYBRID = "hybrid";
+    /** Lexical search escalated to hybrid because of low recall. */
+    public static final String MODE_HYBRID_FALLBACK = "hybrid_fallback";
+    public static final String MODE_AI = "ai";
+
+    private static final int MAX_QUERY_CHARS = 256;
+
+    /** One logged search. */
+    public record QueryEvent(OffsetDateTime ts, String endpoint, String query, String lang, String mode,
+                             long totalHits, int latencyMs, int page, boolean filtered) {}
+
+    /**
+     * Bounded multi-producer buffer: a lock-free queue plus a reservation counter, so producers never
+     * wait on each other or on the writer.
+     */
+    static final class Buffer {
+        private final ConcurrentLinkedQueue<QueryEvent> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicLong dropped = new AtomicLong();
+        private final int capacity;
+
+        Buffer(int capacity) {
+            this.capacity = Math.max(1, capacity);
+        }
+
+        boolean offer(QueryEvent e) {
+            if (size.incrementAndGet() > capacity) {
+                size.decrementAndGet();
+                dropped.incrementAndGet();
+                return false;
+            }
+            queue.offer(e);
+            return true;
+        }
+
+        List<QueryEvent> drain(int max) {
+            List<QueryEvent> out = new ArrayList<>(Math.min(max, Math.max(0, size.get())));
+            QueryEvent e;
+            while (out.size() < max && (e = queue.poll()) != null) {
+                size.decrementAndGet();
+                out.add(e);
+            }
+            return out;
+        }
+
+        int size() { return size.get(); }
+        long dropped() { return dropped.get(); }
+    }
+
+    private final DatabaseClient db;
+    private final AppProperties appProperties;
+    private final Buffer buffer;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final Disposable writer;
+
+    public QueryLogService(DatabaseClient db, AppProperties appProperties) {
+        this.db = db;
+        this.appProperties = appProperties;
+        this.buffer = new Buffer(appProperties.getQueryLogCapacity());
+        if (appProperties.isQueryLogEnabled()) {
+            Duration every = Duration.ofMillis(Math.max(100, appProperties.getQueryLogFlushMs()));
+            this.writer = ensureSchema()
+                    .onErrorResume(e -> {
+                        log.warn("query_log schema init failed: {}", e.toString());
+                        return Mono.empty();
+                    })
+                    .thenMany(Flux.interval(every))
+                    .onBackpressureDrop()
+                    .concatMap(tick -> flush(), 1)
+                    .subscribe();
+        } else {
+            this.writer = null;
+        }
+    }
+
+    private Mono<Void> ensureSchema() {
+        String ddl = "CREATE TABLE IF NOT EXISTS query_log (" +
+                "id BIGSERIAL PRIMARY KEY, " +
+                "ts TIMESTAMPTZ NOT NULL, " +
+                "endpoint TEXT NOT NULL, " +
+                "q TEXT, " +
+                "lang TEXT, " +
+                "mode TEXT, " +
+                "total_hits BIGINT, " +
+                "latency_ms INT, " +
+                "page INT, " +
+                "filtered BOOLEAN" +
+                ")";
+        return db.sql(ddl).fetch().rowsUpdated()
+                .then(db.sql("CREATE INDEX IF NOT EXISTS query_log_ts_idx ON query_log (ts)").fetch().rowsUpdated())
+                .then();
+    }
+
+    /**
+     * Records a finished search. Never blocks and never throws; the event is dropped when logging is
+     * disabled or the buffer is full.
+     */
+    public void record(String endpoint, SearchDtos.SearchRequestBody body, String mode, long totalHits, long startedNanos) {
+        if (!appProperties.isQueryLogEnabled()) return;
+        try {
+            int latencyMs = (int) Math.min(Integer.MAX_VALUE, (System.nanoTime() - startedNanos) / 1_000_000L);
+            String q = body.getQ() != null ? body.getQ().trim() : "";
+            if (q.length() > MAX_QUERY_CHARS) q = q.substring(0, MAX_QUERY_CHARS);
+            boolean filtered = body.getFilters() != null && body.getFilters().keySet().stream().anyMatch(k -> !"in_stock".equals(k));
+            buffer.offer(new QueryEvent(OffsetDateTime.now(ZoneOffset.UTC), endpoint, q, body.getLang(), mode,
+                    totalHits, latencyMs, body.getPage() != null ? body.getPage() : 1, filtered));
+        } catch (Exception ignore) { /* best-effort logging */ }
+    }
+
+    /** Drains the buffer in batches of {@code app.queryLogBatchSize}; returns the number of rows written. */
+    public Mono<Integer> flush() {
+        int batchSize = Math.max(1, appProperties.getQueryLogBatchSize());
+        return Mono.defer(() -> insertBatch(buffer.drain(batchSize)))
+                .repeat(() -> buffer.size() > 0)
+                .reduce(0, Integer::sum);
+    }
+
+    private Mono<Integer> insertBatch(List<QueryEvent> batch) {
+        if (batch.isEmpty()) return Mono.just(0);
+        StringBuilder sql = new StringBuilder(
+                "INSERT INTO query_log(ts, endpoint, q, lang, mode, total_hits, latency_ms, page, filtered) VALUES ");
+        for (int i = 0; i < batch.size(); i++) {
+            if (i > 0) sql.append(", ");
+            sql.append("(:ts").append(i).append(", :ep").append(i).append(", :q").append(i).append(", :lang").append(i)
+                    .append(", :mode").append(i).append(", :hits").append(i).append(", :ms").append(i)
+                    .append(", :page").append(i).append(", :f").append(i).append(')');
+        }
+        DatabaseClient.GenericExecuteSpec spec = db.sql(sql.toString());
+        for (int i = 0; i < batch.size(); i++) {
+            QueryEvent e = batch.get(i);
+            spec = spec.bind("ts" + i, e.ts())
+                    .bind("ep" + i, e.endpoint())
+                    .bind("q" + i, e.query())
+                    .bind("hits" + i, e.totalHits())
+                    .bind("ms" + i, e.latencyMs())
+                    .bind("page" + i, e.page())
+                    .bind("f" + i, e.filtered());
+            spec = e.lang() != null ? spec.bind("lang" + i, e.lang()) : spec.bindNull("lang" + i, String.class);
+            spec = e.mode() != null ? spec.bind("mode" + i, e.mode()) : spec.bindNull("mode" + i, String.class);
+        }
+        return spec.fetch().rowsUpdated()
+                .map(n -> {
+                    written.addAndGet(batch.size());
+                    return batch.size();
+                })
+                .onErrorResume(e -> {
+                    failed.addAndGet(batch.size());
+                    log.warn("query_log batch insert failed (dropped {} events): {}", batch.size(), e.toString());
+                    return Mono.just(0);
+                });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (writer != null) writer.dispose();
+        if (appProperties.isQueryLogEnabled() && buffer.size() > 0) {
+            try {
+                flush().block(Duration.ofSeconds(5));
+            } catch (Exception e) {
+                log.warn("query_log final flush failed: {}", e.toString());
+            }
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("enabled", appProperties.isQueryLogEnabled());
+        out.put("buffered", buffer.size());
+        out.put("dropped", buffer.dropped());
+        out.put("written", written.get());
+        out.put("failed", failed.get());
+        return out;
+    }
+
+    /** Most frequent queries in the last {@code days}, with average hits and hybrid share. */
+    public Flux<Map<String, Object>> topQueries(int days, int limit) {
+        return db.sql("SELECT lower(q) AS query, count(*) AS searches, round(avg(total_hits)) AS avg_hits, " +
+                        "sum(CASE WHEN mode IN ('hybrid', 'hybrid_fallback') THEN 1 ELSE 0 END) AS hybrid_searches " +
+                        "FROM query_log WHERE ts >= NOW() - make_interval(days => :days) AND q <> '' " +
+                        "GROUP BY lower(q) ORDER BY searches DESC LIMIT :limit")
+                .bind("days", days)
+                .bind("limit", limit)
+                .fetch().all();
+    }
+
+    /**
+     * Most frequent exact query strings (as typed, with their language) in the last {@code days}; used
+     * to warm caches keyed by the raw query text.
+     */
+    public Flux<Map<String, Object>> recentTopQueries(int days, int limit) {
+        return db.sql("SELECT q, lang, count(*) AS searches FROM query_log " +
+                        "WHERE ts >= NOW() - make_interval(days => :days) AND q <> '' AND endpoint <> '/search/ai' " +
+                        "GROUP BY q, lang ORDER BY searches DESC LIMIT :limit")
+                .bind("days", days)
+                .bind("limit", limit)
+                .fetch().all();
+    }
+
+    /** Queries that returned no hits in the last {@code days}, most frequent first. */
+    public Flux<Map<String, Object>> zeroResultQueries(int days, int limit) {
+        return db.sql("SELECT lower(q) AS query, count(*) AS searches, max(ts) AS last_seen " +
+                        "FROM query_log WHERE ts >= NOW() - make_interval(days => :days) AND q <> '' AND total_hits = 0 " +
+                        "GROUP BY lower(q) ORDER BY searches DESC LIMIT :limit")
+                .bind("days", days)
+                .bind("limit", limit)
+                .fetch().all();
+    }
+
+    /** Latency percentiles per endpoint and mode over the last {@code days}. */
+    public Flux<Map<String, Object>> latencyPercentiles(int days) {
+        return db.sql("SELECT endpoint, mode, count(*) AS searches, " +
+                        "percentile_cont(0.5) WITHIN GROUP (ORDER BY latency_ms) AS p50_ms, " +
+                        "percentile_cont(0.95) WITHIN GROUP (ORDER BY latency_ms) AS p95_ms, " +
+                        "percentile_cont(0.99) WITHIN GROUP (ORDER BY latency_ms) AS p99_ms " +
+                        "FROM query_log WHERE ts >= NOW() - make_interval(days => :days) " +
+                        "GROUP BY endpoint, mode ORDER BY searches DESC")
+                .bind("days", days)
+                .fetch().all();
+    }
+}
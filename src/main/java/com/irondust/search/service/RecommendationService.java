@@ -17,67 +17,117 @@ public class RecommendationService {
 
     private final QdrantService qdrantService;
     private final MeiliService meiliService;
+    private final AlternativesIndexService alternativesIndexService;
+    private final ComplementsGraphService complementsGraphService;
 
-    public RecommendationService(QdrantService qdrantService, MeiliService meiliService) {
+    public RecommendationService(QdrantService qdrantService, MeiliService meiliService,
+                                 AlternativesIndexService alternativesIndexService, ComplementsGraphService complementsGraphService) {
         this.qdrantService = qdrantService;
         this.meiliService = meiliService;
+        this.alternativesIndexService = alternativesIndexService;
+        this.complementsGraphService = complementsGraphService;
     }
 
     public Mono<SearchDtos.SearchResponseBody<ProductDoc>> alternativesForProduct(String productId, String lang, int limit) {
+        return meiliService.getDocumentRaw(productId, lang)
+                .defaultIfEmpty(Map.of())
+                .flatMap(origin -> alternativesForOrigin(origin, productId, lang, limit));
+    }
+
+    /**
+     * Alternatives for an already-fetched origin document. Served from the precomputed side index
+     * (one key lookup plus one batch fetch) when the product has an entry; otherwise computed live.
+     */
+    public Mono<SearchDtos.SearchResponseBody<ProductDoc>> alternativesForOrigin(Map<String, Object> origin, String productId, String lang, int limit) {
+        return alternativesIndexService.lookup(productId)
+                .flatMap(alts -> {
+                    Map<String, List<String>> reasonsById = new LinkedHashMap<>();
+                    for (SideIndex.Edge a : alts) reasonsById.put(a.id, a.reasons);
+                    return hydratePrecomputed(reasonsById, lang, limit);
+                })
+                .switchIfEmpty(Mono.defer(() -> liveAlternatives(origin, productId, lang, limit)));
+    }
+
+    /**
+     * Hydrates a precomputed, best-first id list (with reason codes) using one batch fetch, dropping
+     * items that went out of stock since the list was built.
+     */
+    private Mono<SearchDtos.SearchResponseBody<ProductDoc>> hydratePrecomputed(Map<String, List<String>> reasonsById, String lang, int limit) {
+        // Over-fetch a little: stock may have changed since the entry was computed
+        List<String> ids = new ArrayList<>(reasonsById.keySet());
+        if (ids.size() > limit * 2) ids = ids.subList(0, limit * 2);
+        return meiliService.getDocumentsRaw(ids, lang)
+                .map(docs -> {
+                    List<Map<String, Object>> kept = new ArrayList<>();
+                    Map<String, List<String>> reasons = new LinkedHashMap<>();
+                    for (Map<String, Object> doc : docs) {
+                        if (kept.size() >= limit) break;
+                        if (doc.get("in_stock") instanceof Boolean b && !b) continue;
+                        kept.add(doc);
+                        String id = String.valueOf(doc.get("id"));
+                        reasons.put(id, reasonsById.getOrDefault(id, List.of()));
+                    }
+                    Map<String, Object> raw = new LinkedHashMap<>();
+                    raw.put("hits", kept);
+                    raw.put("estimatedTotalHits", kept.size());
+                    SearchDtos.SearchResponseBody<ProductDoc> resp = SearchControllerMapper.mapToResponse(raw, lang);
+                    resp.setReasons(reasons);
+                    return resp;
+                });
+    }
+
+    private Mono<SearchDtos.SearchResponseBody<ProductDoc>> liveAlternatives(Map<String, Object> origin, String productId, String lang, int limit) {
         int recLimit = Math.max(limit * 3, limit);
         Map<String, Object> filter = Map.of(
                 "must", List.of(Map.of("key", "in_stock", "match", Map.of("value", true)))
         );
 
-        return meiliService.getDocumentRaw(productId)
-                .defaultIfEmpty(Map.of())
-                .flatMap(origin -> qdrantService.recommendByDocId(productId, filter, recLimit)
-                        .onErrorResume(e -> {
-                            log.warn("Qdrant recommend failed for id={}: {}", productId, e.toString());
-                            return Mono.just(List.of());
-                        })
-                        .flatMap(results -> {
-                            // Extract original parent for sibling filtering
-                            String originParent = origin.get("parent_id") instanceof String s ? s : null;
-                            String originId = String.valueOf(origin.getOrDefault("id", productId));
-
-                            // Preserve order from vector recs, map to doc ids via payload.doc_id
-                            List<String> ids = new ArrayList<>();
-                            for (QdrantService.SearchResult r : results) {
-                                Object pid = r.payload != null ? r.payload.get("doc_id") : null;
-                                if (pid == null) pid = r.payload != null ? r.payload.get("id") : null;
-                                if (pid != null) ids.add(String.valueOf(pid));
-                            }
-
-                            // Dedup and cut
-                            LinkedHashSet<String> dedup = new LinkedHashSet<>(ids);
-                            List<String> take = new ArrayList<>(dedup);
-                            if (take.size() > recLimit) take = take.subList(0, recLimit);
-
-                            return Flux.fromIterable(take)
-                                    .concatMap(meiliService::getDocumentRaw)
-                                    .filter(doc -> {
-                                        if (doc == null) return false;
-                                        // Exclude the same product and same variation group
-                                        String id = String.valueOf(doc.get("id"));
-                                        if (originId.equals(id)) return false;
-                                        String pid = doc.get("parent_id") instanceof String s ? s : null;
-                                        if (originParent != null && originParent.equals(pid)) return false;
-                                        // Keep in-stock only
-                                        Object inStockObj = doc.get("in_stock");
-                                        if (inStockObj instanceof Boolean b && !b) return false;
-                                        return true;
-                                    })
-                                    .take(limit)
-                                    .collectList();
-                        })
-                        .map(docs -> {
-                            Map<String, Object> raw = new LinkedHashMap<>();
-                            raw.put("hits", docs);
-                            raw.put("estimatedTotalHits", docs.size());
-                            return SearchControllerMapper.mapToResponse(raw, lang);
-                        })
-                );
+        return qdrantService.recommendByDocId(productId, filter, recLimit)
+                .onErrorResume(e -> {
+                    log.warn("Qdrant recommend failed for id={}: {}", productId, e.toString());
+                    return Mono.just(List.of());
+                })
+                .flatMap(results -> {
+                    // Extract original parent for sibling filtering
+                    String originParent = origin.get("parent_id") instanceof String s ? s : null;
+                    String originId = String.valueOf(origin.getOrDefault("id", productId));
+
+                    // Preserve order from vector recs, map to doc ids via payload.doc_id
+                    List<String> ids = new ArrayList<>();
+                    for (QdrantService.SearchResult r : results) {
+                        Object pid = r.payload != null ? r.payload.get("doc_id") : null;
+                        if (pid == null) pid = r.payload != null ? r.payload.get("id") : null;
+                        if (pid != null) ids.add(String.valueOf(pid));
+                    }
+
+                    // Dedup and cut
+                    LinkedHashSet<String> dedup = new LinkedHashSet<>(ids);
+                    List<String> take = new ArrayList<>(dedup);
+                    if (take.size() > recLimit) take = take.subList(0, recLimit);
+
+                    return meiliService.getDocumentsRaw(take, lang)
+                            .flatMapMany(Flux::fromIterable)
+                            .filter(doc -> {
+                                if (doc == null) return false;
+                                // Exclude the same product and same variation group
+                                String id = String.valueOf(doc.get("id"));
+                                if (originId.equals(id)) return false;
+                                String pid = doc.get("parent_id") instanceof String s ? s : null;
+                                if (originParent != null && originParent.equals(pid)) return false;
+                                // Keep in-stock only
+                                Object inStockObj = doc.get("in_stock");
+                                if (inStockObj instanceof Boolean b && !b) return false;
+                                return true;
+                            })
+                            .take(limit)
+                            .collectList();
+                })
+                .map(docs -> {
+                    Map<String, Object> raw = new LinkedHashMap<>();
+                    raw.put("hits", docs);
+                    raw.put("estimatedTotalHits", docs.size());
+                    return SearchControllerMapper.mapToResponse(raw, lang);
+                });
     }
 
     /**
@@ -89,77 +139,91 @@ public class RecommendationService {
      *  - Prefer items sharing at least one goal tag with the origin
      *  - Sorted by rating and review_count for quality
      */
-    @SuppressWarnings("unchecked")
     public Mono<SearchDtos.SearchResponseBody<ProductDoc>> complementsForProduct(String productId, String lang, int limit) {
+        return meiliService.getDocumentRaw(productId, lang)
+                .defaultIfEmpty(Map.of())
+                .flatMap(origin -> complementsForOrigin(origin, productId, lang, limit));
+    }
+
+    /**
+     * Complements for an already-fetched origin document, served from the precomputed complements graph
+     * when the product has an entry; otherwise from the live popular-item scan.
+     */
+    public Mono<SearchDtos.SearchResponseBody<ProductDoc>> complementsForOrigin(Map<String, Object> origin, String productId, String lang, int limit) {
+        return complementsGraphService.lookup(productId)
+                .flatMap(edges -> {
+                    Map<String, List<String>> reasonsById = new LinkedHashMap<>();
+                    for (SideIndex.Edge c : edges) reasonsById.put(c.id, c.reasons);
+                    return hydratePrecomputed(reasonsById, lang, limit);
+                })
+                .switchIfEmpty(Mono.defer(() -> liveComplements(origin, productId, lang, limit)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Mono<SearchDtos.SearchResponseBody<ProductDoc>> liveComplements(Map<String, Object> origin, String productId, String lang, int limit) {
         int fetchSize = Math.max(limit * 5, Math.max(24, limit));
 
-        return meiliService.getDocumentRaw(productId)
-                .defaultIfEmpty(Map.of())
-                .flatMap(origin -> {
-                    String originId = String.valueOf(origin.getOrDefault("id", productId));
-                    String originParent = origin.get("parent_id") instanceof String s ? s : null;
-                    String originForm = origin.get("form") instanceof String s ? s : null;
-                    List<String> originCats = origin.get("categories_slugs") instanceof List<?> l ? (List<String>) (List<?>) l : List.of();
-                    List<String> originGoals = origin.get("goal_tags") instanceof List<?> l ? (List<String>) (List<?>) l : List.of();
-
-                    Map<String, Object> filters = new LinkedHashMap<>();
-                    filters.put("in_stock", true);
-                    // Do not constrain by category to allow cross-category pairings
-
-                    // Pull a larger sample of popular items, then refine in-process
-                    return meiliService.searchRaw("", FilterStringBuilder.build(filters), List.of("rating:desc", "review_count:desc"), 1, fetchSize, null)
-                            .map(raw -> {
-                                Object hitsObj = raw.get("hits");
-                                List<Map<String, Object>> hits = new ArrayList<>();
-                                if (hitsObj instanceof List<?> list) {
-                                    for (Object h : list) {
-                                        if (h instanceof Map<?, ?> m) hits.add((Map<String, Object>) m);
-                                    }
-                                }
-
-                                // Filter to ensure complementarity
-                                List<Map<String, Object>> filtered = new ArrayList<>();
-                                for (Map<String, Object> doc : hits) {
-                                    if (doc == null) continue;
-                                    String id = String.valueOf(doc.get("id"));
-                                    if (originId.equals(id)) continue;
-                                    String pid = doc.get("parent_id") instanceof String s ? s : null;
-                                    if (originParent != null && originParent.equals(pid)) continue;
-
-                                    // Different form OR different category required
-                                    String form = doc.get("form") instanceof String fs ? fs : null;
-                                    List<String> cats = doc.get("categories_slugs") instanceof List<?> l2 ? (List<String>) (List<?>) l2 : List.of();
-                                    boolean differentForm = originForm == null || form == null || !originForm.equals(form);
-                                    boolean differentCategory = originCats.isEmpty() || cats.isEmpty() || Collections.disjoint(originCats, cats);
-                                    if (!(differentForm || differentCategory)) continue;
-
-                                    filtered.add(doc);
-                                }
-
-                                // Re-rank: boost items sharing goal tags
-                                if (!originGoals.isEmpty()) {
-                                    filtered.sort((a, b) -> {
-                                        List<String> ga = a.get("goal_tags") instanceof List<?> la ? (List<String>) (List<?>) la : List.of();
-                                        List<String> gb = b.get("goal_tags") instanceof List<?> lb ? (List<String>) (List<?>) lb : List.of();
-                                        boolean sa = !Collections.disjoint(originGoals, ga);
-                                        boolean sb = !Collections.disjoint(originGoals, gb);
-                                        if (sa == sb) return 0; // keep original order otherwise
-                                        return sa ? -1 : 1; // items sharing goals first
-                                    });
-                                }
-
-                                // Truncate
-                                if (filtered.size() > limit) {
-                                    filtered = filtered.subList(0, limit);
-                                }
-
-                                Map<String, Object> respRaw = new LinkedHashMap<>();
-                                respRaw.put("hits", filtered);
-                                respRaw.put("estimatedTotalHits", filtered.size());
-                                return SearchControllerMapper.mapToResponse(respRaw, lang);
-                            });
+        String originId = String.valueOf(origin.getOrDefault("id", productId));
+        String originParent = origin.get("parent_id") instanceof String s ? s : null;
+        String originForm = origin.get("form") instanceof String s ? s : null;
+        List<String> originCats = origin.get("categories_slugs") instanceof List<?> l ? (List<String>) (List<?>) l : List.of();
+        List<String> originGoals = origin.get("goal_tags") instanceof List<?> l ? (List<String>) (List<?>) l : List.of();
+
+        Map<String, Object> filters = new LinkedHashMap<>();
+        filters.put("in_stock", true);
+        // Do not constrain by category to allow cross-category pairings
+
+        // Pull a larger sample of popular items, then refine in-process
+        return meiliService.searchRaw("", FilterStringBuilder.build(filters), List.of("rating:desc", "review_count:desc"), 1, fetchSize, null, lang)
+                .map(raw -> {
+                    Object hitsObj = raw.get("hits");
+                    List<Map<String, Object>> hits = new ArrayList<>();
+                    if (hitsObj instanceof List<?> list) {
+                        for (Object h : list) {
+                            if (h instanceof Map<?, ?> m) hits.add((Map<String, Object>) m);
+                        }
+                    }
+
+                    // Filter to ensure complementarity
+                    List<Map<String, Object>> filtered = new ArrayList<>();
+                    for (Map<String, Object> doc : hits) {
+                        if (doc == null) continue;
+                        String id = String.valueOf(doc.get("id"));
+                        if (originId.equals(id)) continue;
+                        String pid = doc.get("parent_id") instanceof String s ? s : null;
+                        if (originParent != null && originParent.equals(pid)) continue;
+
+                        // Different form OR different category required
+                        String form = doc.get("form") instanceof String fs ? fs : null;
+                        List<String> cats = doc.get("categories_slugs") instanceof List<?> l2 ? (List<String>) (List<?>) l2 : List.of();
+                        boolean differentForm = originForm == null || form == null || !originForm.equals(form);
+                        boolean differentCategory = originCats.isEmpty() || cats.isEmpty() || Collections.disjoint(originCats, cats);
+                        if (!(differentForm || differentCategory)) continue;
+
+                        filtered.add(doc);
+                    }
+
+                    // Re-rank: boost items sharing goal tags
+                    if (!originGoals.isEmpty()) {
+                        filtered.sort((a, b) -> {
+                            List<String> ga = a.get("goal_tags") instanceof List<?> la ? (List<String>) (List<?>) la : List.of();
+                            List<String> gb = b.get("goal_tags") instanceof List<?> lb ? (List<String>) (List<?>) lb : List.of();
+                            boolean sa = !Collections.disjoint(originGoals, ga);
+                            boolean sb = !Collections.disjoint(originGoals, gb);
+                            if (sa == sb) return 0; // keep original order otherwise
+                            return sa ? -1 : 1; // items sharing goals first
+                        });
+                    }
+
+                    // Truncate
+                    if (filtered.size() > limit) {
+                        filtered = filtered.subList(0, limit);
+                    }
+
+                    Map<String, Object> respRaw = new LinkedHashMap<>();
+                    respRaw.put("hits", filtered);
+                    respRaw.put("estimatedTotalHits", filtered.size());
+                    return SearchControllerMapper.mapToResponse(respRaw, lang);
                 });
     }
 }
-
-
@@ -0,0 +1,202 @@
+package com.irondust.search.service;
+
+import com.irondust.search.config.AppProperties;
+import com.irondust.search.dto.IngestDtos;
+import com.irondust.search.util.TokenAccounting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Ingest run history: when a run ends, its {@link TokenAccounting} is written to Postgres — one
+ * {@code ingest_runs} row (duration, products, tokens, cost) and one {@code ingest_run_usage} row per
+ * series (OpenAI calls per step, model and language; enrichment step timings; cache hits). Rows are
+ * keyed by the run id, which is the {@code RunRegistry} id for runs started from the admin API, so
+ * cost and throughput can be compared across runs and a regressing step spotted.
+ */
+@Service
+public class RunUsageService {
+    private static final Logger log = LoggerFactory.getLogger(RunUsageService.class);
+
+    private final DatabaseClient db;
+    private final AppProperties appProperties;
+    private final AtomicBoolean schemaReady = new AtomicBoolean();
+
+    public RunUsageService(DatabaseClient db, AppProperties appProperties) {
+        this.db = db;
+        this.appProperties = appProperties;
+    }
+
+    private Mono<Void> ensureSchema() {
+        if (schemaReady.get()) return Mono.empty();
+        String runs = "CREATE TABLE IF NOT EXISTS ingest_runs (" +
+                "run_id TEXT PRIMARY KEY, " +
+                "run_type TEXT NOT NULL, " +
+                "started_at TIMESTAMPTZ NOT NULL, " +
+                "ended_at TIMESTAMPTZ NOT NULL, " +
+                "duration_ms BIGINT, " +
+                "products INT, " +
+                "deferred INT, " +
+                "prompt_tokens BIGINT, " +
+                "cached_prompt_tokens BIGINT, " +
+                "completion_tokens BIGINT, " +
+                "cost_usd DOUBLE PRECISION" +
+                ")";
+        String usage = "CREATE TABLE IF NOT EXISTS ingest_run_usage (" +
+                "id BIGSERIAL PRIMARY KEY, " +
+                "run_id TEXT NOT NULL, " +
+                "ts TIMESTAMPTZ NOT NULL, " +
+                "kind TEXT NOT NULL, " +
+                "step TEXT NOT NULL, " +
+                "model TEXT, " +
+                "lang TEXT, " +
+                "calls BIGINT, " +
+                "prompt_tokens BIGINT, " +
+                "cached_prompt_tokens BIGINT, " +
+                "completion_tokens BIGINT, " +
+                "cost_usd DOUBLE PRECISION, " +
+                "latency_ms_total BIGINT, " +
+                "latency_ms_max BIGINT, " +
+                "cache_hits BIGINT, " +
+                "cache_misses BIGINT" +
+                ")";
+        return db.sql(runs).fetch().rowsUpdated()
+                .then(db.sql("CREATE INDEX IF NOT EXISTS ingest_runs_started_idx ON ingest_runs (started_at)").fetch().rowsUpdated())
+                .then(db.sql(usage).fetch().rowsUpdated())
+                .then(db.sql("CREATE INDEX IF NOT EXISTS ingest_run_usage_run_idx ON ingest_run_usage (run_id)").fetch().rowsUpdated())
+                .then(db.sql("CREATE INDEX IF NOT EXISTS ingest_run_usage_step_idx ON ingest_run_usage (kind, step, ts)").fetch().rowsUpdated())
+                .doOnSuccess(v -> schemaReady.set(true))
+                .then();
+    }
+
+    /**
+     * Writes a finished run. Never fails the caller: errors are logged and the run is simply missing
+     * from the history.
+     */
+    public Mono<Void> save(TokenAccounting run, IngestDtos.IngestReport report) {
+        if (!appProperties.isRunUsageEnabled() || run == null) return Mono.empty();
+        OffsetDateTime started = OffsetDateTime.ofInstant(run.startedAt(), ZoneOffset.UTC);
+        OffsetDateTime ended = OffsetDateTime.ofInstant(Instant.now(), ZoneOffset.UTC);
+        List<TokenAccounting.SeriesRow> rows = run.seriesRows();
+        long prompt = 0, cached = 0, completion = 0;
+        for (TokenAccounting.UsageWithCost u : run.snapshotWithCosts().values()) {
+            prompt += u.promptTokens;
+            cached += u.cachedPromptTokens;
+            completion += u.completionTokens;
+        }
+        DatabaseClient.GenericExecuteSpec runSpec = db.sql("INSERT INTO ingest_runs(run_id, run_type, started_at, ended_at, " +
+                        "duration_ms, products, deferred, prompt_tokens, cached_prompt_tokens, completion_tokens, cost_usd) " +
+                        "VALUES (:id, :type, :started, :ended, :ms, :products, :deferred, :prompt, :cached, :completion, :cost) " +
+                        "ON CONFLICT (run_id) DO UPDATE SET run_type = EXCLUDED.run_type, started_at = EXCLUDED.started_at, " +
+                        "ended_at = EXCLUDED.ended_at, duration_ms = EXCLUDED.duration_ms, products = EXCLUDED.products, " +
+                        "deferred = EXCLUDED.deferred, prompt_tokens = EXCLUDED.prompt_tokens, " +
+                        "cached_prompt_tokens = EXCLUDED.cached_prompt_tokens, completion_tokens = EXCLUDED.completion_tokens, " +
+                        "cost_usd = EXCLUDED.cost_usd")
+                .bind("id", run.runId())
+                .bind("type", run.type())
+                .bind("started", started)
+                .bind("ended", ended)
+                .bind("ms", Math.max(0L, ended.toInstant().toEpochMilli() - run.startedAt().toEpochMilli()))
+                .bind("products", report != null ? report.getIndexed() : 0)
+                .bind("deferred", report != null ? report.getDeferred_count() : 0)
+                .bind("prompt", prompt)
+                .bind("cached", cached)
+                .bind("completion", completion)
+                .bind("cost", report != null ? report.getAi_cost_total_usd() : 0.0);
+        return ensureSchema()
+                // A re-saved run replaces its series
+                .then(db.sql("DELETE FROM ingest_run_usage WHERE run_id = :id").bind("id", run.runId()).fetch().rowsUpdated())
+                .then(runSpec.fetch().rowsUpdated())
+                .then(insertSeries(run.runId(), ended, rows))
+                .doOnSuccess(v -> log.info("Saved usage of run {} ({} series)", run.runId(), rows.size()))
+                .onErrorResume(e -> {
+                    log.warn("Saving usage of run {} failed: {}", run.runId(), e.toString());
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Void> insertSeries(String runId, OffsetDateTime ts, List<TokenAccounting.SeriesRow> rows) {
+        if (rows.isEmpty()) return Mono.empty();
+        StringBuilder sql = new StringBuilder("INSERT INTO ingest_run_usage(run_id, ts, kind, step, model, lang, calls, " +
+                "prompt_tokens, cached_prompt_tokens, completion_tokens, cost_usd, latency_ms_total, latency_ms_max, " +
+                "cache_hits, cache_misses) VALUES ");
+        for (int i = 0; i < rows.size(); i++) {
+            if (i > 0) sql.append(", ");
+            sql.append("(:run, :ts, :kind").append(i).append(", :step").append(i).append(", :model").append(i)
+                    .append(", :lang").append(i).append(", :calls").append(i).append(", :p").append(i)
+                    .append(", :cp").append(i).append(", :c").append(i).append(", :cost").append(i)
+                    .append(", :lat").append(i).append(", :max").append(i).append(", :hits").append(i)
+                    .append(", :misses").append(i).append(')');
+        }
+        DatabaseClient.GenericExecuteSpec spec = db.sql(sql.toString()).bind("run", runId).bind("ts", ts);
+        for (int i = 0; i < rows.size(); i++) {
+            TokenAccounting.SeriesRow r = rows.get(i);
+            spec = spec.bind("kind" + i, r.kind())
+                    .bind("step" + i, r.step())
+                    .bind("calls" + i, r.calls())
+                    .bind("p" + i, r.promptTokens())
+                    .bind("cp" + i, r.cachedPromptTokens())
+                    .bind("c" + i, r.completionTokens())
+                    .bind("cost" + i, r.costUsd())
+                    .bind("lat" + i, r.latencyMsTotal())
+                    .bind("max" + i, r.latencyMsMax())
+                    .bind("hits" + i, r.cacheHits())
+                    .bind("misses" + i, r.cacheMisses());
+            spec = r.model() != null ? spec.bind("model" + i, r.model()) : spec.bindNull("model" + i, String.class);
+            spec = r.lang() != null ? spec.bind("lang" + i, r.lang()) : spec.bindNull("lang" + i, String.class);
+        }
+        return spec.fetch().rowsUpdated().then();
+    }
+
+    /** Runs started in the last {@code days}, newest first, with throughput and cost per product. */
+    public Flux<Map<String, Object>> recentRuns(int days, int limit) {
+        return ensureSchema().thenMany(db.sql("SELECT run_id, run_type, started_at, ended_at, duration_ms, products, deferred, " +
+                        "prompt_tokens, cached_prompt_tokens, completion_tokens, cost_usd, " +
+                        "round((products * 60000.0 / NULLIF(duration_ms, 0))::numeric, 1) AS products_per_min, " +
+                        "round((cost_usd / NULLIF(products, 0))::numeric, 6) AS cost_per_product_usd " +
+                        "FROM ingest_runs WHERE started_at >= NOW() - make_interval(days => :days) " +
+                        "ORDER BY started_at DESC LIMIT :limit")
+                .bind("days", days)
+                .bind("limit", limit)
+                .fetch().all());
+    }
+
+    /** Every series of one run. */
+    public Flux<Map<String, Object>> runSeries(String runId) {
+        return ensureSchema().thenMany(db.sql("SELECT kind, step, model, lang, calls, prompt_tokens, cached_prompt_tokens, " +
+                        "completion_tokens, cost_usd, latency_ms_total, latency_ms_max, " +
+                        "round((latency_ms_total::numeric / NULLIF(calls, 0)), 1) AS latency_ms_avg, cache_hits, cache_misses " +
+                        "FROM ingest_run_usage WHERE run_id = :run ORDER BY kind, step, model, lang")
+                .bind("run", runId)
+                .fetch().all());
+    }
+
+    /**
+     * One step across the runs of the last {@code days}, oldest first: calls, tokens, cost, average
+     * latency and cache hit rate per run, for spotting a regression.
+     */
+    public Flux<Map<String, Object>> stepTrend(String kind, String step, int days) {
+        return ensureSchema().thenMany(db.sql("SELECT r.run_id, r.run_type, r.started_at, r.products, " +
+                        "sum(u.calls) AS calls, sum(u.prompt_tokens) AS prompt_tokens, " +
+                        "sum(u.completion_tokens) AS completion_tokens, sum(u.cost_usd) AS cost_usd, " +
+                        "round((sum(u.latency_ms_total)::numeric / NULLIF(sum(u.calls), 0)), 1) AS latency_ms_avg, " +
+                        "max(u.latency_ms_max) AS latency_ms_max, " +
+                        "round((sum(u.cache_hits)::numeric / NULLIF(sum(u.cache_hits) + sum(u.cache_misses), 0)), 3) AS cache_hit_rate " +
+                        "FROM ingest_run_usage u JOIN ingest_runs r ON r.run_id = u.run_id " +
+                        "WHERE u.kind = :kind AND u.step = :step AND r.started_at >= NOW() - make_interval(days => :days) " +
+                        "GROUP BY r.run_id, r.run_type, r.started_at, r.products ORDER BY r.started_at")
+                .bind("kind", kind)
+                .bind("step", step)
+                .bind("days", days)
+                .fetch().all());
+    }
+}
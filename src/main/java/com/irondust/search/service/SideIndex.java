@@ -0,0 +1,120 @@
+package com.irondust.search.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.irondust.search.model.ProductDoc;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * A per-product side index next to the base index ({@code <indexName>_alternatives},
+ * {@code <indexName>_complements}): one document per product with a ranked list of {@link Edge}s
+ * under {@code field}. Holds the lookup and upload plumbing and the helpers the builders use to
+ * read compact catalog documents ({@link #toBasic}).
+ */
+public final class SideIndex {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<List<Edge>> EDGES = new TypeReference<>() {};
+    static final int UPLOAD_CHUNK = 500;
+
+    /** One ranked product of an entry, with the reason codes shown on the PDP. */
+    public static class Edge {
+        public String id;
+        public double score;
+        public List<String> reasons = new ArrayList<>();
+
+        public Edge() {}
+        Edge(String id, double score, List<String> reasons) {
+            this.id = id; this.score = score; this.reasons = reasons;
+        }
+    }
+
+    private final MeiliService meiliService;
+    private final Supplier<String> indexName;
+    private final String field;
+
+    SideIndex(MeiliService meiliService, Supplier<String> indexName, String field) {
+        this.meiliService = meiliService;
+        this.indexName = indexName;
+        this.field = field;
+    }
+
+    String indexName() {
+        return indexName.get();
+    }
+
+    /** Stored edges of a product, best first; empty when it has no entry or the index is unavailable. */
+    Mono<List<Edge>> lookup(String productId) {
+        return meiliService.getIndexDocument(indexName(), productId)
+                .flatMap(doc -> {
+                    List<Edge> edges = MAPPER.convertValue(doc.getOrDefault(field, List.of()), EDGES);
+                    return edges.isEmpty() ? Mono.<List<Edge>>empty() : Mono.just(edges);
+                })
+                .onErrorResume(e -> Mono.empty());
+    }
+
+    /** Entry document of one product; callers may add their own fields. */
+    Map<String, Object> entry(Object productId, List<Edge> edges, long computedAt) {
+        Map<String, Object> e = new LinkedHashMap<>();
+        e.put("id", productId);
+        e.put(field, edges);
+        e.put("computed_at", computedAt);
+        return e;
+    }
+
+    /** Adds or replaces entries in chunks of {@value #UPLOAD_CHUNK}; emits the number of entries. */
+    Mono<Integer> upload(List<Map<String, Object>> entries) {
+        if (entries.isEmpty()) return Mono.just(0);
+        String index = indexName();
+        List<List<Map<String, Object>>> chunks = new ArrayList<>();
+        for (int i = 0; i < entries.size(); i += UPLOAD_CHUNK) {
+            chunks.add(entries.subList(i, Math.min(entries.size(), i + UPLOAD_CHUNK)));
+        }
+        return Flux.fromIterable(chunks)
+                .concatMap(c -> meiliService.addOrReplaceDocuments(index, c))
+                .then(Mono.just(entries.size()));
+    }
+
+    static double jaccard(Set<String> a, Set<String> b) {
+        if (a.isEmpty() || b.isEmpty()) return 0.0;
+        int inter = 0;
+        for (String s : a) if (b.contains(s)) inter++;
+        return inter / (double) (a.size() + b.size() - inter);
+    }
+
+    static List<String> list(Object v) {
+        if (!(v instanceof List<?> l)) return List.of();
+        List<String> out = new ArrayList<>(l.size());
+        for (Object o : l) if (o != null) out.add(String.valueOf(o));
+        return out;
+    }
+
+    static String str(Object v) {
+        return v instanceof String s ? s : null;
+    }
+
+    /** Freshly ingested documents in the compact shape of {@code MeiliDocumentService.streamAllBasic()}. */
+    static List<Map<String, Object>> toBasic(List<ProductDoc> docs) {
+        List<Map<String, Object>> out = new ArrayList<>(docs.size());
+        for (ProductDoc d : docs) {
+            Map<String, Object> m = new HashMap<>();
+            m.put("id", d.getId());
+            m.put("parent_id", d.getParent_id());
+            m.put("in_stock", d.getIn_stock());
+            m.put("price_cents", d.getPrice_cents());
+            m.put("form", d.getForm());
+            m.put("brand_name", d.getBrand_name());
+            m.put("categories_slugs", d.getCategories_slugs());
+            m.put("diet_tags", d.getDiet_tags());
+            m.put("goal_tags", d.getGoal_tags());
+            m.put("ingredients_key", d.getIngredients_key());
+            m.put("rating", d.getRating());
+            m.put("review_count", d.getReview_count());
+            out.add(m);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,291 @@
+package com.irondust.search.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.irondust.search.util.AppMetrics;
+import com.irondust.search.util.TokenAccounting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Deterministic translations for short enumerated fields: product form, flavor and category names.
+ *
+ * <p>Terms resolve from the curated tables in {@link BasicTranslationService} first, then from
+ * terms learned earlier. Unknown terms are queued and translated by the model in small batches
+ * shared by all concurrently translated products, stored, and reused for the rest of the catalog,
+ * so the same category or flavor always gets the same translation and never rides along in a
+ * product's free-text request.
+ *
+ * <p>Learned terms persist to a JSON file (single-node, like the translation memory).
+ */
+public final class TranslationGlossary {
+    private static final Logger log = LoggerFactory.getLogger(TranslationGlossary.class);
+
+    public static final String KIND_FORM = "form";
+    public static final String KIND_FLAVOR = "flavor";
+    public static final String KIND_CATEGORY = "category";
+
+    private static final String CACHE = "translation_glossary";
+
+    /** Longer values are free text rather than enumerated terms and stay in the model payload. */
+    static final int MAX_TERM_LENGTH = 60;
+    private static final int BATCH_SIZE = 50;
+    private static final Duration BATCH_WINDOW = Duration.ofMillis(250);
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /** Kind to normalized surface form (canonical key or any language's value) to language to term. */
+    private static final Map<String, Map<String, Map<String, String>>> SEEDS = new HashMap<>();
+
+    static {
+        for (Map.Entry<String, Map<String, Map<String, String>>> kind : BasicTranslationService.glossarySeeds().entrySet()) {
+            Map<String, Map<String, String>> bySurface = new HashMap<>();
+            for (Map.Entry<String, Map<String, String>> e : kind.getValue().entrySet()) {
+                bySurface.put(normalize(e.getKey()), e.getValue());
+                for (String value : e.getValue().values()) bySurface.putIfAbsent(normalize(value), e.getValue());
+            }
+            SEEDS.put(kind.getKey(), bySurface);
+        }
+    }
+
+    /** One enumerated value to translate from {@code sourceLang} to {@code targetLang}. */
+    public record Term(String kind, String sourceLang, String targetLang, String text) {
+        String key() {
+            return kind + "|" + sourceLang + ">" + targetLang + ":" + normalize(text);
+        }
+    }
+
+    /** Report counters kept in the run ({@link TokenAccounting#count}). */
+    public static final String RUN_BATCHES = "translation_glossary.batches";
+    public static final String RUN_TERMS_LEARNED = "translation_glossary.terms_learned";
+
+    /** A term translated by the model, with the sequence number of the batch that carried it. */
+    private record Learned(String value, long batch) {}
+
+    private record Pending(Term term, Sinks.One<Learned> result) {}
+
+    private final File file;
+    private final Function<List<Term>, Mono<Map<Term, String>>> translator;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, String> entries = new ConcurrentHashMap<>();
+    private final Map<String, Mono<Learned>> inFlight = new ConcurrentHashMap<>();
+    private final Sinks.Many<Pending> queue = Sinks.many().unicast().onBackpressureBuffer();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong learnedTerms = new AtomicLong();
+    private volatile boolean dirty;
+
+    /**
+     * @param translator batch translation of unknown terms; terms missing from its result stay
+     *                   unresolved. {@code null} restricts the glossary to known terms.
+     */
+    public TranslationGlossary(File file, Function<List<Term>, Mono<Map<Term, String>>> translator) {
+        this.file = file;
+        this.translator = translator;
+        load();
+        AppMetrics.cacheSize(CACHE, entries, Map::size);
+        if (translator != null) {
+            queue.asFlux()
+                    .bufferTimeout(BATCH_SIZE, BATCH_WINDOW)
+                    .concatMap(this::translateBatch)
+                    .subscribe();
+        }
+    }
+
+    /** Whether {@code text} is short enough to be treated as an enumerated term. */
+    public static boolean isTerm(String text) {
+        return text != null && !text.isBlank() && text.length() <= MAX_TERM_LENGTH && hasLetters(text);
+    }
+
+    /** Curated or learned translation of {@code text}, or {@code null}. */
+    public String lookup(String kind, String sourceLang, String targetLang, String text) {
+        if (!isTerm(text)) return null;
+        String hit = seeded(kind, targetLang, text);
+        if (hit == null) hit = entries.get(new Term(kind, sourceLang, targetLang, text).key());
+        (hit != null ? hits : misses).incrementAndGet();
+        AppMetrics.cacheAccess(CACHE, hit != null);
+        return hit;
+    }
+
+    /**
+     * Translations for {@code terms}. Known terms resolve immediately; the rest join the next
+     * batch, and identical terms requested by concurrent products share one translation. Terms the
+     * batch fails to translate are absent from the result. Learned terms and the batches that
+     * carried them are counted in the caller's run ({@link TokenAccounting#current()}).
+     */
+    public Mono<Map<Term, String>> resolve(Collection<Term> terms) {
+        TokenAccounting run = TokenAccounting.current();
+        Map<Term, String> out = new HashMap<>();
+        List<Mono<Map.Entry<Term, Learned>>> waits = new ArrayList<>();
+        for (Term term : terms) {
+            if (out.containsKey(term)) continue;
+            String hit = lookup(term.kind(), term.sourceLang(), term.targetLang(), term.text());
+            if (hit != null) {
+                out.put(term, hit);
+            } else if (translator != null && isTerm(term.text())) {
+                waits.add(pending(term).map(learned -> Map.entry(term, learned)));
+            }
+        }
+        if (waits.isEmpty()) return Mono.just(out);
+        return Flux.merge(waits)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .map(learned -> {
+                    learned.forEach((term, l) -> out.put(term, l.value()));
+                    if (run != null) {
+                        run.addCount(RUN_TERMS_LEARNED, learned.size());
+                        run.addCount(RUN_BATCHES, learned.values().stream().mapToLong(Learned::batch).distinct().count());
+                    }
+                    flush();
+                    return out;
+                });
+    }
+
+    public void put(Term term, String translation) {
+        if (!isTerm(term.text()) || translation == null || translation.isBlank()) return;
+        entries.put(term.key(), translation.trim());
+        dirty = true;
+    }
+
+    /** Writes pending entries to disk; cheap when nothing changed. */
+    public void flush() {
+        if (!dirty) return;
+        synchronized (this) {
+            if (!dirty) return;
+            dirty = false;
+            try {
+                File dir = file.getParentFile();
+                if (dir != null && !dir.exists()) dir.mkdirs();
+                Files.write(file.toPath(), objectMapper.writeValueAsBytes(new TreeMap<>(entries)));
+            } catch (Exception e) {
+                dirty = true;
+                log.warn("Failed to save translation glossary: {}", e.toString());
+            }
+        }
+    }
+
+    /**
+     * Process-wide lookup statistics and batch counts since the last {@link #resetStats()}, plus
+     * learned entries. Run reports use {@link #stats(TokenAccounting)}.
+     */
+    public Map<String, Object> stats() {
+        long h = hits.get();
+        long total = h + misses.get();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("terms_total", total);
+        out.put("terms_hit", h);
+        out.put("hit_rate", total == 0 ? 0.0 : Math.round(h * 1000.0 / total) / 1000.0);
+        out.put("batches", batches.get());
+        out.put("terms_learned", learnedTerms.get());
+        out.put("entries", entries.size());
+        return out;
+    }
+
+    /** Lookups, batches and learned terms of {@code run} only, plus the current number of entries. */
+    public Map<String, Object> stats(TokenAccounting run) {
+        TokenAccounting.CacheStats lookups = run.cacheStats(CACHE);
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("terms_total", lookups.total());
+        out.put("terms_hit", lookups.hits());
+        out.put("hit_rate", lookups.hitRate());
+        out.put("batches", run.count(RUN_BATCHES));
+        out.put("terms_learned", run.count(RUN_TERMS_LEARNED));
+        out.put("entries", entries.size());
+        return out;
+    }
+
+    public void resetStats() {
+        hits.set(0);
+        misses.set(0);
+        batches.set(0);
+        learnedTerms.set(0);
+    }
+
+    /** Forgets learned terms; curated terms are unaffected. */
+    public void clear() {
+        entries.clear();
+        dirty = true;
+        flush();
+    }
+
+    static String normalize(String term) {
+        return WHITESPACE.matcher(term.replace('_', ' ')).replaceAll(" ").trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String seeded(String kind, String targetLang, String text) {
+        Map<String, Map<String, String>> bySurface = SEEDS.get(kind);
+        if (bySurface == null) return null;
+        Map<String, String> byLang = bySurface.get(normalize(text));
+        return byLang != null ? byLang.get(targetLang) : null;
+    }
+
+    private Mono<Learned> pending(Term term) {
+        return inFlight.computeIfAbsent(term.key(), key -> {
+            Sinks.One<Learned> result = Sinks.one();
+            synchronized (queue) {
+                queue.tryEmitNext(new Pending(term, result));
+            }
+            return result.asMono()
+                    .doFinally(signal -> inFlight.remove(key))
+                    .cache();
+        });
+    }
+
+    private Mono<Void> translateBatch(List<Pending> batch) {
+        List<Term> terms = new ArrayList<>(batch.size());
+        for (Pending p : batch) terms.add(p.term());
+        long batchNo = batches.incrementAndGet();
+        log.info("Glossary batch → {} new terms", terms.size());
+        return Mono.defer(() -> translator.apply(terms))
+                .defaultIfEmpty(Map.of())
+                .onErrorResume(e -> {
+                    log.warn("Glossary batch failed ({}): {}", e.getClass().getSimpleName(), e.getMessage());
+                    return Mono.just(Map.of());
+                })
+                .doOnNext(translated -> {
+                    for (Pending p : batch) {
+                        String value = translated.get(p.term());
+                        if (value != null && !value.isBlank()) {
+                            put(p.term(), value);
+                            learnedTerms.incrementAndGet();
+                            p.result().tryEmitValue(new Learned(value.trim(), batchNo));
+                        } else {
+                            p.result().tryEmitEmpty();
+                        }
+                    }
+                })
+                .then();
+    }
+
+    private static boolean hasLetters(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (Character.isLetter(s.charAt(i))) return true;
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void load() {
+        try {
+            if (file.exists() && file.length() > 0) {
+                Map<String, Object> raw = objectMapper.readValue(file, Map.class);
+                for (Map.Entry<String, Object> e : raw.entrySet()) {
+                    if (e.getValue() != null) entries.put(e.getKey(), String.valueOf(e.getValue()));
+                }
+                log.info("Loaded {} learned glossary terms", entries.size());
+            }
+        } catch (Exception e) {
+            log.warn("Failed to load translation glossary: {}", e.toString());
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.irondust.search.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.irondust.search.util.AppMetrics;
+import com.irondust.search.util.TokenAccounting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Segment-level translation memory shared across products.
+ *
+ * <p>Descriptions and FAQ texts are split into paragraph/sentence segments ({@link #segment}); each
+ * segment is stored per language pair under a hash of its whitespace-normalized text. Boilerplate
+ * such as disclaimers, storage notes and brand blurbs is then translated once for the whole
+ * catalog instead of once per product, and a small edit to a description only re-translates the
+ * segments it touched.
+ *
+ * <p>Entries persist to a JSON file (single-node, like the product-level translation cache).
+ */
+public final class TranslationMemory {
+    private static final Logger log = LoggerFactory.getLogger(TranslationMemory.class);
+    private static final String CACHE = "translation_segment";
+
+    /** Block-level tags delimit paragraph segments; inline markup stays inside a segment. */
+    private static final Pattern BLOCK_TAG = Pattern.compile(
+            "(?i)</?(?:p|div|li|ul|ol|h[1-6]|br|hr|tr|td|th|table|thead|tbody|article|section|blockquote)\\b[^>]*>");
+    /** Sentence boundary inside tag-free text: terminal punctuation, whitespace, then an uppercase letter. */
+    private static final Pattern SENTENCE_END = Pattern.compile("(?<=[.!?])\\s+(?=\\p{Lu})");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final File file;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, String> entries = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private volatile boolean dirty;
+
+    public TranslationMemory(File file) {
+        this.file = file;
+        load();
+        AppMetrics.cacheSize(CACHE, entries, Map::size);
+    }
+
+    /**
+     * Text split into alternating markup and translatable pieces. Whitespace around a segment
+     * stays in the markup so reassembly preserves the original layout.
+     */
+    public static final class Segmented {
+        private final List<String> pieces = new ArrayList<>();
+        private final List<Integer> textPieces = new ArrayList<>();
+        private final List<Boolean> opensParagraph = new ArrayList<>();
+        private boolean blockBoundary = true;
+
+        /** Translatable segments in document order. */
+        public List<String> segments() {
+            List<String> out = new ArrayList<>(textPieces.size());
+            for (int i : textPieces) out.add(pieces.get(i));
+            return out;
+        }
+
+        /** Whether segment {@code i} starts the text or follows a block-level tag, rather than a sentence. */
+        public boolean opensParagraph(int i) {
+            return opensParagraph.get(i);
+        }
+
+        /** Rebuilds the text with segment {@code i} replaced by {@code translated.get(i)}. */
+        public String reassemble(List<String> translated) {
+            StringBuilder sb = new StringBuilder();
+            int next = 0;
+            for (int i = 0; i < pieces.size(); i++) {
+                if (next < textPieces.size() && textPieces.get(next) == i) {
+                    sb.append(translated.get(next++));
+                } else {
+                    sb.append(pieces.get(i));
+                }
+            }
+            return sb.toString();
+        }
+
+        private void markup(String s) {
+            if (!s.isEmpty()) pieces.add(s);
+        }
+
+        private void text(String s) {
+            int start = 0;
+            int end = s.length();
+            while (start < end && Character.isWhitespace(s.charAt(start))) start++;
+            while (end > start && Character.isWhitespace(s.charAt(end - 1))) end--;
+            if (start == end) {
+                markup(s);
+                return;
+            }
+            markup(s.substring(0, start));
+            textPieces.add(pieces.size());
+            opensParagraph.add(blockBoundary);
+            blockBoundary = false;
+            pieces.add(s.substring(start, end));
+            markup(s.substring(end));
+        }
+    }
+
+    /** Splits HTML or plain text into paragraph segments, and tag-free paragraphs into sentences. */
+    public static Segmented segment(String html) {
+        Segmented out = new Segmented();
+        if (html == null || html.isEmpty()) return out;
+        Matcher m = BLOCK_TAG.matcher(html);
+        int last = 0;
+        while (m.find()) {
+            splitSentences(html.substring(last, m.start()), out);
+            out.markup(m.group());
+            out.blockBoundary = true;
+            last = m.end();
+        }
+        splitSentences(html.substring(last), out);
+        return out;
+    }
+
+    private static void splitSentences(String paragraph, Segmented out) {
+        if (paragraph.indexOf('<') >= 0) {
+            // Inline markup may span sentences; keep the paragraph whole
+            out.text(paragraph);
+            return;
+        }
+        Matcher m = SENTENCE_END.matcher(paragraph);
+        int last = 0;
+        while (m.find()) {
+            out.text(paragraph.substring(last, m.start()));
+            out.markup(m.group());
+            last = m.end();
+        }
+        out.text(paragraph.substring(last));
+    }
+
+    /**
+     * Splits segments (in document order) into consecutive chunks of about {@code maxTokens} each
+     * (~4 characters per token), for translating a long text in several requests. Chunks are of
+     * even size and start at a segment that opens a paragraph; a paragraph is only cut between
+     * sentences when the chunk would otherwise exceed {@code maxTokens}. Returns the index of the
+     * first segment of each chunk, just {@code [0]} when everything fits one.
+     */
+    public static List<Integer> chunkStarts(List<String> segments, List<Boolean> opensParagraph, int maxTokens) {
+        List<Integer> starts = new ArrayList<>();
+        if (segments.isEmpty()) return starts;
+        starts.add(0);
+        long total = 0;
+        for (String s : segments) total += estimateTokens(s);
+        if (maxTokens <= 0 || total <= maxTokens) return starts;
+        // Even chunks rather than full ones and a small remainder
+        long chunks = (total + maxTokens - 1) / maxTokens;
+        long target = (total + chunks - 1) / chunks;
+        long size = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            long tokens = estimateTokens(segments.get(i));
+            if (size > 0 && size + tokens > target && (opensParagraph.get(i) || size + tokens > maxTokens)) {
+                starts.add(i);
+                size = 0;
+            }
+            size += tokens;
+        }
+        return starts;
+    }
+
+    private static long estimateTokens(String text) {
+        return Math.max(1, Math.round(text.length() / 4.0));
+    }
+
+    /**
+     * Stored translation of {@code segment}, or {@code null}. Segments without letters (numbers,
+     * units, punctuation) translate to themselves and are not counted.
+     */
+    public String lookup(String sourceLang, String targetLang, String segment) {
+        if (!hasLetters(segment)) return segment;
+        String hit = entries.get(key(sourceLang, targetLang, segment));
+        (hit != null ? hits : misses).incrementAndGet();
+        AppMetrics.cacheAccess(CACHE, hit != null);
+        return hit;
+    }
+
+    public void put(String sourceLang, String targetLang, String segment, String translation) {
+        if (!hasLetters(segment) || translation == null || translation.isBlank()) return;
+        entries.put(key(sourceLang, targetLang, segment), translation.trim());
+        dirty = true;
+    }
+
+    /** Writes pending entries to disk; cheap when nothing changed. */
+    public void flush() {
+        if (!dirty) return;
+        synchronized (this) {
+            if (!dirty) return;
+            dirty = false;
+            try {
+                File dir = file.getParentFile();
+                if (dir != null && !dir.exists()) dir.mkdirs();
+                Files.write(file.toPath(), objectMapper.writeValueAsBytes(new TreeMap<>(entries)));
+            } catch (Exception e) {
+                dirty = true;
+                log.warn("Failed to save translation memory: {}", e.toString());
+            }
+        }
+    }
+
+    /**
+     * Process-wide hit statistics since the last {@link #resetStats()} plus the current number of
+     * entries. Run reports use {@link #stats(TokenAccounting)}.
+     */
+    public Map<String, Object> stats() {
+        long h = hits.get();
+        long total = h + misses.get();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("segments_total", total);
+        out.put("segments_hit", h);
+        out.put("hit_rate", total == 0 ? 0.0 : Math.round(h * 1000.0 / total) / 1000.0);
+        out.put("entries", entries.size());
+        return out;
+    }
+
+    /** Lookups of {@code run} only, plus the current number of entries. */
+    public Map<String, Object> stats(TokenAccounting run) {
+        TokenAccounting.CacheStats lookups = run.cacheStats(CACHE);
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("segments_total", lookups.total());
+        out.put("segments_hit", lookups.hits());
+        out.put("hit_rate", lookups.hitRate());
+        out.put("entries", entries.size());
+        return out;
+    }
+
+    public void resetStats() {
+        hits.set(0);
+        misses.set(0);
+    }
+
+    public void clear() {
+        entries.clear();
+        dirty = true;
+        flush();
+    }
+
+    static String normalize(String segment) {
+        return WHITESPACE.matcher(segment).replaceAll(" ").trim();
+    }
+
+    private static String key(String sourceLang, String targetLang, String segment) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(normalize(segment).getBytes(StandardCharsets.UTF_8));
+            return sourceLang + ">" + targetLang + ":" + HexFormat.of().formatHex(digest, 0, 16);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean hasLetters(String s) {
+        if (s == null) return false;
+        for (int i = 0; i < s.length(); i++) {
+            if (Character.isLetter(s.charAt(i))) return true;
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void load() {
+        try {
+            if (file.exists() && file.length() > 0) {
+                Map<String, Object> raw = objectMapper.readValue(file, Map.class);
+                for (Map.Entry<String, Object> e : raw.entrySet()) {
+                    if (e.getValue() != null) entries.put(e.getKey(), String.valueOf(e.getValue()));
+                }
+                log.info("Loaded {} translation memory segments", entries.size());
+            }
+        } catch (Exception e) {
+            log.warn("Failed to load translation memory: {}", e.toString());
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.irondust.search.config.AppProperties;
+import com.irondust.search.service.batch.BatchRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.MediaType;
@@ -13,6 +14,8 @@ import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 import reactor.util.retry.Retry;
+import com.irondust.search.util.AppMetrics;
+import com.irondust.search.util.SingleFlight;
 import com.irondust.search.util.TokenAccounting;
 
 import java.io.File;
@@ -38,12 +41,34 @@ public class TranslationService {
     private final String apiKey;
     private final String model;
     private final boolean enabled;
+    private final boolean multiTarget;
+    private final TranslationMemory memory;
+    private final TranslationGlossary glossary;
+    /** Target size of a chunk request ({@link SegmentPlan#missingChunks}). */
+    private final int chunkTokens;
+    /** Concurrent requests for the same cache key (variants sharing a description) share one call. */
+    private final SingleFlight<String, ProductTranslation> inFlight = new SingleFlight<>("translation");
+    private final SingleFlight<String, Map<String, ProductTranslation>> inFlightMulti = new SingleFlight<>("translation");
+    /** Batch-job requests awaiting their results, by custom id. */
+    private final Map<String, BatchTranslation> batchTranslations = new ConcurrentHashMap<>();
+    /** Whether finished translations go to the persistent file cache ({@code tmp/translation-cache.json}). */
+    private final boolean persist;
+    /** First backoff between retries of a failed chat completion; shortened by tests. */
+    Duration retryBackoff = Duration.ofSeconds(2);
     private static final int REQUEST_TIMEOUT_SEC = 60;
+    private static final int MAX_TOKENS_PER_LANGUAGE = 6000;
+    private static final int MAX_TOKENS_PER_REQUEST = 16000;
+    private static final int MAX_PARALLEL_CHUNKS = 4;
+    private static final int CHUNK_RETRIES = 1;
     private static final long TRANSLATION_CACHE_TTL_MS = Duration.ofDays(365).toMillis();
     // Persistent cache (single-node) for translations
     private static final Object PERSIST_LOCK = new Object();
     private static final File PERSIST_FILE = new File("tmp/translation-cache.json");
+    private static final File MEMORY_FILE = new File("tmp/translation-memory.json");
+    private static final File GLOSSARY_FILE = new File("tmp/translation-glossary.json");
     private static Map<String, PersistEntry> PERSISTENT_CACHE = new LinkedHashMap<>();
+    /** Version of {@link #TRANSLATION_PREFIX}, reported next to the prompt cache-hit ratio. */
+    public static final String PROMPT_VERSION = "translate-4";
     
     // Supported languages
     public static final String LANG_EST = "est";
@@ -78,6 +103,13 @@ public class TranslationService {
         
         // Enable translations when API key is present (same as AI enrichment)
         this.enabled = apiKey != null && !apiKey.isBlank();
+        // One request for all missing target languages unless explicitly disabled
+        this.multiTarget = !"false".equalsIgnoreCase(System.getenv("TRANSLATE_MULTI_TARGET"));
+        // Segment-level memory for descriptions and FAQ unless explicitly disabled
+        this.memory = "false".equalsIgnoreCase(System.getenv("TRANSLATE_SEGMENT_MEMORY"))
+                ? null : new TranslationMemory(MEMORY_FILE);
+        // Long descriptions and FAQs go out in chunks of about this many tokens; 0 disables chunking
+        this.chunkTokens = Integer.parseInt(System.getenv().getOrDefault("TRANSLATE_CHUNK_TOKENS", "1500"));
         
         if (!enabled) {
             log.info("Translations disabled: OPENAI_API_KEY not found");
@@ -86,10 +118,33 @@ public class TranslationService {
         }
         
         this.webClient = WebClient.builder()
-                .baseUrl("https://api.openai.com/v1")
+                .baseUrl(System.getenv().getOrDefault("OPENAI_BASE_URL", "https://api.openai.com/v1"))
+                .filter(AppMetrics.backendFilter("openai"))
                 .defaultHeader("Authorization", "Bearer " + (apiKey != null ? apiKey : ""))
                 .defaultHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
                 .build();
+        // Form, flavor and category names from the glossary unless explicitly disabled
+        this.glossary = "false".equalsIgnoreCase(System.getenv("TRANSLATE_GLOSSARY"))
+                ? null : new TranslationGlossary(GLOSSARY_FILE, enabled ? this::translateTerms : null);
+        this.persist = true;
+    }
+
+    /**
+     * Multi-target translations through {@code webClient} with the given memory, chunk size and no
+     * glossary; nothing is written to the persistent file cache. For tests.
+     */
+    TranslationService(ObjectMapper objectMapper, WebClient webClient, TranslationMemory memory, int chunkTokens) {
+        this.appProperties = null;
+        this.objectMapper = objectMapper;
+        this.apiKey = "test";
+        this.model = "gpt-4o-mini";
+        this.enabled = true;
+        this.multiTarget = true;
+        this.memory = memory;
+        this.chunkTokens = chunkTokens;
+        this.webClient = webClient;
+        this.glossary = null;
+        this.persist = false;
     }
     
     /**
@@ -115,6 +170,10 @@ public class TranslationService {
             finalSourceLanguage = sourceLanguage;
         }
         
+        if (multiTarget) {
+            return translateMultiTarget(finalSourceLanguage, sourceData);
+        }
+
         // Translate to ALL supported languages (including source) to ensure consistency
         Map<String, ProductTranslation> result = new HashMap<>();
 
@@ -132,7 +191,99 @@ public class TranslationService {
                 .doOnError(e -> log.error("Translation failed: {}", e.getMessage()))
                 .onErrorReturn(result); // Return partial on error
     }
+
+    /**
+     * Translates into every supported language with at most one request: cached languages are
+     * served from cache and left out of the request, and the remaining targets are asked for in a
+     * single JSON response keyed by language code. A single missing language uses the per-language
+     * prompt; a language the model leaves out of the combined response is retried on its own.
+     */
+    private Mono<Map<String, ProductTranslation>> translateMultiTarget(String sourceLang, ProductTranslation source) {
+        Map<String, ProductTranslation> result = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String targetLang : SUPPORTED_LANGUAGES) {
+            if (Objects.equals(sourceLang, targetLang)) {
+                result.put(targetLang, source);
+                continue;
+            }
+            ProductTranslation cached = cachedTranslation(sourceLang, targetLang, source);
+            if (cached != null) {
+                result.put(targetLang, cached);
+            } else {
+                missing.add(targetLang);
+            }
+        }
+        if (missing.isEmpty()) {
+            return Mono.just(result);
+        }
+        AppMetrics.cacheAccess("translation", false);
+        if (missing.size() == 1) {
+            String targetLang = missing.get(0);
+            return requestTranslation(sourceLang, targetLang, source)
+                    .map(tr -> {
+                        result.put(targetLang, tr);
+                        return result;
+                    });
+        }
+
+        return inFlightMulti.execute(buildCacheKey(sourceLang, String.join(",", missing), source),
+                        () -> TokenAccounting.defer(() -> planGlossary(sourceLang, missing, source))
+                                .flatMap(terms -> TokenAccounting.defer(() -> requestMultiTarget(sourceLang, missing, source, terms))))
+                .flatMap(parsed -> {
+                    result.putAll(parsed);
+                    List<String> leftOut = missing.stream().filter(l -> !parsed.containsKey(l)).toList();
+                    if (leftOut.isEmpty()) return Mono.just(result);
+                    log.warn("Multi-target translation omitted {}; translating separately", leftOut);
+                    return reactor.core.publisher.Flux.fromIterable(leftOut)
+                            .flatMap(targetLang -> requestTranslation(sourceLang, targetLang, source)
+                                    .map(tr -> Map.entry(targetLang, tr)))
+                            .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                            .map(rest -> {
+                                result.putAll(rest);
+                                return result;
+                            });
+                });
+    }
     
+    /** One request for several target languages, keyed by language code; failed calls yield the source. */
+    private Mono<Map<String, ProductTranslation>> requestMultiTarget(String sourceLang, List<String> missing,
+                                                                     ProductTranslation source, GlossaryPlan terms) {
+        SegmentPlan plan = planSegments(sourceLang, missing, source);
+        List<Map<String, String>> chunks = plan != null ? plan.missingChunks(chunkTokens) : List.of();
+        String task = buildTaskPrompt(sourceLang, missing);
+        String userContent = buildTranslationContent(source, plan, terms, chunks.isEmpty());
+        long approxTotalTok = estimateTokens(TRANSLATION_PREFIX) + estimateTokens(task) + estimateTokens(userContent) + 200;
+        log.info("Translate request → {}→{} userChars={} approxTotalTok~{} chunks={} model={} timeout={}s",
+                sourceLang, missing, userContent.length(), approxTotalTok, chunks.size(), model, REQUEST_TIMEOUT_SEC);
+        ObjectNode request = buildChatRequest(TRANSLATION_PREFIX, task, userContent,
+                Math.min(MAX_TOKENS_PER_REQUEST, MAX_TOKENS_PER_LANGUAGE * missing.size()));
+
+        // Chunks finish even when the product request fails: their segments are already in memory
+        return Mono.zipDelayError(postChatCompletion(request, approxTotalTok, "translate", languageLabel(missing)),
+                        translateChunks(plan, missing, task, chunks))
+                .map(results -> {
+                    ChunkResult chunked = results.getT2();
+                    Map<String, ProductTranslation> parsed = new HashMap<>();
+                    JsonNode json = extractContentJson(results.getT1());
+                    if (json == null) return parsed;
+                    for (String targetLang : missing) {
+                        JsonNode node = chunked.mergeInto(json.path(targetLang), targetLang);
+                        if (!node.isObject()) continue;
+                        ProductTranslation tr = completeTranslation(sourceLang, targetLang, source, plan, terms, node);
+                        if (chunked.complete()) cacheTranslation(buildCacheKey(sourceLang, targetLang, source), tr);
+                        parsed.put(targetLang, tr);
+                    }
+                    if (memory != null) memory.flush();
+                    return parsed;
+                })
+                .onErrorResume(e -> {
+                    log.error("OpenAI translation error ({}): {}", e.getClass().getSimpleName(), e.getMessage());
+                    Map<String, ProductTranslation> fallback = new HashMap<>();
+                    for (String targetLang : missing) fallback.put(targetLang, source);
+                    return Mono.just(fallback);
+                });
+    }
+
     /**
      * Translates text from source to target language using OpenAI API.
      * Handles product-specific terminology and maintains consistency.
@@ -147,55 +298,210 @@ public class TranslationService {
             return Mono.just(source);
         }
 
-        // Check cache first
+        ProductTranslation cached = cachedTranslation(sourceLang, targetLang, source);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        AppMetrics.cacheAccess("translation", false);
+        return requestTranslation(sourceLang, targetLang, source);
+    }
+
+    /**
+     * Cached translation from memory or the persistent file cache, with validation warnings
+     * attached, or {@code null} on a miss. Records cache hits; misses are recorded by the caller.
+     */
+    private ProductTranslation cachedTranslation(String sourceLang, String targetLang, ProductTranslation source) {
         String cacheKey = buildCacheKey(sourceLang, targetLang, source);
         TranslationCache cached = translationCache.get(cacheKey);
         if (cached != null && !cached.isExpired()) {
-            return Mono.just(mapToProductTranslation(cached.translations))
-                    .map(tr -> {
-                        if (looksMistranslated(sourceLang, targetLang, source, tr)) {
-                            if (tr.warnings == null) tr.warnings = new ArrayList<>();
-                            tr.warnings.add("translation_validation_failed " + sourceLang + "→" + targetLang + " (cache)");
-                        }
-                        return tr;
-                    });
+            AppMetrics.cacheAccess("translation", true);
+            return validated(sourceLang, targetLang, source, mapToProductTranslation(cached.translations), " (cache)");
         }
-        // Check persistent cache
         ProductTranslation persisted = getFromPersistent(cacheKey);
         if (persisted != null) {
+            AppMetrics.cacheAccess("translation", true);
             translationCache.put(cacheKey, new TranslationCache(productTranslationToMap(persisted)));
-            return Mono.just(persisted)
-                    .map(tr -> {
-                        if (looksMistranslated(sourceLang, targetLang, source, tr)) {
-                            if (tr.warnings == null) tr.warnings = new ArrayList<>();
-                            tr.warnings.add("translation_validation_failed " + sourceLang + "→" + targetLang + " (persist)");
-                        }
-                        return tr;
-                    });
+            return validated(sourceLang, targetLang, source, persisted, " (persist)");
         }
-        
+        return null;
+    }
+
+    /**
+     * Single-language request; returns the source unchanged when the call fails. Concurrent
+     * requests with the same cache key share one call.
+     */
+    private Mono<ProductTranslation> requestTranslation(String sourceLang, String targetLang, ProductTranslation source) {
+        return inFlight.execute(buildCacheKey(sourceLang, targetLang, source),
+                () -> TokenAccounting.defer(() -> planGlossary(sourceLang, List.of(targetLang), source))
+                        .flatMap(terms -> TokenAccounting.defer(() -> requestTranslation(sourceLang, targetLang, source, terms))));
+    }
+
+    private Mono<ProductTranslation> requestTranslation(String sourceLang, String targetLang, ProductTranslation source,
+                                                        GlossaryPlan terms) {
+        String cacheKey = buildCacheKey(sourceLang, targetLang, source);
+
         // Build translation request
-        String systemPrompt = buildSystemPrompt(sourceLang, targetLang);
-        String userContent = buildTranslationContent(source);
+        SegmentPlan plan = planSegments(sourceLang, List.of(targetLang), source);
+        List<Map<String, String>> chunks = plan != null ? plan.missingChunks(chunkTokens) : List.of();
+        String task = buildTaskPrompt(sourceLang, List.of(targetLang));
+        String userContent = buildTranslationContent(source, plan, terms, chunks.isEmpty());
 
         // Log payload sizes and rough token estimate
-        long sysChars = systemPrompt != null ? systemPrompt.length() : 0;
+        long sysChars = TRANSLATION_PREFIX.length() + task.length();
         long userChars = userContent != null ? userContent.length() : 0;
-        long sysTok = estimateTokens(systemPrompt);
+        long sysTok = estimateTokens(TRANSLATION_PREFIX) + estimateTokens(task);
         long userTok = estimateTokens(userContent);
         long approxTotalTok = sysTok + userTok + 200; // overhead cushion
-        log.info("Translate request → {}→{} sysChars={} (~{} tok) userChars={} (~{} tok) approxTotalTok~{} model={} timeout={}s",
-                sourceLang, targetLang, sysChars, sysTok, userChars, userTok, approxTotalTok, model, REQUEST_TIMEOUT_SEC);
-        
+        log.info("Translate request → {}→{} sysChars={} (~{} tok) userChars={} (~{} tok) approxTotalTok~{} chunks={} model={} timeout={}s",
+                sourceLang, targetLang, sysChars, sysTok, userChars, userTok, approxTotalTok, chunks.size(), model, REQUEST_TIMEOUT_SEC);
+
+        ObjectNode request = buildChatRequest(TRANSLATION_PREFIX, task, userContent, MAX_TOKENS_PER_LANGUAGE);
+
+        return Mono.zipDelayError(postChatCompletion(request, approxTotalTok, "translate", targetLang),
+                        translateChunks(plan, List.of(targetLang), task, chunks))
+                .map(results -> {
+                    ChunkResult chunked = results.getT2();
+                    JsonNode json = extractContentJson(results.getT1());
+                    ProductTranslation translation = completeTranslation(sourceLang, targetLang, source, plan, terms,
+                            json != null ? chunked.mergeInto(json, targetLang) : null);
+                    if (chunked.complete()) cacheTranslation(cacheKey, translation);
+                    if (memory != null) memory.flush();
+                    return translation;
+                })
+                .doOnError(e -> log.error("OpenAI translation error ({}): {}", e.getClass().getSimpleName(), e.getMessage()))
+                .onErrorReturn(source);
+    }
+
+    /**
+     * Parses one language's translation object, rebuilds description and FAQ from memory and
+     * returned segments, fills glossary fields, and validates the language. Segments are
+     * remembered only when the translation passes validation. Returns {@code source} when
+     * {@code json} is missing.
+     */
+    private ProductTranslation completeTranslation(String sourceLang, String targetLang, ProductTranslation source,
+                                                   SegmentPlan plan, GlossaryPlan terms, JsonNode json) {
+        if (json == null) return source;
+        ProductTranslation tr = parseTranslationJson(json, source);
+        if (tr == source) return source;
+        terms.apply(targetLang, tr);
+        Map<Integer, String> learned = plan != null ? plan.apply(targetLang, json.path("segments"), tr) : Map.of();
+        // Validate language; if looks wrong, attach a warning and return first pass as-is (no retry)
+        boolean flagged = flagIfMistranslated(sourceLang, targetLang, source, tr, "");
+        if (!flagged && plan != null) {
+            plan.remember(targetLang, learned);
+        }
+        return tr;
+    }
+
+    /**
+     * Segments returned by the chunk requests of one product, per target language, and whether
+     * every chunk came back. A product with a failed chunk is not cached: its other segments are
+     * in the translation memory, so the next ingest only sends the failed chunk again.
+     */
+    private record ChunkResult(Map<String, ObjectNode> segments, boolean complete) {
+        static final ChunkResult NONE = new ChunkResult(Map.of(), true);
+
+        /** {@code node} (one language's field object) with this language's chunk segments added under {@code "segments"}. */
+        JsonNode mergeInto(JsonNode node, String lang) {
+            ObjectNode chunkSegments = segments.get(lang);
+            if (chunkSegments == null || !(node instanceof ObjectNode obj)) return node;
+            JsonNode existing = obj.get("segments");
+            ObjectNode target = existing instanceof ObjectNode o ? o : obj.putObject("segments");
+            target.setAll(chunkSegments);
+            return obj;
+        }
+    }
+
+    /** A chunk response that is not JSON or lacks some of the chunk's segments. */
+    private static final class IncompleteChunk extends RuntimeException {
+        IncompleteChunk(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    /**
+     * Translates the segments of a long description or FAQ in separate concurrent requests, one
+     * per chunk, next to the product request. Chunks use the same prefix and task as the product
+     * request, so they share its cached prompt prefix; returned segments are stitched back in
+     * document order by {@link SegmentPlan#apply}. Each chunk is retried on its own, and a chunk
+     * that still fails leaves only its own segments untranslated. A completed chunk's segments go
+     * to the translation memory right away, so they survive a failed product request.
+     */
+    private Mono<ChunkResult> translateChunks(SegmentPlan plan, List<String> targetLangs, String task,
+                                              List<Map<String, String>> chunks) {
+        if (chunks.isEmpty()) return Mono.just(ChunkResult.NONE);
+        return reactor.core.publisher.Flux.fromIterable(chunks)
+                .flatMapSequential(chunk -> translateChunk(plan, targetLangs, task, chunk), MAX_PARALLEL_CHUNKS)
+                .collectList()
+                .map(results -> {
+                    Map<String, ObjectNode> merged = new HashMap<>();
+                    boolean complete = true;
+                    for (Map<String, ObjectNode> result : results) {
+                        if (result.isEmpty()) complete = false;
+                        result.forEach((lang, segs) ->
+                                merged.computeIfAbsent(lang, l -> objectMapper.createObjectNode()).setAll(segs));
+                    }
+                    return new ChunkResult(merged, complete);
+                });
+    }
+
+    /** One chunk's segments per target language; empty when the chunk failed after its retries. */
+    private Mono<Map<String, ObjectNode>> translateChunk(SegmentPlan plan, List<String> targetLangs, String task,
+                                                         Map<String, String> chunk) {
+        String userContent;
+        try {
+            userContent = objectMapper.writeValueAsString(Map.of("segments", chunk));
+        } catch (Exception e) {
+            return Mono.just(Map.of());
+        }
+        boolean multi = targetLangs.size() > 1;
+        long chunkTok = estimateTokens(userContent);
+        long approxTotalTok = estimateTokens(TRANSLATION_PREFIX) + estimateTokens(task) + chunkTok + 200;
+        // Cyrillic output takes about twice the tokens of the Estonian or English input
+        int maxTokens = (int) Math.min(MAX_TOKENS_PER_REQUEST, 2 * chunkTok * targetLangs.size() + 200);
+        ObjectNode request = buildChatRequest(TRANSLATION_PREFIX, task, userContent, maxTokens);
+        return postChatCompletion(request, approxTotalTok, "translate_chunk", languageLabel(targetLangs))
+                .flatMap(response -> {
+                    JsonNode json = extractContentJson(response);
+                    Map<String, ObjectNode> out = new HashMap<>();
+                    for (String lang : targetLangs) {
+                        JsonNode segs = json != null ? (multi ? json.path(lang) : json).path("segments") : null;
+                        if (!(segs instanceof ObjectNode obj) || !chunk.keySet().stream().allMatch(obj::hasNonNull)) {
+                            return Mono.<Map<String, ObjectNode>>error(new IncompleteChunk("segments missing for " + lang));
+                        }
+                        out.put(lang, obj);
+                    }
+                    return Mono.just(out);
+                })
+                // Transport errors are already retried by postChatCompletion
+                .retryWhen(Retry.max(CHUNK_RETRIES).filter(e -> e instanceof IncompleteChunk))
+                .doOnNext(segments -> plan.rememberChunk(chunk.keySet(), segments))
+                .onErrorResume(e -> {
+                    log.warn("Translation chunk of {} segments {}→{} failed: {}", chunk.size(), plan.sourceLang, targetLangs, e.toString());
+                    return Mono.just(Map.of());
+                });
+    }
+
+    private ObjectNode buildChatRequest(String systemPrompt, String userContent, int maxTokens) {
+        return buildChatRequest(systemPrompt, null, userContent, maxTokens);
+    }
+
+    /** Chat request laid out for prompt caching: fixed prefix, then the optional task, then the product. */
+    private ObjectNode buildChatRequest(String prefix, String task, String userContent, int maxTokens) {
         ObjectNode request = objectMapper.createObjectNode();
         request.put("model", model);
         request.put("temperature", 0.1); // Low temperature for consistency
-        request.put("max_tokens", 6000);
+        request.put("max_tokens", maxTokens);
         
         ArrayNode messages = request.putArray("messages");
         ObjectNode systemMsg = messages.addObject();
         systemMsg.put("role", "system");
-        systemMsg.put("content", systemPrompt);
+        systemMsg.put("content", prefix);
+        if (task != null) {
+            ObjectNode taskMsg = messages.addObject();
+            taskMsg.put("role", "system");
+            taskMsg.put("content", task);
+        }
         
         ObjectNode userMsg = messages.addObject();
         userMsg.put("role", "user");
@@ -204,9 +510,24 @@ public class TranslationService {
         // Add response format for structured output
         ObjectNode responseFormat = request.putObject("response_format");
         responseFormat.put("type", "json_object");
-        
+        return request;
+    }
+
+    /**
+     * Rate-limited, retried chat completion call that records token usage and latency (including
+     * retries) under {@code step} and {@code lang} in the subscriber's run.
+     */
+    private Mono<JsonNode> postChatCompletion(ObjectNode request, long approxTotalTok, String step, String lang) {
+        return Mono.deferContextual(ctx -> {
+            long started = System.nanoTime();
+            return postChatCompletion(request, approxTotalTok)
+                    .doOnNext(response -> recordUsage(response, TokenAccounting.from(ctx), step, lang, System.nanoTime() - started));
+        });
+    }
+
+    private Mono<JsonNode> postChatCompletion(ObjectNode request, long approxTotalTok) {
         // Gate outbound call by OpenAI rate limits (process-wide)
-        Mono<ProductTranslation> primary = Mono.defer(() -> {
+        return Mono.defer(() -> {
                     try {
                         com.irondust.search.util.OpenAiRateLimiter.acquire(approxTotalTok);
                     } catch (Exception ignored) {}
@@ -228,59 +549,413 @@ public class TranslationService {
                 })
                 .subscribeOn(Schedulers.boundedElastic())
                 .timeout(Duration.ofSeconds(REQUEST_TIMEOUT_SEC))
-                .retryWhen(Retry.backoff(3, Duration.ofSeconds(2)).jitter(0.5))
+                .retryWhen(Retry.backoff(3, retryBackoff).jitter(0.5));
+    }
+
+    /** Target language(s) of a request as recorded in the run's accounting, e.g. {@code en+ru}. */
+    private static String languageLabel(List<String> targetLangs) {
+        return String.join("+", targetLangs);
+    }
+
+    private void recordUsage(JsonNode response, TokenAccounting run, String step, String lang, long latencyNanos) {
+        try {
+            String usedModel = response.path("model").asText(model);
+            long pTok = response.path("usage").path("prompt_tokens").asLong(0);
+            long cTok = response.path("usage").path("completion_tokens").asLong(0);
+            long tTok = response.path("usage").path("total_tokens").asLong(0);
+            long cachedTok = response.path("usage").path("prompt_tokens_details").path("cached_tokens").asLong(0);
+            if (pTok > 0 || cTok > 0 || tTok > 0) {
+                TokenAccounting.recordChatCompletionUsage(run, step, lang, usedModel, pTok, cTok, tTok, cachedTok, latencyNanos);
+            }
+        } catch (Exception ignored) {}
+    }
+
+    /** State kept between building a batch-job request and loading its result. */
+    private record BatchTranslation(String sourceLang, List<String> targetLangs, ProductTranslation source,
+                                    SegmentPlan plan, GlossaryPlan terms) {}
+
+    /**
+     * Batch-job request translating {@code source} into every supported language that is not
+     * cached yet, built exactly like the synchronous request (glossary fields resolved, memory
+     * segments left out). Empty when translations are disabled or nothing is missing. Products
+     * with the same cache key share one request.
+     */
+    public Mono<BatchRequest> batchRequest(String sourceLanguage, ProductTranslation source) {
+        if (!enabled) return Mono.empty();
+        String sourceLang = (sourceLanguage == null || sourceLanguage.isEmpty()) ? detectLanguage(source) : sourceLanguage;
+        List<String> missing = new ArrayList<>();
+        for (String targetLang : SUPPORTED_LANGUAGES) {
+            if (!Objects.equals(sourceLang, targetLang) && cachedTranslation(sourceLang, targetLang, source) == null) {
+                missing.add(targetLang);
+            }
+        }
+        if (missing.isEmpty()) return Mono.empty();
+        String customId = buildCacheKey(sourceLang, String.join(",", missing), source);
+        return planGlossary(sourceLang, missing, source).map(terms -> {
+            SegmentPlan plan = planSegments(sourceLang, missing, source);
+            boolean multi = missing.size() > 1;
+            int maxTokens = multi
+                    ? Math.min(MAX_TOKENS_PER_REQUEST, MAX_TOKENS_PER_LANGUAGE * missing.size()) : MAX_TOKENS_PER_LANGUAGE;
+            ObjectNode request = buildChatRequest(TRANSLATION_PREFIX, buildTaskPrompt(sourceLang, missing),
+                    buildTranslationContent(source, plan, terms), maxTokens);
+            batchTranslations.put(customId, new BatchTranslation(sourceLang, missing, source, plan, terms));
+            return new BatchRequest(customId, request);
+        });
+    }
+
+    /**
+     * Validates and caches the translations in a batch-job chat completion. Returns whether every
+     * requested language was loaded; languages that were not are translated by the next ingest.
+     */
+    public boolean acceptBatchResult(String customId, JsonNode responseBody) {
+        BatchTranslation pending = batchTranslations.remove(customId);
+        if (pending == null) return false;
+        recordUsage(responseBody, TokenAccounting.current(), "translate", languageLabel(pending.targetLangs()), 0L);
+        JsonNode json = extractContentJson(responseBody);
+        if (json == null) return false;
+        boolean multi = pending.targetLangs().size() > 1;
+        int loaded = 0;
+        for (String targetLang : pending.targetLangs()) {
+            JsonNode node = multi ? json.path(targetLang) : json;
+            if (!node.isObject()) continue;
+            ProductTranslation tr = completeTranslation(pending.sourceLang(), targetLang, pending.source(),
+                    pending.plan(), pending.terms(), node);
+            if (tr == pending.source()) continue;
+            cacheTranslation(buildCacheKey(pending.sourceLang(), targetLang, pending.source()), tr);
+            loaded++;
+        }
+        if (memory != null) memory.flush();
+        return loaded == pending.targetLangs().size();
+    }
+
+    /** Drops batch-job state whose results never arrived. */
+    public void clearBatchRequests() {
+        batchTranslations.clear();
+    }
+
+    private void cacheTranslation(String cacheKey, ProductTranslation translation) {
+        Map<String, String> translationMap = productTranslationToMap(translation);
+        translationCache.put(cacheKey, new TranslationCache(translationMap));
+        putToPersistent(cacheKey, translationMap);
+    }
+
+    /** Attaches a validation warning when {@code tr} does not look like {@code targetLang}. */
+    private ProductTranslation validated(String sourceLang, String targetLang, ProductTranslation source,
+                                         ProductTranslation tr, String origin) {
+        flagIfMistranslated(sourceLang, targetLang, source, tr, origin);
+        return tr;
+    }
+
+    private boolean flagIfMistranslated(String sourceLang, String targetLang, ProductTranslation source,
+                                        ProductTranslation tr, String origin) {
+        if (!looksMistranslated(sourceLang, targetLang, source, tr)) return false;
+        if (tr.warnings == null) tr.warnings = new ArrayList<>();
+        tr.warnings.add("translation_validation_failed " + sourceLang + "→" + targetLang + origin);
+        if (origin.isEmpty()) {
+            log.warn("Translation validation failed for {}→{}; returning first pass without retry", sourceLang, targetLang);
+        }
+        return true;
+    }
+
+    /** Segment plan for {@code source}, or {@code null} when the memory is disabled or there is nothing to segment. */
+    private SegmentPlan planSegments(String sourceLang, List<String> targetLangs, ProductTranslation source) {
+        if (memory == null) return null;
+        boolean hasFaq = source.faq != null && !source.faq.isEmpty();
+        if ((source.description == null || source.description.isBlank()) && !hasFaq) return null;
+        return new SegmentPlan(sourceLang, targetLangs, source);
+    }
+
+    /** Translation memory lookups of {@code run}; empty when the memory is disabled. */
+    public Map<String, Object> translationMemoryStats(TokenAccounting run) {
+        return memory != null ? memory.stats(run) : Map.of();
+    }
+
+    /** Glossary lookups and batches of {@code run}; empty when the glossary is disabled. */
+    public Map<String, Object> glossaryStats(TokenAccounting run) {
+        return glossary != null ? glossary.stats(run) : Map.of();
+    }
+
+    /** Glossary terms for {@code source}'s form, flavor and categories, resolved before the product request. */
+    private Mono<GlossaryPlan> planGlossary(String sourceLang, List<String> targetLangs, ProductTranslation source) {
+        GlossaryPlan plan = new GlossaryPlan(sourceLang, targetLangs, source);
+        if (glossary == null) return Mono.just(plan);
+        return glossary.resolve(plan.terms()).map(plan::resolved);
+    }
+
+    /**
+     * Form, flavor and category names of one product resolved through the glossary. A field
+     * resolved for every target language is left out of the model payload and filled in after
+     * parsing, so the model only sees free text.
+     */
+    private static final class GlossaryPlan {
+        private final String sourceLang;
+        private final List<String> targetLangs;
+        private final ProductTranslation source;
+        private Map<TranslationGlossary.Term, String> resolved = Map.of();
+
+        GlossaryPlan(String sourceLang, List<String> targetLangs, ProductTranslation source) {
+            this.sourceLang = sourceLang;
+            this.targetLangs = targetLangs;
+            this.source = source;
+        }
+
+        List<TranslationGlossary.Term> terms() {
+            List<TranslationGlossary.Term> out = new ArrayList<>();
+            for (String lang : targetLangs) {
+                addTerm(out, TranslationGlossary.KIND_FORM, lang, source.form);
+                addTerm(out, TranslationGlossary.KIND_FLAVOR, lang, source.flavor);
+                if (source.categories != null) {
+                    for (String category : source.categories) addTerm(out, TranslationGlossary.KIND_CATEGORY, lang, category);
+                }
+            }
+            return out;
+        }
+
+        GlossaryPlan resolved(Map<TranslationGlossary.Term, String> resolved) {
+            this.resolved = resolved;
+            return this;
+        }
+
+        boolean coversForm() {
+            return source.form == null || targetLangs.stream().allMatch(l -> value(TranslationGlossary.KIND_FORM, l, source.form) != null);
+        }
+
+        boolean coversFlavor() {
+            return source.flavor == null || targetLangs.stream().allMatch(l -> value(TranslationGlossary.KIND_FLAVOR, l, source.flavor) != null);
+        }
+
+        boolean coversCategories() {
+            return targetLangs.stream().allMatch(l -> categories(l) != null);
+        }
+
+        /** Overwrites the model's form, flavor and categories with glossary translations for {@code lang}. */
+        void apply(String lang, ProductTranslation tr) {
+            String form = source.form != null ? value(TranslationGlossary.KIND_FORM, lang, source.form) : null;
+            if (form != null) tr.form = form;
+            String flavor = source.flavor != null ? value(TranslationGlossary.KIND_FLAVOR, lang, source.flavor) : null;
+            if (flavor != null) tr.flavor = flavor;
+            List<String> categories = categories(lang);
+            if (categories != null && !categories.isEmpty()) tr.categories = categories;
+        }
+
+        /** Translated category names for {@code lang}, or {@code null} unless every one resolved. */
+        private List<String> categories(String lang) {
+            if (source.categories == null) return List.of();
+            List<String> out = new ArrayList<>(source.categories.size());
+            for (String category : source.categories) {
+                String value = value(TranslationGlossary.KIND_CATEGORY, lang, category);
+                if (value == null) return null;
+                out.add(value);
+            }
+            return out;
+        }
+
+        private String value(String kind, String lang, String text) {
+            return resolved.get(new TranslationGlossary.Term(kind, sourceLang, lang, text));
+        }
+
+        private void addTerm(List<TranslationGlossary.Term> out, String kind, String lang, String text) {
+            if (TranslationGlossary.isTerm(text)) out.add(new TranslationGlossary.Term(kind, sourceLang, lang, text));
+        }
+    }
+
+    /** Batch translation of new glossary terms in one small request; ids map back to terms. */
+    private Mono<Map<TranslationGlossary.Term, String>> translateTerms(List<TranslationGlossary.Term> terms) {
+        Map<String, Object> items = new LinkedHashMap<>();
+        for (int i = 0; i < terms.size(); i++) {
+            TranslationGlossary.Term term = terms.get(i);
+            Map<String, String> item = new LinkedHashMap<>();
+            item.put("kind", term.kind());
+            item.put("from", getLanguageName(term.sourceLang()));
+            item.put("to", getLanguageName(term.targetLang()));
+            item.put("text", term.text());
+            items.put("t" + i, item);
+        }
+        String userContent;
+        try {
+            userContent = objectMapper.writeValueAsString(items);
+        } catch (Exception e) {
+            return Mono.error(e);
+        }
+        long approxTotalTok = estimateTokens(GLOSSARY_PROMPT) + estimateTokens(userContent) + 20L * terms.size();
+        ObjectNode request = buildChatRequest(GLOSSARY_PROMPT, userContent, 200 + 40 * terms.size());
+        return postChatCompletion(request, approxTotalTok, "glossary", null)
                 .map(response -> {
-                    try {
-                        String usedModel = response.path("model").asText(model);
-                        long pTok = response.path("usage").path("prompt_tokens").asLong(0);
-                        long cTok = response.path("usage").path("completion_tokens").asLong(0);
-                        long tTok = response.path("usage").path("total_tokens").asLong(0);
-                        if (pTok > 0 || cTok > 0 || tTok > 0) {
-                            TokenAccounting.recordChatCompletionUsage(usedModel, pTok, cTok, tTok);
-                        }
-                    } catch (Exception ignored) {}
-                    return parseTranslationResponse(response, source);
-                })
-                .doOnSuccess(translation -> {
-                    // Cache the result
-                    Map<String, String> translationMap = productTranslationToMap(translation);
-                    translationCache.put(cacheKey, new TranslationCache(translationMap));
-                    putToPersistent(cacheKey, translationMap);
-                })
-                .doOnError(e -> log.error("OpenAI translation error ({}): {}", e.getClass().getSimpleName(), e.getMessage()))
-                .onErrorReturn(source);
+                    Map<TranslationGlossary.Term, String> out = new HashMap<>();
+                    JsonNode json = extractContentJson(response);
+                    if (json == null) return out;
+                    for (int i = 0; i < terms.size(); i++) {
+                        String value = json.path("t" + i).asText(null);
+                        if (value != null && !value.isBlank()) out.put(terms.get(i), value.trim());
+                    }
+                    return out;
+                });
+    }
 
-        // Validate language; if looks wrong, attach a warning and return first pass as-is (no retry)
-        return primary.map(tr -> {
-            if (tr != source && looksMistranslated(sourceLang, targetLang, source, tr)) {
+    /**
+     * One product's description and FAQ split into translation-memory segments. Segments already
+     * in memory for a target language are reused; the rest are sent once under {@code "segments"}
+     * and the markup is reassembled around the returned translations.
+     */
+    private final class SegmentPlan {
+        private final String sourceLang;
+        private final TranslationMemory.Segmented description;
+        private final List<TranslationMemory.Segmented> faq = new ArrayList<>();
+        private final List<String> unique = new ArrayList<>();
+        /** Per unique segment: whether its first occurrence opens a paragraph. */
+        private final List<Boolean> opensParagraph = new ArrayList<>();
+        private final Map<String, Integer> ids = new HashMap<>();
+        /** Per target language: translation per unique segment id, null while unknown. */
+        private final Map<String, String[]> known = new HashMap<>();
+
+        SegmentPlan(String sourceLang, List<String> targetLangs, ProductTranslation source) {
+            this.sourceLang = sourceLang;
+            this.description = source.description != null
+                    ? register(TranslationMemory.segment(sanitizeHtmlForModel(source.description))) : null;
+            if (source.faq != null) {
+                for (ProductTranslation.FaqItem item : source.faq) {
+                    faq.add(register(TranslationMemory.segment(item.q)));
+                    faq.add(register(TranslationMemory.segment(item.a)));
+                }
+            }
+            for (String lang : targetLangs) {
+                String[] t = new String[unique.size()];
+                for (int i = 0; i < t.length; i++) t[i] = memory.lookup(sourceLang, lang, unique.get(i));
+                known.put(lang, t);
+            }
+        }
+
+        private TranslationMemory.Segmented register(TranslationMemory.Segmented seg) {
+            List<String> texts = seg.segments();
+            for (int i = 0; i < texts.size(); i++) {
+                String text = texts.get(i);
+                boolean opens = seg.opensParagraph(i);
+                ids.computeIfAbsent(TranslationMemory.normalize(text), k -> {
+                    unique.add(text);
+                    opensParagraph.add(opens);
+                    return unique.size() - 1;
+                });
+            }
+            return seg;
+        }
+
+        /** Segments missing for at least one target, keyed as sent to the model. */
+        Map<String, String> missingPayload() {
+            Map<String, String> out = new LinkedHashMap<>();
+            for (int i = 0; i < unique.size(); i++) {
+                for (String[] t : known.values()) {
+                    if (t[i] == null) {
+                        out.put("s" + i, unique.get(i));
+                        break;
+                    }
+                }
+            }
+            return out;
+        }
+
+        /**
+         * {@link #missingPayload()} cut at paragraph boundaries into chunks of about {@code maxTokens}
+         * ({@link TranslationMemory#chunkStarts}); empty when it fits one request.
+         */
+        List<Map<String, String>> missingChunks(int maxTokens) {
+            Map<String, String> payload = missingPayload();
+            List<String> keys = new ArrayList<>(payload.keySet());
+            List<String> texts = new ArrayList<>(payload.values());
+            List<Boolean> opens = new ArrayList<>();
+            for (String key : keys) opens.add(opensParagraph.get(Integer.parseInt(key.substring(1))));
+            List<Integer> starts = TranslationMemory.chunkStarts(texts, opens, maxTokens);
+            if (starts.size() < 2) return List.of();
+            List<Map<String, String>> chunks = new ArrayList<>();
+            for (int c = 0; c < starts.size(); c++) {
+                int end = c + 1 < starts.size() ? starts.get(c + 1) : keys.size();
+                Map<String, String> chunk = new LinkedHashMap<>();
+                for (int i = starts.get(c); i < end; i++) chunk.put(keys.get(i), texts.get(i));
+                chunks.add(chunk);
+            }
+            return chunks;
+        }
+
+        /**
+         * Fills {@code tr.description} and {@code tr.faq} for {@code lang}. Returns the segments
+         * newly translated by the model; segments it left out stay in the source language.
+         */
+        Map<Integer, String> apply(String lang, JsonNode returned, ProductTranslation tr) {
+            String[] t = known.get(lang).clone();
+            Map<Integer, String> learned = new HashMap<>();
+            int unresolved = 0;
+            for (int i = 0; i < t.length; i++) {
+                if (t[i] != null) continue;
+                String value = returned.path("s" + i).asText(null);
+                if (value != null && !value.isBlank()) {
+                    t[i] = value.trim();
+                    learned.put(i, t[i]);
+                } else {
+                    t[i] = unique.get(i);
+                    unresolved++;
+                }
+            }
+            if (description != null) tr.description = fill(description, t);
+            if (!faq.isEmpty()) {
+                tr.faq = new ArrayList<>();
+                for (int i = 0; i + 1 < faq.size(); i += 2) {
+                    tr.faq.add(new ProductTranslation.FaqItem(fill(faq.get(i), t), fill(faq.get(i + 1), t)));
+                }
+            }
+            if (unresolved > 0) {
                 if (tr.warnings == null) tr.warnings = new ArrayList<>();
-                tr.warnings.add("translation_validation_failed " + sourceLang + "→" + targetLang);
-                log.warn("Translation validation failed for {}→{}; returning first pass without retry", sourceLang, targetLang);
+                tr.warnings.add("translation_segments_missing " + sourceLang + "→" + lang + " " + unresolved);
             }
-            return tr;
-        });
+            return learned;
+        }
+
+        void remember(String lang, Map<Integer, String> learned) {
+            learned.forEach((i, value) -> memory.put(sourceLang, lang, unique.get(i), value));
+        }
+
+        /**
+         * Stores the segments of one completed chunk request ({@code keys} as sent, segments per
+         * language) without waiting for the product request. A segment returned unchanged is
+         * not stored, so an echoed source is sent again next time.
+         */
+        void rememberChunk(Collection<String> keys, Map<String, ObjectNode> segments) {
+            segments.forEach((lang, returned) -> {
+                for (String key : keys) {
+                    String text = unique.get(Integer.parseInt(key.substring(1)));
+                    String value = returned.path(key).asText("").trim();
+                    if (!value.isEmpty() && !value.equals(text.trim())) memory.put(sourceLang, lang, text, value);
+                }
+            });
+            memory.flush();
+        }
+
+        private String fill(TranslationMemory.Segmented seg, String[] t) {
+            List<String> out = new ArrayList<>();
+            for (String text : seg.segments()) out.add(t[ids.get(TranslationMemory.normalize(text))]);
+            return seg.reassemble(out);
+        }
     }
     
-    private String buildSystemPrompt(String sourceLang, String targetLang) {
-        String sourceLanguageName = getLanguageName(sourceLang);
-        String targetLanguageName = getLanguageName(targetLang);
-        
-        String estSpecificGuidance = "";
-        if (LANG_EST.equals(targetLang)) {
-            estSpecificGuidance = """
-
-            11. For Estonian, translate generic product terms into Estonian; keep brand and flavor unchanged.
-                Examples: "whey protein" → "vadakuvalk"; "protein" → "valk"; "casein" → "kaseiin";
-                "isolate" → "isolaat"; "concentrate" → "kontsentraat"; "creatine" → "kreatiin";
-                "beta-alanine" → "beeta-alaniin"; "pre-workout" → "treeningueelne"; "capsules" → "kapslid"; "powder" → "pulber".
-            """;
+    /**
+     * Per-request task, sent as a second system message after {@link #TRANSLATION_PREFIX}. A single
+     * target returns the field object directly; several return it keyed by language code so each
+     * translation can be validated and cached alone.
+     */
+    private String buildTaskPrompt(String sourceLang, List<String> targetLangs) {
+        if (targetLangs.size() == 1) {
+            return String.format("Task: translate from %s to %s. Return the field object directly.",
+                    getLanguageName(sourceLang), getLanguageName(targetLangs.get(0)));
         }
-        
-        return String.format("""
-            You are a professional translator specializing in e-commerce and sports nutrition products.
-            Translate the following product information from %s to %s.
-            
-            Guidelines:
+        StringBuilder keys = new StringBuilder();
+        for (String lang : targetLangs) {
+            if (keys.length() > 0) keys.append(", ");
+            keys.append('"').append(lang).append("\" (").append(getLanguageName(lang)).append(')');
+        }
+        return String.format("Task: translate from %s into each of these languages: %s. "
+                + "Return a JSON object with one key per target language code, each value being the field object in that language.",
+                getLanguageName(sourceLang), keys);
+    }
+
+    private static final String COMMON_GUIDELINES = """
             1. Maintain accuracy for technical terms (proteins, vitamins, supplements)
             2. Keep brand names unchanged
             3. Translate product names naturally while preserving key terms
@@ -288,12 +963,38 @@ public class TranslationService {
             5. Preserve HTML tags if present
             6. Keep measurement units (g, kg, ml, etc.) unchanged
             7. For product forms (powder, capsules, etc.), use standard translations
-            8. Maintain consistent terminology across all fields
-            9. IMPORTANT: The final output must be entirely in the target language (%s). Do NOT leave text in the source language.
-            10. Output ONLY a raw JSON object. Do NOT include markdown, code fences, or any commentary.
-            %s
-            
-            Return a JSON object with these exact fields:
+            8. Maintain consistent terminology across all fields""";
+
+    private static final String LANGUAGE_GUIDANCE = """
+            11. When translating into Estonian, translate generic product terms and flavor names into Estonian; keep brand names unchanged.
+                Examples: "whey protein" → "vadakuvalk"; "protein" → "valk"; "casein" → "kaseiin";
+                "isolate" → "isolaat"; "concentrate" → "kontsentraat"; "creatine" → "kreatiin";
+                "beta-alanine" → "beeta-alaniin"; "pre-workout" → "treeningueelne"; "capsules" → "kapslid"; "powder" → "pulber".
+            12. When translating into Russian, use the terms Russian sports nutrition stores use:
+                "whey protein" → "сывороточный протеин"; "protein" → "протеин"; "casein" → "казеин"; "isolate" → "изолят";
+                "creatine" → "креатин"; "pre-workout" → "предтренировочный комплекс"; "gainer" → "гейнер"; "fat burner" → "жиросжигатель";
+                "capsules" → "капсулы"; "tablets" → "таблетки"; "powder" → "порошок"; "serving" → "порция"; "scoop" → "мерная ложка".
+                Keep Latin-script brand names as written; do not transliterate them. Translate flavor names ("Chocolate" → "Шоколад").
+            13. When translating into English, use plain retail English ("whey protein", "servings", "scoop") rather than literal renderings,
+                and translate Estonian or Russian category names to their usual English store names (e.g. "Vadakuvalgud" → "Whey Proteins").
+            14. Keep numbers, doses and ranges exactly as in the source (e.g. "2 x 5 g", "3–5 g", "N90", "60 caps"). Convert decimal commas
+                only when the target language uses decimal points (English), never in Estonian or Russian.
+            15. Dosage and timing sentences stay short imperative lines ("Take 1 scoop daily."); do not add advice the source does not contain.
+            16. FAQ questions read as a shopper would ask them; keep the same number of FAQ entries and their order.
+            17. Do not translate legal entity suffixes (OÜ, AS, GmbH, Ltd), certification marks (GMP, ISO, Informed Sport) or ingredient
+                trade names (Creapure®, Carnipure®, Peptopro®).""";
+
+    private static final String GLOSSARY_PROMPT = """
+            You translate short attribute values of a sports nutrition store: product forms, flavors and category names.
+            The input maps ids to {"kind", "from", "to", "text"}. Return a raw JSON object mapping each id to the
+            translated text only. Use the standard retail term in the target language, keep brand names unchanged,
+            and keep the capitalization style of the source (category names stay capitalized).""";
+
+    private static final String SEGMENTS_GUIDANCE = """
+            If the input has a "segments" object, also return "segments" with exactly the same keys, each value
+            translated (keep inline HTML tags). Description and FAQ passages are sent only as segments.""";
+
+    private static final String TRANSLATION_SCHEMA = """
             {
                 "name": "translated product name",
                 "description": "translated description or null",
@@ -308,11 +1009,42 @@ public class TranslationService {
                     {"q": "translated question", "a": "translated answer"},
                     ...
                 ]
-            }
+            }""";
+
+    /**
+     * Fixed instruction prefix shared by every product translation request. Languages and output
+     * shape come after it ({@link #buildTaskPrompt}) so these bytes never vary and the provider's
+     * prompt cache can serve them. Bump {@link #PROMPT_VERSION} whenever this text changes, and keep
+     * it above the provider's 1024-token caching minimum.
+     */
+    private static final String TRANSLATION_PREFIX = String.format("""
+            You are a professional translator specializing in e-commerce and sports nutrition products.
+            Translate the product information in the user message as described by the task that follows these instructions.
             
-            If a field is null or empty in the source, keep it null in the translation.
-            """, sourceLanguageName, targetLanguageName, targetLanguageName, estSpecificGuidance);
-    }
+            Guidelines:
+            %s
+            9. IMPORTANT: Each translation must be entirely in its target language. Do NOT leave text in the source language or mix languages.
+            10. Output ONLY a raw JSON object. Do NOT include markdown, code fences, or any commentary.
+            %s
+            
+            The field object has these exact fields:
+            %s
+            
+            If a field is null or empty in the source, keep it null in every translation.
+            %s
+            
+            Example of one translated field object (English source, Estonian target):
+            Source: {"name": "Whey Protein Isolate 900g Chocolate", "short_description": "Fast-absorbing whey protein isolate.",
+            "dosage_text": "1 scoop (30 g) after training", "categories": ["Whey Proteins"], "form": "powder", "flavor": "Chocolate"}
+            Translation: {"name": "Vadakuvalgu isolaat 900g Šokolaad", "short_description": "Kiiresti imenduv vadakuvalgu isolaat.",
+            "dosage_text": "1 mõõtelusikas (30 g) pärast treeningut", "categories": ["Vadakuvalgud"], "form": "pulber", "flavor": "Šokolaad"}
+            
+            Example of one translated field object (Estonian source, Russian target):
+            Source: {"name": "ICONFIT Kreatiinmonohüdraat 300g", "benefit_snippet": "Toetab jõudu ja võimsust lühikestel intensiivsetel treeningutel.",
+            "dosage_text": "5 g päevas", "timing_text": "Igal ajal, koos veega", "categories": ["Kreatiin"], "form": "pulber", "flavor": null}
+            Translation: {"name": "ICONFIT Креатин моногидрат 300g", "benefit_snippet": "Поддерживает силу и мощность во время коротких интенсивных тренировок.",
+            "dosage_text": "5 г в день", "timing_text": "В любое время, с водой", "categories": ["Креатин"], "form": "порошок", "flavor": null}""",
+            COMMON_GUIDELINES, LANGUAGE_GUIDANCE, TRANSLATION_SCHEMA, SEGMENTS_GUIDANCE);
 
     // Entry persisted on disk
     private static class PersistEntry {
@@ -365,6 +1097,8 @@ public class TranslationService {
             }
             translationCache.clear();
         }
+        if (memory != null) memory.clear();
+        if (glossary != null) glossary.clear();
     }
 
     private static void ensurePersistDir() {
@@ -384,6 +1118,7 @@ public class TranslationService {
     }
 
     private ProductTranslation getFromPersistent(String cacheKey) {
+        if (!persist) return null;
         synchronized (PERSIST_LOCK) {
             PersistEntry pe = PERSISTENT_CACHE.get(cacheKey);
             if (pe == null) return null;
@@ -393,6 +1128,7 @@ public class TranslationService {
     }
 
     private void putToPersistent(String cacheKey, Map<String, String> tmap) {
+        if (!persist) return;
         synchronized (PERSIST_LOCK) {
             PersistEntry pe = new PersistEntry();
             pe.t = new LinkedHashMap<>(tmap);
@@ -402,7 +1138,7 @@ public class TranslationService {
         }
     }
 
-    private boolean looksMistranslated(String sourceLang, String targetLang, ProductTranslation source, ProductTranslation out) {
+    boolean looksMistranslated(String sourceLang, String targetLang, ProductTranslation source, ProductTranslation out) {
         String outDesc = out.description != null ? out.description : "";
         String outName = out.name != null ? out.name : "";
         String outCombined = (outName + " \n" + outDesc).toLowerCase();
@@ -519,18 +1255,35 @@ public class TranslationService {
                 || text.contains("soovitatav") || text.contains("päevane annus") || text.contains("tootja:");
     }
     
-    private String buildTranslationContent(ProductTranslation source) {
+    private String buildTranslationContent(ProductTranslation source, SegmentPlan plan, GlossaryPlan terms) {
+        return buildTranslationContent(source, plan, terms, true);
+    }
+
+    /** Product request content; without {@code withSegments} the segments are left to chunk requests. */
+    private String buildTranslationContent(ProductTranslation source, SegmentPlan plan, GlossaryPlan terms,
+                                           boolean withSegments) {
         Map<String, Object> content = new HashMap<>();
         content.put("name", safeTrim(source.name, 1000));
-        content.put("description", sanitizeHtmlForModel(source.description));
+        if (plan != null) {
+            // Description and FAQ travel as segments; only those not yet in memory are sent
+            content.put("description", null);
+            content.put("faq", new ArrayList<>());
+            Map<String, String> segments = withSegments ? plan.missingPayload() : Map.of();
+            if (!segments.isEmpty()) content.put("segments", segments);
+        } else {
+            content.put("description", sanitizeHtmlForModel(source.description));
+        }
         content.put("short_description", safeTrim(source.shortDescription, 4000));
         content.put("benefit_snippet", source.benefitSnippet);
-        content.put("categories", source.categories);
-        content.put("form", source.form);
-        content.put("flavor", source.flavor);
+        // Enumerated fields resolved by the glossary for every target are filled in after parsing
+        content.put("categories", terms.coversCategories() ? null : source.categories);
+        content.put("form", terms.coversForm() ? null : source.form);
+        content.put("flavor", terms.coversFlavor() ? null : source.flavor);
         
         // Convert FAQ to simple format
-        if (source.faq != null && !source.faq.isEmpty()) {
+        if (plan != null) {
+            // already covered by segments
+        } else if (source.faq != null && !source.faq.isEmpty()) {
             List<Map<String, String>> faqList = new ArrayList<>();
             for (ProductTranslation.FaqItem item : source.faq) {
                 Map<String, String> faqMap = new HashMap<>();
@@ -585,25 +1338,25 @@ public class TranslationService {
         return Math.max(1, Math.round(text.length() / 4.0));
     }
     
-    private ProductTranslation parseTranslationResponse(JsonNode response, ProductTranslation fallback) {
+    /** The JSON object in the first choice's message content, or {@code null} when absent or invalid. */
+    private JsonNode extractContentJson(JsonNode response) {
         try {
             JsonNode content = response.path("choices").path(0).path("message").path("content");
-            if (content.isMissingNode()) {
-                return fallback;
-            }
-
-            JsonNode translationJson;
             if (content.isObject()) {
-                translationJson = content;
+                return content;
             } else if (content.isTextual()) {
-                String raw = content.asText();
-                String jsonCandidate = extractJsonObject(raw);
-                if (jsonCandidate == null) return fallback;
-                translationJson = objectMapper.readTree(jsonCandidate);
-            } else {
-                return fallback;
+                String jsonCandidate = extractJsonObject(content.asText());
+                return jsonCandidate != null ? objectMapper.readTree(jsonCandidate) : null;
             }
-            
+            return null;
+        } catch (Exception e) {
+            log.error("Failed to parse translation response", e);
+            return null;
+        }
+    }
+
+    private ProductTranslation parseTranslationJson(JsonNode translationJson, ProductTranslation fallback) {
+        try {
             ProductTranslation result = new ProductTranslation();
             result.name = translationJson.path("name").asText(fallback.name);
             result.description = translationJson.path("description").isNull() ? null : 
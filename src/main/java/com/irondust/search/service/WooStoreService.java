@@ -3,26 +3,36 @@ package com.irondust.search.service;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.irondust.search.config.AppProperties;
+import com.irondust.search.util.AdaptiveLimiter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
 import java.net.URI;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 
 @Service
 public class WooStoreService {
     private static final Logger log = LoggerFactory.getLogger(WooStoreService.class);
+    /** Upper bound on concurrently fetched pages; the limiter decides the actual number. */
+    private static final int MAX_PAGE_CONCURRENCY = 16;
+    /** Retries per products page; a page still failing after them fails the whole listing. */
+    static final int PAGE_RETRIES = 3;
 
     private final WebClient wooClient;
     private final ObjectMapper objectMapper;
     private final AppProperties appProperties;
+    /** First backoff between attempts at one page (doubles per retry, with jitter). */
+    Duration pageRetryBackoff = Duration.ofSeconds(1);
 
     public WooStoreService(@Qualifier("wooClient") WebClient wooClient, ObjectMapper objectMapper, AppProperties appProperties) {
         this.wooClient = wooClient;
@@ -31,15 +41,72 @@ public class WooStoreService {
     }
 
     public Flux<JsonNode> paginateProducts() {
+        return paginateProducts(null);
+    }
+
+    /**
+     * Streams all products in page order. When the first page reports the page count
+     * ({@code X-WP-TotalPages}) and a {@code limiter} is given, the remaining pages are fetched
+     * concurrently through it; otherwise pages are fetched one after another until an empty page.
+     * A failing page is retried {@value #PAGE_RETRIES} times with backoff; if it still fails the
+     * stream errors, since a listing with a page missing is not the catalog (a full ingest would
+     * prune the missing products).
+     */
+    public Flux<JsonNode> paginateProducts(AdaptiveLimiter limiter) {
         int configuredPerPage = appProperties.getPerPage();
         int effectivePerPage = Math.max(1, Math.min(100, configuredPerPage));
         if (effectivePerPage != configuredPerPage) {
             log.warn("Clamping per_page from {} to {} (Woo endpoint limit)", configuredPerPage, effectivePerPage);
         }
         int finalPerPage = effectivePerPage;
-        return Flux.create(sink -> {
-            fetchPage(1, finalPerPage, sink);
-        });
+        if (limiter == null) {
+            return Flux.create(sink -> {
+                fetchPage(1, finalPerPage, sink);
+            });
+        }
+        return limiter.execute(() -> requestPage(1, finalPerPage))
+                .retryWhen(pageRetry(1))
+                .flatMapMany(first -> {
+                    JsonNode body = first.getBody();
+                    if (body == null || !body.isArray() || body.size() == 0) return Flux.empty();
+                    Integer totalPages = parseIntHeader(first, "X-WP-TotalPages");
+                    Flux<JsonNode> rest = totalPages == null
+                            ? Flux.create(sink -> fetchPage(2, finalPerPage, sink))
+                            : Flux.range(2, Math.max(0, totalPages - 1))
+                                    .flatMapSequential(page -> limiter.execute(() -> requestPage(page, finalPerPage))
+                                            .retryWhen(pageRetry(page))
+                                            .flatMapIterable(resp -> resp.getBody() != null ? (Iterable<JsonNode>) resp.getBody() : List.<JsonNode>of()),
+                                            MAX_PAGE_CONCURRENCY);
+                    return Flux.concat(Flux.fromIterable(body), rest);
+                });
+    }
+
+    private Retry pageRetry(int page) {
+        return Retry.backoff(PAGE_RETRIES, pageRetryBackoff).jitter(0.5)
+                .doBeforeRetry(s -> log.warn("Retrying products page {} (retry {}): {}", page, s.totalRetries() + 1, s.failure().toString()))
+                .onRetryExhaustedThrow((spec, s) -> new IllegalStateException(
+                        "Products page " + page + " failed after " + (PAGE_RETRIES + 1) + " attempts", s.failure()));
+    }
+
+    private Mono<ResponseEntity<JsonNode>> requestPage(int page, int perPage) {
+        return wooClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/wp-json/wc/store/v1/products")
+                        .queryParam("per_page", perPage)
+                        .queryParam("page", page)
+                        .build())
+                .accept(MediaType.APPLICATION_JSON)
+                .retrieve()
+                .toEntity(JsonNode.class);
+    }
+
+    private static Integer parseIntHeader(ResponseEntity<?> resp, String name) {
+        try {
+            String v = resp.getHeaders().getFirst(name);
+            return v == null || v.isBlank() ? null : Integer.parseInt(v.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
     }
 
     public Mono<JsonNode> fetchProductById(long productId) {
@@ -73,6 +140,7 @@ public class WooStoreService {
                 .accept(MediaType.APPLICATION_JSON)
                 .retrieve()
                 .bodyToMono(JsonNode.class)
+                .retryWhen(pageRetry(page))
                 .subscribe(json -> {
                     if (json.isArray() && json.size() > 0) {
                         for (JsonNode node : json) {
@@ -84,7 +152,7 @@ public class WooStoreService {
                     }
                 }, err -> {
                     log.error("Error fetching products page {}", page, err);
-                    sink.complete();
+                    sink.error(err);
                 });
     }
 }
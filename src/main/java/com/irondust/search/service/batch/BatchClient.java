@@ -0,0 +1,28 @@
+package com.irondust.search.service.batch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.file.Path;
+
+/**
+ * Asynchronous bulk endpoint for chat completions. {@link OpenAiBatchClient} talks to the OpenAI
+ * Batch API; tests substitute a local stand-in that answers the job file directly.
+ */
+public interface BatchClient {
+
+    /** Submits a JSONL job file (one {@code custom_id}/{@code method}/{@code url}/{@code body} per line); returns the job id. */
+    Mono<String> submit(Path jobFile);
+
+    Mono<BatchStatus> status(String batchId);
+
+    /**
+     * Result lines of a finished job: {@code {"custom_id", "response": {"status_code", "body"}, "error"}},
+     * streamed line by line. Empty when the job produced no output file.
+     */
+    Flux<JsonNode> results(BatchStatus status);
+
+    /** Cancels a job that is no longer waited for, so it stops running (and being billed). */
+    Mono<Void> cancel(String batchId);
+}
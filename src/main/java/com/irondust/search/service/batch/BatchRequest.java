@@ -0,0 +1,9 @@
+package com.irondust.search.service.batch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * One chat completion in a batch job. {@code customId} is echoed back with the result and must be
+ * unique within a job; {@code body} is the request body the synchronous call would have sent.
+ */
+public record BatchRequest(String customId, JsonNode body) {}
@@ -0,0 +1,169 @@
+package com.irondust.search.service.batch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiPredicate;
+
+/**
+ * Runs one batch job end to end: writes the requests to a JSONL job file, submits it, polls until
+ * the job is terminal, and hands every successful result to an {@code accept} callback (which
+ * loads it into a cache).
+ *
+ * <p>Failures never fail the caller: a job that cannot be submitted, fails or exceeds the maximum
+ * wait yields an {@link Outcome} listing every request as not loaded, so the regular ingest simply
+ * makes those calls synchronously. A submitted job that is given up on before it is terminal (wait
+ * exceeded, polling error, caller cancelled) is cancelled so it is not paid for twice.
+ */
+public final class BatchRunner {
+    private static final Logger log = LoggerFactory.getLogger(BatchRunner.class);
+    private static final String ENDPOINT = "/v1/chat/completions";
+
+    /** Result of one job; {@code notLoaded} holds the custom ids without a usable result. */
+    public record Outcome(String phase, String batchId, String state, int requested, int loaded, Set<String> notLoaded) {
+        public Map<String, Object> toMap() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("batch_id", batchId);
+            m.put("state", state);
+            m.put("requested", requested);
+            m.put("loaded", loaded);
+            m.put("not_loaded", notLoaded.size());
+            return m;
+        }
+    }
+
+    /** Progress callback: phase name, results loaded or requests finished so far, request count, detail. */
+    public interface Listener {
+        void update(String phase, int processed, Integer total, String message);
+    }
+
+    private final BatchClient client;
+    private final Path jobDir;
+    private final Duration pollInterval;
+    private final Duration maxWait;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public BatchRunner(BatchClient client, Path jobDir, Duration pollInterval, Duration maxWait) {
+        this.client = client;
+        this.jobDir = jobDir;
+        this.pollInterval = pollInterval;
+        this.maxWait = maxWait;
+    }
+
+    /**
+     * Runs {@code requests} (duplicate custom ids are sent once) as a job named {@code phase}.
+     * {@code accept} receives each successful response body and returns whether it was loaded.
+     */
+    public Mono<Outcome> run(String phase, Collection<BatchRequest> requests,
+                             BiPredicate<String, JsonNode> accept, Listener listener) {
+        Map<String, BatchRequest> unique = new LinkedHashMap<>();
+        for (BatchRequest r : requests) unique.putIfAbsent(r.customId(), r);
+        if (unique.isEmpty()) {
+            return Mono.just(new Outcome(phase, null, "skipped", 0, 0, Set.of()));
+        }
+        int total = unique.size();
+        Set<String> pending = Collections.synchronizedSet(new LinkedHashSet<>(unique.keySet()));
+        AtomicInteger loaded = new AtomicInteger();
+        String[] batchId = {null};
+        AtomicBoolean terminal = new AtomicBoolean();
+
+        return Mono.fromCallable(() -> writeJobFile(phase, unique.values()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(client::submit)
+                .doOnNext(id -> {
+                    batchId[0] = id;
+                    listener.update(phase, 0, total, "submitted batch " + id);
+                })
+                .flatMap(id -> Flux.interval(Duration.ZERO, pollInterval)
+                        .concatMap(tick -> client.status(id).onErrorResume(e -> {
+                            log.warn("Batch {} status poll failed: {}", id, e.toString());
+                            return Mono.empty();
+                        }))
+                        .doOnNext(s -> listener.update(phase, s.completed() + s.failed(), total, "batch " + id + " " + s.state()))
+                        .filter(BatchStatus::terminal)
+                        .next()
+                        .doOnNext(s -> terminal.set(true))
+                        .timeout(maxWait))
+                .flatMap(status -> client.results(status)
+                        .publishOn(Schedulers.boundedElastic())
+                        .doOnNext(line -> {
+                            String customId = line.path("custom_id").asText(null);
+                            JsonNode body = responseBody(line);
+                            if (customId == null || body == null || !pending.contains(customId)) return;
+                            try {
+                                if (accept.test(customId, body)) {
+                                    pending.remove(customId);
+                                    listener.update(phase, loaded.incrementAndGet(), total, "loading results");
+                                }
+                            } catch (Exception e) {
+                                log.warn("Batch {} result {} not loaded: {}", status.id(), customId, e.toString());
+                            }
+                        })
+                        .then(Mono.fromSupplier(() -> new Outcome(phase, status.id(), status.state(), total,
+                                loaded.get(), Set.copyOf(pending)))))
+                .onErrorResume(e -> {
+                    log.warn("Batch {} for {} did not complete: {}", batchId[0], phase, e.toString());
+                    return cancelAbandoned(batchId[0], terminal)
+                            .thenReturn(new Outcome(phase, batchId[0], "error: " + e.getClass().getSimpleName(), total,
+                                    loaded.get(), Set.copyOf(pending)));
+                })
+                .doOnCancel(() -> cancelAbandoned(batchId[0], terminal).subscribe())
+                .doOnNext(o -> log.info("Batch {} for {} finished: state={} loaded={}/{}",
+                        o.batchId(), phase, o.state(), o.loaded(), o.requested()));
+    }
+
+    /**
+     * Cancels a submitted job that is no longer waited for: the ingest now makes these calls
+     * synchronously, and a job left running would be processed and billed a second time.
+     */
+    private Mono<Void> cancelAbandoned(String batchId, AtomicBoolean terminal) {
+        if (batchId == null || terminal.get()) return Mono.empty();
+        return client.cancel(batchId)
+                .onErrorResume(e -> {
+                    log.warn("Batch {} could not be cancelled: {}", batchId, e.toString());
+                    return Mono.empty();
+                });
+    }
+
+    /** Response body of a result line when the request succeeded, otherwise {@code null}. */
+    static JsonNode responseBody(JsonNode line) {
+        JsonNode response = line.path("response");
+        int status = response.path("status_code").asInt(0);
+        if (status < 200 || status >= 300) return null;
+        JsonNode body = response.path("body");
+        return body.isObject() ? body : null;
+    }
+
+    private Path writeJobFile(String phase, Collection<BatchRequest> requests) throws Exception {
+        Files.createDirectories(jobDir);
+        Path file = jobDir.resolve(phase + "-" + Instant.now().toEpochMilli() + ".jsonl");
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (BatchRequest r : requests) {
+                ObjectNode line = mapper.createObjectNode();
+                line.put("custom_id", r.customId());
+                line.put("method", "POST");
+                line.put("url", ENDPOINT);
+                line.set("body", r.body());
+                out.write(mapper.writeValueAsString(line));
+                out.newLine();
+            }
+        }
+        log.info("Wrote {} {} requests to {}", requests.size(), phase, file);
+        return file;
+    }
+}
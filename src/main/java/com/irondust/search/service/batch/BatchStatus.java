@@ -0,0 +1,21 @@
+package com.irondust.search.service.batch;
+
+import java.util.Set;
+
+/**
+ * Snapshot of a submitted batch job. {@code state} follows the OpenAI Batch API
+ * (validating, in_progress, finalizing, completed, failed, expired, cancelling, cancelled).
+ */
+public record BatchStatus(String id, String state, int total, int completed, int failed, String outputFileId) {
+    private static final Set<String> TERMINAL = Set.of("completed", "failed", "expired", "cancelled");
+
+    /** Whether the job will not change any more. */
+    public boolean terminal() {
+        return TERMINAL.contains(state);
+    }
+
+    /** Whether there is an output file to read; expired jobs keep the results finished in time. */
+    public boolean hasResults() {
+        return outputFileId != null && !outputFileId.isBlank();
+    }
+}
@@ -0,0 +1,117 @@
+package com.irondust.search.service.batch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.irondust.search.util.AppMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * {@link BatchClient} for the OpenAI Batch API: uploads the job file ({@code purpose=batch}),
+ * creates a {@code /v1/chat/completions} batch with a 24h completion window, and reads the output
+ * file, streamed line by line, once the batch is done. A batch that is no longer waited for is
+ * cancelled. Uses the same {@code OPENAI_API_KEY} / {@code OPENAI_BASE_URL} as
+ * the synchronous callers; batch traffic has its own quota and does not pass through
+ * {@code OpenAiRateLimiter}.
+ */
+@Component
+public class OpenAiBatchClient implements BatchClient {
+    private static final Logger log = LoggerFactory.getLogger(OpenAiBatchClient.class);
+    private static final String COMPLETION_WINDOW = "24h";
+    private static final int MAX_LINE_BYTES = 16 * 1024 * 1024;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final WebClient webClient;
+
+    public OpenAiBatchClient() {
+        this(WebClient.builder()
+                .baseUrl(System.getenv().getOrDefault("OPENAI_BASE_URL", "https://api.openai.com/v1"))
+                .filter(AppMetrics.backendFilter("openai"))
+                .defaultHeader("Authorization", "Bearer " + Objects.requireNonNullElse(System.getenv("OPENAI_API_KEY"), ""))
+                // Output files are decoded line by line; this bounds one result line, not the file
+                .codecs(c -> c.defaultCodecs().maxInMemorySize(MAX_LINE_BYTES))
+                .build());
+    }
+
+    OpenAiBatchClient(WebClient webClient) {
+        this.webClient = webClient;
+    }
+
+    @Override
+    public Mono<String> submit(Path jobFile) {
+        MultipartBodyBuilder parts = new MultipartBodyBuilder();
+        parts.part("purpose", "batch");
+        parts.part("file", new FileSystemResource(jobFile));
+        return webClient.post()
+                .uri("/files")
+                .body(BodyInserters.fromMultipartData(parts.build()))
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .map(file -> file.path("id").asText())
+                .flatMap(fileId -> webClient.post()
+                        .uri("/batches")
+                        .bodyValue(Map.of(
+                                "input_file_id", fileId,
+                                "endpoint", "/v1/chat/completions",
+                                "completion_window", COMPLETION_WINDOW))
+                        .retrieve()
+                        .bodyToMono(JsonNode.class))
+                .map(batch -> batch.path("id").asText())
+                .doOnNext(id -> log.info("Submitted batch {} from {}", id, jobFile));
+    }
+
+    @Override
+    public Mono<BatchStatus> status(String batchId) {
+        return webClient.get()
+                .uri("/batches/{id}", batchId)
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .map(b -> new BatchStatus(
+                        batchId,
+                        b.path("status").asText("unknown"),
+                        b.path("request_counts").path("total").asInt(0),
+                        b.path("request_counts").path("completed").asInt(0),
+                        b.path("request_counts").path("failed").asInt(0),
+                        b.path("output_file_id").isNull() ? null : b.path("output_file_id").asText(null)));
+    }
+
+    @Override
+    public Flux<JsonNode> results(BatchStatus status) {
+        if (!status.hasResults()) return Flux.empty();
+        return webClient.get()
+                .uri("/files/{id}/content", status.outputFileId())
+                .retrieve()
+                // The String decoder splits the streamed body on newlines: one line in memory at a time
+                .bodyToFlux(String.class)
+                .filter(line -> !line.isBlank())
+                .concatMap(line -> {
+                    try {
+                        return Mono.just(mapper.readTree(line));
+                    } catch (Exception e) {
+                        log.warn("Skipping unreadable batch result line: {}", e.toString());
+                        return Mono.empty();
+                    }
+                });
+    }
+
+    @Override
+    public Mono<Void> cancel(String batchId) {
+        return webClient.post()
+                .uri("/batches/{id}/cancel", batchId)
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .doOnNext(b -> log.info("Cancelled batch {} (status {})", batchId, b.path("status").asText("unknown")))
+                .then();
+    }
+}
@@ -1,11 +1,14 @@
 package com.irondust.search.service.enrichment;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.irondust.search.model.ParsedProduct;
 import com.irondust.search.model.RawProduct;
+import com.irondust.search.service.batch.BatchRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import com.irondust.search.util.AppMetrics;
 import com.irondust.search.util.TokenAccounting;
 
 import java.io.File;
@@ -17,8 +20,11 @@ import java.net.http.HttpResponse;
 import java.nio.file.Files;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import com.irondust.search.util.OpenAiRateLimiter;
+import com.irondust.search.util.SingleFlight;
 
 /**
  * Optional AI enricher. Runs once per product when enabled via environment variables.
@@ -26,22 +32,31 @@ import com.irondust.search.util.OpenAiRateLimiter;
  * Env:
  *  - OPENAI_API_KEY: required to enable
  *  - OPENAI_MODEL: optional, default gpt-4o-mini
+ *  - OPENAI_BASE_URL: optional, default https://api.openai.com/v1
  *  - AI_ENRICH: if set to "true" (default true when key present), enable
  */
 public class AIEnricher {
     private static final Logger log = LoggerFactory.getLogger(AIEnricher.class);
-    private static final String OPENAI_URL = "https://api.openai.com/v1/chat/completions";
+    private static final String OPENAI_URL =
+            System.getenv().getOrDefault("OPENAI_BASE_URL", "https://api.openai.com/v1") + "/chat/completions";
     private final ObjectMapper mapper = new ObjectMapper();
     private final HttpClient http = HttpClient.newHttpClient();
     private final String apiKey;
     private final String model;
+    /** Version of {@link #ENRICH_PROMPT}, reported next to the prompt cache-hit ratio. */
+    public static final String PROMPT_VERSION = "enrich-3";
     private static final long ENRICHMENT_CACHE_TTL_MS = 365L * 24 * 60 * 60 * 1000; // 1 year
+    /** Upper bound on one OpenAI call; the ingest's enrichment deadline bounds the whole product. */
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(
+            Long.parseLong(System.getenv().getOrDefault("AI_REQUEST_TIMEOUT_SEC", "60")));
 
     // Persistent cache (single-node) for enrichment responses
     private static final Object CACHE_LOCK = new Object();
     private static final File CACHE_FILE = new File("tmp/ai-enrichment-cache.json");
     private static final ObjectMapper STATIC_MAPPER = new ObjectMapper();
     private static Map<String, Map<String, Object>> PERSISTENT_CACHE = new LinkedHashMap<>();
+    // Ingest workers enriching products with the same input hash share one request
+    private static final SingleFlight<String, Map<String, Object>> IN_FLIGHT = new SingleFlight<>("ai_enrichment");
 
     static {
         synchronized (CACHE_LOCK) {
@@ -124,98 +139,204 @@ public class AIEnricher {
 
     public Map<String, Object> enrich(RawProduct raw, ParsedProduct parsed) {
         try {
-            // Cache key mode: default to raw-only so cached AI responses survive code changes
-            String cacheKeyMode = System.getenv().getOrDefault("AI_CACHE_KEY_MODE", "raw");
-            String inputForHashJson = "raw_parsed".equalsIgnoreCase(cacheKeyMode)
-                    ? buildInputJson(raw, parsed)
-                    : buildRawOnlyInputJson(raw);
-            String inputHash = sha256Hex(inputForHashJson);
+            String inputHash = inputHash(raw, parsed);
             String input = buildInputJson(raw, parsed);
             String cacheKey = model + ":v1:" + inputHash;
 
             // Cache lookup
             Map<String, Object> cached = getCached(cacheKey);
+            AppMetrics.cacheAccess("ai_enrichment", cached != null && !cached.isEmpty());
             if (cached != null && !cached.isEmpty()) {
                 log.info("AI cache hit → product={} key={}", raw.getId(), cacheKey);
                 return cached;
             }
+            return IN_FLIGHT.call(cacheKey, () -> requestEnrichment(raw, input, inputHash, cacheKey));
+        } catch (InterruptedException e) {
+            // The caller gave up (e.g. its deadline fired); that is not an empty enrichment
+            Thread.currentThread().interrupt();
+            throw new CancellationException("AI enrichment wait interrupted for product " + raw.getId());
+        } catch (Exception e) {
+            log.warn("AI enrichment error: {}", e.toString());
+            return Map.of();
+        }
+    }
 
-            Map<String, Object> req = new LinkedHashMap<>();
-            req.put("model", model);
-            req.put("temperature", 0);
-            req.put("response_format", Map.of("type", "json_object"));
-            List<Map<String, String>> messages = new ArrayList<>();
-            messages.add(Map.of("role", "system", "content", "You are a product enrichment engine. Reply STRICT JSON per schema."));
-            messages.add(Map.of("role", "user", "content", buildPrompt(input)));
-            req.put("messages", messages);
+    /**
+     * Batch-job request for {@code raw}, or {@code null} when its enrichment is already cached. The
+     * custom id is the cache key, so {@link #acceptBatchResult} can store the response directly.
+     */
+    public BatchRequest batchRequest(RawProduct raw, ParsedProduct parsed) {
+        try {
+            String cacheKey = model + ":v1:" + inputHash(raw, parsed);
+            Map<String, Object> cached = getCached(cacheKey);
+            if (cached != null && !cached.isEmpty()) return null;
+            return new BatchRequest(cacheKey, mapper.valueToTree(buildRequest(buildInputJson(raw, parsed))));
+        } catch (Exception e) {
+            log.warn("AI batch request for product {} not built: {}", raw.getId(), e.toString());
+            return null;
+        }
+    }
 
-            String body = mapper.writeValueAsString(req);
-            log.info("AI request → product={} model={} hash={}", raw.getId(), model, inputHash);
-            // Rate limit: conservatively estimate tokens and acquire budget before calling
-            long estTokens = OpenAiRateLimiter.estimateTokens(body) + 400; // cushion for response
-            OpenAiRateLimiter.acquire(estTokens);
-            HttpRequest httpReq = HttpRequest.newBuilder()
-                    .uri(URI.create(OPENAI_URL))
-                    .header("Authorization", "Bearer " + apiKey)
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(body))
-                    .build();
-            HttpResponse<String> resp = http.send(httpReq, HttpResponse.BodyHandlers.ofString());
-            log.info("AI response ← product={} status={}", raw.getId(), resp.statusCode());
-            if (resp.statusCode() >= 300) {
-                log.warn("AI enrich failed status {}: {}", resp.statusCode(), resp.body());
-                if (resp.statusCode() == 429) OpenAiRateLimiter.onRateLimitHit();
-                return Map.of();
-            }
-            Map<String, Object> parsedResp = mapper.readValue(resp.body(), new TypeReference<Map<String, Object>>(){});
-            try {
-                Object usageObj = parsedResp.get("usage");
-                String usedModel = parsedResp.get("model") != null ? String.valueOf(parsedResp.get("model")) : model;
-                if (usageObj instanceof Map<?, ?> u) {
-                    Object p = u.get("prompt_tokens");
-                    Object c = u.get("completion_tokens");
-                    Object t = u.get("total_tokens");
-                    long pTok = (p instanceof Number) ? ((Number) p).longValue() : 0L;
-                    long cTok = (c instanceof Number) ? ((Number) c).longValue() : 0L;
-                    long tTok = (t instanceof Number) ? ((Number) t).longValue() : 0L;
-                    TokenAccounting.recordChatCompletionUsage(usedModel, pTok, cTok, tTok);
-                }
-            } catch (Exception ignored) {}
-            List<Map<String, Object>> choices = (List<Map<String, Object>>) parsedResp.get("choices");
-            if (choices == null || choices.isEmpty()) return Map.of();
-            Map<String, Object> msg = (Map<String, Object>) ((Map<String, Object>) choices.get(0).get("message"));
-            String content = String.valueOf(msg.get("content"));
-            // content is a JSON string matching our schema
-            Map<String, Object> out = mapper.readValue(content, new TypeReference<Map<String, Object>>(){});
-            out.put("ai_input_hash", inputHash);
-            out.put("ai_enrichment_ts", System.currentTimeMillis() / 1000);
-            out.put("enrichment_version", 1);
-            // Persist cache
-            putCached(cacheKey, out);
-            return out;
+    /** Stores a batch-job chat completion under its cache key; returns whether it was usable. */
+    public boolean acceptBatchResult(String cacheKey, JsonNode responseBody) {
+        try {
+            String inputHash = cacheKey.substring(cacheKey.lastIndexOf(':') + 1);
+            Map<String, Object> parsedResp = mapper.convertValue(responseBody, new TypeReference<Map<String, Object>>(){});
+            return !acceptResponse(parsedResp, inputHash, cacheKey, 0L).isEmpty();
         } catch (Exception e) {
-            log.warn("AI enrichment error: {}", e.toString());
+            log.warn("AI batch result {} not loaded: {}", cacheKey, e.toString());
+            return false;
+        }
+    }
+
+    private String inputHash(RawProduct raw, ParsedProduct parsed) throws Exception {
+        // Cache key mode: default to raw-only so cached AI responses survive code changes
+        String cacheKeyMode = System.getenv().getOrDefault("AI_CACHE_KEY_MODE", "raw");
+        String inputForHashJson = "raw_parsed".equalsIgnoreCase(cacheKeyMode)
+                ? buildInputJson(raw, parsed)
+                : buildRawOnlyInputJson(raw);
+        return sha256Hex(inputForHashJson);
+    }
+
+    private Map<String, Object> buildRequest(String input) {
+        Map<String, Object> req = new LinkedHashMap<>();
+        req.put("model", model);
+        req.put("temperature", 0);
+        req.put("response_format", Map.of("type", "json_object"));
+        List<Map<String, String>> messages = new ArrayList<>();
+        messages.add(Map.of("role", "system", "content", ENRICH_PROMPT));
+        messages.add(Map.of("role", "user", "content", buildPrompt(input)));
+        req.put("messages", messages);
+        return req;
+    }
+
+    private Map<String, Object> requestEnrichment(RawProduct raw, String input, String inputHash, String cacheKey) throws Exception {
+        String body = mapper.writeValueAsString(buildRequest(input));
+        log.info("AI request → product={} model={} hash={}", raw.getId(), model, inputHash);
+        // Rate limit: conservatively estimate tokens and acquire budget before calling
+        long estTokens = OpenAiRateLimiter.estimateTokens(body) + 400; // cushion for response
+        OpenAiRateLimiter.acquire(estTokens);
+        HttpRequest httpReq = HttpRequest.newBuilder()
+                .uri(URI.create(OPENAI_URL))
+                .header("Authorization", "Bearer " + apiKey)
+                .header("Content-Type", "application/json")
+                .timeout(REQUEST_TIMEOUT)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        long sentAt = System.nanoTime();
+        HttpResponse<String> resp;
+        try {
+            resp = http.send(httpReq, HttpResponse.BodyHandlers.ofString());
+        } catch (Exception e) {
+            AppMetrics.recordBackend("openai", "POST /v1/chat/completions", "error", System.nanoTime() - sentAt);
+            throw e;
+        }
+        long latencyNanos = System.nanoTime() - sentAt;
+        AppMetrics.recordBackend("openai", "POST /v1/chat/completions", AppMetrics.outcome(resp.statusCode()), latencyNanos);
+        log.info("AI response ← product={} status={}", raw.getId(), resp.statusCode());
+        if (resp.statusCode() >= 300) {
+            log.warn("AI enrich failed status {}: {}", resp.statusCode(), resp.body());
+            if (resp.statusCode() == 429) OpenAiRateLimiter.onRateLimitHit();
             return Map.of();
         }
+        Map<String, Object> parsedResp = mapper.readValue(resp.body(), new TypeReference<Map<String, Object>>(){});
+        return acceptResponse(parsedResp, inputHash, cacheKey, latencyNanos);
     }
 
+    /**
+     * Records usage (in the current run, see {@link TokenAccounting#current()}), parses the schema JSON
+     * from the first choice and caches it; empty when unusable. {@code latencyNanos} is 0 for batch results.
+     */
+    private Map<String, Object> acceptResponse(Map<String, Object> parsedResp, String inputHash, String cacheKey,
+                                               long latencyNanos) throws Exception {
+        try {
+            Object usageObj = parsedResp.get("usage");
+            String usedModel = parsedResp.get("model") != null ? String.valueOf(parsedResp.get("model")) : model;
+            if (usageObj instanceof Map<?, ?> u) {
+                Object p = u.get("prompt_tokens");
+                Object c = u.get("completion_tokens");
+                Object t = u.get("total_tokens");
+                long pTok = (p instanceof Number) ? ((Number) p).longValue() : 0L;
+                long cTok = (c instanceof Number) ? ((Number) c).longValue() : 0L;
+                long tTok = (t instanceof Number) ? ((Number) t).longValue() : 0L;
+                Object cached = u.get("prompt_tokens_details") instanceof Map<?, ?> d ? d.get("cached_tokens") : null;
+                long cachedTok = (cached instanceof Number) ? ((Number) cached).longValue() : 0L;
+                TokenAccounting.recordChatCompletionUsage(TokenAccounting.current(), "enrich", null, usedModel,
+                        pTok, cTok, tTok, cachedTok, latencyNanos);
+            }
+        } catch (Exception ignored) {}
+        List<Map<String, Object>> choices = (List<Map<String, Object>>) parsedResp.get("choices");
+        if (choices == null || choices.isEmpty()) return Map.of();
+        Map<String, Object> msg = (Map<String, Object>) ((Map<String, Object>) choices.get(0).get("message"));
+        String content = String.valueOf(msg.get("content"));
+        // content is a JSON string matching our schema
+        Map<String, Object> out = mapper.readValue(content, new TypeReference<Map<String, Object>>(){});
+        out.put("ai_input_hash", inputHash);
+        out.put("ai_enrichment_ts", System.currentTimeMillis() / 1000);
+        out.put("enrichment_version", 1);
+        // Persist cache
+        putCached(cacheKey, out);
+        return out;
+    }
+
+    /**
+     * Fixed instruction prefix (system message): identical bytes on every call, so the provider's
+     * prompt cache can serve it and only the per-product INPUT suffix is processed anew. Bump
+     * {@link #PROMPT_VERSION} whenever this text changes. Keep it above the provider's 1024-token
+     * caching minimum, below which nothing is cached.
+     */
+    private static final String ENRICH_PROMPT =
+            "You are a product enrichment engine. Reply STRICT JSON per schema.\n" +
+            "Given the product JSON in the user message (after INPUT:), validate parsed fields and fill nulls; then generate UX fields and goal relevance scores. " +
+            "Return ONLY this JSON object with keys fill, generate, safety_flags, conflicts, goal_scores.\n" +
+            "Schema: { fill: {form, flavor, servings, servings_min, servings_max, serving_size_g, ingredients_key, goal_tags, diet_tags}, " +
+            "generate: {benefit_snippet, faq: [{q,a}], synonyms_multi: {en:[], ru:[], et:[]}, dosage_text, timing_text}, safety_flags: [{flag,confidence,evidence}], " +
+            "conflicts: [{field, det_value, ai_value, evidence}], " +
+            "goal_scores: { preworkout: {score, confidence}, strength: {score, confidence}, endurance: {score, confidence}, lean_muscle: {score, confidence}, recovery: {score, confidence}, weight_loss: {score, confidence}, wellness: {score, confidence} } }.\n" +
+            "Rules: Prefer explicit numeric evidence. You MAY use title, slug or SKU cues like '60caps', '60vcaps', '90 tablets' as evidence for servings. " +
+            "For dosage_text output a single concise line like '1 scoop (≈12.5 g) daily' or '2 capsules per day'. No timing here. " +
+            "For timing_text output a single concise line like 'Before or after workout' or 'With meals'. Do not repeat dosage. " +
+            "If dosage/serving size is not explicitly stated, infer a reasonable typical value based on product type (e.g., creatine monohydrate powder often 3–5 g). " +
+            "If the label communicates a range, prefer {servings_min, servings_max}. If both range and exact exist, prefer exact attribute value. " +
+            "Only include a conflict when a deterministic value exists (det_value != null) AND you have a different value; if det_value is null, put your value under 'fill' only. " +
+            "Use short evidence quotes. Max 160 chars for benefit_snippet. " +
+            "For goal_scores, set score in [0.0,1.0] reflecting how well the product serves each goal; set confidence in [0.0,1.0]. " +
+            "Bias: creatine → strength/endurance; pre-workout boosters → preworkout; multivitamins → wellness; fat-burners → weight_loss; protein → lean_muscle/recovery.\n" +
+            "\n" +
+            "Vocabularies (use these exact lowercase values; never invent new ones):\n" +
+            "- form: powder, capsules, tabs, drink, gel, bar. Softgels and vegetable capsules are capsules; tablets, chewables and lozenges are tabs; " +
+            "ready-to-drink shots, ampoules and liquids are drink; energy gels are gel; protein and energy bars are bar. Leave form null when none fits.\n" +
+            "- goal_tags: preworkout, strength, endurance, lean_muscle, recovery, weight_loss, wellness. Tag only goals the product is marketed for.\n" +
+            "- diet_tags: vegan, gluten_free, lactose_free, sugar_free. Tag a diet only when the label, title or attributes state it; " +
+            "never infer vegan from a plant ingredient alone, and never tag whey, casein or collagen products as vegan.\n" +
+            "\n" +
+            "Field rules:\n" +
+            "- flavor: the flavor name as written on the product (e.g. 'Chocolate', 'Salted Caramel', 'Unflavored'); null for capsules and tabs without a stated flavor.\n" +
+            "- servings: whole servings per container. For capsules and tabs divide the unit count by the units per serving (90 caps at 3 caps per serving → 30). " +
+            "For powders divide the net weight by serving_size_g and round down.\n" +
+            "- serving_size_g: grams per serving for powders, drinks, gels and bars; null for capsules and tabs.\n" +
+            "- ingredients_key: up to five main active ingredients, lowercase, in label order (e.g. ['whey protein isolate','bcaa']).\n" +
+            "- benefit_snippet: one plain sentence on what the product does, written for shoppers; no medical claims, no superlatives, no brand name.\n" +
+            "- faq: two to four short Q&A pairs a shopper would ask (how to take it, when, what it pairs with, who it suits). " +
+            "Answers stay consistent with dosage_text and timing_text.\n" +
+            "- synonyms_multi: search terms shoppers use for this product type in English (en), Russian (ru) and Estonian (et); " +
+            "generic terms only, at most five per language, no brand names.\n" +
+            "- safety_flags: only for label-stated concerns such as high caffeine (≥200 mg per serving), stimulants, allergens (milk, soy, nuts, gluten) " +
+            "or 'not for pregnant women'; confidence in [0.0,1.0] and a short evidence quote.\n" +
+            "- Inputs may be in Estonian, Russian or English. Read them in any language, but write generate fields in English; translation happens later.\n" +
+            "\n" +
+            "Example. INPUT:{\"name\":\"Creatine Monohydrate 300g\",\"brand\":\"Acme\",\"categories\":[\"Kreatiin\"],\"parsed\":{\"form\":\"powder\",\"servings\":null,\"serving_size_g\":null}}\n" +
+            "Output: {\"fill\":{\"form\":\"powder\",\"flavor\":\"Unflavored\",\"servings\":60,\"servings_min\":null,\"servings_max\":null,\"serving_size_g\":5," +
+            "\"ingredients_key\":[\"creatine monohydrate\"],\"goal_tags\":[\"strength\",\"endurance\"],\"diet_tags\":[]}," +
+            "\"generate\":{\"benefit_snippet\":\"Supports strength and power output during short, intense training.\"," +
+            "\"faq\":[{\"q\":\"Do I need a loading phase?\",\"a\":\"No. 5 g daily saturates muscle stores within a few weeks.\"}]," +
+            "\"synonyms_multi\":{\"en\":[\"creatine\"],\"ru\":[\"креатин\"],\"et\":[\"kreatiin\"]},\"dosage_text\":\"1 scoop (5 g) daily\",\"timing_text\":\"Any time of day, with water\"}," +
+            "\"safety_flags\":[],\"conflicts\":[],\"goal_scores\":{\"preworkout\":{\"score\":0.2,\"confidence\":0.7},\"strength\":{\"score\":0.9,\"confidence\":0.9}," +
+            "\"endurance\":{\"score\":0.5,\"confidence\":0.7},\"lean_muscle\":{\"score\":0.6,\"confidence\":0.7},\"recovery\":{\"score\":0.4,\"confidence\":0.6}," +
+            "\"weight_loss\":{\"score\":0.0,\"confidence\":0.8},\"wellness\":{\"score\":0.1,\"confidence\":0.6}}}";
+
     private String buildPrompt(String inputJson) {
-        return "Given product JSON below, validate parsed fields and fill nulls; then generate UX fields and goal relevance scores. " +
-               "Return ONLY this JSON object with keys fill, generate, safety_flags, conflicts, goal_scores.\n" +
-               "Schema: { fill: {form, flavor, servings, servings_min, servings_max, serving_size_g, ingredients_key, goal_tags, diet_tags}, " +
-               "generate: {benefit_snippet, faq: [{q,a}], synonyms_multi: {en:[], ru:[], et:[]}, dosage_text, timing_text}, safety_flags: [{flag,confidence,evidence}], " +
-               "conflicts: [{field, det_value, ai_value, evidence}], " +
-               "goal_scores: { preworkout: {score, confidence}, strength: {score, confidence}, endurance: {score, confidence}, lean_muscle: {score, confidence}, recovery: {score, confidence}, weight_loss: {score, confidence}, wellness: {score, confidence} } }.\n" +
-               "Rules: Prefer explicit numeric evidence. You MAY use title, slug or SKU cues like '60caps', '60vcaps', '90 tablets' as evidence for servings. " +
-               "For dosage_text output a single concise line like '1 scoop (≈12.5 g) daily' or '2 capsules per day'. No timing here. " +
-               "For timing_text output a single concise line like 'Before or after workout' or 'With meals'. Do not repeat dosage. " +
-               "If dosage/serving size is not explicitly stated, infer a reasonable typical value based on product type (e.g., creatine monohydrate powder often 3–5 g). " +
-               "If the label communicates a range, prefer {servings_min, servings_max}. If both range and exact exist, prefer exact attribute value. " +
-               "Only include a conflict when a deterministic value exists (det_value != null) AND you have a different value; if det_value is null, put your value under 'fill' only. " +
-               "Use short evidence quotes. Max 160 chars for benefit_snippet. " +
-               "For goal_scores, set score in [0.0,1.0] reflecting how well the product serves each goal; set confidence in [0.0,1.0]. " +
-               "Bias: creatine → strength/endurance; pre-workout boosters → preworkout; multivitamins → wellness; fat-burners → weight_loss; protein → lean_muscle/recovery.\n" +
-               "INPUT:" + inputJson;
+        return "INPUT:" + inputJson;
     }
 
     private String buildRawOnlyInputJson(RawProduct raw) throws Exception {
@@ -72,6 +72,22 @@ public interface EnricherStep {
      */
     EnrichmentDelta apply(RawProduct raw, ParsedProduct soFar);
 
+    /**
+     * Applies enrichment with access to the product's shared lowercased text and keyword hits.
+     *
+     * <p>The pipeline calls this variant with one {@link ProductText} per product so steps that
+     * match keywords do not each lowercase and rescan the same fields. The default ignores
+     * {@code text} and delegates to {@link #apply(RawProduct, ParsedProduct)}.
+     *
+     * @param raw The raw product data from WooCommerce
+     * @param soFar The current state of the parsed product (may be partially populated)
+     * @param text Lowercased views of {@code raw}, shared across steps
+     * @return An EnrichmentDelta containing field updates, confidence scores, and provenance
+     */
+    default EnrichmentDelta apply(RawProduct raw, ParsedProduct soFar, ProductText text) {
+        return apply(raw, soFar);
+    }
+
     /**
      * Gets any warnings generated during the enrichment process.
      * 
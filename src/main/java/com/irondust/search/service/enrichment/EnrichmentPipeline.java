@@ -1,8 +1,11 @@
 package com.irondust.search.service.enrichment;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.irondust.search.model.RawProduct;
 import com.irondust.search.model.ParsedProduct;
 import com.irondust.search.model.EnrichedProduct;
+import com.irondust.search.service.batch.BatchRequest;
+import com.irondust.search.util.AppMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -91,29 +94,32 @@ public class EnrichmentPipeline {
     }
 
     /**
-     * Enriches a raw product through the complete deterministic pipeline.
-     * 
-     * <p>This method processes the raw product through all deterministic enrichment
-     * steps in sequence. Each step can add, modify, or validate fields in the
-     * parsed product. Warnings are collected for monitoring and debugging.
-     * 
-     * <p>The method is idempotent - running it multiple times on the same input
-     * will produce the same output.
-     * 
-     * @param raw The raw product data from WooCommerce
-     * @return An enriched product with all deterministic parsing applied
+     * AI batch-job request for {@code raw} (see {@link AIEnricher#batchRequest}), or {@code null}
+     * when AI enrichment is disabled or the product's enrichment is already cached. Runs only the
+     * deterministic steps.
      */
-    public EnrichedProduct enrich(RawProduct raw) {
-        log.info("Starting enrichment for product {}", raw.getId());
-        
+    public BatchRequest aiBatchRequest(RawProduct raw) {
+        if (!aiEnricher.isEnabled()) return null;
+        return aiEnricher.batchRequest(raw, parseDeterministic(raw));
+    }
+
+    /** Caches an AI batch-job result (see {@link AIEnricher#acceptBatchResult}). */
+    public boolean acceptAiBatchResult(String customId, JsonNode responseBody) {
+        return aiEnricher.acceptBatchResult(customId, responseBody);
+    }
+
+    /** Runs the deterministic steps, collecting their warnings. */
+    private ParsedProduct parseDeterministic(RawProduct raw) {
         // Start with a parsed product containing raw data
         ParsedProduct parsed = ParsedProduct.fromRawProduct(raw);
+        ProductText text = new ProductText(raw);
         
         // Apply deterministic enrichment steps
         for (EnricherStep step : deterministicSteps) {
             if (step.supports(raw)) {
+                long stepStart = System.nanoTime();
                 try {
-                    EnrichmentDelta delta = step.apply(raw, parsed);
+                    EnrichmentDelta delta = step.apply(raw, parsed, text);
                     applyDelta(parsed, delta);
                     
                     // Collect warnings
@@ -128,106 +134,162 @@ public class EnrichmentPipeline {
                 } catch (Exception e) {
                     log.error("Error applying {} to product {}: {}", 
                         step.getName(), raw.getId(), e.getMessage(), e);
+                } finally {
+                    AppMetrics.recordStep(step.getName(), System.nanoTime() - stepStart);
                 }
             }
         }
+        return parsed;
+    }
+
+    /**
+     * Enriches a raw product through the complete deterministic pipeline.
+     * 
+     * <p>This method processes the raw product through all deterministic enrichment
+     * steps in sequence. Each step can add, modify, or validate fields in the
+     * parsed product. Warnings are collected for monitoring and debugging.
+     * 
+     * <p>The method is idempotent - running it multiple times on the same input
+     * will produce the same output.
+     * 
+     * @param raw The raw product data from WooCommerce
+     * @return An enriched product with all deterministic parsing applied
+     */
+    public EnrichedProduct enrich(RawProduct raw) {
+        log.info("Starting enrichment for product {}", raw.getId());
+        ParsedProduct parsed = parse(raw);
+        return assemble(raw, parsed, aiResult(raw, parsed));
+    }
+
+    /**
+     * Deterministic half of {@link #enrich}: runs every deterministic step. Together with
+     * {@link #aiResult} and {@link #assemble} this lets the ingest bound the AI call on its own and
+     * publish the deterministic fields when it does not finish in time.
+     */
+    public ParsedProduct parse(RawProduct raw) {
+        return parseDeterministic(raw);
+    }
+
+    /**
+     * AI half of {@link #enrich}: the (cached) AI enrichment result for a parsed product, empty when
+     * AI enrichment is disabled or fails. Throws {@link java.util.concurrent.CancellationException}
+     * when the wait for it was interrupted. Does not touch the pipeline's warnings.
+     */
+    public Map<String, Object> aiResult(RawProduct raw, ParsedProduct parsed) {
+        if (!aiEnricher.isEnabled()) return Map.of();
+        try {
+            long aiStart = System.nanoTime();
+            Map<String, Object> ai = aiEnricher.enrich(raw, parsed);
+            AppMetrics.recordStep("AIEnricher", System.nanoTime() - aiStart);
+            return ai;
+        } catch (java.util.concurrent.CancellationException e) {
+            // Abandoned, not failed: the caller defers the product instead of publishing it without AI
+            throw e;
+        } catch (Exception e) {
+            log.warn("AI enrichment pass failed for {}: {}", raw.getId(), e.toString());
+            return Map.of();
+        }
+    }
 
+    /**
+     * Builds the enriched product from a parsed product and an AI result from {@link #aiResult}
+     * (empty for deterministic fields only), and attaches the collected warnings.
+     */
+    @SuppressWarnings("unchecked")
+    public EnrichedProduct assemble(RawProduct raw, ParsedProduct parsed, Map<String, Object> ai) {
         // Convert to enriched product
         EnrichedProduct enriched = EnrichedProduct.fromParsedProduct(parsed);
 
         // AI enrichment pass (optional, guarded by env)
-        if (aiEnricher.isEnabled()) {
+        if (ai != null && !ai.isEmpty()) {
             try {
-                Map<String, Object> ai = aiEnricher.enrich(raw, parsed);
-                if (!ai.isEmpty()) {
-                    // Fill missing core fields only
-                    java.util.Set<String> fieldsFilledByAi = applyAiFill(enriched, ai);
-                    // Apply AI goal_scores when confidence beats thresholds and improves baseline
-                    applyAiGoalScores(enriched, ai);
-                    // Re-compute derived price metrics if AI filled servings or serving range/size
-                    if (fieldsFilledByAi.contains("servings") ||
-                        (fieldsFilledByAi.contains("servings_min") && fieldsFilledByAi.contains("servings_max")) ||
-                        fieldsFilledByAi.contains("serving_size_g")) {
-                        recomputeDerivedAfterAi(enriched);
+                // Fill missing core fields only
+                java.util.Set<String> fieldsFilledByAi = applyAiFill(enriched, ai);
+                // Apply AI goal_scores when confidence beats thresholds and improves baseline
+                applyAiGoalScores(enriched, ai);
+                // Re-compute derived price metrics if AI filled servings or serving range/size
+                if (fieldsFilledByAi.contains("servings") ||
+                    (fieldsFilledByAi.contains("servings_min") && fieldsFilledByAi.contains("servings_max")) ||
+                    fieldsFilledByAi.contains("serving_size_g")) {
+                    recomputeDerivedAfterAi(enriched);
+                }
+                // Generate UX fields
+                applyAiGenerate(enriched, ai);
+                // Attach safety/conflicts metadata
+                if (ai.get("safety_flags") instanceof List<?> s) {
+                    enriched.setSafety_flags((List<Map<String, Object>>) (List<?>) s);
+                }
+                if (ai.get("conflicts") instanceof List<?> c) {
+                    // Filter out conflicts where deterministic value is null (not a true conflict)
+                    List<Map<String, Object>> conflictsRaw = (List<Map<String, Object>>) (List<?>) c;
+                    List<Map<String, Object>> filteredConflicts = new ArrayList<>();
+                    for (Object o : conflictsRaw) {
+                        if (!(o instanceof Map<?, ?>)) continue;
+                        Map<String, Object> m = (Map<String, Object>) o;
+                        Object detVal = m.get("det_value");
+                        if (detVal == null) {
+                            continue; // skip pseudo-conflicts when no deterministic value exists
+                        }
+                        filteredConflicts.add(m);
+                        allWarnings.add(Warn.fieldConflict(
+                            raw.getId(),
+                            String.valueOf(m.get("field")),
+                            String.valueOf(detVal),
+                            String.valueOf(m.get("ai_value")),
+                            String.valueOf(m.get("evidence"))
+                        ));
                     }
-                    // Generate UX fields
-                    applyAiGenerate(enriched, ai);
-                    // Attach safety/conflicts metadata
-                    if (ai.get("safety_flags") instanceof List<?> s) {
-                        enriched.setSafety_flags((List<Map<String, Object>>) (List<?>) s);
+                    if (!filteredConflicts.isEmpty()) {
+                        enriched.setConflicts(filteredConflicts);
                     }
-                    if (ai.get("conflicts") instanceof List<?> c) {
-                        // Filter out conflicts where deterministic value is null (not a true conflict)
-                        List<Map<String, Object>> conflictsRaw = (List<Map<String, Object>>) (List<?>) c;
-                        List<Map<String, Object>> filteredConflicts = new ArrayList<>();
-                        for (Object o : conflictsRaw) {
-                            if (!(o instanceof Map<?, ?>)) continue;
-                            Map<String, Object> m = (Map<String, Object>) o;
-                            Object detVal = m.get("det_value");
-                            if (detVal == null) {
-                                continue; // skip pseudo-conflicts when no deterministic value exists
-                            }
-                            filteredConflicts.add(m);
-                            allWarnings.add(Warn.fieldConflict(
-                                raw.getId(),
-                                String.valueOf(m.get("field")),
-                                String.valueOf(detVal),
-                                String.valueOf(m.get("ai_value")),
-                                String.valueOf(m.get("evidence"))
-                            ));
+                }
+                // If AI filled some critical fields, drop corresponding missing-critical warnings
+                if (fieldsFilledByAi != null && !fieldsFilledByAi.isEmpty()) {
+                    allWarnings.removeIf(w -> {
+                        if (w == null || !"MISSING_CRITICAL".equals(w.getCode())) return false;
+                        if (!raw.getId().equals(w.getProductId())) return false;
+                        String field = w.getField();
+                        if (fieldsFilledByAi.contains(field)) return true;
+                        // Special-case: servings warning satisfied by range fills
+                        if ("servings".equals(field) && fieldsFilledByAi.contains("servings_min") && fieldsFilledByAi.contains("servings_max")) {
+                            return true;
                         }
-                        if (!filteredConflicts.isEmpty()) {
-                            enriched.setConflicts(filteredConflicts);
+                        return false;
+                    });
+                }
+
+                // Post-AI derivations: derive net_weight_g when possible
+                if (enriched.getNet_weight_g() == null || enriched.getNet_weight_g() <= 0) {
+                    Double ss = enriched.getServing_size_g();
+                    Integer sv = enriched.getServings();
+                    if (ss != null && ss > 0 && sv != null && sv > 0) {
+                        double derived = ss * sv;
+                        if (derived > 0 && derived <= 100000) {
+                            enriched.setNet_weight_g(derived);
                         }
                     }
-                    // If AI filled some critical fields, drop corresponding missing-critical warnings
-                    if (fieldsFilledByAi != null && !fieldsFilledByAi.isEmpty()) {
-                        allWarnings.removeIf(w -> {
-                            if (w == null || !"MISSING_CRITICAL".equals(w.getCode())) return false;
-                            if (!raw.getId().equals(w.getProductId())) return false;
-                            String field = w.getField();
-                            if (fieldsFilledByAi.contains(field)) return true;
-                            // Special-case: servings warning satisfied by range fills
-                            if ("servings".equals(field) && fieldsFilledByAi.contains("servings_min") && fieldsFilledByAi.contains("servings_max")) {
-                                return true;
-                            }
-                            return false;
-                        });
-                    }
-
-                    // Post-AI derivations: derive net_weight_g when possible
                     if (enriched.getNet_weight_g() == null || enriched.getNet_weight_g() <= 0) {
-                        Double ss = enriched.getServing_size_g();
-                        Integer sv = enriched.getServings();
-                        if (ss != null && ss > 0 && sv != null && sv > 0) {
-                            double derived = ss * sv;
+                        Integer uc = enriched.getUnit_count();
+                        Double um = enriched.getUnit_mass_g();
+                        if (uc != null && uc > 0 && um != null && um > 0) {
+                            double derived = uc * um;
                             if (derived > 0 && derived <= 100000) {
                                 enriched.setNet_weight_g(derived);
                             }
                         }
-                        if (enriched.getNet_weight_g() == null || enriched.getNet_weight_g() <= 0) {
-                            Integer uc = enriched.getUnit_count();
-                            Double um = enriched.getUnit_mass_g();
-                            if (uc != null && uc > 0 && um != null && um > 0) {
-                                double derived = uc * um;
-                                if (derived > 0 && derived <= 100000) {
-                                    enriched.setNet_weight_g(derived);
-                                }
-                            }
-                        }
                     }
-                    // Drop stale missing-critical warnings if net_weight_g is now satisfied
-                    if (enriched.getNet_weight_g() != null && enriched.getNet_weight_g() > 0) {
-                        allWarnings.removeIf(w -> w != null && "MISSING_CRITICAL".equals(w.getCode())
-                            && raw.getId().equals(w.getProductId()) && "net_weight_g".equals(w.getField()));
-                    }
-                    // Metadata
-                    if (ai.get("ai_input_hash") instanceof String h) enriched.setAi_input_hash(h);
-                    if (ai.get("ai_enrichment_ts") instanceof Number ts) enriched.setAi_enrichment_ts(((Number) ts).longValue());
-                    if (ai.get("enrichment_version") instanceof Number v) enriched.setEnrichment_version(((Number) v).intValue());
                 }
+                // Drop stale missing-critical warnings if net_weight_g is now satisfied
+                if (enriched.getNet_weight_g() != null && enriched.getNet_weight_g() > 0) {
+                    allWarnings.removeIf(w -> w != null && "MISSING_CRITICAL".equals(w.getCode())
+                        && raw.getId().equals(w.getProductId()) && "net_weight_g".equals(w.getField()));
+                }
+                // Metadata
+                if (ai.get("ai_input_hash") instanceof String h) enriched.setAi_input_hash(h);
+                if (ai.get("ai_enrichment_ts") instanceof Number ts) enriched.setAi_enrichment_ts(((Number) ts).longValue());
+                if (ai.get("enrichment_version") instanceof Number v) enriched.setEnrichment_version(((Number) v).intValue());
             } catch (Exception e) {
-                log.warn("AI enrichment pass failed for {}: {}", raw.getId(), e.toString());
+                log.warn("Applying AI enrichment failed for {}: {}", raw.getId(), e.toString());
             }
         }
         
@@ -0,0 +1,179 @@
+package com.irondust.search.service.enrichment;
+
+import java.util.*;
+
+/**
+ * Multilingual flavor dictionary shared by {@link Normalizer} (attribute slugs) and ingest-time
+ * flavor guessing from product names.
+ *
+ * <p>Built once at class load. Lookups tokenize the input a single time on Unicode letter/digit
+ * runs, lowercase and fold diacritics per char ("šokolaad" and "sokolaad" are the same entry), and
+ * resolve tokens with hash lookups instead of one regex per flavor word.
+ */
+public final class FlavorLexicon {
+
+    /** A flavor found in text: its canonical key and the lowercased text it was found as. */
+    public record Match(String canonical, String surface) {}
+
+    /** Store attribute slugs that are not plain flavor words. */
+    private static final Map<String, String> SLUGS = Map.of(
+        "ei-mingit-maitset", "unflavored",
+        "maitse", "flavored",
+        "tsitrus", "citrus",
+        "marja", "berry",
+        "kohv", "coffee",
+        "sokolaad", "chocolate",
+        "vaanil", "vanilla"
+    );
+
+    /** Two-word flavors, keyed by folded "first second". Checked before single words. */
+    private static final Map<String, String> PHRASES = Map.of(
+        "valge sokolaad", "white_chocolate",
+        "white chocolate", "white_chocolate",
+        "kookos sokolaad", "coconut_chocolate"
+    );
+
+    /** Folded flavor word to canonical key; insertion order is priority when a name has several. */
+    private static final Map<String, String> WORDS = new LinkedHashMap<>();
+    private static final Map<String, Integer> RANK = new HashMap<>();
+
+    static {
+        String[][] words = {
+            {"vanill", "vanilla"}, {"vanilla", "vanilla"}, {"sokolaad", "chocolate"},
+            {"kookos", "coconut"}, {"maasikas", "strawberry"}, {"vaarikas", "raspberry"},
+            {"metsamarja", "berry"}, {"banaan", "banana"}, {"kirss", "cherry"}, {"apelsin", "orange"},
+            {"sidrun", "lemon"}, {"laim", "lime"}, {"mustikas", "blueberry"}, {"tropical", "tropical"},
+            {"troopiline", "tropical"}, {"kola", "cola"}, {"cola", "cola"}, {"citrus", "citrus"},
+            {"caramel", "caramel"}, {"karamell", "caramel"}, {"kohv", "coffee"}, {"coffee", "coffee"},
+            {"chocolate", "chocolate"}, {"tsitrus", "citrus"}, {"vaanil", "vanilla"},
+            {"unflavored", "unflavored"}, {"unflavoured", "unflavored"}
+        };
+        for (String[] w : words) {
+            if (WORDS.putIfAbsent(w[0], w[1]) == null) RANK.put(w[0], RANK.size());
+        }
+    }
+
+    /** Lowercase-and-strip-accents table for U+0000..U+024F; other chars are only lowercased. */
+    private static final char[] FOLD = new char[0x250];
+
+    static {
+        for (char c = 0; c < FOLD.length; c++) {
+            String base = java.text.Normalizer.normalize(String.valueOf(c), java.text.Normalizer.Form.NFD);
+            FOLD[c] = Character.toLowerCase(base.isEmpty() ? c : base.charAt(0));
+        }
+    }
+
+    private FlavorLexicon() {}
+
+    /**
+     * Canonical flavor for a store attribute slug such as {@code sokolaad-et} or {@code vanilla},
+     * or {@code null} when the slug is not a known flavor.
+     */
+    public static String canonicalFromSlug(String slug) {
+        if (slug == null || slug.isBlank()) return null;
+        String mapped = SLUGS.get(slug);
+        if (mapped != null) return mapped;
+        String stripped = stripLocaleSuffix(slug);
+        mapped = SLUGS.get(stripped);
+        if (mapped != null) return mapped;
+        Match m = find(stripped);
+        return m != null ? m.canonical() : null;
+    }
+
+    /**
+     * Best flavor mentioned in {@code text}. A trailing bracketed part like "(vanilla)" wins over
+     * the rest of the text; within a region two-word flavors win over single words, and single
+     * words are ranked by dictionary order.
+     */
+    public static Match find(String text) {
+        if (text == null || text.isEmpty()) return null;
+        String lowered = text.toLowerCase(Locale.ROOT);
+        char[] folded = new char[lowered.length()];
+        for (int i = 0; i < folded.length; i++) folded[i] = fold(lowered.charAt(i));
+
+        // Token boundaries: [start, end) pairs over the lowered text
+        int[] bounds = new int[16];
+        int n = 0;
+        for (int i = 0; i < folded.length; ) {
+            if (!Character.isLetterOrDigit(folded[i])) { i++; continue; }
+            int start = i;
+            while (i < folded.length && Character.isLetterOrDigit(folded[i])) i++;
+            if (n + 2 > bounds.length) bounds = Arrays.copyOf(bounds, bounds.length * 2);
+            bounds[n++] = start;
+            bounds[n++] = i;
+        }
+        if (n == 0) return null;
+
+        int bracketFrom = trailingBracketStart(lowered);
+        if (bracketFrom >= 0) {
+            Match inBracket = find(lowered, folded, bounds, n, bracketFrom);
+            if (inBracket != null) return inBracket;
+        }
+        return find(lowered, folded, bounds, n, 0);
+    }
+
+    private static Match find(String lowered, char[] folded, int[] bounds, int n, int from) {
+        int first = 0;
+        while (first < n && bounds[first] < from) first += 2;
+
+        // Two-word flavors separated only by spaces or hyphens
+        for (int t = first; t + 3 < n; t += 2) {
+            if (!onlySeparators(folded, bounds[t + 1], bounds[t + 2])) continue;
+            String key = new String(folded, bounds[t], bounds[t + 1] - bounds[t]) + " "
+                + new String(folded, bounds[t + 2], bounds[t + 3] - bounds[t + 2]);
+            String canonical = PHRASES.get(key);
+            if (canonical != null) return new Match(canonical, lowered.substring(bounds[t], bounds[t + 3]));
+        }
+
+        String bestWord = null;
+        int bestRank = Integer.MAX_VALUE;
+        int bestToken = -1;
+        for (int t = first; t < n; t += 2) {
+            String word = new String(folded, bounds[t], bounds[t + 1] - bounds[t]);
+            Integer rank = RANK.get(word);
+            if (rank != null && rank < bestRank) {
+                bestRank = rank;
+                bestWord = word;
+                bestToken = t;
+            }
+        }
+        if (bestWord == null) return null;
+        return new Match(WORDS.get(bestWord), lowered.substring(bounds[bestToken], bounds[bestToken + 1]));
+    }
+
+    private static boolean onlySeparators(char[] s, int from, int to) {
+        if (from == to) return false;
+        for (int i = from; i < to; i++) {
+            if (s[i] != ' ' && s[i] != '-' && s[i] != '\u00A0') return false;
+        }
+        return true;
+    }
+
+    /** Index just inside a trailing "(...)", "[...]" or "【...】", or -1. */
+    private static int trailingBracketStart(String s) {
+        int end = s.length() - 1;
+        while (end >= 0 && Character.isWhitespace(s.charAt(end))) end--;
+        if (end < 0) return -1;
+        char close = s.charAt(end);
+        char open = switch (close) {
+            case ')' -> '(';
+            case ']' -> '[';
+            case '】' -> '【';
+            default -> 0;
+        };
+        if (open == 0) return -1;
+        int start = s.lastIndexOf(open, end);
+        return start >= 0 ? start + 1 : -1;
+    }
+
+    private static char fold(char c) {
+        return c < FOLD.length ? FOLD[c] : Character.toLowerCase(c);
+    }
+
+    private static String stripLocaleSuffix(String slug) {
+        if (slug.endsWith("-et") || slug.endsWith("-ru") || slug.endsWith("-en")) {
+            return slug.substring(0, slug.length() - 3);
+        }
+        return slug;
+    }
+}
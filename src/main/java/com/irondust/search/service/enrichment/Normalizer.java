@@ -3,6 +3,8 @@ package com.irondust.search.service.enrichment;
 import com.irondust.search.model.RawProduct;
 import com.irondust.search.model.ParsedProduct;
 
+import com.irondust.search.util.TermMatcher;
+
 import java.util.*;
 
 public class Normalizer implements EnricherStep {
@@ -14,7 +16,26 @@ public class Normalizer implements EnricherStep {
     // Also match compact forms like "90caps", "90tabs", "100softgels"
     private static final java.util.regex.Pattern CAPS_COMPACT_TOKENS = java.util.regex.Pattern.compile("\\b\\d{1,4}\\s*(caps|capsules|softgels?|soft\\s*gels?|kaps|kapslid|tablets?|tabs|tabletid)\\b", java.util.regex.Pattern.CASE_INSENSITIVE);
     private static final java.util.regex.Pattern TABS_TOKENS = java.util.regex.Pattern.compile("\\b(tabs?|tabletid|tablet)\\b", java.util.regex.Pattern.CASE_INSENSITIVE);
-    private static final java.util.regex.Pattern PULBER_TOKEN = java.util.regex.Pattern.compile("pulber", java.util.regex.Pattern.CASE_INSENSITIVE);
+
+    // Category and substring cues for form inference; each text is scanned once for all of them
+    private static final List<String> POWDER_CATEGORY_CUES = List.of(
+        "kreatiin", "monohüdraat", "monohudraat", "üksikud aminohapped", "uksikud aminohapped");
+    private static final List<String> CAPSULE_CATEGORY_CUES = List.of(
+        "omega", "oomega", "vitamin", "vitamiin", "mineral", "rasvhape", "rasvhapped");
+    private static final List<String> CAPSULE_SLUG_CUES = List.of("omega", "oomega", "vitamin", "vitamiin");
+    private static final List<String> DRINK_CATEGORY_CUES = List.of("joog", "jook", "spordijook");
+    private static final List<String> DRINK_SLUG_CUES = List.of("joog", "jook", "spordijoog");
+    private static final List<String> BAR_CUES = List.of("baar", "batoon");
+    private static final List<String> CAPSULE_TEXT_CUES = List.of(
+        "softgel", "caps", "kaps", "omega", "oomega", "fish oil", "kalaõli", "kalaoli");
+    private static final List<String> TABS_TEXT_CUES = List.of("tablet", "tabs");
+    private static final TermMatcher CATEGORY_TERMS = TermMatcher.of(
+        java.util.stream.Stream.of(POWDER_CATEGORY_CUES, CAPSULE_CATEGORY_CUES, DRINK_CATEGORY_CUES,
+                DRINK_SLUG_CUES, BAR_CUES)
+            .flatMap(List::stream).toList());
+    private static final TermMatcher TEXT_TERMS = TermMatcher.of(
+        java.util.stream.Stream.of(CAPSULE_TEXT_CUES, TABS_TEXT_CUES, List.of("pulber"))
+            .flatMap(List::stream).toList());
 
     // Form mappings from Estonian (and common English) slugs to canonical forms
     private static final Map<String, String> FORM_MAP = Map.ofEntries(
@@ -48,17 +69,6 @@ public class Normalizer implements EnricherStep {
         Map.entry("valgubatoonid", "bar")
     );
 
-    // Flavor mappings from Estonian slugs to canonical flavors
-    private static final Map<String, String> FLAVOR_MAP = Map.of(
-        "ei-mingit-maitset", "unflavored",
-        "maitse", "flavored",
-        "tsitrus", "citrus",
-        "marja", "berry",
-        "kohv", "coffee",
-        "sokolaad", "chocolate",
-        "vaanil", "vanilla"
-    );
-
     // Boolean mappings
     private static final Map<String, Boolean> BOOLEAN_MAP = Map.of(
         "jah", true,
@@ -74,6 +84,11 @@ public class Normalizer implements EnricherStep {
 
     @Override
     public EnrichmentDelta apply(RawProduct raw, ParsedProduct soFar) {
+        return apply(raw, soFar, new ProductText(raw));
+    }
+
+    @Override
+    public EnrichmentDelta apply(RawProduct raw, ParsedProduct soFar, ProductText text) {
         Map<String, Object> updates = new HashMap<>();
         Map<String, Double> confidence = new HashMap<>();
         Map<String, String> sources = new HashMap<>();
@@ -86,7 +101,7 @@ public class Normalizer implements EnricherStep {
             sources.put("form", "attribute");
         } else {
             // Heuristic fallback when attributes missing and evidence is unambiguous
-            String hForm = inferFormHeuristic(raw);
+            String hForm = inferFormHeuristic(raw, text);
             if (hForm != null) {
                 updates.put("form", hForm);
                 confidence.put("form", 0.6);
@@ -108,55 +123,48 @@ public class Normalizer implements EnricherStep {
         return new EnrichmentDelta(updates, confidence, sources, null);
     }
 
-    private String inferFormHeuristic(RawProduct raw) {
-        StringBuilder sb = new StringBuilder();
-        if (raw.getName() != null) sb.append(raw.getName()).append(' ');
-        if (raw.getSlug() != null) sb.append(raw.getSlug()).append(' ');
-        if (raw.getSearch_text() != null) sb.append(raw.getSearch_text());
-        String text = sb.toString().toLowerCase();
+    private String inferFormHeuristic(RawProduct raw, ProductText productText) {
+        String text = productText.lower(ProductText.Field.NAME_SLUG_SEARCH);
+        TermMatcher.Hits textHits = productText.hits(TEXT_TERMS, ProductText.Field.NAME_SLUG_SEARCH);
 
         boolean mentionsCaps = CAPS_TOKENS.matcher(text).find() || CAPS_COMPACT_TOKENS.matcher(text).find();
         boolean mentionsTabs = TABS_TOKENS.matcher(text).find();
-        boolean mentionsPulberWord = PULBER_TOKEN.matcher(text).find();
+        boolean mentionsPulberWord = textHits.contains("pulber");
         boolean hasGramsInText = GRAMS_PATTERN.matcher(text).find();
 
         boolean categorySuggestsPowder = false;
         boolean categorySuggestsCapsules = false;
         boolean categorySuggestsDrink = false;
         boolean categorySuggestsBar = false;
-        if (raw.getCategories_names() != null) {
-            for (String c : raw.getCategories_names()) {
-                String cl = c.toLowerCase();
-                if (cl.contains("kreatiin") || cl.contains("monohüdraat") || cl.contains("monohudraat")
-                    || cl.contains("üksikud aminohapped") || cl.contains("uksikud aminohapped")) {
-                    categorySuggestsPowder = true;
-                    break;
-                }
-                if (cl.contains("omega") || cl.contains("oomega") || cl.contains("vitamin") || cl.contains("vitamiin")
-                    || cl.contains("mineral") || cl.contains("rasvhape") || cl.contains("rasvhapped")) {
-                    categorySuggestsCapsules = true;
-                }
-                if (cl.contains("joog") || cl.contains("jook") || cl.contains("spordijook")) {
-                    categorySuggestsDrink = true;
-                }
-                if (cl.contains("baar") || cl.contains("batoon")) {
-                    categorySuggestsBar = true;
-                }
+        for (String c : productText.categoryNames()) {
+            TermMatcher.Hits hits = CATEGORY_TERMS.scan(c);
+            if (hits.isEmpty()) continue;
+            if (hits.containsAny(POWDER_CATEGORY_CUES)) {
+                categorySuggestsPowder = true;
+                break;
+            }
+            if (hits.containsAny(CAPSULE_CATEGORY_CUES)) {
+                categorySuggestsCapsules = true;
+            }
+            if (hits.containsAny(DRINK_CATEGORY_CUES)) {
+                categorySuggestsDrink = true;
+            }
+            if (hits.containsAny(BAR_CUES)) {
+                categorySuggestsBar = true;
             }
         }
         // Slug-based fallback as some stores rely more on slugs than names
-        if (raw.getCategories_slugs() != null) {
-            for (String s : raw.getCategories_slugs()) {
-                String sl = s.toLowerCase();
-                if (sl.contains("omega") || sl.contains("oomega") || sl.contains("vitamin") || sl.contains("vitamiin")) {
-                    categorySuggestsCapsules = true;
-                }
-                if (sl.contains("joog") || sl.contains("jook") || sl.contains("spordijoog")) {
-                    categorySuggestsDrink = true;
-                }
-                if (sl.contains("baar") || sl.contains("batoon")) {
-                    categorySuggestsBar = true;
-                }
+        for (String s : productText.categorySlugs()) {
+            TermMatcher.Hits hits = CATEGORY_TERMS.scan(s);
+            if (hits.isEmpty()) continue;
+            if (hits.containsAny(CAPSULE_SLUG_CUES)) {
+                categorySuggestsCapsules = true;
+            }
+            if (hits.containsAny(DRINK_SLUG_CUES)) {
+                categorySuggestsDrink = true;
+            }
+            if (hits.containsAny(BAR_CUES)) {
+                categorySuggestsBar = true;
             }
         }
 
@@ -194,12 +202,10 @@ public class Normalizer implements EnricherStep {
             return mentionsTabs ? "tabs" : "capsules";
         }
         // Final fallback: substring checks without word-boundary sensitivity
-        if (text.contains("softgel") || text.contains("softgels") || text.contains("caps") || text.contains("kaps")
-            || text.contains("oomega") || text.contains("omega 3") || text.contains("omega-3") || text.contains("omega")
-            || text.contains("fish oil") || text.contains("kalaõli") || text.contains("kalaoli")) {
+        if (textHits.containsAny(CAPSULE_TEXT_CUES)) {
             return "capsules";
         }
-        if (text.contains("tablet") || text.contains("tabs") || text.contains("tabletid")) {
+        if (textHits.containsAny(TABS_TEXT_CUES)) {
             return "tabs";
         }
         return null;
@@ -247,11 +253,7 @@ public class Normalizer implements EnricherStep {
         
         List<String> flavorAttrs = raw.getDynamic_attrs().get("attr_pa_maitse");
         if (flavorAttrs != null && !flavorAttrs.isEmpty()) {
-            String slug = flavorAttrs.get(0);
-            String mapped = FLAVOR_MAP.get(slug);
-            if (mapped != null) return mapped;
-            String stripped = stripLocaleSuffix(slug);
-            return FLAVOR_MAP.get(stripped);
+            return FlavorLexicon.canonicalFromSlug(flavorAttrs.get(0));
         }
         return null;
     }
@@ -0,0 +1,80 @@
+package com.irondust.search.service.enrichment;
+
+import com.irondust.search.model.RawProduct;
+import com.irondust.search.util.TermMatcher;
+
+import java.util.*;
+
+/**
+ * Lowercased text views of one raw product, built once per product and shared by the enrichment
+ * steps so each field is lowercased and scanned by a given {@link TermMatcher} at most once.
+ *
+ * <p>Not thread-safe; the pipeline creates one instance per product and uses it on a single thread.
+ */
+public final class ProductText {
+    /** The concatenations the steps match against. */
+    public enum Field {
+        /** {@code search_text}. */
+        SEARCH_TEXT,
+        /** {@code name + " " + description}. */
+        NAME_DESCRIPTION,
+        /** Name, slug and search text, each present one followed by a space. */
+        NAME_SLUG_SEARCH
+    }
+
+    private final RawProduct raw;
+    private final EnumMap<Field, String> lowered = new EnumMap<>(Field.class);
+    private final Map<TermMatcher, EnumMap<Field, TermMatcher.Hits>> hits = new IdentityHashMap<>();
+    private List<String> categoryNames;
+    private List<String> categorySlugs;
+
+    public ProductText(RawProduct raw) {
+        this.raw = raw;
+    }
+
+    public String lower(Field field) {
+        return lowered.computeIfAbsent(field, this::build);
+    }
+
+    public TermMatcher.Hits hits(TermMatcher matcher, Field field) {
+        return hits.computeIfAbsent(matcher, m -> new EnumMap<>(Field.class))
+                .computeIfAbsent(field, f -> matcher.scan(lower(f)));
+    }
+
+    /** Lowercased category names in source order; empty when absent. */
+    public List<String> categoryNames() {
+        if (categoryNames == null) categoryNames = lowerAll(raw.getCategories_names());
+        return categoryNames;
+    }
+
+    /** Lowercased category slugs in source order; empty when absent. */
+    public List<String> categorySlugs() {
+        if (categorySlugs == null) categorySlugs = lowerAll(raw.getCategories_slugs());
+        return categorySlugs;
+    }
+
+    private String build(Field field) {
+        String name = raw.getName();
+        String search = raw.getSearch_text();
+        String text = switch (field) {
+            case SEARCH_TEXT -> search != null ? search : "";
+            case NAME_DESCRIPTION -> (name != null ? name : "") + " "
+                    + (raw.getDescription() != null ? raw.getDescription() : "");
+            case NAME_SLUG_SEARCH -> {
+                StringBuilder sb = new StringBuilder();
+                if (name != null) sb.append(name).append(' ');
+                if (raw.getSlug() != null) sb.append(raw.getSlug()).append(' ');
+                if (search != null) sb.append(search);
+                yield sb.toString();
+            }
+        };
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    private static List<String> lowerAll(List<String> values) {
+        if (values == null) return List.of();
+        List<String> out = new ArrayList<>(values.size());
+        for (String v : values) out.add(v != null ? v.toLowerCase(Locale.ROOT) : "");
+        return out;
+    }
+}
@@ -3,8 +3,10 @@ package com.irondust.search.service.enrichment;
 import com.irondust.search.model.RawProduct;
 import com.irondust.search.model.ParsedProduct;
 
+import com.irondust.search.util.TermMatcher;
+
 import java.util.*;
-import java.util.regex.Pattern;
+import java.util.function.IntPredicate;
 
 public class TaxonomyParser implements EnricherStep {
     private final List<Warn> warnings = new ArrayList<>();
@@ -26,35 +28,43 @@ public class TaxonomyParser implements EnricherStep {
         "wellness", Arrays.asList("wellness", "tervis", "здоровье", "vitamin", "vitamiin")
     );
 
-    // Diet tags patterns
+    /** Every goal keyword, matched in one pass per category name and once over search text. */
+    private static final TermMatcher GOAL_TERMS = TermMatcher.of(
+        GOAL_MAPPINGS.values().stream().flatMap(List::stream).toList());
+
+    // Diet tag cues, matched against lowercased name + description
     /**
-     * Positive vegan cues across supported locales. We intentionally keep this
-     * pattern broad but rely on {@link #NEGATIVE_VEGAN_PATTERN} and explicit
+     * Positive vegan cues across supported locales ("vegan" also covers "veganii"). We
+     * intentionally keep these broad but rely on {@link #isNegatedVegan} and explicit
      * attribute checks to avoid false positives like "non-vegan".
      */
-    private static final Pattern VEGAN_PATTERN = Pattern.compile(
-        "vegan|veganii|веган", Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
-    /**
-     * Negative vegan cues to guard against false positives in descriptions.
-     * Examples: "non-vegan", "not vegan", Estonian "mitte vegan"/"ei ... vegan",
-     * Russian "не веган".
-     */
-    private static final Pattern NEGATIVE_VEGAN_PATTERN = Pattern.compile(
-        "non[-\\s]?vegan|not[-\\s]?vegan|mitte[-\\s]?vegan|ei[^\n\r]{0,20}vegan|не[^\n\r]{0,20}веган",
-        Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+    private static final List<String> VEGAN_CUES = List.of("vegan", "веган");
     /**
      * Strong non-vegan product cues. If these appear in name/description and
      * there is no explicit positive vegan attribute, we avoid assigning vegan.
      */
-    private static final Pattern DAIRY_CUES_PATTERN = Pattern.compile(
-        "whey|casein|milk|dairy|lactose|gelatin|gelatine|collagen",
-        Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
-    private static final Pattern GLUTEN_FREE_PATTERN = Pattern.compile(
-        "gluteenivaba|gluten.?free|без глютена", Pattern.CASE_INSENSITIVE);
-    private static final Pattern LACTOSE_FREE_PATTERN = Pattern.compile(
-        "laktoosivaba|lactose.?free|без лактозы", Pattern.CASE_INSENSITIVE);
-    private static final Pattern SUGAR_FREE_PATTERN = Pattern.compile(
-        "sugar.?free|без сахара|suhkruvaba", Pattern.CASE_INSENSITIVE);
+    private static final List<String> DAIRY_CUES = List.of(
+        "whey", "casein", "milk", "dairy", "lactose", "gelatin", "gelatine", "collagen");
+    private static final List<String> GLUTEN_FREE_CUES = List.of("gluteenivaba", "без глютена");
+    private static final List<String> LACTOSE_FREE_CUES = List.of("laktoosivaba", "без лактозы");
+    private static final List<String> SUGAR_FREE_CUES = List.of("без сахара", "suhkruvaba");
+    /** Words that only matter in proximity to another cue ("gluten free", "not vegan", ...). */
+    private static final List<String> PROXIMITY_WORDS = List.of(
+        "gluten", "sugar", "free", "non", "not", "mitte", "ei", "не");
+
+    private static final TermMatcher DIET_TERMS = TermMatcher.of(
+        java.util.stream.Stream.of(VEGAN_CUES, DAIRY_CUES, GLUTEN_FREE_CUES, LACTOSE_FREE_CUES,
+                SUGAR_FREE_CUES, PROXIMITY_WORDS)
+            .flatMap(List::stream).toList());
+
+    /** Regex {@code .}: any char but a line terminator. */
+    private static final IntPredicate ANY_IN_LINE = c ->
+        c != '\n' && c != '\r' && c != '\u0085' && c != '\u2028' && c != '\u2029';
+    /** Regex {@code [-\s]}. */
+    private static final IntPredicate HYPHEN_OR_SPACE = c ->
+        c == '-' || c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    /** Regex {@code [^\n\r]}. */
+    private static final IntPredicate NOT_NEWLINE = c -> c != '\n' && c != '\r';
 
     @Override
     public boolean supports(RawProduct raw) {
@@ -63,12 +73,17 @@ public class TaxonomyParser implements EnricherStep {
 
     @Override
     public EnrichmentDelta apply(RawProduct raw, ParsedProduct soFar) {
+        return apply(raw, soFar, new ProductText(raw));
+    }
+
+    @Override
+    public EnrichmentDelta apply(RawProduct raw, ParsedProduct soFar, ProductText text) {
         Map<String, Object> updates = new HashMap<>();
         Map<String, Double> confidence = new HashMap<>();
         Map<String, String> sources = new HashMap<>();
 
         // Parse goal tags
-        List<String> goalTags = parseGoalTags(raw);
+        List<String> goalTags = parseGoalTags(raw, text);
         if (!goalTags.isEmpty()) {
             updates.put("goal_tags", goalTags);
             confidence.put("goal_tags", 0.8);
@@ -112,7 +127,7 @@ public class TaxonomyParser implements EnricherStep {
         }
 
         // Parse diet tags
-        List<String> dietTags = parseDietTags(raw);
+        List<String> dietTags = parseDietTags(raw, text);
         if (!dietTags.isEmpty()) {
             updates.put("diet_tags", dietTags);
             confidence.put("diet_tags", 0.9);
@@ -122,34 +137,16 @@ public class TaxonomyParser implements EnricherStep {
         return new EnrichmentDelta(updates, confidence, sources, null);
     }
 
-    private List<String> parseGoalTags(RawProduct raw) {
+    private List<String> parseGoalTags(RawProduct raw, ProductText text) {
         Set<String> goals = new HashSet<>();
-        String searchText = (raw.getSearch_text() != null ? raw.getSearch_text() : "").toLowerCase();
 
         // Check categories
-        if (raw.getCategories_names() != null) {
-            for (String category : raw.getCategories_names()) {
-                String catLower = category.toLowerCase();
-                for (Map.Entry<String, List<String>> entry : GOAL_MAPPINGS.entrySet()) {
-                    for (String keyword : entry.getValue()) {
-                        if (catLower.contains(keyword)) {
-                            goals.add(entry.getKey());
-                            break;
-                        }
-                    }
-                }
-            }
+        for (String category : text.categoryNames()) {
+            addGoals(GOAL_TERMS.scan(category), goals);
         }
 
         // Check search text
-        for (Map.Entry<String, List<String>> entry : GOAL_MAPPINGS.entrySet()) {
-            for (String keyword : entry.getValue()) {
-                if (searchText.contains(keyword)) {
-                    goals.add(entry.getKey());
-                    break;
-                }
-            }
-        }
+        addGoals(text.hits(GOAL_TERMS, ProductText.Field.SEARCH_TEXT), goals);
 
         // Check dynamic attributes for goal-related intent (e.g., attr_pa_milleks)
         if (raw.getDynamic_attrs() != null) {
@@ -181,11 +178,18 @@ public class TaxonomyParser implements EnricherStep {
         return new ArrayList<>(goals);
     }
 
-    private List<String> parseDietTags(RawProduct raw) {
+    private static void addGoals(TermMatcher.Hits hits, Set<String> goals) {
+        if (hits.isEmpty()) return;
+        for (Map.Entry<String, List<String>> entry : GOAL_MAPPINGS.entrySet()) {
+            if (hits.containsAny(entry.getValue())) {
+                goals.add(entry.getKey());
+            }
+        }
+    }
+
+    private List<String> parseDietTags(RawProduct raw, ProductText text) {
         Set<String> diets = new HashSet<>();
-        String name = raw.getName() != null ? raw.getName() : "";
-        String desc = raw.getDescription() != null ? raw.getDescription() : "";
-        String text = (name + " " + desc);
+        TermMatcher.Hits hits = text.hits(DIET_TERMS, ProductText.Field.NAME_DESCRIPTION);
 
         // 1) Explicit attributes take precedence
         boolean attrVeganYes = false;
@@ -209,27 +213,40 @@ public class TaxonomyParser implements EnricherStep {
             diets.add("vegan");
         } else {
             // 2) Text cues from name/description (guarded by negative and dairy cues)
-            if (!NEGATIVE_VEGAN_PATTERN.matcher(text).find()
-                    && !DAIRY_CUES_PATTERN.matcher(text).find()
-                    && VEGAN_PATTERN.matcher(text).find()) {
+            if (!isNegatedVegan(hits)
+                    && !hits.containsAny(DAIRY_CUES)
+                    && hits.containsAny(VEGAN_CUES)) {
                 diets.add("vegan");
             }
         }
 
         // Other diet cues from text (independent of vegan logic)
-        if (GLUTEN_FREE_PATTERN.matcher(text).find()) {
+        if (hits.containsAny(GLUTEN_FREE_CUES) || hits.followedBy("gluten", "free", 1, ANY_IN_LINE)) {
             diets.add("gluten_free");
         }
-        if (LACTOSE_FREE_PATTERN.matcher(text).find()) {
+        if (hits.containsAny(LACTOSE_FREE_CUES) || hits.followedBy("lactose", "free", 1, ANY_IN_LINE)) {
             diets.add("lactose_free");
         }
-        if (SUGAR_FREE_PATTERN.matcher(text).find()) {
+        if (hits.containsAny(SUGAR_FREE_CUES) || hits.followedBy("sugar", "free", 1, ANY_IN_LINE)) {
             diets.add("sugar_free");
         }
 
         return new ArrayList<>(diets);
     }
 
+    /**
+     * Negative vegan cues to guard against false positives in descriptions.
+     * Examples: "non-vegan", "not vegan", Estonian "mitte vegan"/"ei ... vegan",
+     * Russian "не веган".
+     */
+    private static boolean isNegatedVegan(TermMatcher.Hits hits) {
+        return hits.followedBy("non", "vegan", 1, HYPHEN_OR_SPACE)
+            || hits.followedBy("not", "vegan", 1, HYPHEN_OR_SPACE)
+            || hits.followedBy("mitte", "vegan", 1, HYPHEN_OR_SPACE)
+            || hits.followedBy("ei", "vegan", 20, NOT_NEWLINE)
+            || hits.followedBy("не", "веган", 20, NOT_NEWLINE);
+    }
+
     @Override
     public List<Warn> getWarnings() {
         return warnings;
@@ -0,0 +1,168 @@
+package com.irondust.search.service.suggest;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable in-memory prefix index for typeahead.
+ *
+ * <p>Keys are normalized (lower-cased, diacritics folded) and kept in one sorted array, so a prefix
+ * lookup is two binary searches plus a scan of the matching key range. Every suggestion is indexed
+ * under its full text and under each later word start ("whey protein" also matches "prot").
+ * Optional fuzzy lookup tries all prefixes within edit distance 1, built from characters that occur in
+ * the index.
+ */
+public final class SuggestIndex {
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final int MAX_KEY_CHARS = 48;
+    private static final int MIN_FUZZY_PREFIX = 3;
+
+    /** One suggestion; {@code id} is set for product suggestions. */
+    public record Suggestion(String text, String type, String id, double score) {}
+
+    private final String[] keys;
+    private final int[] entryOfKey;
+    private final Suggestion[] entries;
+    private final char[] alphabet;
+
+    private SuggestIndex(String[] keys, int[] entryOfKey, Suggestion[] entries, char[] alphabet) {
+        this.keys = keys;
+        this.entryOfKey = entryOfKey;
+        this.entries = entries;
+        this.alphabet = alphabet;
+    }
+
+    public static SuggestIndex empty() {
+        return new SuggestIndex(new String[0], new int[0], new Suggestion[0], new char[0]);
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * Best suggestions whose text (or one of its later words) starts with {@code prefix}, ranked by score.
+     * With {@code fuzzy}, prefixes of 3+ characters also match within one edit when exact matches
+     * do not fill {@code limit}.
+     */
+    public List<Suggestion> lookup(String prefix, int limit, boolean fuzzy) {
+        String p = normalize(prefix);
+        if (p.isEmpty() || limit <= 0 || keys.length == 0) return List.of();
+        BitSet seen = new BitSet(entries.length);
+        collect(p, seen);
+        if (fuzzy && seen.cardinality() < limit && p.length() >= MIN_FUZZY_PREFIX) {
+            for (String variant : editsOf(p)) collect(variant, seen);
+        }
+        PriorityQueue<Suggestion> best = new PriorityQueue<>(Comparator.comparingDouble(Suggestion::score));
+        for (int i = seen.nextSetBit(0); i >= 0; i = seen.nextSetBit(i + 1)) {
+            Suggestion s = entries[i];
+            if (best.size() < limit) {
+                best.add(s);
+            } else if (s.score() > best.peek().score()) {
+                best.poll();
+                best.add(s);
+            }
+        }
+        List<Suggestion> out = new ArrayList<>(best);
+        out.sort((a, b) -> Double.compare(b.score(), a.score()));
+        return out;
+    }
+
+    private void collect(String prefix, BitSet seen) {
+        int lo = lowerBound(prefix);
+        for (int i = lo; i < keys.length && keys[i].startsWith(prefix); i++) {
+            seen.set(entryOfKey[i]);
+        }
+    }
+
+    private int lowerBound(String key) {
+        int lo = 0, hi = keys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid].compareTo(key) < 0) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    /** Deletions, substitutions, insertions and adjacent transpositions of {@code p}. */
+    private Set<String> editsOf(String p) {
+        Set<String> out = new LinkedHashSet<>();
+        StringBuilder sb = new StringBuilder(p.length() + 1);
+        for (int i = 0; i < p.length(); i++) {
+            out.add(p.substring(0, i) + p.substring(i + 1));
+            if (i + 1 < p.length()) {
+                sb.setLength(0);
+                sb.append(p, 0, i).append(p.charAt(i + 1)).append(p.charAt(i)).append(p, i + 2, p.length());
+                out.add(sb.toString());
+            }
+            for (char c : alphabet) {
+                if (c != p.charAt(i)) out.add(p.substring(0, i) + c + p.substring(i + 1));
+                out.add(p.substring(0, i) + c + p.substring(i));
+            }
+        }
+        out.remove(p);
+        out.removeIf(v -> v.length() < MIN_FUZZY_PREFIX - 1);
+        return out;
+    }
+
+    /** Lower-cases, folds diacritics and collapses whitespace. */
+    public static String normalize(String s) {
+        if (s == null) return "";
+        String n = Normalizer.normalize(s, Normalizer.Form.NFD);
+        n = MARKS.matcher(n).replaceAll("");
+        return n.toLowerCase(Locale.ROOT).replaceAll("\\s+", " ").trim();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Accumulates suggestions; the same normalized text added twice keeps the higher-scored entry.
+     */
+    public static final class Builder {
+        private final Map<String, Suggestion> byText = new HashMap<>();
+
+        public Builder add(String text, String type, String id, double score) {
+            if (text == null || text.isBlank()) return this;
+            String display = text.trim();
+            String norm = normalize(display);
+            if (norm.isEmpty()) return this;
+            Suggestion prev = byText.get(norm);
+            if (prev == null || score > prev.score()) byText.put(norm, new Suggestion(display, type, id, score));
+            return this;
+        }
+
+        public SuggestIndex build() {
+            Suggestion[] entries = byText.values().toArray(new Suggestion[0]);
+            List<String> keyList = new ArrayList<>();
+            List<Integer> owners = new ArrayList<>();
+            Set<Character> chars = new TreeSet<>();
+            for (int e = 0; e < entries.length; e++) {
+                String norm = normalize(entries[e].text());
+                for (int i = 0; i < norm.length(); i++) {
+                    if (i == 0 || norm.charAt(i - 1) == ' ') {
+                        String key = norm.substring(i, Math.min(norm.length(), i + MAX_KEY_CHARS));
+                        keyList.add(key);
+                        owners.add(e);
+                    }
+                    chars.add(norm.charAt(i));
+                }
+            }
+            Integer[] order = new Integer[keyList.size()];
+            for (int i = 0; i < order.length; i++) order[i] = i;
+            Arrays.sort(order, Comparator.comparing(keyList::get));
+            String[] keys = new String[order.length];
+            int[] entryOfKey = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                keys[i] = keyList.get(order[i]);
+                entryOfKey[i] = owners.get(order[i]);
+            }
+            char[] alphabet = new char[chars.size()];
+            int k = 0;
+            for (Character c : chars) alphabet[k++] = c;
+            return new SuggestIndex(keys, entryOfKey, entries, alphabet);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.irondust.search.service.suggest;
+
+import com.irondust.search.config.AppProperties;
+import com.irondust.search.model.ProductDoc;
+import com.irondust.search.service.LanguageProjection;
+import com.irondust.search.service.MeiliService;
+import com.irondust.search.service.TranslationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.*;
+
+/**
+ * Typeahead over per-language {@link SuggestIndex} snapshots held in memory. Queries never touch
+ * Meilisearch; the snapshots are built from the base index at startup and rebuilt after every ingest.
+ *
+ * <p>Suggestions cover product titles, brands, categories and AI synonyms. Products are scored by
+ * popularity (review count and rating) with out-of-stock items damped; brands and categories inherit
+ * the summed popularity of their products.
+ */
+@Service
+public class SuggestService {
+    private static final Logger log = LoggerFactory.getLogger(SuggestService.class);
+
+    public static final String TYPE_PRODUCT = "product";
+    public static final String TYPE_BRAND = "brand";
+    public static final String TYPE_CATEGORY = "category";
+    public static final String TYPE_SYNONYM = "synonym";
+
+    static final String SNAPSHOT_FIELDS = String.join(",", List.of(
+            "id", "name", "name_i18n", "display_title", "brand_name", "categories_names", "categories_names_i18n",
+            "synonyms_en", "synonyms_ru", "synonyms_et", "in_stock", "rating", "review_count"));
+
+    private final MeiliService meiliService;
+    private final AppProperties appProperties;
+
+    /** Last catalog snapshot, kept so targeted ingests can rebuild without re-reading the index. */
+    private volatile Map<String, Map<String, Object>> catalog = Map.of();
+    private volatile Map<String, SuggestIndex> indexes = Map.of();
+
+    public SuggestService(MeiliService meiliService, AppProperties appProperties) {
+        this.meiliService = meiliService;
+        this.appProperties = appProperties;
+    }
+
+    /**
+     * Suggestions for a typed prefix, best first. Unknown or missing languages use the Estonian index.
+     */
+    public List<SuggestIndex.Suggestion> suggest(String prefix, String lang, int limit, boolean fuzzy) {
+        Map<String, SuggestIndex> current = indexes;
+        SuggestIndex idx = current.get(lang);
+        if (idx == null) idx = current.getOrDefault(TranslationService.LANG_EST, SuggestIndex.empty());
+        return idx.lookup(prefix, limit, fuzzy);
+    }
+
+    public boolean isReady() {
+        return !indexes.isEmpty();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        reloadFromIndex().subscribe();
+    }
+
+    /** Rebuilds all snapshots from the documents stored in the base index. */
+    public Mono<Integer> reloadFromIndex() {
+        return meiliService.streamDocuments(appProperties.getIndexName(), SNAPSHOT_FIELDS)
+                .collectList()
+                .flatMap(docs -> {
+                    Map<String, Map<String, Object>> byId = new LinkedHashMap<>();
+                    for (Map<String, Object> d : docs) byId.put(String.valueOf(d.get("id")), d);
+                    return rebuild(byId);
+                })
+                .onErrorResume(e -> {
+                    log.warn("Suggest snapshot load failed (typeahead empty until next ingest): {}", e.toString());
+                    return Mono.just(0);
+                });
+    }
+
+    /** Replaces the snapshots with ones built from a freshly ingested full catalog. */
+    public Mono<Integer> rebuildFromDocs(List<ProductDoc> docs) {
+        Map<String, Map<String, Object>> byId = new LinkedHashMap<>();
+        for (ProductDoc d : docs) byId.put(d.getId(), toBasic(d));
+        return rebuild(byId);
+    }
+
+    /** Merges the changed documents into the last snapshot and rebuilds. */
+    public Mono<Integer> rebuildWithChanged(List<ProductDoc> changed) {
+        Mono<Integer> base = catalog.isEmpty() ? reloadFromIndex() : Mono.just(catalog.size());
+        return base.flatMap(n -> {
+            Map<String, Map<String, Object>> byId = new LinkedHashMap<>(catalog);
+            for (ProductDoc d : changed) byId.put(d.getId(), toBasic(d));
+            return rebuild(byId);
+        });
+    }
+
+    private Mono<Integer> rebuild(Map<String, Map<String, Object>> byId) {
+        return Mono.fromCallable(() -> {
+                    long t0 = System.currentTimeMillis();
+                    Map<String, SuggestIndex> built = new HashMap<>();
+                    for (String lang : TranslationService.SUPPORTED_LANGUAGES) {
+                        built.put(lang, build(byId.values(), lang));
+                    }
+                    catalog = byId;
+                    indexes = built;
+                    log.info("Suggest snapshots rebuilt: products={} entries={} took={}ms", byId.size(),
+                            built.get(TranslationService.LANG_EST).size(), System.currentTimeMillis() - t0);
+                    return byId.size();
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(e -> {
+                    log.warn("Suggest rebuild failed (keeping previous snapshots): {}", e.toString());
+                    return Mono.just(0);
+                });
+    }
+
+    /**
+     * Builds one language's index. The base (Estonian) name is also indexed at a lower weight for the
+     * other languages since shoppers often type the name printed on the package.
+     */
+    static SuggestIndex build(Collection<Map<String, Object>> docs, String lang) {
+        SuggestIndex.Builder b = SuggestIndex.builder();
+        Map<String, Double> brands = new HashMap<>();
+        Map<String, Double> categories = new HashMap<>();
+        String synonymsField = LanguageProjection.synonymsField(lang);
+        for (Map<String, Object> d : docs) {
+            String id = String.valueOf(d.get("id"));
+            double pop = popularity(d);
+            double score = (1.0 + pop) * (Boolean.FALSE.equals(d.get("in_stock")) ? 0.5 : 1.0);
+
+            String localizedName = localized(d, "name_i18n", lang) instanceof String s ? s : null;
+            if (localizedName != null) {
+                b.add(localizedName, TYPE_PRODUCT, id, score);
+                b.add(str(d.get("name")), TYPE_PRODUCT, id, score * 0.6);
+            } else {
+                b.add(str(d.get("name")), TYPE_PRODUCT, id, score);
+            }
+            b.add(str(d.get("display_title")), TYPE_PRODUCT, id, score * 0.9);
+
+            String brand = str(d.get("brand_name"));
+            if (brand != null && !brand.isBlank()) brands.merge(brand.trim(), pop, Double::sum);
+
+            Object cats = localized(d, "categories_names_i18n", lang);
+            for (String c : list(cats != null ? cats : d.get("categories_names"))) {
+                if (!c.isBlank()) categories.merge(c.trim(), pop, Double::sum);
+            }
+            for (String syn : list(d.get(synonymsField))) {
+                b.add(syn, TYPE_SYNONYM, null, score * 0.5);
+            }
+        }
+        // Brands and categories outrank single products with the same prefix once they have a few popular items
+        brands.forEach((name, pop) -> b.add(name, TYPE_BRAND, null, 1.5 + 1.2 * Math.log1p(pop)));
+        categories.forEach((name, pop) -> b.add(name, TYPE_CATEGORY, null, 1.2 + Math.log1p(pop)));
+        return b.build();
+    }
+
+    /** Reviews (log-scaled) plus rating scaled to 0..1. */
+    static double popularity(Map<String, Object> d) {
+        double rating = d.get("rating") instanceof Number n ? n.doubleValue() : 0.0;
+        double reviews = d.get("review_count") instanceof Number n ? n.doubleValue() : 0.0;
+        return Math.log1p(Math.max(0.0, reviews)) + Math.max(0.0, Math.min(1.0, rating / 5.0));
+    }
+
+    private static Object localized(Map<String, Object> d, String i18nKey, String lang) {
+        return d.get(i18nKey) instanceof Map<?, ?> m ? m.get(lang) : null;
+    }
+
+    private static List<String> list(Object v) {
+        if (!(v instanceof List<?> l)) return List.of();
+        List<String> out = new ArrayList<>(l.size());
+        for (Object o : l) if (o != null) out.add(String.valueOf(o));
+        return out;
+    }
+
+    private static String str(Object v) {
+        return v instanceof String s ? s : null;
+    }
+
+    private static Map<String, Object> toBasic(ProductDoc d) {
+        Map<String, Object> m = new HashMap<>();
+        m.put("id", d.getId());
+        m.put("name", d.getName());
+        m.put("name_i18n", d.getName_i18n());
+        m.put("display_title", d.getDisplay_title());
+        m.put("brand_name", d.getBrand_name());
+        m.put("categories_names", d.getCategories_names());
+        m.put("categories_names_i18n", d.getCategories_names_i18n());
+        m.put("synonyms_en", d.getSynonyms_en());
+        m.put("synonyms_ru", d.getSynonyms_ru());
+        m.put("synonyms_et", d.getSynonyms_et());
+        m.put("in_stock", d.getIn_stock());
+        m.put("rating", d.getRating());
+        m.put("review_count", d.getReview_count());
+        return m;
+    }
+}
@@ -0,0 +1,202 @@
+package com.irondust.search.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Adaptive (AIMD) concurrency limit for one ingest stage.
+ *
+ * <p>Calls go through {@link #execute}, which waits for a slot while {@code limit} calls are in
+ * flight. The limit grows by one per {@code limit} successful calls that found the stage busy
+ * (additive increase) and shrinks on overload (multiplicative decrease):
+ * <ul>
+ *   <li>a call failing with HTTP 429/503 or a timeout, or {@link #onOverload()} (wired to OpenAI
+ *       429s, which calls report without failing) — limit × {@value #DROP_BACKOFF};</li>
+ *   <li>latency gradient: the short-term average call time exceeding {@value #LATENCY_TOLERANCE}×
+ *       the long-term average — limit × {@value #LATENCY_BACKOFF}.</li>
+ * </ul>
+ * Decreases are applied at most once per short-term call time, so a burst of failures from calls
+ * started under the old limit counts as one signal. Averages compare a stage with itself, so a mix
+ * of fast cache hits and slow backend calls does not look like a slowdown unless the mix shifts.
+ *
+ * <p>The current limit is exported as {@code irondust.ingest.concurrency.limit} (tag {@code stage})
+ * and decreases are counted under {@code irondust.ingest.concurrency.backoffs}.
+ */
+public final class AdaptiveLimiter {
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveLimiter.class);
+
+    static final double DROP_BACKOFF = 0.5;
+    static final double LATENCY_BACKOFF = 0.9;
+    static final double LATENCY_TOLERANCE = 2.0;
+    private static final double SHORT_ALPHA = 0.2;
+    private static final double LONG_ALPHA = 0.02;
+    /** Samples before the latency gradient is trusted. */
+    private static final int WARMUP_SAMPLES = 20;
+    /** Below this short-term call time (cache hits, local work) latency is not a backend signal. */
+    private static final long MIN_GRADIENT_RTT_NANOS = 5_000_000L;
+    private static final long MIN_DECREASE_INTERVAL_NANOS = 100_000_000L;
+    /** Marks a call cancelled by its caller: frees the slot without counting as success or overload. */
+    private static final Throwable CANCELLED = new Throwable("cancelled", null, false, false) {};
+
+    private final String stage;
+    private final int min;
+    private final int max;
+    /** Queued calls; each starts itself, owning the slot it was granted. */
+    private final Deque<Runnable> waiters = new ArrayDeque<>();
+
+    // Guarded by this
+    private double limit;
+    private int inFlight;
+    private double shortRttNanos;
+    private double longRttNanos;
+    private long samples;
+    private long lastDecreaseNanos;
+
+    /** Fixed limit: no adaptation, just a gate of {@code limit} concurrent calls. */
+    public static AdaptiveLimiter fixed(String stage, int limit) {
+        return new AdaptiveLimiter(stage, limit, limit, limit);
+    }
+
+    public AdaptiveLimiter(String stage, int initial, int min, int max) {
+        this.stage = stage;
+        this.min = Math.max(1, min);
+        this.max = Math.max(this.min, max);
+        this.limit = Math.max(this.min, Math.min(this.max, initial));
+        this.lastDecreaseNanos = System.nanoTime() - MIN_DECREASE_INTERVAL_NANOS;
+        AppMetrics.concurrencyLimit(stage, this, AdaptiveLimiter::limit);
+    }
+
+    /** Runs {@code call} once a slot is free; its outcome and duration feed the limit. */
+    public <T> Mono<T> execute(Supplier<Mono<T>> call) {
+        return Mono.create(sink -> {
+            Runnable start = () -> {
+                long t0 = System.nanoTime();
+                AtomicBoolean released = new AtomicBoolean();
+                Disposable d = Mono.defer(call)
+                        .doOnSuccess(v -> { if (released.compareAndSet(false, true)) release(t0, null); })
+                        .doOnError(e -> { if (released.compareAndSet(false, true)) release(t0, e); })
+                        .doOnCancel(() -> { if (released.compareAndSet(false, true)) release(t0, CANCELLED); })
+                        // The call is subscribed here, not by the caller: hand it the caller's context
+                        .contextWrite(sink.contextView())
+                        .subscribe(sink::success, sink::error, sink::success);
+                // Disposes the call when the caller cancels, also if it already has
+                sink.onDispose(d);
+            };
+            boolean startNow;
+            synchronized (this) {
+                startNow = inFlight < (int) limit;
+                if (startNow) inFlight++;
+                else waiters.addLast(start);
+            }
+            if (startNow) {
+                start.run();
+            } else {
+                sink.onCancel(() -> {
+                    synchronized (this) {
+                        waiters.remove(start);
+                    }
+                });
+            }
+        });
+    }
+
+    /** Overload reported outside a call's outcome, e.g. a 429 the caller turned into an empty result. */
+    public void onOverload() {
+        decrease(DROP_BACKOFF, "rate_limited");
+    }
+
+    public synchronized int limit() {
+        return (int) limit;
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    public String stage() {
+        return stage;
+    }
+
+    private void release(long startNanos, Throwable error) {
+        long rtt = System.nanoTime() - startNanos;
+        if (error == null) {
+            onSuccess(rtt);
+        } else if (isOverload(error)) {
+            decrease(DROP_BACKOFF, error instanceof TimeoutException ? "timeout" : "rate_limited");
+        }
+        synchronized (this) {
+            inFlight--;
+        }
+        grantWaiters();
+    }
+
+    private void onSuccess(long rttNanos) {
+        boolean slow;
+        synchronized (this) {
+            samples++;
+            shortRttNanos = samples == 1 ? rttNanos : shortRttNanos + SHORT_ALPHA * (rttNanos - shortRttNanos);
+            longRttNanos = samples == 1 ? rttNanos : longRttNanos + LONG_ALPHA * (rttNanos - longRttNanos);
+            slow = samples > WARMUP_SAMPLES && shortRttNanos > MIN_GRADIENT_RTT_NANOS
+                    && shortRttNanos > LATENCY_TOLERANCE * longRttNanos;
+            // Grow only when the limit is what holds the stage back
+            if (!slow && inFlight >= (int) limit) {
+                limit = Math.min(max, limit + 1.0 / limit);
+            }
+        }
+        if (slow) decrease(LATENCY_BACKOFF, "latency");
+    }
+
+    private void decrease(double factor, String reason) {
+        int before;
+        int after;
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (now - lastDecreaseNanos < Math.max(MIN_DECREASE_INTERVAL_NANOS, (long) shortRttNanos)) return;
+            lastDecreaseNanos = now;
+            before = (int) limit;
+            limit = Math.max(min, limit * factor);
+            after = (int) limit;
+            // Let the long-term average absorb the new level so one slowdown is not counted twice
+            if ("latency".equals(reason)) longRttNanos = shortRttNanos;
+        }
+        AppMetrics.count(AppMetrics.INGEST_CONCURRENCY_BACKOFFS, "stage", stage, "reason", reason);
+        if (after != before) log.info("Ingest stage {} concurrency {} → {} ({})", stage, before, after, reason);
+    }
+
+    /** Starts waiting calls while the limit has room; runs them outside the lock. */
+    private void grantWaiters() {
+        while (true) {
+            Runnable next;
+            synchronized (this) {
+                if (inFlight >= (int) limit) return;
+                next = waiters.pollFirst();
+                if (next == null) return;
+                inFlight++;
+            }
+            next.run();
+        }
+    }
+
+    static boolean isOverload(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof TimeoutException) return true;
+            if (t instanceof WebClientResponseException w) {
+                int status = w.getStatusCode().value();
+                if (status == 429 || status == 503) return true;
+            }
+            String msg = t.getMessage();
+            if (msg != null && (msg.contains(" 429") || msg.contains(" 503"))) return true;
+            if (t.getCause() == t) break;
+        }
+        return false;
+    }
+}
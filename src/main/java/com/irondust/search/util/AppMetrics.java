@@ -0,0 +1,150 @@
+package com.irondust.search.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import java.util.regex.Pattern;
+
+/**
+ * Process-wide Micrometer instrumentation helpers.
+ *
+ * <p>Meters are registered on {@link Metrics#globalRegistry}, which Spring Boot binds to the Prometheus
+ * registry served at {@code /actuator/prometheus}. Going through the global registry lets static
+ * utilities ({@link OpenAiRateLimiter}, {@link TokenAccounting}) and non-bean classes (enrichment steps)
+ * record metrics without wiring; outside Spring (unit tests) the meters are no-ops.
+ *
+ * <p>Meter names (Prometheus adds {@code _seconds}/{@code _total} suffixes):
+ * <ul>
+ *   <li>{@code irondust.backend.requests} timer — tags {@code backend}, {@code operation}, {@code outcome}</li>
+ *   <li>{@code irondust.enrichment.step} timer — tag {@code step}</li>
+ *   <li>{@code irondust.openai.ratelimiter.wait} timer</li>
+ *   <li>{@code irondust.openai.tokens} counter — tags {@code model}, {@code type}</li>
+ *   <li>{@code irondust.openai.inflight.shared} counter — tag {@code call}</li>
+ *   <li>{@code irondust.cache.requests} counter — tags {@code cache}, {@code result} (hit/miss);
+ *       {@code irondust.cache.size} gauge — tag {@code cache}</li>
+ *   <li>{@code irondust.search.escalations}, {@code irondust.hybrid.vector.fallbacks},
+ *       {@code irondust.ingest.products} counters</li>
+ *   <li>{@code irondust.ingest.concurrency.limit} gauge — tag {@code stage};
+ *       {@code irondust.ingest.concurrency.backoffs} counter — tags {@code stage}, {@code reason}</li>
+ *   <li>{@code irondust.ingest.deadline.exceeded} counter — tag {@code stage}</li>
+ * </ul>
+ */
+public final class AppMetrics {
+    public static final String BACKEND_REQUESTS = "irondust.backend.requests";
+    public static final String ENRICHMENT_STEP = "irondust.enrichment.step";
+    public static final String RATE_LIMITER_WAIT = "irondust.openai.ratelimiter.wait";
+    public static final String OPENAI_TOKENS = "irondust.openai.tokens";
+    public static final String OPENAI_INFLIGHT_SHARED = "irondust.openai.inflight.shared";
+    public static final String CACHE_REQUESTS = "irondust.cache.requests";
+    public static final String CACHE_SIZE = "irondust.cache.size";
+    public static final String SEARCH_ESCALATIONS = "irondust.search.escalations";
+    public static final String HYBRID_VECTOR_FALLBACKS = "irondust.hybrid.vector.fallbacks";
+    public static final String INGEST_PRODUCTS = "irondust.ingest.products";
+    public static final String INGEST_CONCURRENCY_LIMIT = "irondust.ingest.concurrency.limit";
+    public static final String INGEST_CONCURRENCY_BACKOFFS = "irondust.ingest.concurrency.backoffs";
+    public static final String INGEST_DEADLINE_EXCEEDED = "irondust.ingest.deadline.exceeded";
+    public static final String INGEST_PROJECTION_FAILURES = "irondust.ingest.projection.failures";
+
+    /** Path segments whose successor is an identifier (index uid, collection name, task id). */
+    private static final Set<String> ID_PARENTS = Set.of("indexes", "collections", "tasks", "keys");
+    /** Meili sub-resources under {@code /documents} that are not document ids. */
+    private static final Set<String> DOCUMENT_ACTIONS = Set.of("fetch", "delete", "delete-batch");
+    private static final Pattern API_VERSION = Pattern.compile("v\\d+");
+
+    private static final MeterRegistry REGISTRY = Metrics.globalRegistry;
+
+    private AppMetrics() {}
+
+    /**
+     * WebClient filter timing every exchange (until response headers arrive) of one backend. The
+     * operation tag is the method plus the request path with identifiers replaced by {@code {}}, so
+     * the tag set stays bounded.
+     */
+    public static ExchangeFilterFunction backendFilter(String backend) {
+        return (request, next) -> {
+            long t0 = System.nanoTime();
+            String op = operation(request.method().name(), request.url().getPath());
+            return next.exchange(request)
+                    .doOnNext(resp -> recordBackend(backend, op, outcome(resp.statusCode().value()), System.nanoTime() - t0))
+                    .doOnError(e -> recordBackend(backend, op, "error", System.nanoTime() - t0))
+                    .doOnCancel(() -> recordBackend(backend, op, "cancelled", System.nanoTime() - t0));
+        };
+    }
+
+    /** Records one backend call; used directly by callers on the JDK HttpClient. */
+    public static void recordBackend(String backend, String operation, String outcome, long nanos) {
+        Timer.builder(BACKEND_REQUESTS)
+                .tags("backend", backend, "operation", operation, "outcome", outcome)
+                .publishPercentileHistogram()
+                .register(REGISTRY)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public static String outcome(int status) {
+        if (status >= 500) return "server_error";
+        if (status == 429) return "rate_limited";
+        if (status >= 400) return "client_error";
+        return "success";
+    }
+
+    static String operation(String method, String path) {
+        StringBuilder sb = new StringBuilder(method).append(' ');
+        String prev = "";
+        boolean any = false;
+        for (String seg : path.split("/")) {
+            if (seg.isEmpty()) continue;
+            boolean id = ID_PARENTS.contains(prev)
+                    || ("documents".equals(prev) && !DOCUMENT_ACTIONS.contains(seg))
+                    || (!API_VERSION.matcher(seg).matches() && seg.chars().anyMatch(Character::isDigit));
+            sb.append('/').append(id ? "{}" : seg);
+            prev = seg;
+            any = true;
+        }
+        if (!any) sb.append('/');
+        return sb.toString();
+    }
+
+    /** Records one enrichment step, also in the current run's accounting (see {@link TokenAccounting#current()}). */
+    public static void recordStep(String step, long nanos) {
+        Timer.builder(ENRICHMENT_STEP).tag("step", step).register(REGISTRY).record(nanos, TimeUnit.NANOSECONDS);
+        TokenAccounting run = TokenAccounting.current();
+        if (run != null) run.addStep(step, nanos);
+    }
+
+    public static void recordRateLimiterWait(long nanos) {
+        Timer.builder(RATE_LIMITER_WAIT).publishPercentileHistogram().register(REGISTRY).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public static void countTokens(String model, String type, long tokens) {
+        if (tokens <= 0) return;
+        Counter.builder(OPENAI_TOKENS).tags("model", model, "type", type).register(REGISTRY).increment(tokens);
+    }
+
+    /** Records one cache lookup, also in the current run's accounting (see {@link TokenAccounting#current()}). */
+    public static void cacheAccess(String cache, boolean hit) {
+        Counter.builder(CACHE_REQUESTS).tags("cache", cache, "result", hit ? "hit" : "miss").register(REGISTRY).increment();
+        TokenAccounting run = TokenAccounting.current();
+        if (run != null) run.addCacheAccess(cache, hit);
+    }
+
+    /** Registers a size gauge; the gauge holds {@code obj} weakly, as Micrometer gauges do. */
+    public static <T> void cacheSize(String cache, T obj, ToDoubleFunction<T> size) {
+        Gauge.builder(CACHE_SIZE, obj, size).tag("cache", cache).register(REGISTRY);
+    }
+
+    public static <T> void concurrencyLimit(String stage, T obj, ToDoubleFunction<T> limit) {
+        Gauge.builder(INGEST_CONCURRENCY_LIMIT, obj, limit).tag("stage", stage).register(REGISTRY);
+    }
+
+    /** Increments a counter with alternating tag key/value pairs. */
+    public static void count(String name, String... tags) {
+        Counter.builder(name).tags(tags).register(REGISTRY).increment();
+    }
+}
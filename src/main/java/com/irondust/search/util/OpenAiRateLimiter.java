@@ -3,6 +3,8 @@ package com.irondust.search.util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -34,6 +36,8 @@ public final class OpenAiRateLimiter {
     private static final long DEFAULT_TPM = getEnvLong("OPENAI_TPM", 200_000L);
     private static final long MIN_SLEEP_MS = Math.max(1L, getEnvLong("OPENAI_MIN_SLEEP_MS", 10L));
 
+    private static final List<Runnable> RATE_LIMIT_LISTENERS = new CopyOnWriteArrayList<>();
+
     private static volatile long windowStartMs = alignToMinute(System.currentTimeMillis());
     private static volatile int requestsUsed = 0;
     private static volatile long tokensUsed = 0L;
@@ -50,6 +54,7 @@ public final class OpenAiRateLimiter {
         long needTokens = Math.max(1L, estimatedTokens);
         int rpm = DEFAULT_RPM;
         long tpm = DEFAULT_TPM;
+        long waitStart = System.nanoTime();
 
         while (true) {
             long now = System.currentTimeMillis();
@@ -68,6 +73,7 @@ public final class OpenAiRateLimiter {
                 if (haveRequest && haveTokens) {
                     requestsUsed += 1;
                     tokensUsed += needTokens;
+                    AppMetrics.recordRateLimiterWait(System.nanoTime() - waitStart);
                     return; // reserved, proceed
                 }
 
@@ -92,8 +98,16 @@ public final class OpenAiRateLimiter {
         return Math.max(1L, Math.round(text.length() / 4.0));
     }
 
+    /** Registers a callback run on every 429 (e.g. to shrink ingest concurrency). */
+    public static void addRateLimitListener(Runnable listener) {
+        RATE_LIMIT_LISTENERS.add(listener);
+    }
+
     /** Optional hook when a 429 occurs, to log and slightly nudge pacing. */
     public static void onRateLimitHit() {
+        for (Runnable listener : RATE_LIMIT_LISTENERS) {
+            try { listener.run(); } catch (Exception e) { log.warn("Rate limit listener failed: {}", e.toString()); }
+        }
         // Nudge: brief sleep to avoid immediate retry stampedes
         try { Thread.sleep(Math.max(MIN_SLEEP_MS, 50L)); } catch (InterruptedException ignored) {
             Thread.currentThread().interrupt();
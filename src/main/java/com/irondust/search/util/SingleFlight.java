@@ -0,0 +1,172 @@
+package com.irondust.search.util;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Keyed in-flight registry that collapses concurrent identical calls into one.
+ *
+ * <p>The first caller for a key runs the call; callers arriving while it is pending share its
+ * result or error instead of issuing their own. The entry is removed as soon as the call
+ * terminates, so later callers go through the regular caches. Used in front of paid OpenAI calls
+ * where ingest workers race on the same cache key (variants sharing one description) before any
+ * of them has filled the cache. Shared calls are counted under
+ * {@code irondust.openai.inflight.shared}, tagged with the call site name.
+ *
+ * <p>A reactive call ({@link #execute}) is cancelled only once every subscriber has cancelled; a
+ * caller arriving after that starts a fresh call. A blocking call ({@link #call}) runs detached from
+ * its callers, so an interrupted caller stops waiting without affecting the call.
+ */
+public final class SingleFlight<K, V> {
+    private final String name;
+    private final Map<K, Flight> flights = new ConcurrentHashMap<>();
+    private final Map<K, CompletableFuture<V>> pendingCalls = new ConcurrentHashMap<>();
+    /** Runs blocking shared calls; daemon threads, so a call still running never holds the JVM open. */
+    private static final ExecutorService DETACHED = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "single-flight");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** @param name metric tag identifying the call site, e.g. {@code translation} */
+    public SingleFlight(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Subscribes to the pending call for {@code key}, or starts {@code call} when none is pending.
+     * Nothing is started until the returned Mono is subscribed.
+     */
+    public Mono<V> execute(K key, Supplier<Mono<V>> call) {
+        return Mono.deferContextual(ctx -> {
+            Flight flight;
+            while (true) {
+                flight = flights.computeIfAbsent(key, Flight::new);
+                if (flight.join()) break;
+                // Every subscriber of this flight cancelled; it is being torn down
+                flights.remove(key, flight);
+            }
+            if (flight.started.compareAndSet(false, true)) {
+                Flight f = flight;
+                // The call runs with the first caller's context (e.g. its run's token accounting)
+                Disposable upstream = Mono.defer(call).contextWrite(ctx).subscribe(f::value, f::error, f::empty);
+                f.upstream = upstream;
+                // The last caller may have left while the call was subscribing: leave() found no
+                // upstream to dispose then, so the call is disposed here instead of running abandoned
+                if (f.abandoned()) upstream.dispose();
+            } else {
+                AppMetrics.count(AppMetrics.OPENAI_INFLIGHT_SHARED, "call", name);
+            }
+            return flight.result.asMono().doOnCancel(flight::leave);
+        });
+    }
+
+    /**
+     * Blocking variant: waits for the pending call for {@code key}, or starts {@code call} when none
+     * is pending, and returns its result (rethrowing its exception). The call runs on a detached
+     * thread with the first caller's {@link TokenAccounting#current() run}, so an interrupted caller
+     * (e.g. one whose deadline fired) only stops waiting: the call and the other waiters carry on. A
+     * call that was itself cancelled or interrupted has no result to share; waiters then retry once.
+     */
+    public V call(K key, Callable<V> call) throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            CompletableFuture<V> mine = new CompletableFuture<>();
+            CompletableFuture<V> pending = pendingCalls.putIfAbsent(key, mine);
+            if (pending == null) {
+                pending = mine;
+                TokenAccounting run = TokenAccounting.current();
+                DETACHED.execute(() -> {
+                    try {
+                        V value = TokenAccounting.callWith(run, call);
+                        pendingCalls.remove(key, mine);
+                        mine.complete(value);
+                    } catch (Throwable t) {
+                        pendingCalls.remove(key, mine);
+                        mine.completeExceptionally(t);
+                    }
+                });
+            } else {
+                AppMetrics.count(AppMetrics.OPENAI_INFLIGHT_SHARED, "call", name);
+            }
+            try {
+                return pending.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (attempt == 0 && abandoned(cause)) continue;
+                if (cause instanceof Exception ex) throw ex;
+                throw e;
+            }
+        }
+    }
+
+    private static boolean abandoned(Throwable t) {
+        return t instanceof CancellationException || t instanceof InterruptedException;
+    }
+
+    /** Number of keys with a call in flight. */
+    public int pending() {
+        return flights.size() + pendingCalls.size();
+    }
+
+    /** One pending reactive call and its subscriber count; -1 once torn down by cancellation. */
+    private final class Flight {
+        private final K key;
+        private final Sinks.One<V> result = Sinks.one();
+        private final AtomicInteger subscribers = new AtomicInteger();
+        private final AtomicBoolean started = new AtomicBoolean();
+        private volatile Disposable upstream;
+
+        Flight(K key) {
+            this.key = key;
+        }
+
+        boolean join() {
+            while (true) {
+                int n = subscribers.get();
+                if (n < 0) return false;
+                if (subscribers.compareAndSet(n, n + 1)) return true;
+            }
+        }
+
+        /** Whether every subscriber has left; set before {@link #upstream} is read in {@link #leave}. */
+        boolean abandoned() {
+            return subscribers.get() < 0;
+        }
+
+        void leave() {
+            if (subscribers.decrementAndGet() != 0 || !subscribers.compareAndSet(0, -1)) return;
+            flights.remove(key, this);
+            Disposable d = upstream;
+            if (d != null) d.dispose();
+            result.tryEmitError(new CancellationException("all callers cancelled"));
+        }
+
+        private void value(V v) {
+            flights.remove(key, this);
+            result.tryEmitValue(v);
+        }
+
+        private void error(Throwable e) {
+            flights.remove(key, this);
+            result.tryEmitError(e);
+        }
+
+        private void empty() {
+            flights.remove(key, this);
+            result.tryEmitEmpty();
+        }
+    }
+}
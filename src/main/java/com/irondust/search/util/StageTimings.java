@@ -0,0 +1,95 @@
+package com.irondust.search.util;
+
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Per-request stage timing collector, carried in the Reactor {@code Context} under {@link #CONTEXT_KEY}.
+ *
+ * <p>Services wrap their stages with {@link #time(String, Mono)} (async) or {@link #map(String, Function)}
+ * (CPU-only steps); both are no-ops when the subscriber context carries no collector. Stages that run
+ * more than once per request accumulate. Stages may overlap (lexical and vector run in parallel), so
+ * their sum can exceed {@code total}.
+ */
+public final class StageTimings {
+    public static final String CONTEXT_KEY = StageTimings.class.getName();
+
+    private final long startNanos = System.nanoTime();
+    /** stage → {nanos, count}, in first-seen order. */
+    private final Map<String, long[]> stages = new LinkedHashMap<>();
+
+    public synchronized void record(String stage, long nanos) {
+        long[] acc = stages.computeIfAbsent(stage, s -> new long[2]);
+        acc[0] += nanos;
+        acc[1]++;
+    }
+
+    /** Stage durations in milliseconds (rounded to 0.1), plus {@code total} wall time so far. */
+    public synchronized Map<String, Double> millis() {
+        Map<String, Double> out = new LinkedHashMap<>();
+        for (Map.Entry<String, long[]> e : stages.entrySet()) out.put(e.getKey(), toMillis(e.getValue()[0]));
+        out.put("total", toMillis(System.nanoTime() - startNanos));
+        return out;
+    }
+
+    /** {@code Server-Timing} header value, e.g. {@code meili;dur=12.4, embed;dur=85.0, total;dur=97.3}. */
+    public synchronized String toHeader() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, long[]> e : stages.entrySet()) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(e.getKey()).append(";dur=").append(format(toMillis(e.getValue()[0])));
+            if (e.getValue()[1] > 1) sb.append(";desc=\"x").append(e.getValue()[1]).append('"');
+        }
+        if (sb.length() > 0) sb.append(", ");
+        sb.append("total;dur=").append(format(toMillis(System.nanoTime() - startNanos)));
+        return sb.toString();
+    }
+
+    public static StageTimings from(ContextView ctx) {
+        return ctx.getOrDefault(CONTEXT_KEY, null);
+    }
+
+    /**
+     * Times {@code mono} from subscription to its result, error or cancellation. The stage is recorded
+     * before the signal goes downstream, so it does not include the work of later operators.
+     */
+    public static <T> Mono<T> time(String stage, Mono<T> mono) {
+        return Mono.deferContextual(ctx -> {
+            StageTimings timings = from(ctx);
+            if (timings == null) return mono;
+            long t0 = System.nanoTime();
+            AtomicBoolean recorded = new AtomicBoolean();
+            Runnable stop = () -> {
+                if (recorded.compareAndSet(false, true)) timings.record(stage, System.nanoTime() - t0);
+            };
+            return mono.doOnSuccess(v -> stop.run())
+                    .doOnError(e -> stop.run())
+                    .doOnCancel(stop);
+        });
+    }
+
+    /** Timed synchronous transformation, for use with {@code flatMap}. */
+    public static <T, R> Function<T, Mono<R>> map(String stage, Function<T, R> fn) {
+        return value -> Mono.deferContextual(ctx -> {
+            StageTimings timings = from(ctx);
+            long t0 = System.nanoTime();
+            R out = fn.apply(value);
+            if (timings != null) timings.record(stage, System.nanoTime() - t0);
+            return Mono.justOrEmpty(out);
+        });
+    }
+
+    private static double toMillis(long nanos) {
+        return Math.round(nanos / 100_000.0) / 10.0;
+    }
+
+    private static String format(double ms) {
+        return String.format(Locale.ROOT, "%.1f", ms);
+    }
+}
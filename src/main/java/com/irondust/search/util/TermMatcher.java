@@ -0,0 +1,216 @@
+package com.irondust.search.util;
+
+import java.util.*;
+import java.util.function.IntPredicate;
+
+/**
+ * Aho-Corasick automaton over a fixed set of literal terms: one left-to-right pass over a text finds
+ * every occurrence of every term, regardless of how many terms there are. It replaces cascades of
+ * {@code text.contains(...)} checks and alternation regexes that rescan the same text once per
+ * keyword.
+ *
+ * <p>Matching is exact and case-sensitive on {@code char}s; callers lowercase the text and the terms
+ * the same way. Semantics are those of {@link String#contains}: a term matches anywhere, including
+ * inside a longer word. Instances are immutable and thread-safe.
+ */
+public final class TermMatcher {
+    private final Map<String, Integer> termIds;
+    private final String[] terms;
+    /** Per state: sorted transition chars and their target states. */
+    private final char[][] edgeChars;
+    private final int[][] edgeTargets;
+    private final int[] fail;
+    /** Term id ending at this state, or -1. */
+    private final int[] terminal;
+    /** Nearest state on the failure chain (excluding itself) that is terminal, or -1. */
+    private final int[] outputLink;
+
+    private TermMatcher(Collection<String> input) {
+        termIds = new LinkedHashMap<>();
+        for (String t : input) {
+            if (t != null && !t.isEmpty()) termIds.putIfAbsent(t, termIds.size());
+        }
+        terms = termIds.keySet().toArray(new String[0]);
+
+        // Build the trie with per-state maps, then freeze into sorted arrays
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<Integer> term = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        term.add(-1);
+        for (int id = 0; id < terms.length; id++) {
+            int state = 0;
+            for (char c : terms[id].toCharArray()) {
+                Integer next = trie.get(state).get(c);
+                if (next == null) {
+                    next = trie.size();
+                    trie.get(state).put(c, next);
+                    trie.add(new TreeMap<>());
+                    term.add(-1);
+                }
+                state = next;
+            }
+            term.set(state, id);
+        }
+        int n = trie.size();
+        edgeChars = new char[n][];
+        edgeTargets = new int[n][];
+        terminal = new int[n];
+        for (int s = 0; s < n; s++) {
+            TreeMap<Character, Integer> edges = trie.get(s);
+            edgeChars[s] = new char[edges.size()];
+            edgeTargets[s] = new int[edges.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> e : edges.entrySet()) {
+                edgeChars[s][i] = e.getKey();
+                edgeTargets[s][i++] = e.getValue();
+            }
+            terminal[s] = term.get(s);
+        }
+
+        // Breadth-first failure and output links
+        fail = new int[n];
+        outputLink = new int[n];
+        Arrays.fill(outputLink, -1);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int child : edgeTargets[0]) queue.add(child);
+        while (!queue.isEmpty()) {
+            int s = queue.poll();
+            for (int i = 0; i < edgeChars[s].length; i++) {
+                char c = edgeChars[s][i];
+                int child = edgeTargets[s][i];
+                int f = fail[s];
+                while (f != 0 && next(f, c) < 0) f = fail[f];
+                int target = next(f, c);
+                fail[child] = (target >= 0 && target != child) ? target : 0;
+                int fc = fail[child];
+                outputLink[child] = terminal[fc] >= 0 ? fc : outputLink[fc];
+                queue.add(child);
+            }
+        }
+    }
+
+    public static TermMatcher of(Collection<String> terms) {
+        return new TermMatcher(terms);
+    }
+
+    public static TermMatcher of(String... terms) {
+        return new TermMatcher(Arrays.asList(terms));
+    }
+
+    /** Number of distinct terms. */
+    public int size() {
+        return terms.length;
+    }
+
+    /** All occurrences of all terms in {@code text}. */
+    public Hits scan(CharSequence text) {
+        Hits hits = new Hits(text);
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = step(state, text.charAt(i));
+            for (int s = terminal[state] >= 0 ? state : outputLink[state]; s >= 0; s = outputLink[s]) {
+                int id = terminal[s];
+                hits.add(id, i + 1 - terms[id].length());
+            }
+        }
+        return hits;
+    }
+
+    /** True when any term occurs in {@code text}; stops at the first hit. */
+    public boolean containsAny(CharSequence text) {
+        if (text == null) return false;
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = step(state, text.charAt(i));
+            if (terminal[state] >= 0 || outputLink[state] >= 0) return true;
+        }
+        return false;
+    }
+
+    private int step(int state, char c) {
+        while (true) {
+            int target = next(state, c);
+            if (target >= 0) return target;
+            if (state == 0) return 0;
+            state = fail[state];
+        }
+    }
+
+    private int next(int state, char c) {
+        int i = Arrays.binarySearch(edgeChars[state], c);
+        return i >= 0 ? edgeTargets[state][i] : -1;
+    }
+
+    /** Result of one {@link #scan}: which terms occurred and where. */
+    public final class Hits {
+        private final CharSequence text;
+        private final BitSet found = new BitSet(terms.length);
+        private int[] occTerm = new int[8];
+        private int[] occStart = new int[8];
+        private int size;
+
+        private Hits(CharSequence text) {
+            this.text = text;
+        }
+
+        private void add(int id, int start) {
+            found.set(id);
+            if (size == occTerm.length) {
+                occTerm = Arrays.copyOf(occTerm, size * 2);
+                occStart = Arrays.copyOf(occStart, size * 2);
+            }
+            occTerm[size] = id;
+            occStart[size++] = start;
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        /** Whether {@code term} occurred; terms not in the dictionary never do. */
+        public boolean contains(String term) {
+            Integer id = termIds.get(term);
+            return id != null && found.get(id);
+        }
+
+        public boolean containsAny(Collection<String> candidates) {
+            for (String t : candidates) if (contains(t)) return true;
+            return false;
+        }
+
+        public boolean containsAny(String... candidates) {
+            return containsAny(Arrays.asList(candidates));
+        }
+
+        /** Start offsets of {@code term}, in text order. */
+        public int[] starts(String term) {
+            Integer id = termIds.get(term);
+            if (id == null || !found.get(id)) return new int[0];
+            int[] out = new int[size];
+            int n = 0;
+            for (int i = 0; i < size; i++) if (occTerm[i] == id) out[n++] = occStart[i];
+            return Arrays.copyOf(out, n);
+        }
+
+        /**
+         * Whether {@code first} is followed by {@code second} with at most {@code maxGap} characters
+         * between them, all accepted by {@code gapChar}. This is the literal form of the regex
+         * {@code first[gap]{0,maxGap}second}.
+         */
+        public boolean followedBy(String first, String second, int maxGap, IntPredicate gapChar) {
+            int[] a = starts(first);
+            if (a.length == 0) return false;
+            int[] b = starts(second);
+            for (int sa : a) {
+                int end = sa + first.length();
+                for (int sb : b) {
+                    if (sb < end || sb - end > maxGap) continue;
+                    boolean ok = true;
+                    for (int i = end; i < sb && ok; i++) ok = gapChar.test(text.charAt(i));
+                    if (ok) return true;
+                }
+            }
+            return false;
+        }
+    }
+}
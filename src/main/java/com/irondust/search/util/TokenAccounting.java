@@ -1,29 +1,63 @@
 package com.irondust.search.util;
 
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
- * Thread-safe process-wide accounting for OpenAI token usage during an ingest run.
+ * OpenAI token usage, call latencies and cache hits of one run (a full or targeted ingest).
+ *
+ * <p>Each run owns an instance, so overlapping runs — a targeted ingest during a full ingest — keep
+ * separate numbers. The instance travels in the Reactor {@link Context} under {@link #CONTEXT_KEY}
+ * ({@link #inRun} creates and installs it); blocking code that cannot see the context (enrichment
+ * steps, the JDK HttpClient calls of the AI enricher) runs through {@link #fromCallable} or
+ * {@link #defer}, which expose the run as {@link #current()} on the executing thread for the duration
+ * of the call. {@link AppMetrics#recordStep} and {@link AppMetrics#cacheAccess} add to the current
+ * run as well as to Prometheus. A call shared by several runs through {@link SingleFlight} is
+ * charged to the run that issued it.
+ *
+ * <p>Because counters live in the run rather than in the shared services, report sections such as
+ * the translation memory and glossary hit rates ({@link #cacheStats}, {@link #count}) need no
+ * process-wide reset and are not polluted by an overlapping run.
  *
- * <p>Usage:
- * - Call {@link #reset()} at the start of an ingest run.
- * - Instrument model calls to record usage via {@link #recordChatCompletionUsage(String, long, long, long)}
- *   and {@link #recordEmbeddingUsage(String, long)}.
- * - After the run, call {@link #snapshotWithCosts()} to obtain per-model totals and approximate costs.
+ * <p>Usage is kept per model (for the report's cost summary) and per series — {@code kind} (openai,
+ * step, cache), step, model and language — which {@code RunUsageService} writes to Postgres when
+ * the run ends.
  *
  * <p>Costs are approximate and derived from built-in defaults with environment-variable overrides.
+ * Cached prompt tokens are billed at the cached-input rate (half the input rate unless overridden).
  * For overrides, define:
  *   OPENAI_COST_<MODEL>_INPUT_PER_1K and OPENAI_COST_<MODEL>_OUTPUT_PER_1K (chat models)
+ *   OPENAI_COST_<MODEL>_CACHED_INPUT_PER_1K (chat models, cached prompt tokens)
  *   OPENAI_COST_<MODEL>_EMBED_PER_1K (embedding models)
  * Where <MODEL> is the uppercased model name with non-alphanumeric characters replaced by '_'.
  */
 public final class TokenAccounting {
-    private TokenAccounting() {}
+    /** Reactor context key holding the current run's {@code TokenAccounting}. */
+    public static final String CONTEXT_KEY = TokenAccounting.class.getName();
+    /** Reactor context key through which a caller names the run, e.g. its {@code RunRegistry} id. */
+    public static final String RUN_ID_KEY = CONTEXT_KEY + ".runId";
+
+    public static final String KIND_OPENAI = "openai";
+    public static final String KIND_STEP = "step";
+    public static final String KIND_CACHE = "cache";
+
+    private static final ThreadLocal<TokenAccounting> CURRENT = new ThreadLocal<>();
 
     public static final class ModelUsage {
         public final AtomicLong promptTokens = new AtomicLong();
+        public final AtomicLong cachedPromptTokens = new AtomicLong();
         public final AtomicLong completionTokens = new AtomicLong();
         public final AtomicLong totalTokens = new AtomicLong();
     }
@@ -31,53 +65,281 @@ public final class TokenAccounting {
     public static final class UsageWithCost {
         public final String model;
         public final long promptTokens;
+        /** Part of {@code promptTokens} served from the provider's prompt cache. */
+        public final long cachedPromptTokens;
         public final long completionTokens;
         public final long totalTokens;
         public final double costUsd;
 
         public UsageWithCost(String model, long promptTokens, long completionTokens, long totalTokens, double costUsd) {
+            this(model, promptTokens, 0L, completionTokens, totalTokens, costUsd);
+        }
+
+        public UsageWithCost(String model, long promptTokens, long cachedPromptTokens, long completionTokens,
+                             long totalTokens, double costUsd) {
             this.model = model;
             this.promptTokens = promptTokens;
+            this.cachedPromptTokens = cachedPromptTokens;
             this.completionTokens = completionTokens;
             this.totalTokens = totalTokens;
             this.costUsd = costUsd;
         }
     }
 
-    private static final ConcurrentHashMap<String, ModelUsage> USAGE = new ConcurrentHashMap<>();
+    /** Identifies one series: OpenAI calls of a step, model and language, an enrichment step, or a cache. */
+    public record SeriesKey(String kind, String step, String model, String lang) {}
+
+    /** Hits and misses of one cache within a run. */
+    public record CacheStats(long hits, long misses) {
+        public long total() {
+            return hits + misses;
+        }
 
-    public static void reset() {
-        USAGE.clear();
+        /** Hit share rounded to three decimals, 0 without lookups. */
+        public double hitRate() {
+            long total = total();
+            return total == 0 ? 0.0 : Math.round(hits * 1000.0 / total) / 1000.0;
+        }
+    }
+
+    /** Totals of one series; {@code lang} and {@code model} are null where they do not apply. */
+    public record SeriesRow(String kind, String step, String model, String lang, long calls,
+                            long promptTokens, long cachedPromptTokens, long completionTokens, double costUsd,
+                            long latencyMsTotal, long latencyMsMax, long cacheHits, long cacheMisses) {}
+
+    private static final class Series {
+        final AtomicLong calls = new AtomicLong();
+        final AtomicLong promptTokens = new AtomicLong();
+        final AtomicLong cachedPromptTokens = new AtomicLong();
+        final AtomicLong completionTokens = new AtomicLong();
+        final AtomicLong latencyNanos = new AtomicLong();
+        final AtomicLong maxLatencyNanos = new AtomicLong();
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+
+        void latency(long nanos) {
+            if (nanos <= 0) return;
+            latencyNanos.addAndGet(nanos);
+            maxLatencyNanos.accumulateAndGet(nanos, Math::max);
+        }
     }
 
-    public static void recordChatCompletionUsage(String model, long prompt, long completion, long total) {
+    private final String runId;
+    private final String type;
+    private final Instant startedAt = Instant.now();
+    private final ConcurrentHashMap<String, ModelUsage> usage = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<SeriesKey, Series> series = new ConcurrentHashMap<>();
+    // Chat prompt tokens only (embedding input cannot be cached), for the cache-hit ratio
+    private final AtomicLong chatPromptTokens = new AtomicLong();
+    private final AtomicLong chatCachedPromptTokens = new AtomicLong();
+    private final ConcurrentHashMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    public TokenAccounting(String runId, String type) {
+        this.runId = runId;
+        this.type = type;
+    }
+
+    public String runId() {
+        return runId;
+    }
+
+    public String type() {
+        return type;
+    }
+
+    public Instant startedAt() {
+        return startedAt;
+    }
+
+    /**
+     * Runs {@code body} with a new run of {@code type} in its context. The run id is taken from
+     * {@link #RUN_ID_KEY} when the subscriber provides one, otherwise generated.
+     */
+    public static <T> Mono<T> inRun(String type, Function<TokenAccounting, Mono<T>> body) {
+        return Mono.deferContextual(ctx -> {
+            TokenAccounting run = new TokenAccounting(ctx.getOrDefault(RUN_ID_KEY, UUID.randomUUID().toString()), type);
+            return body.apply(run).contextWrite(c -> c.put(CONTEXT_KEY, run));
+        });
+    }
+
+    /** The run in {@code ctx}, or {@code null} outside a run. */
+    public static TokenAccounting from(ContextView ctx) {
+        return ctx.getOrDefault(CONTEXT_KEY, null);
+    }
+
+    /** The run bound to this thread by {@link #fromCallable}, {@link #defer} or {@link #callWith}, or {@code null}. */
+    public static TokenAccounting current() {
+        return CURRENT.get();
+    }
+
+    /** Calls {@code call} with {@code run} as {@link #current()} on this thread. */
+    public static <T> T callWith(TokenAccounting run, Callable<T> call) throws Exception {
+        TokenAccounting previous = CURRENT.get();
+        CURRENT.set(run);
+        try {
+            return call.call();
+        } finally {
+            if (previous != null) CURRENT.set(previous);
+            else CURRENT.remove();
+        }
+    }
+
+    /** Like {@link Mono#fromCallable}, with the subscriber's run as {@link #current()} during the call. */
+    public static <T> Mono<T> fromCallable(Callable<T> call) {
+        return Mono.deferContextual(ctx -> {
+            TokenAccounting run = from(ctx);
+            return Mono.fromCallable(() -> callWith(run, call));
+        });
+    }
+
+    /**
+     * Like {@link Mono#defer}, with the subscriber's run as {@link #current()} while {@code supplier}
+     * builds the Mono; covers the synchronous cache lookups callers do before going async.
+     */
+    public static <T> Mono<T> defer(Supplier<Mono<T>> supplier) {
+        return Mono.deferContextual(ctx -> {
+            try {
+                return callWith(from(ctx), supplier::get);
+            } catch (Exception e) {
+                return Mono.error(e);
+            }
+        });
+    }
+
+    /**
+     * Records one chat completion in Prometheus and, when {@code run} is not null, in the run.
+     * {@code cachedPrompt} is {@code usage.prompt_tokens_details.cached_tokens}, the part of
+     * {@code prompt} that hit the provider's prompt cache; {@code lang} is the target language(s)
+     * of a translation, null otherwise; {@code latencyNanos} is 0 when unknown (batch results).
+     */
+    public static void recordChatCompletionUsage(TokenAccounting run, String step, String lang, String model,
+                                                 long prompt, long completion, long total, long cachedPrompt,
+                                                 long latencyNanos) {
+        if (model == null || model.isBlank()) model = "unknown";
+        long cached = Math.max(0L, Math.min(cachedPrompt, prompt));
+        AppMetrics.countTokens(model, "prompt", prompt);
+        AppMetrics.countTokens(model, "prompt_cached", cached);
+        AppMetrics.countTokens(model, "completion", completion);
+        if (run != null) run.addChatCompletion(step, lang, model, prompt, completion, total, cached, latencyNanos);
+    }
+
+    /** Records one embedding call in Prometheus and, when {@code run} is not null, in the run. */
+    public static void recordEmbeddingUsage(TokenAccounting run, String step, String model, long promptTokens,
+                                            long latencyNanos) {
+        if (model == null || model.isBlank()) model = "unknown";
+        AppMetrics.countTokens(model, "embedding", promptTokens);
+        if (run != null) run.addEmbedding(step, model, promptTokens, latencyNanos);
+    }
+
+    public void addChatCompletion(String step, String lang, String model, long prompt, long completion, long total,
+                                  long cachedPrompt, long latencyNanos) {
         if (model == null || model.isBlank()) model = "unknown";
-        ModelUsage mu = USAGE.computeIfAbsent(model, m -> new ModelUsage());
+        long cached = Math.max(0L, Math.min(cachedPrompt, prompt));
+        ModelUsage mu = usage.computeIfAbsent(model, m -> new ModelUsage());
         if (prompt > 0) mu.promptTokens.addAndGet(prompt);
+        if (cached > 0) mu.cachedPromptTokens.addAndGet(cached);
         if (completion > 0) mu.completionTokens.addAndGet(completion);
         if (total > 0) mu.totalTokens.addAndGet(total);
+        if (prompt > 0) chatPromptTokens.addAndGet(prompt);
+        if (cached > 0) chatCachedPromptTokens.addAndGet(cached);
+        Series s = series(KIND_OPENAI, step, model, lang);
+        s.calls.incrementAndGet();
+        if (prompt > 0) s.promptTokens.addAndGet(prompt);
+        if (cached > 0) s.cachedPromptTokens.addAndGet(cached);
+        if (completion > 0) s.completionTokens.addAndGet(completion);
+        s.latency(latencyNanos);
     }
 
-    public static void recordEmbeddingUsage(String model, long promptTokens) {
+    public void addEmbedding(String step, String model, long promptTokens, long latencyNanos) {
         if (model == null || model.isBlank()) model = "unknown";
-        ModelUsage mu = USAGE.computeIfAbsent(model, m -> new ModelUsage());
+        ModelUsage mu = usage.computeIfAbsent(model, m -> new ModelUsage());
         if (promptTokens > 0) {
             mu.promptTokens.addAndGet(promptTokens);
             mu.totalTokens.addAndGet(promptTokens);
         }
+        Series s = series(KIND_OPENAI, step, model, null);
+        s.calls.incrementAndGet();
+        if (promptTokens > 0) s.promptTokens.addAndGet(promptTokens);
+        s.latency(latencyNanos);
+    }
+
+    /** One execution of an enrichment step. */
+    public void addStep(String step, long nanos) {
+        Series s = series(KIND_STEP, step, null, null);
+        s.calls.incrementAndGet();
+        s.latency(nanos);
+    }
+
+    public void addCacheAccess(String cache, boolean hit) {
+        Series s = series(KIND_CACHE, cache, null, null);
+        s.calls.incrementAndGet();
+        (hit ? s.hits : s.misses).incrementAndGet();
     }
 
-    public static Map<String, UsageWithCost> snapshotWithCosts() {
+    /** Hits and misses this run recorded for {@code cache} through {@link #addCacheAccess}. */
+    public CacheStats cacheStats(String cache) {
+        Series s = series.get(new SeriesKey(KIND_CACHE, cache, null, null));
+        return s != null ? new CacheStats(s.hits.get(), s.misses.get()) : new CacheStats(0L, 0L);
+    }
+
+    /** Adds to a named per-run counter, for report figures that are not a series (e.g. glossary batches). */
+    public void addCount(String counter, long delta) {
+        if (delta != 0) counters.computeIfAbsent(counter, c -> new AtomicLong()).addAndGet(delta);
+    }
+
+    public long count(String counter) {
+        AtomicLong c = counters.get(counter);
+        return c != null ? c.get() : 0L;
+    }
+
+    private Series series(String kind, String step, String model, String lang) {
+        return series.computeIfAbsent(new SeriesKey(kind, step != null ? step : "unknown", model, lang), k -> new Series());
+    }
+
+    /** Chat prompt tokens of this run: {@code prompt_tokens, cached_prompt_tokens, hit_rate}. */
+    public Map<String, Object> promptCacheStats() {
+        long prompt = chatPromptTokens.get();
+        long cached = chatCachedPromptTokens.get();
+        Map<String, Object> out = new java.util.LinkedHashMap<>();
+        out.put("prompt_tokens", prompt);
+        out.put("cached_prompt_tokens", cached);
+        out.put("hit_rate", prompt > 0 ? Math.round(cached * 1000.0 / prompt) / 1000.0 : 0.0);
+        return out;
+    }
+
+    public Map<String, UsageWithCost> snapshotWithCosts() {
         Map<String, UsageWithCost> out = new java.util.LinkedHashMap<>();
-        for (Map.Entry<String, ModelUsage> e : USAGE.entrySet()) {
+        for (Map.Entry<String, ModelUsage> e : usage.entrySet()) {
             String model = e.getKey();
             ModelUsage mu = e.getValue();
             long p = mu.promptTokens.get();
+            long cached = mu.cachedPromptTokens.get();
             long c = mu.completionTokens.get();
             long t = mu.totalTokens.get();
-            double cost = estimateCostUsd(model, p, c, t);
-            out.put(model, new UsageWithCost(model, p, c, t, roundMoney(cost)));
+            double cost = estimateCostUsd(model, p, cached, c, t);
+            out.put(model, new UsageWithCost(model, p, cached, c, t, roundMoney(cost)));
+        }
+        return out;
+    }
+
+    /** Every series of this run, OpenAI series with their (unrounded) cost. */
+    public List<SeriesRow> seriesRows() {
+        List<SeriesRow> out = new ArrayList<>();
+        for (Map.Entry<SeriesKey, Series> e : series.entrySet()) {
+            SeriesKey k = e.getKey();
+            Series s = e.getValue();
+            long p = s.promptTokens.get();
+            long cached = s.cachedPromptTokens.get();
+            long c = s.completionTokens.get();
+            double cost = KIND_OPENAI.equals(k.kind()) ? estimateCostUsd(k.model(), p, cached, c, p + c) : 0.0;
+            out.add(new SeriesRow(k.kind(), k.step(), k.model(), k.lang(), s.calls.get(), p, cached, c,
+                    Math.round(cost * 1_000_000.0) / 1_000_000.0,
+                    s.latencyNanos.get() / 1_000_000L, s.maxLatencyNanos.get() / 1_000_000L,
+                    s.hits.get(), s.misses.get()));
         }
+        out.sort(java.util.Comparator.comparing(SeriesRow::kind).thenComparing(SeriesRow::step)
+                .thenComparing(r -> r.model() != null ? r.model() : "")
+                .thenComparing(r -> r.lang() != null ? r.lang() : ""));
         return out;
     }
 
@@ -88,11 +350,13 @@ public final class TokenAccounting {
         return roundMoney(sum);
     }
 
-    private static double estimateCostUsd(String model, long promptTokens, long completionTokens, long totalTokens) {
+    private static double estimateCostUsd(String model, long promptTokens, long cachedPromptTokens,
+                                          long completionTokens, long totalTokens) {
         String key = toEnvKey(model);
         Double inPer1k = getEnvDouble("OPENAI_COST_" + key + "_INPUT_PER_1K");
         Double outPer1k = getEnvDouble("OPENAI_COST_" + key + "_OUTPUT_PER_1K");
         Double embPer1k = getEnvDouble("OPENAI_COST_" + key + "_EMBED_PER_1K");
+        Double cachedPer1k = getEnvDouble("OPENAI_COST_" + key + "_CACHED_INPUT_PER_1K");
 
         // Defaults (approximate; override via env to keep up-to-date):
         // NOTE: All defaults below are expressed as cost per 1K tokens to match the
@@ -123,7 +387,12 @@ public final class TokenAccounting {
         if (embPer1k != null) {
             cost += (promptTokens / 1000.0) * embPer1k;
         } else {
-            if (inPer1k != null) cost += (promptTokens / 1000.0) * inPer1k;
+            if (inPer1k != null) {
+                // Cached prompt tokens are billed at the cached-input rate (half price by default)
+                double cachedRate = cachedPer1k != null ? cachedPer1k : inPer1k * 0.5;
+                cost += ((promptTokens - cachedPromptTokens) / 1000.0) * inPer1k;
+                cost += (cachedPromptTokens / 1000.0) * cachedRate;
+            }
             if (outPer1k != null) cost += (completionTokens / 1000.0) * outPer1k;
         }
         return cost;
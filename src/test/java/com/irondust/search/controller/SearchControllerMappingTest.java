@@ -1,12 +1,9 @@
 package com.irondust.search.controller;
 
-import com.irondust.search.config.VectorProperties;
+import com.irondust.search.dto.SearchDtos;
 import com.irondust.search.model.ProductDoc;
-import com.irondust.search.service.HybridSearchService;
-import com.irondust.search.service.MeiliService;
 import org.junit.jupiter.api.Test;
 
-import java.lang.reflect.Method;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -15,37 +12,50 @@ import static org.junit.jupiter.api.Assertions.*;
 
 public class SearchControllerMappingTest {
 
-    // Lightweight stubs
-    static class NoopMeili extends MeiliService {
-        public NoopMeili() { super(null, null, null); }
-    }
-    static class NoopHybrid extends HybridSearchService {
-        public NoopHybrid() { super(new NoopMeili(), null, null, new VectorProperties()); }
-    }
-
     @Test
-    public void mapToProductDoc_sanitizesNameAndDisplayTitle() throws Exception {
-        SearchController controller = new SearchController(new NoopMeili(), new NoopHybrid(), new VectorProperties());
-
+    public void toProductDoc_bindsStoredHitAndRebuildsFlattenedAttrs() {
         Map<String, Object> raw = new LinkedHashMap<>();
         raw.put("id", "wc_1");
         raw.put("type", "simple");
-        raw.put("name", "  XTEND EAA 40 servings Tropical —  ");
-        raw.put("display_title", " —  XTEND EAA 40 servings Tropical  — ");
+        raw.put("name", "XTEND EAA 40 servings Tropical");
         raw.put("price_cents", 2890);
         raw.put("currency", "EUR");
         raw.put("in_stock", true);
+        raw.put("rating", 4);
         raw.put("images", List.of("https://example/img.jpg"));
+        raw.put("flavor", List.of("Tropical", "Mango"));
+        raw.put("attr_pa_size", List.of("40 servings"));
+        raw.put("_rankingScore", 0.93);
 
-        ProductDoc d = new ProductDoc();
-
-        Method m = SearchController.class.getDeclaredMethod("mapToProductDoc", Map.class, ProductDoc.class);
-        m.setAccessible(true);
-        m.invoke(controller, raw, d);
+        ProductDoc d = SearchControllerMapper.toProductDoc(raw);
 
+        assertEquals("wc_1", d.getId());
         assertEquals("XTEND EAA 40 servings Tropical", d.getName());
-        assertEquals("XTEND EAA 40 servings Tropical", d.getDisplay_title());
+        assertEquals(2890, d.getPrice_cents());
+        assertEquals(4.0, d.getRating());
+        assertEquals(Boolean.TRUE, d.getIn_stock());
+        assertEquals("Tropical", d.getFlavor());
+        assertEquals(List.of("Tropical", "Mango"), d.getDynamic_attrs().get("flavor"));
+        assertEquals(List.of("40 servings"), d.getDynamic_attrs().get("attr_pa_size"));
+        assertFalse(d.getDynamic_attrs().containsKey("_rankingScore"));
     }
-}
 
+    @Test
+    public void toResponse_overlaysLanguageOnBaseIndexHits() {
+        ProductDoc d = new ProductDoc();
+        d.setId("wc_2");
+        d.setName("Vadakuvalk");
+        d.setName_i18n(Map.of("en", "Whey Protein"));
+
+        SearchDtos.MeiliSearchResult result = new SearchDtos.MeiliSearchResult();
+        result.setHits(List.of(d));
+        result.setEstimatedTotalHits(7L);
+        result.setFacetDistribution(Map.of("form", Map.of("powder", 3)));
 
+        SearchDtos.SearchResponseBody<ProductDoc> resp = SearchControllerMapper.toResponse(result, "en");
+
+        assertEquals(7L, resp.getTotal());
+        assertEquals("Whey Protein", resp.getItems().get(0).getName());
+        assertEquals(3, resp.getFacets().get("form").get("powder"));
+    }
+}
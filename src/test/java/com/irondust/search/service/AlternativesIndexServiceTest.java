@@ -0,0 +1,112 @@
+package com.irondust.search.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AlternativesIndexServiceTest {
+
+    private static Map<String, Object> doc(String id, String parent, boolean inStock, int priceCents, List<String> cats, List<String> diet) {
+        Map<String, Object> d = new HashMap<>();
+        d.put("id", id);
+        d.put("parent_id", parent);
+        d.put("in_stock", inStock);
+        d.put("price_cents", priceCents);
+        d.put("categories_slugs", cats);
+        d.put("diet_tags", diet);
+        d.put("form", "powder");
+        return d;
+    }
+
+    private static QdrantService.SearchResult hit(String docId, double score) {
+        return new QdrantService.SearchResult(UUID.randomUUID().toString(), score, Map.of("doc_id", docId));
+    }
+
+    @Test
+    public void rankAppliesParityConstraintsAndReasonCodes() {
+        Map<String, Object> origin = doc("wc_1", "g1", true, 3000, List.of("protein"), List.of("vegan"));
+        Map<String, Map<String, Object>> catalog = new HashMap<>();
+        catalog.put("wc_2", doc("wc_2", "g1", true, 3000, List.of("protein"), List.of("vegan")));   // same variation group
+        catalog.put("wc_3", doc("wc_3", null, false, 3000, List.of("protein"), List.of("vegan")));  // out of stock
+        catalog.put("wc_4", doc("wc_4", null, true, 3000, List.of("protein"), List.of()));         // not vegan
+        catalog.put("wc_5", doc("wc_5", null, true, 3100, List.of("protein"), List.of("vegan")));
+        catalog.put("wc_6", doc("wc_6", null, true, 2900, List.of("protein"), List.of("vegan")));
+
+        List<SideIndex.Edge> alts = AlternativesIndexService.rank(origin,
+                List.of(hit("wc_2", 0.99), hit("wc_3", 0.98), hit("wc_4", 0.97), hit("wc_5", 0.80), hit("wc_6", 0.90)),
+                catalog, 10);
+
+        assertEquals(List.of("wc_6", "wc_5"), alts.stream().map(a -> a.id).toList());
+        assertTrue(alts.get(0).reasons.containsAll(List.of(
+                AlternativesIndexService.REASON_SAME_CATEGORY, AlternativesIndexService.REASON_SAME_FORM,
+                AlternativesIndexService.REASON_VEGAN, AlternativesIndexService.REASON_PRICE_CLOSE)));
+    }
+
+    @Test
+    public void signatureChangesWhenRankingInputsChange() {
+        Map<String, Object> a = doc("wc_1", null, true, 3000, List.of("protein"), List.of());
+        Map<String, Object> b = new HashMap<>(a);
+        assertEquals(AlternativesIndexService.signature(a), AlternativesIndexService.signature(b));
+        b.put("price_cents", 3500);
+        assertNotEquals(AlternativesIndexService.signature(a), AlternativesIndexService.signature(b));
+    }
+
+    private static Map<String, Object> stored(String id, String... alternatives) {
+        List<Map<String, Object>> alts = new ArrayList<>();
+        for (String a : alternatives) alts.add(Map.of("id", a, "score", 0.5, "reasons", List.of()));
+        return Map.of("id", id, "alternatives", alts);
+    }
+
+    @Test
+    public void incrementalRebuildRecomputesChangedProductsAndTheirDependentsOnly() {
+        Map<String, Map<String, Object>> catalog = new HashMap<>();
+        for (String id : List.of("wc_1", "wc_2", "wc_3", "wc_4", "wc_9")) {
+            catalog.put(id, doc(id, null, true, 3000, List.of("protein"), List.of()));
+        }
+        Map<String, Map<String, Object>> existing = new HashMap<>();
+        existing.put("wc_1", stored("wc_1", "wc_2"));        // lists the changed product
+        existing.put("wc_2", stored("wc_2", "wc_1"));
+        existing.put("wc_3", stored("wc_3", "wc_1", "wc_8")); // lists a removed product
+        existing.put("wc_4", stored("wc_4", "wc_1"));        // same category and form, unaffected
+        existing.put("wc_8", stored("wc_8", "wc_1"));
+
+        Set<String> affected = new HashSet<>();
+        for (Map<String, Object> d : AlternativesIndexService.affected(catalog, existing, Set.of("wc_2", "wc_9"))) {
+            affected.add(String.valueOf(d.get("id")));
+        }
+        assertEquals(Set.of("wc_2", "wc_9", "wc_1", "wc_3"), affected);
+    }
+
+    @Test
+    public void rankRequiresEveryDietTagOfTheOrigin() {
+        Map<String, Object> origin = doc("wc_1", null, true, 3000, List.of("protein"), List.of("gluten_free", "lactose_free"));
+        Map<String, Map<String, Object>> catalog = new HashMap<>();
+        catalog.put("wc_2", doc("wc_2", null, true, 3000, List.of("protein"), List.of("gluten_free")));
+        catalog.put("wc_3", doc("wc_3", null, true, 3000, List.of("protein"), List.of("lactose_free", "gluten_free", "vegan")));
+
+        List<SideIndex.Edge> alts = AlternativesIndexService.rank(origin, List.of(hit("wc_2", 0.99), hit("wc_3", 0.80)), catalog, 10);
+
+        assertEquals(List.of("wc_3"), alts.stream().map(a -> a.id).toList());
+        assertFalse(alts.get(0).reasons.contains(AlternativesIndexService.REASON_VEGAN), "vegan is a reason only for vegan origins");
+    }
+
+    @Test
+    public void rankPrefersSameFormAndRelaxesWhenTooFewMatch() {
+        Map<String, Object> origin = doc("wc_1", null, true, 3000, List.of("protein"), List.of());
+        Map<String, Map<String, Object>> catalog = new HashMap<>();
+        for (String id : List.of("wc_2", "wc_3", "wc_4")) catalog.put(id, doc(id, null, true, 3000, List.of("protein"), List.of()));
+        Map<String, Object> bar = doc("wc_5", null, true, 3000, List.of("protein"), List.of());
+        bar.put("form", "bar");
+        catalog.put("wc_5", bar);
+        List<QdrantService.SearchResult> ns = List.of(hit("wc_5", 0.99), hit("wc_2", 0.90), hit("wc_3", 0.85), hit("wc_4", 0.80));
+
+        List<SideIndex.Edge> alts = AlternativesIndexService.rank(origin, ns, catalog, 10);
+        assertEquals(List.of("wc_2", "wc_3", "wc_4"), alts.stream().map(a -> a.id).toList(), "the closer bar is dropped");
+
+        catalog.remove("wc_4");
+        alts = AlternativesIndexService.rank(origin, ns, catalog, 10);
+        assertTrue(alts.stream().anyMatch(a -> a.id.equals("wc_5")), "fewer than 3 powders: other forms are kept");
+    }
+}
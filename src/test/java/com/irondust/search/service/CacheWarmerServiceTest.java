@@ -0,0 +1,170 @@
+package com.irondust.search.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.irondust.search.config.AppProperties;
+import com.irondust.search.config.VectorProperties;
+import com.irondust.search.dto.SearchDtos;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CacheWarmerServiceTest {
+
+    /** Lexical search answered by {@code answer}; embeddings disabled, so the hybrid path is skipped. */
+    private static CacheWarmerService warmer(AppProperties props, QueryLogService queryLog,
+                                             Supplier<Mono<SearchDtos.MeiliSearchResult>> answer) {
+        MeiliService meili = new MeiliService(null, new ObjectMapper(), props) {
+            @Override
+            public Mono<SearchDtos.MeiliSearchResult> search(String q, String filter, List<String> sort, int page, int size,
+                                                             List<String> facets, String lang) {
+                return answer.get();
+            }
+        };
+        EmbeddingService embeddings = new EmbeddingService(new VectorProperties()) {
+            @Override
+            public boolean isEnabled() {
+                return false;
+            }
+        };
+        return new CacheWarmerService(queryLog, embeddings, meili, null, props, new VectorProperties());
+    }
+
+    /** Seed file with {@code queries}, query log off. */
+    private static AppProperties props(Path dir, String... queries) throws Exception {
+        Path seeds = dir.resolve("seeds.txt");
+        Files.write(seeds, List.of(queries));
+        AppProperties props = new AppProperties();
+        props.setWarmupSeedPath(seeds.toString());
+        props.setQueryLogEnabled(false);
+        props.setWarmupMaxMs(1000);
+        return props;
+    }
+
+    private static void awaitReady(CacheWarmerService warmer) throws InterruptedException {
+        for (int i = 0; i < 500 && !warmer.isReady(); i++) Thread.sleep(10);
+        assertTrue(warmer.isReady(), "still not ready: " + warmer.progress());
+    }
+
+    @Test
+    public void parsesSeedLinesWithOptionalLanguage() {
+        assertEquals(new CacheWarmerService.WarmQuery("whey protein", "en"), CacheWarmerService.parseSeedLine(" en: whey protein "));
+        assertEquals(new CacheWarmerService.WarmQuery("kreatiin", null), CacheWarmerService.parseSeedLine("kreatiin"));
+        // Unknown prefixes are part of the query
+        assertEquals(new CacheWarmerService.WarmQuery("omega 3: 1000mg", null), CacheWarmerService.parseSeedLine("omega 3: 1000mg"));
+        assertNull(CacheWarmerService.parseSeedLine("# comment"));
+        assertNull(CacheWarmerService.parseSeedLine("   "));
+        assertNull(CacheWarmerService.parseSeedLine("ru:"));
+    }
+
+    @Test
+    public void readinessStaysDownUntilStartupWarmUpFinishes(@TempDir Path dir) throws Exception {
+        Sinks.Empty<Void> backend = Sinks.empty();
+        CacheWarmerService warmer = warmer(props(dir, "whey protein", "en: creatine"), null,
+                () -> backend.asMono().then(Mono.just(new SearchDtos.MeiliSearchResult())));
+
+        assertFalse(warmer.isReady(), "not ready before the startup warm-up");
+        warmer.warmOnStartup();
+        Thread.sleep(50);
+        assertFalse(warmer.isReady(), "not ready while queries are in flight");
+        assertEquals("warming", warmer.progress().get("status"));
+
+        backend.tryEmitEmpty();
+        awaitReady(warmer);
+        Map<String, Object> progress = warmer.progress();
+        assertEquals("ready", progress.get("status"));
+        assertEquals(2, progress.get("warmed"));
+        assertEquals(0, progress.get("failed"));
+    }
+
+    @Test
+    public void failingBackendDoesNotBlockReadiness(@TempDir Path dir) throws Exception {
+        CacheWarmerService warmer = warmer(props(dir, "whey protein", "kreatiin"), null,
+                () -> Mono.error(new IllegalStateException("meili down")));
+
+        warmer.warmOnStartup();
+
+        awaitReady(warmer);
+        assertEquals("ready", warmer.progress().get("status"));
+        assertEquals(2, warmer.progress().get("failed"));
+    }
+
+    @Test
+    public void backendThrowingOutsideTheMonoMarksWarmUpFailedAndReady(@TempDir Path dir) throws Exception {
+        CacheWarmerService warmer = warmer(props(dir, "whey protein"), null, () -> {
+            throw new IllegalStateException("client not initialised");
+        });
+
+        warmer.warmOnStartup();
+
+        awaitReady(warmer);
+        assertEquals("failed", warmer.progress().get("status"));
+    }
+
+    @Test
+    public void hangingBackendTimesOutAndBecomesReady(@TempDir Path dir) throws Exception {
+        CacheWarmerService warmer = warmer(props(dir, "whey protein"), null, Mono::never);
+
+        warmer.warmOnStartup();
+        assertFalse(warmer.isReady());
+
+        awaitReady(warmer);
+        assertEquals("timed_out", warmer.progress().get("status"));
+        assertEquals(0, warmer.progress().get("warmed"));
+    }
+
+    @Test
+    public void unreadableQueryLogStillWarmsSeedsAndBecomesReady(@TempDir Path dir) throws Exception {
+        AppProperties props = props(dir, "whey protein");
+        props.setQueryLogEnabled(true);
+        AppProperties logOff = new AppProperties();
+        logOff.setQueryLogEnabled(false);
+        QueryLogService queryLog = new QueryLogService(null, logOff) {
+            @Override
+            public Flux<Map<String, Object>> recentTopQueries(int days, int limit) {
+                return Flux.error(new IllegalStateException("postgres down"));
+            }
+        };
+        AtomicInteger searches = new AtomicInteger();
+        CacheWarmerService warmer = warmer(props, queryLog,
+                () -> Mono.fromSupplier(() -> {
+                    searches.incrementAndGet();
+                    return new SearchDtos.MeiliSearchResult();
+                }));
+
+        warmer.warmOnStartup();
+
+        awaitReady(warmer);
+        assertEquals("ready", warmer.progress().get("status"));
+        assertEquals(1, searches.get());
+    }
+
+    @Test
+    public void laterWarmUpDoesNotFlipReadinessBack(@TempDir Path dir) throws Exception {
+        Sinks.Empty<Void> backend = Sinks.empty();
+        AtomicInteger calls = new AtomicInteger();
+        CacheWarmerService warmer = warmer(props(dir, "whey protein"), null,
+                () -> calls.incrementAndGet() == 1
+                        ? Mono.just(new SearchDtos.MeiliSearchResult())
+                        : backend.asMono().then(Mono.just(new SearchDtos.MeiliSearchResult())));
+        warmer.warmOnStartup();
+        awaitReady(warmer);
+
+        warmer.trigger("ingest");
+        Thread.sleep(50);
+
+        assertEquals("warming", warmer.progress().get("status"));
+        assertTrue(warmer.isReady(), "a warm-up after an ingest keeps the instance ready");
+        backend.tryEmitEmpty();
+    }
+}
@@ -0,0 +1,48 @@
+package com.irondust.search.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ComplementsGraphServiceTest {
+
+    private static Map<String, Object> doc(String id, String form, List<String> cats, List<String> goals, double rating, int reviews) {
+        Map<String, Object> d = new HashMap<>();
+        d.put("id", id);
+        d.put("in_stock", true);
+        d.put("form", form);
+        d.put("categories_slugs", cats);
+        d.put("goal_tags", goals);
+        d.put("rating", rating);
+        d.put("review_count", reviews);
+        return d;
+    }
+
+    @Test
+    public void buildKeepsComplementsRankedByGoalsAndQuality() {
+        List<Map<String, Object>> catalog = List.of(
+                doc("whey", "powder", List.of("protein"), List.of("recovery", "lean_muscle"), 4.8, 120),
+                doc("whey2", "powder", List.of("protein"), List.of("recovery"), 5.0, 200),      // substitute: same form + category
+                doc("creatine", "capsules", List.of("creatine"), List.of("strength", "lean_muscle"), 4.5, 80),
+                doc("shaker", "accessory", List.of("accessories"), List.of(), 3.0, 2)
+        );
+
+        Map<String, List<SideIndex.Edge>> graph = ComplementsGraphService.build(catalog, 2);
+
+        List<SideIndex.Edge> whey = graph.get("whey");
+        assertEquals(List.of("creatine", "shaker"), whey.stream().map(c -> c.id).toList());
+        assertTrue(whey.get(0).reasons.contains(ComplementsGraphService.REASON_SHARED_GOALS));
+        assertTrue(whey.get(0).reasons.contains(ComplementsGraphService.REASON_OTHER_CATEGORY));
+        assertFalse(whey.stream().anyMatch(c -> c.id.equals("whey2")), "same form and category is a substitute, not a complement");
+    }
+
+    @Test
+    public void qualityIsDampedByReviewCount() {
+        double few = ComplementsGraphService.quality(doc("a", null, List.of(), List.of(), 5.0, 1));
+        double many = ComplementsGraphService.quality(doc("b", null, List.of(), List.of(), 5.0, 100));
+        assertTrue(few < many);
+        assertEquals(1.0, many, 1e-9);
+    }
+}
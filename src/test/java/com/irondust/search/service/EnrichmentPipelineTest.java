@@ -2,10 +2,13 @@ package com.irondust.search.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.irondust.search.model.EnrichedProduct;
+import com.irondust.search.model.ParsedProduct;
 import com.irondust.search.model.RawProduct;
+import com.irondust.search.service.enrichment.AIEnricher;
 import com.irondust.search.service.enrichment.EnrichmentPipeline;
 import org.junit.jupiter.api.Test;
 
+import java.lang.reflect.Field;
 import java.util.List;
 import java.util.Map;
 
@@ -70,6 +73,35 @@ public class EnrichmentPipelineTest {
         boolean hasMissingServings = out.getWarnings() != null && out.getWarnings().stream().anyMatch(w -> w.contains("servings"));
         assertFalse(hasMissingServings, "capsules without units_per_serving should not warn about servings");
     }
-}
 
+    @Test
+    public void splitStagesPublishDeterministicFieldsWithoutAi() {
+        String desc = "portsjon (5 g). Pakend: 60 portsjonit.";
+        RawProduct raw = makeRaw("wc_XX4", "Test Powder 300g", desc, Map.of());
+        EnrichedProduct full = new EnrichmentPipeline().enrich(raw);
+
+        // What the ingest publishes when AI enrichment misses its deadline
+        EnrichmentPipeline p = new EnrichmentPipeline();
+        ParsedProduct parsed = p.parse(raw);
+        EnrichedProduct deterministic = p.assemble(raw, parsed, Map.of());
+        assertEquals(full.getServings(), deterministic.getServings());
+        assertEquals(full.getServing_size_g(), deterministic.getServing_size_g());
+        assertEquals(full.getNet_weight_g(), deterministic.getNet_weight_g());
+        assertNull(deterministic.getAi_input_hash());
+
+        EnrichmentPipeline q = new EnrichmentPipeline();
+        EnrichedProduct withAi = q.assemble(raw, q.parse(raw), Map.of("ai_input_hash", "h1", "enrichment_version", 1));
+        assertEquals("h1", withAi.getAi_input_hash());
+        assertEquals(deterministic.getServings(), withAi.getServings());
+    }
+
+    @Test
+    public void enrichPromptIsLongEnoughForThePromptCache() throws Exception {
+        Field f = AIEnricher.class.getDeclaredField("ENRICH_PROMPT");
+        f.setAccessible(true);
+        String prompt = (String) f.get(null);
 
+        // ~4 characters per token: OpenAI caches nothing below 1024 prompt tokens
+        assertTrue(prompt.length() >= 4 * 1024, "prompt too short to be cached: " + prompt.length());
+    }
+}
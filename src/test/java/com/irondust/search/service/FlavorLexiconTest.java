@@ -0,0 +1,48 @@
+package com.irondust.search.service;
+
+import com.irondust.search.service.enrichment.FlavorLexicon;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the shared flavor dictionary used by Normalizer and ingest flavor guessing.
+ */
+public class FlavorLexiconTest {
+
+    @Test
+    public void mapsStoreSlugsIncludingLocaleSuffix() {
+        assertEquals("unflavored", FlavorLexicon.canonicalFromSlug("ei-mingit-maitset"));
+        assertEquals("chocolate", FlavorLexicon.canonicalFromSlug("sokolaad-et"));
+        assertEquals("vanilla", FlavorLexicon.canonicalFromSlug("vanilla"));
+        assertNull(FlavorLexicon.canonicalFromSlug("300g"));
+        assertNull(FlavorLexicon.canonicalFromSlug(null));
+    }
+
+    @Test
+    public void foldsDiacriticsButKeepsNameSpelling() {
+        FlavorLexicon.Match m = FlavorLexicon.find("Whey Protein 900g Šokolaad");
+        assertNotNull(m);
+        assertEquals("chocolate", m.canonical());
+        assertEquals("šokolaad", m.surface());
+    }
+
+    @Test
+    public void prefersPhrasesThenDictionaryOrder() {
+        assertEquals("white_chocolate", FlavorLexicon.find("Casein Valge-Šokolaad 1kg").canonical());
+        // "vanilla" ranks before "coffee" regardless of position in the name
+        assertEquals("vanilla", FlavorLexicon.find("Iced Coffee Vanilla 500g").canonical());
+    }
+
+    @Test
+    public void trailingBracketWins() {
+        FlavorLexicon.Match m = FlavorLexicon.find("Vanilla Whey 2kg (maasikas)");
+        assertEquals("strawberry", m.canonical());
+    }
+
+    @Test
+    public void matchesWholeTokensOnly() {
+        assertNull(FlavorLexicon.find("Kolagen 300g"));
+        assertNull(FlavorLexicon.find("Creatine Monohydrate"));
+    }
+}
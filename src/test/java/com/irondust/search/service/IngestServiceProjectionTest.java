@@ -0,0 +1,47 @@
+package com.irondust.search.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.irondust.search.config.AppProperties;
+import com.irondust.search.model.ProductDoc;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IngestServiceProjectionTest {
+
+    @Test
+    public void failedLanguageIsReportedAndTheOthersStillPublish() {
+        AppProperties props = new AppProperties();
+        List<String> written = Collections.synchronizedList(new ArrayList<>());
+        MeiliService meili = new MeiliService(null, new ObjectMapper(), props) {
+            @Override
+            public Mono<Void> ensureIndexWithSettings(String index, List<String> filterable, List<String> sortable,
+                                                      List<String> searchable) {
+                return Mono.empty();
+            }
+
+            @Override
+            public Mono<Void> addOrReplaceDocuments(String index, List<?> documents) {
+                if (index.endsWith("_ru")) return Mono.error(new IllegalStateException("index_not_accessible"));
+                written.add(index);
+                return Mono.empty();
+            }
+        };
+        IngestService ingest = new IngestService(null, meili, props, null, null, null, null, null, null, null, null, null);
+        ProductDoc doc = new ProductDoc();
+        doc.setId("wc_1");
+        doc.setName("Vadakuvalk");
+        Map<String, String> failures = new LinkedHashMap<>();
+
+        ingest.publishLanguageProjections(List.of(doc), List.of("id"), List.of(), 10, 1, null, failures)
+                .block(Duration.ofSeconds(5));
+
+        assertEquals(Set.of("ru"), failures.keySet());
+        assertTrue(failures.get("ru").contains("index_not_accessible"), failures.toString());
+        assertEquals(List.of(props.getIndexName() + "_est", props.getIndexName() + "_en"), written);
+    }
+}
@@ -0,0 +1,55 @@
+package com.irondust.search.service;
+
+import com.irondust.search.model.ProductDoc;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LanguageProjectionTest {
+
+    @Test
+    public void projectionCopiesLanguageFieldsAndDropsI18nMaps() {
+        ProductDoc d = new ProductDoc();
+        d.setId("wc_1");
+        d.setName("Vadakuvalk Vanill");
+        d.setForm("pulber");
+        d.setCategories_names(List.of("Valgud"));
+        d.setName_i18n(Map.of("en", "Whey Protein Vanilla", "ru", "Сывороточный протеин"));
+        d.setForm_i18n(Map.of("en", "powder"));
+        d.setCategories_names_i18n(Map.of("en", List.of("Proteins")));
+        d.setDescription_i18n(Map.of("en", "<p>Great whey</p>"));
+
+        Map<String, Object> en = LanguageProjection.projectAll(List.of(d), "en").get(0);
+
+        assertEquals("Whey Protein Vanilla", en.get("name"));
+        assertEquals("powder", en.get("form"));
+        assertEquals(List.of("Proteins"), en.get("categories_names"));
+        assertEquals("<p>Great whey</p>", en.get("description"));
+        assertEquals("<p>Great whey</p>", en.get("search_text"), "search_text falls back to localized description");
+        for (String f : LanguageProjection.I18N_FIELDS) {
+            assertFalse(en.containsKey(f), f + " should be dropped from projections");
+        }
+    }
+
+    @Test
+    public void missingTranslationKeepsSourceValue() {
+        ProductDoc d = new ProductDoc();
+        d.setId("wc_2");
+        d.setForm("pulber");
+        d.setForm_i18n(Map.of("en", "powder"));
+
+        Map<String, Object> ru = LanguageProjection.projectAll(List.of(d), "ru").get(0);
+
+        assertEquals("pulber", ru.get("form"));
+    }
+
+    @Test
+    public void searchableAttributesRankOwnSynonymsFirst() {
+        List<String> est = LanguageProjection.searchableAttributes(TranslationService.LANG_EST);
+        assertTrue(est.indexOf("synonyms_et") < est.indexOf("synonyms_en"));
+        assertFalse(est.contains("name_i18n"));
+    }
+}
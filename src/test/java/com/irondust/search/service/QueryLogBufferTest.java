@@ -0,0 +1,37 @@
+package com.irondust.search.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryLogBufferTest {
+
+    private static QueryLogService.QueryEvent event(String q) {
+        return new QueryLogService.QueryEvent(OffsetDateTime.now(), "/search", q, "en",
+                QueryLogService.MODE_LEXICAL, 3, 12, 1, false);
+    }
+
+    @Test
+    public void dropsInsteadOfGrowingPastCapacity() {
+        QueryLogService.Buffer buffer = new QueryLogService.Buffer(2);
+        assertTrue(buffer.offer(event("a")));
+        assertTrue(buffer.offer(event("b")));
+        assertFalse(buffer.offer(event("c")));
+        assertEquals(2, buffer.size());
+        assertEquals(1, buffer.dropped());
+    }
+
+    @Test
+    public void drainsInArrivalOrderUpToBatchSize() {
+        QueryLogService.Buffer buffer = new QueryLogService.Buffer(10);
+        for (String q : List.of("a", "b", "c")) buffer.offer(event(q));
+        assertEquals(List.of("a", "b"), buffer.drain(2).stream().map(QueryLogService.QueryEvent::query).toList());
+        assertEquals(1, buffer.size());
+        assertTrue(buffer.offer(event("d")));
+        assertEquals(List.of("c", "d"), buffer.drain(5).stream().map(QueryLogService.QueryEvent::query).toList());
+        assertEquals(0, buffer.size());
+    }
+}
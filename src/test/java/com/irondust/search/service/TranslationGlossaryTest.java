@@ -0,0 +1,117 @@
+package com.irondust.search.service;
+
+import com.irondust.search.util.TokenAccounting;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TranslationGlossaryTest {
+
+    private static TranslationGlossary.Term term(String kind, String text, String targetLang) {
+        return new TranslationGlossary.Term(kind, TranslationService.LANG_EST, targetLang, text);
+    }
+
+    @Test
+    public void resolvesCuratedTermsByCanonicalKeyOrAnyLanguage(@TempDir Path dir) {
+        TranslationGlossary glossary = new TranslationGlossary(dir.resolve("g.json").toFile(), null);
+
+        assertEquals("tablets", glossary.lookup("form", "est", "en", "tabs"));
+        assertEquals("таблетки", glossary.lookup("form", "est", "ru", "Tabletid"));
+        assertEquals("white chocolate", glossary.lookup("flavor", "est", "en", "white_chocolate"));
+        assertEquals("Vitamins", glossary.lookup("category", "est", "en", "vitamiinid"));
+        assertNull(glossary.lookup("category", "est", "en", "Kollageen"));
+        assertNull(glossary.lookup("flavor", "est", "en", "a".repeat(TranslationGlossary.MAX_TERM_LENGTH + 1)));
+
+        assertEquals(5L, glossary.stats().get("terms_total"));
+        assertEquals(4L, glossary.stats().get("terms_hit"));
+    }
+
+    @Test
+    public void batchesNewTermsAcrossCallersAndTranslatesEachOnce(@TempDir Path dir) {
+        List<List<TranslationGlossary.Term>> batches = new CopyOnWriteArrayList<>();
+        TranslationGlossary glossary = new TranslationGlossary(dir.resolve("g.json").toFile(), terms -> {
+            batches.add(terms);
+            Map<TranslationGlossary.Term, String> out = new HashMap<>();
+            for (TranslationGlossary.Term t : terms) out.put(t, t.text().toUpperCase());
+            return Mono.just(out);
+        });
+        TranslationGlossary.Term collagen = term("category", "Kollageen", "en");
+        TranslationGlossary.Term mango = term("flavor", "mango", "en");
+        TranslationGlossary.Term powder = term("form", "powder", "en");
+
+        var both = Mono.zip(glossary.resolve(List.of(collagen, powder)), glossary.resolve(List.of(collagen, mango)))
+                .block(Duration.ofSeconds(5));
+
+        assertNotNull(both);
+        assertEquals(Map.of(collagen, "KOLLAGEEN", powder, "powder"), both.getT1());
+        assertEquals(Map.of(collagen, "KOLLAGEEN", mango, "MANGO"), both.getT2());
+        assertEquals(1, batches.size(), "both products share one batch");
+        assertEquals(Set.of(collagen, mango), new HashSet<>(batches.get(0)));
+
+        assertEquals("KOLLAGEEN", glossary.lookup("category", "est", "en", "kollageen"));
+        assertEquals(2L, glossary.stats().get("terms_learned"));
+    }
+
+    @Test
+    public void runStatsCountOnlyThatRunsLookupsAndBatches(@TempDir Path dir) {
+        TranslationGlossary glossary = new TranslationGlossary(dir.resolve("g.json").toFile(), terms -> {
+            Map<TranslationGlossary.Term, String> out = new HashMap<>();
+            for (TranslationGlossary.Term t : terms) out.put(t, t.text().toUpperCase());
+            return Mono.just(out);
+        });
+        TokenAccounting full = new TokenAccounting("full", "full");
+        TokenAccounting targeted = new TokenAccounting("targeted", "targeted");
+
+        Mono.zip(
+                TokenAccounting.defer(() -> glossary.resolve(List.of(term("category", "Kollageen", "en"), term("form", "powder", "en"))))
+                        .contextWrite(Context.of(TokenAccounting.CONTEXT_KEY, full)),
+                TokenAccounting.defer(() -> glossary.resolve(List.of(term("form", "tabs", "en"))))
+                        .contextWrite(Context.of(TokenAccounting.CONTEXT_KEY, targeted)))
+                .block(Duration.ofSeconds(5));
+
+        Map<String, Object> fullStats = glossary.stats(full);
+        assertEquals(2L, fullStats.get("terms_total"));
+        assertEquals(1L, fullStats.get("terms_hit"));
+        assertEquals(1L, fullStats.get("batches"));
+        assertEquals(1L, fullStats.get("terms_learned"));
+        Map<String, Object> targetedStats = glossary.stats(targeted);
+        assertEquals(1L, targetedStats.get("terms_total"));
+        assertEquals(1L, targetedStats.get("terms_hit"));
+        assertEquals(0L, targetedStats.get("batches"));
+        assertEquals(0L, targetedStats.get("terms_learned"));
+    }
+
+    @Test
+    public void failedBatchLeavesTermsUnresolved(@TempDir Path dir) {
+        TranslationGlossary glossary = new TranslationGlossary(dir.resolve("g.json").toFile(),
+                terms -> Mono.error(new RuntimeException("boom")));
+        TranslationGlossary.Term mango = term("flavor", "mango", "ru");
+
+        Map<TranslationGlossary.Term, String> out = glossary.resolve(List.of(mango)).block(Duration.ofSeconds(5));
+
+        assertNotNull(out);
+        assertTrue(out.isEmpty());
+        assertNull(glossary.lookup("flavor", "est", "ru", "mango"));
+    }
+
+    @Test
+    public void persistsLearnedTermsAcrossInstances(@TempDir Path dir) {
+        File file = dir.resolve("g.json").toFile();
+        TranslationGlossary first = new TranslationGlossary(file, null);
+        first.put(term("category", "Kollageen", "ru"), "Коллаген");
+        first.flush();
+
+        TranslationGlossary second = new TranslationGlossary(file, null);
+        assertEquals("Коллаген", second.lookup("category", "est", "ru", "KOLLAGEEN"));
+        assertEquals(1, second.stats().get("entries"));
+    }
+}
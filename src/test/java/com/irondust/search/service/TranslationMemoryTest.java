@@ -0,0 +1,101 @@
+package com.irondust.search.service;
+
+import com.irondust.search.util.TokenAccounting;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TranslationMemoryTest {
+
+    private static final String HTML = "<article>\n<p><strong>Toote nimetus:</strong><br>ICONFIT Zinc N90</p>\n"
+            + "<p>Taimsed kapslid, 90 tk purgis. Iga kapsel sisaldab 25 mg tsinki.</p><ul><li>Vegan</li></ul></article>";
+
+    @Test
+    public void segmentsByBlockAndSentenceAndReassemblesMarkup() {
+        TranslationMemory.Segmented seg = TranslationMemory.segment(HTML);
+        assertEquals(List.of("<strong>Toote nimetus:</strong>", "ICONFIT Zinc N90",
+                "Taimsed kapslid, 90 tk purgis.", "Iga kapsel sisaldab 25 mg tsinki.", "Vegan"), seg.segments());
+        assertEquals(HTML, seg.reassemble(seg.segments()));
+
+        List<String> upper = new ArrayList<>();
+        for (String s : seg.segments()) upper.add(s.toUpperCase());
+        String out = seg.reassemble(upper);
+        assertTrue(out.contains("<p>TAIMSED KAPSLID, 90 TK PURGIS. IGA KAPSEL SISALDAB 25 MG TSINKI.</p>"), out);
+        assertTrue(out.contains("<li>VEGAN</li>"), out);
+    }
+
+    @Test
+    public void marksSegmentsThatOpenAParagraph() {
+        TranslationMemory.Segmented seg = TranslationMemory.segment(HTML);
+        List<Boolean> opens = new ArrayList<>();
+        for (int i = 0; i < seg.segments().size(); i++) opens.add(seg.opensParagraph(i));
+        // "<br>" is a block tag; the second sentence of a paragraph continues it
+        assertEquals(List.of(true, true, true, false, true), opens);
+    }
+
+    @Test
+    public void chunksLongTextsAtParagraphBoundaries() {
+        String p = "x".repeat(400); // ~100 tokens
+        List<String> segments = List.of(p, p, p, p, p);
+        List<Boolean> opens = List.of(true, false, true, false, true);
+
+        assertEquals(List.of(0), TranslationMemory.chunkStarts(segments, opens, 600), "fits one request");
+        assertEquals(List.of(0), TranslationMemory.chunkStarts(segments, opens, 0), "0 disables chunking");
+        assertEquals(List.of(0, 2, 4), TranslationMemory.chunkStarts(segments, opens, 250));
+        // A paragraph larger than a chunk is cut between sentences
+        assertEquals(List.of(0, 1, 2), TranslationMemory.chunkStarts(List.of(p, p, p), List.of(true, false, false), 150));
+        assertEquals(List.of(), TranslationMemory.chunkStarts(List.of(), List.of(), 150));
+    }
+
+    @Test
+    public void looksUpByNormalizedTextPerLanguagePair(@TempDir Path dir) {
+        TranslationMemory memory = new TranslationMemory(dir.resolve("tm.json").toFile());
+        memory.put("est", "en", "Hoida  kuivas\nkohas.", "Store in a dry place.");
+
+        assertEquals("Store in a dry place.", memory.lookup("est", "en", "Hoida kuivas kohas."));
+        assertNull(memory.lookup("est", "ru", "Hoida kuivas kohas."));
+        assertEquals("25 %", memory.lookup("est", "en", "25 %"), "segments without letters translate to themselves");
+
+        assertEquals(2L, memory.stats().get("segments_total"));
+        assertEquals(1L, memory.stats().get("segments_hit"));
+        memory.resetStats();
+        assertEquals(0L, memory.stats().get("segments_total"));
+    }
+
+    @Test
+    public void runStatsCountOnlyThatRunsLookups(@TempDir Path dir) throws Exception {
+        TranslationMemory memory = new TranslationMemory(dir.resolve("tm.json").toFile());
+        memory.put("est", "en", "Hoida kuivas kohas.", "Store in a dry place.");
+        TokenAccounting full = new TokenAccounting("full", "full");
+        TokenAccounting targeted = new TokenAccounting("targeted", "targeted");
+
+        TokenAccounting.callWith(full, () -> memory.lookup("est", "en", "Hoida kuivas kohas."));
+        TokenAccounting.callWith(targeted, () -> memory.lookup("est", "ru", "Hoida kuivas kohas."));
+        TokenAccounting.callWith(full, () -> memory.lookup("est", "en", "Vegan"));
+
+        assertEquals(2L, memory.stats(full).get("segments_total"));
+        assertEquals(1L, memory.stats(full).get("segments_hit"));
+        assertEquals(0.5, memory.stats(full).get("hit_rate"));
+        assertEquals(1L, memory.stats(targeted).get("segments_total"));
+        assertEquals(0L, memory.stats(targeted).get("segments_hit"));
+        assertEquals(1, memory.stats(targeted).get("entries"));
+    }
+
+    @Test
+    public void persistsAcrossInstances(@TempDir Path dir) {
+        File file = dir.resolve("tm.json").toFile();
+        TranslationMemory first = new TranslationMemory(file);
+        first.put("est", "ru", "Vegan", "Веган");
+        first.flush();
+
+        TranslationMemory second = new TranslationMemory(file);
+        assertEquals("Веган", second.lookup("est", "ru", "Vegan"));
+        assertEquals(1, second.stats().get("entries"));
+    }
+}
@@ -1,13 +1,199 @@
 package com.irondust.search.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.reactive.function.client.WebClient;
 
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class TranslationServiceTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /** Six paragraphs of about 10 tokens each: three chunk requests at 25 tokens per chunk. */
+    private static final List<String> PARAGRAPHS = List.of(
+            "Esimene lause kirjeldab seda toodet pikalt.",
+            "Teine lause kirjeldab kasutamist igal hommikul.",
+            "Kolmas lause kirjeldab koostist ja maitset.",
+            "Neljas lause kirjeldab hoiustamist kuivas kohas.",
+            "Viies lause kirjeldab tootjat ja päritolu.",
+            "Kuues lause kirjeldab pakendit ja kogust.");
+
+    private HttpServer server;
+
+    @AfterEach
+    public void stopServer() {
+        if (server != null) server.stop(0);
+    }
+
+    /** Chat completions answered by {@code responder}: request body in, message content out (null → HTTP 500). */
+    private interface Responder {
+        JsonNode answer(JsonNode userContent) throws Exception;
+    }
+
+    private TranslationService stubbedService(Path dir, Responder responder) throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/chat/completions", exchange -> {
+            try {
+                JsonNode request = MAPPER.readTree(exchange.getRequestBody().readAllBytes());
+                JsonNode messages = request.path("messages");
+                JsonNode content = responder.answer(MAPPER.readTree(messages.path(messages.size() - 1).path("content").asText()));
+                if (content == null) {
+                    respond(exchange, 500, "{}");
+                    return;
+                }
+                ObjectNode response = MAPPER.createObjectNode();
+                response.put("model", "gpt-4o-mini");
+                response.putArray("choices").addObject().putObject("message").put("content", content.toString());
+                respond(exchange, 200, response.toString());
+            } catch (Exception e) {
+                respond(exchange, 500, "{}");
+            }
+        });
+        server.start();
+        WebClient webClient = WebClient.builder()
+                .baseUrl("http://127.0.0.1:" + server.getAddress().getPort())
+                .defaultHeader("Content-Type", "application/json")
+                .build();
+        TranslationService svc = new TranslationService(MAPPER, webClient,
+                new TranslationMemory(dir.resolve("tm.json").toFile()), 25);
+        svc.retryBackoff = Duration.ofMillis(1);
+        return svc;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws java.io.IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+
+    /** Chunk request answer: each segment prefixed per language, optionally leaving {@code omit} out of Russian. */
+    private static JsonNode chunkAnswer(JsonNode userContent, String omit) {
+        ObjectNode out = MAPPER.createObjectNode();
+        ObjectNode en = out.putObject("en").putObject("segments");
+        ObjectNode ru = out.putObject("ru").putObject("segments");
+        for (Iterator<Map.Entry<String, JsonNode>> it = userContent.path("segments").fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> e = it.next();
+            en.put(e.getKey(), "EN " + e.getValue().asText());
+            if (!e.getKey().equals(omit)) ru.put(e.getKey(), "РУ " + e.getValue().asText());
+        }
+        return out;
+    }
+
+    private static JsonNode productAnswer() {
+        ObjectNode out = MAPPER.createObjectNode();
+        out.putObject("en").put("name", "Whey protein for testing");
+        out.putObject("ru").put("name", "Сывороточный протеин для теста");
+        return out;
+    }
+
+    private static TranslationService.ProductTranslation longProduct() {
+        TranslationService.ProductTranslation source = new TranslationService.ProductTranslation();
+        source.name = "Vadakuvalk testimiseks";
+        StringBuilder html = new StringBuilder();
+        for (String p : PARAGRAPHS) html.append("<p>").append(p).append("</p>\n");
+        source.description = html.toString();
+        return source;
+    }
+
+    @Test
+    public void chunkedSegmentsAreStitchedBackInDocumentOrder(@TempDir Path dir) throws Exception {
+        AtomicInteger chunkCalls = new AtomicInteger();
+        TranslationService svc = stubbedService(dir, content -> {
+            if (content.has("name")) return productAnswer();
+            chunkCalls.incrementAndGet();
+            return chunkAnswer(content, null);
+        });
+
+        Map<String, TranslationService.ProductTranslation> out =
+                svc.translateProduct(TranslationService.LANG_EST, longProduct()).block(Duration.ofSeconds(10));
+
+        assertNotNull(out);
+        assertEquals(3, chunkCalls.get());
+        assertEquals("Whey protein for testing", out.get("en").name);
+        String en = out.get("en").description;
+        String ru = out.get("ru").description;
+        int last = -1;
+        for (String p : PARAGRAPHS) {
+            int at = en.indexOf("EN " + p);
+            assertTrue(at > last, "paragraph out of order or missing: " + p + " in " + en);
+            last = at;
+            assertTrue(ru.contains("РУ " + p), ru);
+        }
+    }
+
+    @Test
+    public void incompleteChunkIsRetriedAlone(@TempDir Path dir) throws Exception {
+        AtomicInteger chunkCalls = new AtomicInteger();
+        AtomicBoolean omitted = new AtomicBoolean();
+        TranslationService svc = stubbedService(dir, content -> {
+            if (content.has("name")) return productAnswer();
+            chunkCalls.incrementAndGet();
+            // The chunk holding s2 first comes back without its Russian s2
+            boolean omit = content.path("segments").has("s2") && omitted.compareAndSet(false, true);
+            return chunkAnswer(content, omit ? "s2" : null);
+        });
+
+        Map<String, TranslationService.ProductTranslation> out =
+                svc.translateProduct(TranslationService.LANG_EST, longProduct()).block(Duration.ofSeconds(10));
+
+        assertNotNull(out);
+        assertEquals(4, chunkCalls.get(), "three chunks plus one retry");
+        assertTrue(out.get("ru").description.contains("РУ " + PARAGRAPHS.get(2)), out.get("ru").description);
+        assertTrue(out.get("ru").warnings == null
+                || out.get("ru").warnings.stream().noneMatch(w -> w.startsWith("translation_segments_missing")));
+    }
+
+    @Test
+    public void chunksSurviveAFailedProductRequest(@TempDir Path dir) throws Exception {
+        AtomicInteger productCalls = new AtomicInteger();
+        TranslationService svc = stubbedService(dir, content -> {
+            if (!content.has("name")) return chunkAnswer(content, null);
+            productCalls.incrementAndGet();
+            return null;
+        });
+        TranslationService.ProductTranslation source = longProduct();
+
+        Map<String, TranslationService.ProductTranslation> out =
+                svc.translateProduct(TranslationService.LANG_EST, source).block(Duration.ofSeconds(10));
+
+        assertNotNull(out);
+        assertEquals(4, productCalls.get(), "the product request is retried, then falls back");
+        assertEquals(source, out.get("en"), "a failed product request falls back to the source");
+        // Every chunk reached the memory anyway: the next attempt only sends the product fields
+        TranslationMemory reloaded = new TranslationMemory(dir.resolve("tm.json").toFile());
+        List<String> missing = new ArrayList<>();
+        for (String p : PARAGRAPHS) {
+            if (!("EN " + p).equals(reloaded.lookup("est", "en", p))) missing.add("en: " + p);
+            if (!("РУ " + p).equals(reloaded.lookup("est", "ru", p))) missing.add("ru: " + p);
+        }
+        assertEquals(List.of(), missing);
+    }
 
     private boolean invokeLooksMistranslated(TranslationService svc,
                                              String sourceLang,
@@ -75,6 +261,37 @@ public class TranslationServiceTest {
         boolean flagged = invokeLooksMistranslated(svc, TranslationService.LANG_EST, TranslationService.LANG_RU, source, outRu);
         assertFalse(flagged, "RU translation with Cyrillic should not be flagged");
     }
-}
 
+    @Test
+    public void multiTargetTaskKeysEachLanguage() throws Exception {
+        TranslationService svc = new TranslationService(null, new ObjectMapper());
+        Method m = TranslationService.class.getDeclaredMethod("buildTaskPrompt", String.class, List.class);
+        m.setAccessible(true);
+
+        String enRu = (String) m.invoke(svc, TranslationService.LANG_EST,
+                List.of(TranslationService.LANG_EN, TranslationService.LANG_RU));
+        assertTrue(enRu.contains("from Estonian"), enRu);
+        assertTrue(enRu.contains("\"en\" (English)"), enRu);
+        assertTrue(enRu.contains("\"ru\" (Russian)"), enRu);
+        assertTrue(enRu.contains("one key per target language code"), enRu);
+
+        String single = (String) m.invoke(svc, TranslationService.LANG_EN, List.of(TranslationService.LANG_EST));
+        assertTrue(single.contains("from English to Estonian"), single);
+        assertTrue(single.contains("field object directly"), single);
+    }
+
+    @Test
+    public void translationPrefixIsTheSameForEveryLanguagePair() throws Exception {
+        Field f = TranslationService.class.getDeclaredField("TRANSLATION_PREFIX");
+        f.setAccessible(true);
+        String prefix = (String) f.get(null);
 
+        // Language-specific guidance lives in the shared prefix, not in a per-pair prompt
+        assertTrue(prefix.contains("When translating into Estonian"), prefix);
+        assertTrue(prefix.contains("\"segments\""), prefix);
+        assertFalse(prefix.contains("%s"), "every placeholder is filled at class load");
+        assertFalse(prefix.contains("Estonian to") || prefix.contains("English to"), "no language pair in the prefix");
+        // ~4 characters per token: OpenAI caches nothing below 1024 prompt tokens
+        assertTrue(prefix.length() >= 4 * 1024, "prefix too short to be cached: " + prefix.length());
+    }
+}
@@ -0,0 +1,66 @@
+package com.irondust.search.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.irondust.search.config.AppProperties;
+import com.irondust.search.util.AdaptiveLimiter;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WooStoreServiceTest {
+
+    /** Store with three pages of one product each; page 2 fails its first {@code page2Failures} requests. */
+    private static WooStoreService store(int page2Failures, Map<Integer, AtomicInteger> requests) {
+        WebClient client = WebClient.builder().exchangeFunction(req -> {
+            int page = Integer.parseInt(req.url().getQuery().replaceAll(".*page=(\\d+).*", "$1"));
+            int n = requests.computeIfAbsent(page, k -> new AtomicInteger()).incrementAndGet();
+            if (page == 2 && n <= page2Failures) {
+                return Mono.just(ClientResponse.create(HttpStatus.BAD_GATEWAY).build());
+            }
+            return Mono.just(ClientResponse.create(HttpStatus.OK)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .header("X-WP-TotalPages", "3")
+                    .body("[{\"id\":" + page + "}]")
+                    .build());
+        }).build();
+        AppProperties props = new AppProperties();
+        props.setPerPage(1);
+        WooStoreService svc = new WooStoreService(client, new ObjectMapper(), props);
+        svc.pageRetryBackoff = Duration.ofMillis(1);
+        return svc;
+    }
+
+    @Test
+    public void failedPageIsRetried() {
+        Map<Integer, AtomicInteger> requests = new ConcurrentHashMap<>();
+        List<JsonNode> products = store(2, requests).paginateProducts(AdaptiveLimiter.fixed("fetch", 4))
+                .collectList().block(Duration.ofSeconds(5));
+
+        assertEquals(List.of(1L, 2L, 3L), products.stream().map(p -> p.path("id").asLong()).toList());
+        assertEquals(3, requests.get(2).get());
+    }
+
+    @Test
+    public void pageFailingAfterRetriesFailsTheListing() {
+        Map<Integer, AtomicInteger> requests = new ConcurrentHashMap<>();
+        Mono<List<JsonNode>> listing = store(Integer.MAX_VALUE, requests)
+                .paginateProducts(AdaptiveLimiter.fixed("fetch", 4)).collectList();
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> listing.block(Duration.ofSeconds(5)));
+        assertTrue(e.getMessage().contains("page 2"), e.getMessage());
+        assertEquals(WooStoreService.PAGE_RETRIES + 1, requests.get(2).get());
+    }
+}
@@ -0,0 +1,195 @@
+package com.irondust.search.service.batch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchRunnerTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /** Answers every job line at once: ids starting with "fail" get a 500, the rest echo their id. */
+    private static class LocalBatchClient implements BatchClient {
+        final List<List<JsonNode>> submitted = new ArrayList<>();
+        final Map<String, List<JsonNode>> outputs = new ConcurrentHashMap<>();
+        final List<String> cancelled = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public Mono<String> submit(Path jobFile) {
+            return Mono.fromCallable(() -> {
+                List<JsonNode> lines = new ArrayList<>();
+                for (String line : Files.readAllLines(jobFile)) lines.add(MAPPER.readTree(line));
+                submitted.add(lines);
+                String id = "batch_" + submitted.size();
+                List<JsonNode> out = new ArrayList<>();
+                for (JsonNode line : lines) {
+                    String customId = line.path("custom_id").asText();
+                    ObjectNode result = MAPPER.createObjectNode();
+                    result.put("custom_id", customId);
+                    ObjectNode response = result.putObject("response");
+                    response.put("status_code", customId.startsWith("fail") ? 500 : 200);
+                    response.putObject("body").put("echo", customId);
+                    out.add(result);
+                }
+                outputs.put(id, out);
+                return id;
+            });
+        }
+
+        @Override
+        public Mono<BatchStatus> status(String batchId) {
+            int n = outputs.get(batchId).size();
+            return Mono.just(new BatchStatus(batchId, "completed", n, n, 0, batchId + "_out"));
+        }
+
+        @Override
+        public Flux<JsonNode> results(BatchStatus status) {
+            return Flux.fromIterable(outputs.get(status.id()));
+        }
+
+        @Override
+        public Mono<Void> cancel(String batchId) {
+            return Mono.fromRunnable(() -> cancelled.add(batchId));
+        }
+    }
+
+    /** Accepts jobs that never reach a terminal state. */
+    private static class StuckBatchClient extends LocalBatchClient {
+        @Override
+        public Mono<BatchStatus> status(String batchId) {
+            return Mono.just(new BatchStatus(batchId, "in_progress", 1, 0, 0, null));
+        }
+    }
+
+    private static BatchRequest request(String customId) {
+        return new BatchRequest(customId, MAPPER.createObjectNode().put("model", "test"));
+    }
+
+    private static BatchRunner runner(BatchClient client, Path dir) {
+        return new BatchRunner(client, dir, Duration.ofMillis(10), Duration.ofSeconds(5));
+    }
+
+    @Test
+    public void loadsSuccessfulResultsAndReportsTheRest(@TempDir Path dir) {
+        LocalBatchClient client = new LocalBatchClient();
+        Map<String, String> loaded = new ConcurrentHashMap<>();
+
+        BatchRunner.Outcome outcome = runner(client, dir).run("enrichment",
+                List.of(request("a"), request("fail-b"), request("c"), request("a")),
+                (id, body) -> loaded.put(id, body.path("echo").asText()) == null,
+                (phase, processed, total, message) -> {})
+                .block(Duration.ofSeconds(5));
+
+        assertNotNull(outcome);
+        assertEquals("batch_1", outcome.batchId());
+        assertEquals("completed", outcome.state());
+        assertEquals(3, outcome.requested());
+        assertEquals(2, outcome.loaded());
+        assertEquals(Set.of("fail-b"), outcome.notLoaded());
+        assertEquals(Map.of("a", "a", "c", "c"), loaded);
+        assertEquals(3, client.submitted.get(0).size(), "duplicate custom ids are sent once");
+        assertEquals("/v1/chat/completions", client.submitted.get(0).get(0).path("url").asText());
+        assertTrue(client.cancelled.isEmpty(), "a completed batch is not cancelled");
+    }
+
+    @Test
+    public void batchExceedingMaxWaitIsCancelled(@TempDir Path dir) {
+        StuckBatchClient client = new StuckBatchClient();
+
+        BatchRunner.Outcome outcome = new BatchRunner(client, dir, Duration.ofMillis(10), Duration.ofMillis(100))
+                .run("enrichment", List.of(request("a")), (id, body) -> true, (phase, processed, total, message) -> {})
+                .block(Duration.ofSeconds(5));
+
+        assertNotNull(outcome);
+        assertEquals("error: TimeoutException", outcome.state());
+        assertEquals(Set.of("a"), outcome.notLoaded());
+        assertEquals(List.of("batch_1"), client.cancelled);
+    }
+
+    @Test
+    public void failedCancelStillYieldsErrorOutcome(@TempDir Path dir) {
+        StuckBatchClient client = new StuckBatchClient() {
+            @Override
+            public Mono<Void> cancel(String batchId) {
+                return Mono.error(new IllegalStateException("cancel refused"));
+            }
+        };
+
+        BatchRunner.Outcome outcome = new BatchRunner(client, dir, Duration.ofMillis(10), Duration.ofMillis(100))
+                .run("translation", List.of(request("a")), (id, body) -> true, (phase, processed, total, message) -> {})
+                .block(Duration.ofSeconds(5));
+
+        assertNotNull(outcome);
+        assertEquals("error: TimeoutException", outcome.state());
+    }
+
+    @Test
+    public void abandonedRunCancelsTheBatch(@TempDir Path dir) throws InterruptedException {
+        StuckBatchClient client = new StuckBatchClient();
+
+        Disposable run = runner(client, dir).run("enrichment", List.of(request("a")),
+                (id, body) -> true, (phase, processed, total, message) -> {}).subscribe();
+        for (int i = 0; i < 200 && client.submitted.isEmpty(); i++) Thread.sleep(5);
+        Thread.sleep(30);
+        run.dispose();
+
+        for (int i = 0; i < 200 && client.cancelled.isEmpty(); i++) Thread.sleep(5);
+        assertEquals(List.of("batch_1"), client.cancelled);
+    }
+
+    @Test
+    public void rejectedResultsStayNotLoaded(@TempDir Path dir) {
+        BatchRunner.Outcome outcome = runner(new LocalBatchClient(), dir).run("translation",
+                List.of(request("a"), request("b")),
+                (id, body) -> id.equals("a"),
+                (phase, processed, total, message) -> {})
+                .block(Duration.ofSeconds(5));
+
+        assertNotNull(outcome);
+        assertEquals(1, outcome.loaded());
+        assertEquals(Set.of("b"), outcome.notLoaded());
+    }
+
+    @Test
+    public void submitFailureYieldsErrorOutcome(@TempDir Path dir) {
+        BatchClient failing = new LocalBatchClient() {
+            @Override
+            public Mono<String> submit(Path jobFile) {
+                return Mono.error(new IllegalStateException("quota"));
+            }
+        };
+
+        BatchRunner.Outcome outcome = runner(failing, dir).run("enrichment",
+                List.of(request("a")), (id, body) -> true, (phase, processed, total, message) -> {})
+                .block(Duration.ofSeconds(5));
+
+        assertNotNull(outcome);
+        assertNull(outcome.batchId());
+        assertEquals("error: IllegalStateException", outcome.state());
+        assertEquals(Set.of("a"), outcome.notLoaded());
+    }
+
+    @Test
+    public void emptyJobIsSkipped(@TempDir Path dir) {
+        LocalBatchClient client = new LocalBatchClient();
+        BatchRunner.Outcome outcome = runner(client, dir).run("translation", List.of(),
+                (id, body) -> true, (phase, processed, total, message) -> {})
+                .block(Duration.ofSeconds(5));
+
+        assertNotNull(outcome);
+        assertEquals("skipped", outcome.state());
+        assertTrue(client.submitted.isEmpty());
+    }
+}
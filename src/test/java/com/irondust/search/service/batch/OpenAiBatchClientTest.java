@@ -0,0 +1,70 @@
+package com.irondust.search.service.batch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OpenAiBatchClientTest {
+
+    private static DataBuffer buffer(String text) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void resultsAreDecodedLineByLineAcrossChunkBoundaries() {
+        // Lines split across body chunks, a blank line and no trailing newline
+        Flux<DataBuffer> body = Flux.just(
+                buffer("{\"custom_id\":\"a\",\"resp"),
+                buffer("onse\":{\"status_code\":200}}\n\n{\"custom_id\":"),
+                buffer("\"b\"}\n{\"custom_id\":\"c\"}"));
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> Mono.just(ClientResponse.create(HttpStatus.OK)
+                        .header("Content-Type", MediaType.APPLICATION_OCTET_STREAM_VALUE)
+                        .body(body)
+                        .build()))
+                .codecs(c -> c.defaultCodecs().maxInMemorySize(64))
+                .build();
+
+        List<JsonNode> lines = new OpenAiBatchClient(webClient)
+                .results(new BatchStatus("batch_1", "completed", 3, 3, 0, "file_1"))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertNotNull(lines);
+        assertEquals(List.of("a", "b", "c"), lines.stream().map(l -> l.path("custom_id").asText()).toList());
+        assertEquals(200, lines.get(0).path("response").path("status_code").asInt());
+    }
+
+    @Test
+    public void cancelPostsToTheBatchCancelEndpoint() {
+        List<String> calls = new ArrayList<>();
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    calls.add(request.method() + " " + request.url().getPath());
+                    return Mono.just(ClientResponse.create(HttpStatus.OK)
+                            .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                            .body("{\"id\":\"batch_1\",\"status\":\"cancelling\"}")
+                            .build());
+                })
+                .build();
+
+        new OpenAiBatchClient(webClient).cancel("batch_1").block(Duration.ofSeconds(5));
+
+        assertEquals(List.of(HttpMethod.POST + " /batches/batch_1/cancel"), calls);
+    }
+}
@@ -0,0 +1,40 @@
+package com.irondust.search.service.suggest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SuggestIndexTest {
+
+    private static SuggestIndex index() {
+        return SuggestIndex.builder()
+                .add("Whey Protein Vanilla", "product", "wc_1", 3.0)
+                .add("Protein Bar", "product", "wc_2", 5.0)
+                .add("Kreatiin Monohüdraat", "product", "wc_3", 2.0)
+                .add("Optimum Nutrition", "brand", null, 4.0)
+                .build();
+    }
+
+    @Test
+    public void matchesWordStartsRankedByScore() {
+        List<SuggestIndex.Suggestion> out = index().lookup("prot", 5, false);
+        assertEquals(List.of("Protein Bar", "Whey Protein Vanilla"), out.stream().map(SuggestIndex.Suggestion::text).toList());
+        assertEquals(1, index().lookup("prot", 1, false).size());
+        assertTrue(index().lookup("rotein", 5, false).isEmpty());
+    }
+
+    @Test
+    public void foldsCaseAndDiacritics() {
+        assertEquals("wc_3", index().lookup("MONOHUD", 5, false).get(0).id());
+        assertEquals("brand", index().lookup("optimum n", 5, false).get(0).type());
+    }
+
+    @Test
+    public void fuzzyToleratesOneTypo() {
+        assertTrue(index().lookup("kreatin", 5, false).isEmpty());
+        assertEquals("wc_3", index().lookup("kreatin", 5, true).get(0).id()); // missing letter
+        assertEquals("wc_3", index().lookup("kraetiin", 5, true).get(0).id()); // transposition
+    }
+}
@@ -0,0 +1,128 @@
+package com.irondust.search.util;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveLimiterTest {
+
+    @Test
+    public void queuesCallsBeyondTheLimit() {
+        AdaptiveLimiter limiter = AdaptiveLimiter.fixed("test", 2);
+        AtomicInteger started = new AtomicInteger();
+        List<Sinks.One<String>> upstreams = new ArrayList<>();
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Sinks.One<String> upstream = Sinks.one();
+            upstreams.add(upstream);
+            results.add(limiter.execute(() -> {
+                started.incrementAndGet();
+                return upstream.asMono();
+            }).toFuture());
+        }
+        assertEquals(2, started.get());
+        assertEquals(2, limiter.inFlight());
+
+        upstreams.get(0).tryEmitValue("a");
+        assertEquals("a", results.get(0).join());
+        assertEquals(3, started.get(), "the freed slot starts the queued call");
+
+        upstreams.get(1).tryEmitValue("b");
+        upstreams.get(2).tryEmitValue("c");
+        assertEquals("c", results.get(2).join());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    public void growsAdditivelyWhileTheLimitIsSaturated() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test", 2, 1, 4);
+        // Two calls at a time keep the stage at its limit; each round of `limit` successes adds one
+        for (int round = 0; round < 40; round++) {
+            Sinks.One<String> a = Sinks.one();
+            Sinks.One<String> b = Sinks.one();
+            CompletableFuture<String> fa = limiter.execute(a::asMono).toFuture();
+            CompletableFuture<String> fb = limiter.execute(b::asMono).toFuture();
+            a.tryEmitValue("a");
+            b.tryEmitValue("b");
+            fa.join();
+            fb.join();
+        }
+        assertTrue(limiter.limit() > 2, "limit grew to " + limiter.limit());
+        assertTrue(limiter.limit() <= 4);
+    }
+
+    @Test
+    public void idleStageDoesNotGrow() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test", 4, 1, 16);
+        for (int i = 0; i < 50; i++) {
+            assertEquals("x", limiter.execute(() -> Mono.just("x")).block(Duration.ofSeconds(1)));
+        }
+        assertEquals(4, limiter.limit());
+    }
+
+    @Test
+    public void overloadHalvesOncePerBurst() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test", 16, 1, 32);
+        for (int i = 0; i < 5; i++) {
+            CompletableFuture<Object> f = limiter.execute(() -> Mono.error(new TimeoutException("slow"))).toFuture();
+            assertThrows(Exception.class, f::join);
+        }
+        assertEquals(8, limiter.limit(), "a burst of failures counts as one signal");
+
+        // Non-overload errors leave the limit alone
+        AdaptiveLimiter other = new AdaptiveLimiter("test", 16, 1, 32);
+        assertThrows(Exception.class, () -> other.execute(() -> Mono.error(new IllegalStateException("bug")))
+                .block(Duration.ofSeconds(1)));
+        assertEquals(16, other.limit());
+    }
+
+    @Test
+    public void reportedOverloadRespectsTheMinimum() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test", 2, 1, 8);
+        limiter.onOverload();
+        assertEquals(1, limiter.limit());
+        Thread.sleep(150);
+        limiter.onOverload();
+        assertEquals(1, limiter.limit());
+    }
+
+    @Test
+    public void cancellingFreesOrForfeitsTheSlot() {
+        AdaptiveLimiter limiter = AdaptiveLimiter.fixed("test", 1);
+        AtomicInteger started = new AtomicInteger();
+        Disposable running = limiter.execute(() -> {
+            started.incrementAndGet();
+            return Mono.never();
+        }).subscribe();
+        Disposable queued = limiter.execute(() -> {
+            started.incrementAndGet();
+            return Mono.never();
+        }).subscribe();
+        assertEquals(1, started.get());
+
+        queued.dispose();
+        running.dispose();
+        assertEquals(0, limiter.inFlight());
+        assertEquals(1, started.get(), "a cancelled waiter never starts");
+
+        assertEquals("next", limiter.execute(() -> Mono.just("next")).block(Duration.ofSeconds(1)));
+    }
+
+    @Test
+    public void classifiesOverloadErrors() {
+        assertTrue(AdaptiveLimiter.isOverload(new TimeoutException()));
+        assertTrue(AdaptiveLimiter.isOverload(new RuntimeException("OpenAI error 429")));
+        assertTrue(AdaptiveLimiter.isOverload(new RuntimeException("wrapped", new TimeoutException())));
+        assertFalse(AdaptiveLimiter.isOverload(new RuntimeException("OpenAI error 400")));
+    }
+}
@@ -0,0 +1,27 @@
+package com.irondust.search.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AppMetricsTest {
+
+    @Test
+    public void operationTagReplacesIdentifiers() {
+        assertEquals("POST /indexes/{}/search", AppMetrics.operation("POST", "/indexes/products_lex_en/search"));
+        assertEquals("GET /indexes/{}/documents/{}", AppMetrics.operation("GET", "/indexes/products_lex/documents/wc_31476"));
+        assertEquals("POST /indexes/{}/documents/fetch", AppMetrics.operation("POST", "/indexes/products_lex/documents/fetch"));
+        assertEquals("POST /collections/{}/points/search", AppMetrics.operation("POST", "/collections/products_vec_lg/points/search"));
+        assertEquals("GET /wp-json/wc/store/v1/products/{}", AppMetrics.operation("GET", "/wp-json/wc/store/v1/products/31476"));
+        assertEquals("POST /v1/chat/completions", AppMetrics.operation("POST", "/v1/chat/completions"));
+        assertEquals("GET /", AppMetrics.operation("GET", ""));
+    }
+
+    @Test
+    public void outcomeBucketsStatusCodes() {
+        assertEquals("success", AppMetrics.outcome(202));
+        assertEquals("rate_limited", AppMetrics.outcome(429));
+        assertEquals("client_error", AppMetrics.outcome(404));
+        assertEquals("server_error", AppMetrics.outcome(503));
+    }
+}
@@ -0,0 +1,187 @@
+package com.irondust.search.util;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTest {
+
+    @Test
+    public void concurrentSubscribersShareOneCall() {
+        SingleFlight<String, String> flight = new SingleFlight<>("test");
+        AtomicInteger calls = new AtomicInteger();
+        Sinks.One<String> upstream = Sinks.one();
+
+        Mono<String> first = flight.execute("k", () -> { calls.incrementAndGet(); return upstream.asMono(); });
+        Mono<String> second = flight.execute("k", () -> { calls.incrementAndGet(); return upstream.asMono(); });
+        CompletableFuture<String> a = first.toFuture();
+        CompletableFuture<String> b = second.toFuture();
+        assertEquals(1, flight.pending());
+
+        upstream.tryEmitValue("done");
+        assertEquals("done", a.join());
+        assertEquals("done", b.join());
+        assertEquals(1, calls.get());
+        assertEquals(0, flight.pending());
+
+        // Finished calls are not cached: the next caller starts a new one
+        assertEquals("again", flight.execute("k", () -> Mono.just("again")).block(Duration.ofSeconds(1)));
+    }
+
+    @Test
+    public void errorsAreSharedAndDifferentKeysRunSeparately() {
+        SingleFlight<String, String> flight = new SingleFlight<>("test");
+        Sinks.One<String> upstream = Sinks.one();
+        CompletableFuture<String> a = flight.execute("k", upstream::asMono).toFuture();
+        CompletableFuture<String> b = flight.execute("k", upstream::asMono).toFuture();
+        assertEquals("other", flight.execute("other", () -> Mono.just("other")).block(Duration.ofSeconds(1)));
+
+        upstream.tryEmitError(new IllegalStateException("boom"));
+        assertInstanceOf(IllegalStateException.class, assertThrows(CompletionException.class, a::join).getCause());
+        assertInstanceOf(IllegalStateException.class, assertThrows(CompletionException.class, b::join).getCause());
+    }
+
+    @Test
+    public void upstreamIsCancelledOnlyWhenEveryCallerCancels() {
+        SingleFlight<String, String> flight = new SingleFlight<>("test");
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Sinks.One<String> upstream = Sinks.one();
+        Mono<String> call = upstream.asMono().doOnCancel(() -> cancelled.set(true));
+
+        Disposable a = flight.execute("k", () -> call).subscribe();
+        Disposable b = flight.execute("k", () -> call).subscribe();
+        a.dispose();
+        assertFalse(cancelled.get());
+        b.dispose();
+        assertTrue(cancelled.get());
+        assertEquals(0, flight.pending());
+
+        assertEquals("fresh", flight.execute("k", () -> Mono.just("fresh")).block(Duration.ofSeconds(1)));
+    }
+
+    @Test
+    public void callAbandonedWhileSubscribingIsDisposed() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>("test");
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Field flights = SingleFlight.class.getDeclaredField("flights");
+        flights.setAccessible(true);
+
+        // The last caller leaves while the call is being subscribed, before its Disposable is known
+        Disposable caller = flight.execute("k", () -> {
+            try {
+                Object f = ((java.util.Map<?, ?>) flights.get(flight)).get("k");
+                Method leave = f.getClass().getDeclaredMethod("leave");
+                leave.setAccessible(true);
+                leave.invoke(f);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+            return Mono.<String>never().doOnCancel(() -> cancelled.set(true));
+        }).subscribe();
+
+        assertTrue(cancelled.get(), "the abandoned call is disposed once subscribed");
+        assertEquals(0, flight.pending());
+        caller.dispose();
+    }
+
+    @Test
+    public void blockingCallersWaitForTheLeader() throws Exception {
+        SingleFlight<String, Integer> flight = new SingleFlight<>("test");
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Future<Integer> leader = pool.submit(() -> flight.call("k", () -> {
+                calls.incrementAndGet();
+                started.countDown();
+                release.await();
+                return 42;
+            }));
+            assertTrue(started.await(1, TimeUnit.SECONDS));
+            Future<Integer> follower = pool.submit(() -> flight.call("k", calls::incrementAndGet));
+            Thread.sleep(100);
+            release.countDown();
+
+            assertEquals(42, leader.get(1, TimeUnit.SECONDS));
+            assertEquals(42, follower.get(1, TimeUnit.SECONDS));
+            assertEquals(1, calls.get());
+            assertEquals(0, flight.pending());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void ownerHittingItsDeadlineDoesNotFailVariantsSharingTheKey() throws Exception {
+        SingleFlight<String, Integer> flight = new SingleFlight<>("test");
+        AtomicInteger calls = new AtomicInteger();
+        AtomicBoolean interrupted = new AtomicBoolean();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            // Variant A owns the call; variant B, sharing its cache key, waits on it
+            Future<Integer> owner = pool.submit(() -> flight.call("k", () -> {
+                calls.incrementAndGet();
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    interrupted.set(true);
+                    throw e;
+                }
+                return 42;
+            }));
+            assertTrue(started.await(1, TimeUnit.SECONDS));
+            Future<Integer> variant = pool.submit(() -> flight.call("k", calls::incrementAndGet));
+            Thread.sleep(100);
+
+            // A's deadline fires: its worker thread is interrupted
+            owner.cancel(true);
+            Thread.sleep(100);
+            release.countDown();
+
+            assertEquals(42, variant.get(1, TimeUnit.SECONDS));
+            assertFalse(interrupted.get(), "the shared call is not interrupted by its owner's deadline");
+            assertEquals(1, calls.get());
+            assertEquals(0, flight.pending());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void interruptedCallerGetsInterruptedExceptionNotAResult() throws Exception {
+        SingleFlight<String, Integer> flight = new SingleFlight<>("test");
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            CompletableFuture<Throwable> failure = new CompletableFuture<>();
+            pool.submit(() -> {
+                try {
+                    flight.call("k", () -> { release.await(); return 1; });
+                    failure.complete(null);
+                } catch (Throwable t) {
+                    failure.complete(t);
+                }
+            });
+            Thread.sleep(100);
+            pool.shutdownNow();
+            assertInstanceOf(InterruptedException.class, failure.get(1, TimeUnit.SECONDS));
+            release.countDown();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.irondust.search.util;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StageTimingsTest {
+
+    @Test
+    public void headerListsStagesInOrderWithRepeatCount() {
+        StageTimings t = new StageTimings();
+        t.record("meili", 12_400_000L);
+        t.record("embed", 5_000_000L);
+        t.record("meili", 1_000_000L);
+
+        String header = t.toHeader();
+        assertTrue(header.startsWith("meili;dur=13.4;desc=\"x2\", embed;dur=5.0, total;dur="), header);
+
+        Map<String, Double> ms = t.millis();
+        assertEquals(13.4, ms.get("meili"));
+        assertEquals(5.0, ms.get("embed"));
+        assertTrue(ms.containsKey("total"));
+    }
+
+    @Test
+    public void timesOnlyWhenCollectorInContext() {
+        StageTimings t = new StageTimings();
+        Mono.just(1)
+                .flatMap(v -> StageTimings.time("meili", Mono.just(v)))
+                .flatMap(StageTimings.map("map", v -> v + 1))
+                .contextWrite(ctx -> ctx.put(StageTimings.CONTEXT_KEY, t))
+                .block();
+        assertEquals(List.of("meili", "map", "total"), List.copyOf(t.millis().keySet()));
+
+        assertEquals(2, StageTimings.time("meili", Mono.just(2)).block());
+        assertEquals(3, StageTimings.<Integer, Integer>map("map", v -> v + 1).apply(2).block());
+    }
+}
@@ -0,0 +1,56 @@
+package com.irondust.search.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TermMatcherTest {
+
+    @Test
+    public void findsOverlappingAndNestedTerms() {
+        TermMatcher m = TermMatcher.of("he", "she", "his", "hers", "gelatin", "gelatine");
+        TermMatcher.Hits hits = m.scan("ushers with gelatine");
+        assertTrue(hits.contains("she"));
+        assertTrue(hits.contains("he"));
+        assertTrue(hits.contains("hers"));
+        assertFalse(hits.contains("his"));
+        assertTrue(hits.contains("gelatin"));
+        assertTrue(hits.contains("gelatine"));
+        assertArrayEquals(new int[]{2}, hits.starts("he"));
+    }
+
+    @Test
+    public void unknownTermsNeverMatch() {
+        TermMatcher.Hits hits = TermMatcher.of("whey").scan("whey protein");
+        assertFalse(hits.contains("protein"));
+        assertTrue(hits.containsAny("casein", "whey"));
+    }
+
+    @Test
+    public void matchesCyrillicAndDiacritics() {
+        TermMatcher m = TermMatcher.of("без глютена", "kreatiin", "monohüdraat");
+        assertTrue(m.scan("протеин без глютена").contains("без глютена"));
+        assertTrue(m.scan("kreatiini monohüdraat 300g").containsAny("monohüdraat"));
+        assertTrue(m.containsAny("kreatiin"));
+        assertFalse(m.containsAny("kreatin"));
+        assertFalse(m.containsAny(null));
+    }
+
+    @Test
+    public void followedByHonoursGapLengthAndCharacters() {
+        TermMatcher m = TermMatcher.of("non", "ei", "vegan", "gluten", "free");
+        assertTrue(m.scan("non-vegan").followedBy("non", "vegan", 1, c -> c == '-' || c == ' '));
+        assertTrue(m.scan("nonvegan").followedBy("non", "vegan", 1, c -> c == '-' || c == ' '));
+        assertFalse(m.scan("non  vegan").followedBy("non", "vegan", 1, c -> c == '-' || c == ' '));
+        assertTrue(m.scan("ei ole vegan").followedBy("ei", "vegan", 20, c -> c != '\n'));
+        assertFalse(m.scan("ei\nvegan").followedBy("ei", "vegan", 20, c -> c != '\n'));
+        assertFalse(m.scan("free of gluten").followedBy("gluten", "free", 1, c -> true));
+    }
+
+    @Test
+    public void emptyTextAndEmptyTermsAreHarmless() {
+        TermMatcher m = TermMatcher.of("", "caps");
+        assertEquals(1, m.size());
+        assertTrue(m.scan("").isEmpty());
+    }
+}
@@ -1,24 +1,24 @@
 package com.irondust.search.util;
 
-import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
- * Tests for {@link TokenAccounting} cost estimation defaults.
+ * Tests for {@link TokenAccounting} cost estimation defaults and run-scoped series.
  * Ensures defaults use per-1K token prices converted from OpenAI per-1M pricing.
  */
 class TokenAccountingTest {
 
-    @AfterEach
-    void cleanUp() {
-        TokenAccounting.reset();
-    }
-
     @Test
     void gpt4oMini_pricing_is_per_1k_converted_from_per_1m() {
         // Given: usage matching the user's report
@@ -26,10 +26,10 @@ class TokenAccountingTest {
         long completion = 1_981_907L; // 1.982M
         long total = prompt + completion;
 
-        TokenAccounting.reset();
-        TokenAccounting.recordChatCompletionUsage("gpt-4o-mini-2024-07-18", prompt, completion, total);
+        TokenAccounting run = new TokenAccounting("test", "full");
+        run.addChatCompletion("enrich", null, "gpt-4o-mini-2024-07-18", prompt, completion, total, 0L, 0L);
 
-        Map<String, TokenAccounting.UsageWithCost> snap = TokenAccounting.snapshotWithCosts();
+        Map<String, TokenAccounting.UsageWithCost> snap = run.snapshotWithCosts();
         TokenAccounting.UsageWithCost usage = snap.get("gpt-4o-mini-2024-07-18");
         assertNotNull(usage);
 
@@ -46,14 +46,130 @@ class TokenAccountingTest {
         long completion = 100_000L;
         long total = prompt + completion;
 
-        TokenAccounting.reset();
-        TokenAccounting.recordChatCompletionUsage("gpt-4o-2024-05-13", prompt, completion, total);
+        TokenAccounting run = new TokenAccounting("test", "full");
+        run.addChatCompletion("translate", "en", "gpt-4o-2024-05-13", prompt, completion, total, 0L, 0L);
 
-        Map<String, TokenAccounting.UsageWithCost> snap = TokenAccounting.snapshotWithCosts();
+        Map<String, TokenAccounting.UsageWithCost> snap = run.snapshotWithCosts();
         TokenAccounting.UsageWithCost usage = snap.get("gpt-4o-2024-05-13");
         assertNotNull(usage);
         assertEquals(2.00, usage.costUsd, 0.001);
     }
-}
 
+    @Test
+    void cached_prompt_tokens_are_billed_at_half_the_input_rate() {
+        // 1M prompt tokens of which 500k cached, no output:
+        // 500k * 0.00015/1k + 500k * 0.000075/1k = 0.075 + 0.0375 = 0.1125 → 0.11 (rounded to cents)
+        TokenAccounting run = new TokenAccounting("test", "full");
+        run.addChatCompletion("enrich", null, "gpt-4o-mini", 1_000_000L, 0L, 1_000_000L, 500_000L, 0L);
+
+        TokenAccounting.UsageWithCost usage = run.snapshotWithCosts().get("gpt-4o-mini");
+        assertNotNull(usage);
+        assertEquals(500_000L, usage.cachedPromptTokens);
+        assertEquals(0.11, usage.costUsd, 0.001);
+    }
+
+    @Test
+    void prompt_cache_hit_rate_covers_chat_prompts_only() {
+        TokenAccounting run = new TokenAccounting("test", "full");
+        run.addChatCompletion("enrich", null, "gpt-4o-mini", 2000L, 100L, 2100L, 1536L, 0L);
+        run.addChatCompletion("enrich", null, "gpt-4o-mini", 2000L, 100L, 2100L, 0L, 0L);
+        run.addEmbedding("embed", "text-embedding-3-large", 50_000L, 0L);
+
+        Map<String, Object> stats = run.promptCacheStats();
+        assertEquals(4000L, stats.get("prompt_tokens"));
+        assertEquals(1536L, stats.get("cached_prompt_tokens"));
+        assertEquals(0.384, (double) stats.get("hit_rate"), 0.0001);
+
+        assertEquals(0L, new TokenAccounting("other", "full").promptCacheStats().get("prompt_tokens"));
+    }
+
+    @Test
+    void series_split_by_step_model_and_language() {
+        TokenAccounting run = new TokenAccounting("test", "full");
+        run.addChatCompletion("translate", "en", "gpt-4o-mini", 1000L, 200L, 1200L, 0L, 40_000_000L);
+        run.addChatCompletion("translate", "en", "gpt-4o-mini", 1000L, 200L, 1200L, 0L, 120_000_000L);
+        run.addChatCompletion("translate", "ru", "gpt-4o-mini", 1000L, 300L, 1300L, 0L, 50_000_000L);
+        run.addStep("ParseStep", 2_000_000L);
+        run.addCacheAccess("ai_enrichment", true);
+        run.addCacheAccess("ai_enrichment", false);
+        run.addCacheAccess("ai_enrichment", true);
+
+        List<TokenAccounting.SeriesRow> rows = run.seriesRows();
+        assertEquals(4, rows.size());
+
+        TokenAccounting.SeriesRow cache = rows.get(0);
+        assertEquals(TokenAccounting.KIND_CACHE, cache.kind());
+        assertEquals(2L, cache.cacheHits());
+        assertEquals(1L, cache.cacheMisses());
+
+        TokenAccounting.SeriesRow en = rows.stream()
+                .filter(r -> "translate".equals(r.step()) && "en".equals(r.lang())).findFirst().orElseThrow();
+        assertEquals(2L, en.calls());
+        assertEquals(2000L, en.promptTokens());
+        assertEquals(400L, en.completionTokens());
+        assertEquals(160L, en.latencyMsTotal());
+        assertEquals(120L, en.latencyMsMax());
+        assertTrue(en.costUsd() > 0.0);
+
+        TokenAccounting.SeriesRow step = rows.stream()
+                .filter(r -> TokenAccounting.KIND_STEP.equals(r.kind())).findFirst().orElseThrow();
+        assertEquals("ParseStep", step.step());
+        assertNull(step.model());
+        assertEquals(0.0, step.costUsd());
+    }
+
+    @Test
+    void runs_in_flight_together_stay_separate() {
+        // Both runs record on their own threads, stepping in lockstep so every record of one run
+        // happens while the other run is mid-call on another thread
+        CyclicBarrier step = new CyclicBarrier(2);
+        Mono<TokenAccounting> a = TokenAccounting.inRun("full", run -> TokenAccounting.fromCallable(() -> {
+            for (int i = 0; i < 3; i++) {
+                step.await(5, TimeUnit.SECONDS);
+                TokenAccounting.recordChatCompletionUsage(TokenAccounting.current(), "enrich", null, "gpt-4o-mini",
+                        100L, 10L, 110L, 0L, 0L);
+                AppMetrics.cacheAccess("translation_segment", true);
+            }
+            return run;
+        }).subscribeOn(Schedulers.boundedElastic()));
+        Mono<TokenAccounting> b = TokenAccounting.inRun("targeted", run -> TokenAccounting.fromCallable(() -> {
+            for (int i = 0; i < 3; i++) {
+                step.await(5, TimeUnit.SECONDS);
+                TokenAccounting.recordChatCompletionUsage(TokenAccounting.current(), "enrich", null, "gpt-4o-mini",
+                        7L, 1L, 8L, 0L, 0L);
+                AppMetrics.cacheAccess("translation_segment", false);
+            }
+            return run;
+        }).subscribeOn(Schedulers.boundedElastic()));
+
+        var both = Mono.zip(a.contextWrite(Context.of(TokenAccounting.RUN_ID_KEY, "run-a")), b)
+                .block(Duration.ofSeconds(10));
+
+        assertNotNull(both);
+        TokenAccounting runA = both.getT1();
+        TokenAccounting runB = both.getT2();
+        assertEquals("run-a", runA.runId());
+        assertNotEquals("run-a", runB.runId());
+        assertEquals(300L, runA.snapshotWithCosts().get("gpt-4o-mini").promptTokens);
+        assertEquals(21L, runB.snapshotWithCosts().get("gpt-4o-mini").promptTokens);
+        assertEquals(new TokenAccounting.CacheStats(3L, 0L), runA.cacheStats("translation_segment"));
+        assertEquals(new TokenAccounting.CacheStats(0L, 3L), runB.cacheStats("translation_segment"));
+        assertNull(TokenAccounting.current(), "the run is unbound from the thread after the call");
+    }
 
+    @Test
+    void counters_and_cache_stats_default_to_zero() {
+        TokenAccounting run = new TokenAccounting("test", "full");
+        run.addCount("glossary", 2L);
+        run.addCount("glossary", 3L);
+        run.addCacheAccess("translation_segment", true);
+        run.addCacheAccess("translation_segment", false);
+        run.addCacheAccess("translation_segment", true);
+
+        assertEquals(5L, run.count("glossary"));
+        assertEquals(0L, run.count("other"));
+        assertEquals(0.667, run.cacheStats("translation_segment").hitRate(), 0.0001);
+        assertEquals(new TokenAccounting.CacheStats(0L, 0L), run.cacheStats("other"));
+        assertEquals(0.0, run.cacheStats("other").hitRate());
+    }
+}